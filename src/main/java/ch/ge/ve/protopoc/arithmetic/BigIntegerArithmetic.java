@@ -22,11 +22,17 @@
 package ch.ge.ve.protopoc.arithmetic;
 
 import ch.ge.ve.protopoc.service.support.JacobiSymbol;
+import com.google.common.base.Preconditions;
 import com.squareup.jnagmp.Gmp;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.stream.IntStream;
 
 /**
  * This class provides simplified access to LibGMP if it is loaded, with fallback to vanilla Java BigInteger methods
@@ -34,6 +40,7 @@ import java.math.BigInteger;
 public class BigIntegerArithmetic {
     private static final Logger log = LoggerFactory.getLogger(BigIntegerArithmetic.class);
     private static final JacobiSymbol jacobiSymbol = new JacobiSymbol();
+    private static final int MULTI_EXP_CHUNK_SIZE = 1 << 12;
     private static boolean gmpLoaded = false;
 
     static {
@@ -57,6 +64,136 @@ public class BigIntegerArithmetic {
         }
     }
 
+    /**
+     * Raises each of the given bases to the same exponent.
+     * <p>
+     * This is the shape of the oblivious transfer response, where the small primes encoding the candidates of an
+     * election are all raised to the same per-election randomness. The exponent is validated (and negated, if needed)
+     * once for the whole batch, and the individual exponentiations are spread across the available cores.
+     * </p>
+     *
+     * @param bases    the bases, all in <tt>[0, modulus)</tt>
+     * @param exponent the shared exponent
+     * @param modulus  the modulus
+     * @return the list of <tt>bases[i]^exponent mod modulus</tt>, in the same order as the bases
+     */
+    public static List<BigInteger> modExpBatch(List<BigInteger> bases, BigInteger exponent, BigInteger modulus) {
+        return modExpBatch(bases, Collections.singletonList(exponent), modulus).get(0);
+    }
+
+    /**
+     * Raises each of the given bases to each of the given exponents, in a single pass over the bases.
+     * <p>
+     * This fuses the exponentiations of a large vector of bases to a few shared exponents, such as the partial
+     * decryptions and the commitments of their proof, so that each base is only read (and inverted, for negative
+     * exponents) once. The exponents are validated and negated, if needed, once for the whole batch, and the bases
+     * are spread across the available cores.
+     * </p>
+     *
+     * @param bases     the bases, all in <tt>[0, modulus)</tt>
+     * @param exponents the shared exponents
+     * @param modulus   the modulus
+     * @return for each exponent, in order, the list of <tt>bases[i]^exponent mod modulus</tt>, in the same order as
+     * the bases
+     */
+    public static List<List<BigInteger>> modExpBatch(List<BigInteger> bases, List<BigInteger> exponents,
+                                                     BigInteger modulus) {
+        final int k = exponents.size();
+        final boolean[] negative = new boolean[k];
+        final BigInteger[] e = new BigInteger[k];
+        boolean anyNegative = false;
+        for (int l = 0; l < k; l++) {
+            negative[l] = exponents.get(l).signum() < 0;
+            e[l] = negative[l] ? exponents.get(l).negate() : exponents.get(l);
+            anyNegative |= negative[l];
+        }
+        final boolean inverse = anyNegative;
+        BigInteger[][] results = new BigInteger[k][bases.size()];
+        IntStream.range(0, bases.size()).parallel().forEach(i -> {
+            BigInteger base = bases.get(i);
+            BigInteger baseInverse = inverse ? modInverse(base, modulus) : null;
+            for (int l = 0; l < k; l++) {
+                BigInteger b = negative[l] ? baseInverse : base;
+                results[l][i] = gmpLoaded ? Gmp.modPowSecure(b, e[l], modulus) : b.modPow(e[l], modulus);
+            }
+        });
+        List<List<BigInteger>> lists = new ArrayList<>();
+        for (BigInteger[] result : results) {
+            lists.add(Arrays.asList(result));
+        }
+        return lists;
+    }
+
+    /**
+     * Computes the product of the given bases, each raised to its own exponent, as a single multi-exponentiation.
+     * <p>
+     * This is meant for many bases with short exponents, such as the random exponents of a batch verification: the
+     * bases are split in chunks, handled in parallel, and each chunk is exponentiated with the bucket method, sharing
+     * the squarings among all the bases of the chunk, rather than with one exponentiation per base.
+     * </p>
+     *
+     * @param bases     the bases, all in <tt>[0, modulus)</tt>
+     * @param exponents the exponents, all non-negative, in the same order as the bases
+     * @param modulus   the modulus
+     * @return the product of the <tt>bases[i]^exponents[i] mod modulus</tt>
+     */
+    public static BigInteger modMultiExp(List<BigInteger> bases, List<BigInteger> exponents, BigInteger modulus) {
+        Preconditions.checkArgument(bases.size() == exponents.size(),
+                "There should be as many exponents as bases");
+        Preconditions.checkArgument(exponents.stream().allMatch(e -> e.signum() >= 0),
+                "The exponents should be non-negative");
+        int chunks = (bases.size() + MULTI_EXP_CHUNK_SIZE - 1) / MULTI_EXP_CHUNK_SIZE;
+        return IntStream.range(0, chunks).parallel()
+                .mapToObj(k -> modMultiExp(bases, exponents, k * MULTI_EXP_CHUNK_SIZE,
+                        Math.min(bases.size(), (k + 1) * MULTI_EXP_CHUNK_SIZE), modulus))
+                .reduce(BigInteger.ONE, (a, b) -> a.multiply(b).mod(modulus));
+    }
+
+    private static BigInteger modMultiExp(List<BigInteger> bases, List<BigInteger> exponents, int from, int to,
+                                          BigInteger modulus) {
+        int bitLength = 0;
+        for (int i = from; i < to; i++) {
+            bitLength = Math.max(bitLength, exponents.get(i).bitLength());
+        }
+        // the window size trading the multiplications into the buckets against the combination of the buckets
+        int c = Math.max(1, Math.min(16, 29 - Integer.numberOfLeadingZeros(to - from)));
+        int mask = (1 << c) - 1;
+        BigInteger[] buckets = new BigInteger[1 << c];
+        // null stands for 1, saving the multiplications by 1
+        BigInteger result = null;
+        for (int w = (bitLength + c - 1) / c - 1; w >= 0; w--) {
+            for (int k = 0; result != null && k < c; k++) {
+                result = result.multiply(result).mod(modulus);
+            }
+            Arrays.fill(buckets, null);
+            for (int i = from; i < to; i++) {
+                int d = exponents.get(i).shiftRight(w * c).intValue() & mask;
+                if (d != 0) {
+                    buckets[d] = multiplyOrSet(buckets[d], bases.get(i), modulus);
+                }
+            }
+            // sum of d * bucket_d, in multiplicative notation, with 2 multiplications per bucket
+            BigInteger running = null;
+            BigInteger windowResult = null;
+            for (int d = mask; d > 0; d--) {
+                if (buckets[d] != null) {
+                    running = multiplyOrSet(running, buckets[d], modulus);
+                }
+                if (running != null) {
+                    windowResult = multiplyOrSet(windowResult, running, modulus);
+                }
+            }
+            if (windowResult != null) {
+                result = multiplyOrSet(result, windowResult, modulus);
+            }
+        }
+        return result == null ? BigInteger.ONE : result;
+    }
+
+    private static BigInteger multiplyOrSet(BigInteger accumulator, BigInteger value, BigInteger modulus) {
+        return accumulator == null ? value : accumulator.multiply(value).mod(modulus);
+    }
+
     public static BigInteger modInverse(BigInteger value, BigInteger modulus) {
         if (gmpLoaded) {
             return Gmp.modInverse(value, modulus);
@@ -65,6 +202,39 @@ public class BigIntegerArithmetic {
         }
     }
 
+    /**
+     * Inverts all the given values with a single modular inversion.
+     * <p>
+     * The running products of the values are inverted once, and the individual inverses are recovered from it by
+     * multiplication (Montgomery's trick), trading each inversion for three multiplications.
+     * </p>
+     *
+     * @param values  the values, all in <tt>[1, modulus)</tt> and invertible
+     * @param modulus the modulus
+     * @return the list of <tt>values[i]^-1 mod modulus</tt>, in the same order as the values
+     * @throws ArithmeticException if one of the values is not invertible
+     */
+    public static List<BigInteger> modInverseBatch(List<BigInteger> values, BigInteger modulus) {
+        int size = values.size();
+        if (size == 0) {
+            return Collections.emptyList();
+        }
+        // prefix[i] = values[0] * ... * values[i]
+        BigInteger[] prefix = new BigInteger[size];
+        prefix[0] = values.get(0);
+        for (int i = 1; i < size; i++) {
+            prefix[i] = prefix[i - 1].multiply(values.get(i)).mod(modulus);
+        }
+        BigInteger inverse = modInverse(prefix[size - 1], modulus);
+        BigInteger[] inverses = new BigInteger[size];
+        for (int i = size - 1; i > 0; i--) {
+            inverses[i] = inverse.multiply(prefix[i - 1]).mod(modulus);
+            inverse = inverse.multiply(values.get(i)).mod(modulus);
+        }
+        inverses[0] = inverse;
+        return Arrays.asList(inverses);
+    }
+
     public static int jacobiSymbol(BigInteger value, BigInteger n) {
         if (gmpLoaded) {
             return Gmp.kronecker(value, n);
@@ -24,17 +24,21 @@ package ch.ge.ve.protopoc.service.algorithm;
 import ch.ge.ve.protopoc.service.model.*;
 import ch.ge.ve.protopoc.service.support.RandomGenerator;
 import com.google.common.base.Preconditions;
+import com.google.common.collect.Lists;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.math.BigInteger;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 import java.util.Map;
+import java.util.function.ObjIntConsumer;
 import java.util.stream.Collectors;
 import java.util.stream.IntStream;
 
 import static ch.ge.ve.protopoc.arithmetic.BigIntegerArithmetic.modExp;
+import static ch.ge.ve.protopoc.arithmetic.BigIntegerArithmetic.modExpBatch;
 import static ch.ge.ve.protopoc.service.support.BigIntegers.multiplyMod;
 import static java.math.BigInteger.ONE;
 import static java.util.function.Function.identity;
@@ -250,7 +254,7 @@ public class DecryptionAuthorityAlgorithms {
                         generalAlgorithms.isMember(e.getB())),
                 "all e_i's must be in G_q^2");
         BigInteger p = publicParameters.getEncryptionGroup().getP();
-        return bold_e.stream().map(e_i -> modExp(e_i.getB(), sk_j, p)).collect(Collectors.toList());
+        return modExpBatch(Lists.transform(bold_e, Encryption::getB), sk_j, p);
     }
 
     /**
@@ -275,14 +279,85 @@ public class DecryptionAuthorityAlgorithms {
 
         BigInteger p = publicParameters.getEncryptionGroup().getP();
         BigInteger q = publicParameters.getEncryptionGroup().getQ();
-        BigInteger g = publicParameters.getEncryptionGroup().getG();
         BigInteger omega = randomGenerator.randomInZq(q);
+
+        List<BigInteger> bold_b = Lists.transform(bold_e, Encryption::getB);
+        return genDecryptionProof(sk_j, pk_j, bold_b, bold_b_prime, omega, modExpBatch(bold_b, omega, p));
+    }
+
+    /**
+     * Algorithms 7.49 and 7.50: GetPartialDecryptions and GenDecryptionProof, in a single pass
+     * <p>
+     * The randomization omega of the proof is drawn first, so that both b_i^sk_j and b_i^omega are computed while
+     * visiting each b_i once.
+     * </p>
+     *
+     * @param sk_j   the private key share of authority j
+     * @param pk_j   the public key share of authority j
+     * @param bold_e the vector of ElGamal encryptions
+     * @return the partial decryptions of the encryptions using sk_j, and the proof of their validity
+     */
+    public PartialDecryptionsAndProof genPartialDecryptionsAndProof(BigInteger sk_j, BigInteger pk_j,
+                                                                    List<Encryption> bold_e) {
+        return genPartialDecryptionsAndProof(sk_j, pk_j, bold_e, Math.max(1, bold_e.size()), (chunk, offset) -> {
+        });
+    }
+
+    /**
+     * Algorithms 7.49 and 7.50: GetPartialDecryptions and GenDecryptionProof, in a single pass, chunk by chunk
+     * <p>
+     * Each chunk of partial decryptions is handed over as soon as it is computed, so that it can be processed while
+     * the next chunks are decrypted. The proof covers the complete vectors, and is only generated at the end.
+     * </p>
+     *
+     * @param sk_j          the private key share of authority j
+     * @param pk_j          the public key share of authority j
+     * @param bold_e        the vector of ElGamal encryptions
+     * @param chunkSize     the number of encryptions per chunk
+     * @param chunkConsumer the consumer of each chunk of partial decryptions, along with the index of its first element
+     * @return the partial decryptions of the encryptions using sk_j, and the proof of their validity
+     */
+    public PartialDecryptionsAndProof genPartialDecryptionsAndProof(BigInteger sk_j, BigInteger pk_j,
+                                                                    List<Encryption> bold_e, int chunkSize,
+                                                                    ObjIntConsumer<List<BigInteger>> chunkConsumer) {
+        Preconditions.checkArgument(chunkSize > 0, "The chunk size must be positive");
+        Preconditions.checkArgument(generalAlgorithms.isInZ_q(sk_j), "sk_j must be in Z_q");
+        Preconditions.checkArgument(generalAlgorithms.isMember(pk_j), "pk_j must be in G_q");
+        Preconditions.checkArgument(bold_e.parallelStream().allMatch(e -> generalAlgorithms.isMember(e.getA()) &&
+                        generalAlgorithms.isMember(e.getB())),
+                "all e_i's must be in G_q^2");
+
+        BigInteger p = publicParameters.getEncryptionGroup().getP();
+        BigInteger q = publicParameters.getEncryptionGroup().getQ();
+        BigInteger omega = randomGenerator.randomInZq(q);
+
+        List<BigInteger> bold_b = Lists.transform(bold_e, Encryption::getB);
+        List<BigInteger> bold_b_prime = new ArrayList<>(bold_b.size());
+        List<BigInteger> bold_b_omega = new ArrayList<>(bold_b.size());
+        for (int from = 0; from < bold_b.size(); from += chunkSize) {
+            List<BigInteger> bold_b_chunk = bold_b.subList(from, Math.min(bold_b.size(), from + chunkSize));
+            List<List<BigInteger>> powers = modExpBatch(bold_b_chunk, Arrays.asList(sk_j, omega), p);
+            bold_b_prime.addAll(powers.get(0));
+            bold_b_omega.addAll(powers.get(1));
+            chunkConsumer.accept(powers.get(0), from);
+        }
+        DecryptionProof pi = genDecryptionProof(sk_j, pk_j, bold_b, bold_b_prime, omega, bold_b_omega);
+
+        return new PartialDecryptionsAndProof(bold_b_prime, pi);
+    }
+
+    private DecryptionProof genDecryptionProof(BigInteger sk_j, BigInteger pk_j, List<BigInteger> bold_b,
+                                               List<BigInteger> bold_b_prime, BigInteger omega,
+                                               List<BigInteger> bold_b_omega) {
+        BigInteger p = publicParameters.getEncryptionGroup().getP();
+        BigInteger q = publicParameters.getEncryptionGroup().getQ();
+        BigInteger g = publicParameters.getEncryptionGroup().getG();
         int tau = publicParameters.getSecurityParameters().getTau();
 
         BigInteger t_0 = modExp(g, omega, p);
-        List<BigInteger> t = bold_e.stream().map(e_i -> modExp(e_i.getB(), omega, p)).collect(Collectors.toList());
-        t.add(0, t_0);
-        List<BigInteger> bold_b = bold_e.stream().map(Encryption::getB).collect(Collectors.toList());
+        List<BigInteger> t = new ArrayList<>(bold_b_omega.size() + 1);
+        t.add(t_0);
+        t.addAll(bold_b_omega);
         Object[] y = {pk_j, bold_b, bold_b_prime};
         BigInteger c = generalAlgorithms.getNIZKPChallenge(y, t.toArray(new BigInteger[0]), tau);
         BigInteger s = omega.add(c.multiply(sk_j)).mod(q);
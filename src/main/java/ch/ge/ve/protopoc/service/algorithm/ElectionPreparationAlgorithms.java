@@ -23,12 +23,11 @@ package ch.ge.ve.protopoc.service.algorithm;
 
 import ch.ge.ve.protopoc.service.model.*;
 import ch.ge.ve.protopoc.service.model.polynomial.Point;
-import ch.ge.ve.protopoc.service.model.polynomial.PointsAndZeroImages;
 import ch.ge.ve.protopoc.service.support.*;
 import com.google.common.base.Preconditions;
 
 import java.math.BigInteger;
-import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 import java.util.stream.Collectors;
 import java.util.stream.IntStream;
@@ -39,6 +38,7 @@ import static ch.ge.ve.protopoc.arithmetic.BigIntegerArithmetic.modExp;
  * Algorithms relevant to the election preparation
  */
 public class ElectionPreparationAlgorithms {
+    private static final int VOTER_RANGE_SIZE = 64;
     private final Hash hash;
     private final RandomGenerator randomGenerator;
     private final BigInteger q_x;
@@ -69,30 +69,58 @@ public class ElectionPreparationAlgorithms {
      * bold_uppper_k derived from bold_k and bold_upper_e
      */
     public ElectorateData genElectorateData(ElectionSet electionSet) {
-        List<SecretVoterData> secretVoterDataList = new ArrayList<>();
-        List<Point> publicVoterDataList = new ArrayList<>();
-        List<List<Point>> randomPoints = new ArrayList<>();
-        List<List<Integer>> allowedSelections = new ArrayList<>();
+        return genElectorateData(electionSet, 0, electionSet.getVoters().size());
+    }
 
-        // for i = 1, ..., upper_n_upper_e (aka N_E)
-        for (Voter voter : electionSet.getVoters()) {
+    /**
+     * Algorithm 7.6: GenElectorateData, restricted to a range of voters
+     * <p>Generates the code sheet data for the voters <tt>from</tt> (inclusive) to <tt>to</tt> (exclusive), so that
+     * a large electorate may be generated and stored chunk by chunk.</p>
+     *
+     * @param electionSet contains all three of <b>bold_n</b>, <b>bold_k</b> and <b>bold_upper_e</b>
+     * @param from        the index of the first voter of the range
+     * @param to          the index following the last voter of the range
+     * @return the generated electorate data for the range, the voter <tt>from</tt> being at index 0
+     */
+    public ElectorateData genElectorateData(ElectionSet electionSet, int from, int to) {
+        List<Voter> voters = electionSet.getVoters();
+        Preconditions.checkPositionIndexes(from, to, voters.size());
+        List<Election> elections = electionSet.getElections();
+        List<Integer> bold_n = electionSet.getBold_n();
+        int rangeSize = to - from;
+        SecretVoterData[] secretVoterData = new SecretVoterData[rangeSize];
+        Point[] publicVoterData = new Point[rangeSize];
+        @SuppressWarnings({"unchecked", "rawtypes"})
+        List<Point>[] randomPoints = new List[rangeSize];
+        @SuppressWarnings({"unchecked", "rawtypes"})
+        List<Integer>[] allowedSelections = new List[rangeSize];
+
+        // the voters are handled by ranges in parallel, each voter's data being stored at the voter's index
+        int rangeCount = (rangeSize + VOTER_RANGE_SIZE - 1) / VOTER_RANGE_SIZE;
+        IntStream.range(0, rangeCount).parallel().forEach(range -> {
+            int rangeStart = range * VOTER_RANGE_SIZE;
+            int rangeEnd = Math.min(rangeSize, (range + 1) * VOTER_RANGE_SIZE);
             // for j = 1, ..., t
-            List<Election> elections = electionSet.getElections();
-            List<Integer> bold_n = elections.stream()
-                    .map(Election::getNumberOfCandidates)
-                    .collect(Collectors.toList());
-            List<Integer> bold_k_i = elections.stream()
-                    .map(e -> electionSet.isEligible(voter, e) ? e.getNumberOfSelections() : 0)
+            List<List<Integer>> bold_upper_k = voters.subList(from + rangeStart, from + rangeEnd).stream()
+                    .map(voter -> elections.stream()
+                            .map(e -> electionSet.isEligible(voter, e) ? e.getNumberOfSelections() : 0)
+                            .collect(Collectors.toList()))
                     .collect(Collectors.toList());
-            PointsAndZeroImages pointsAndZeroImages = polynomialAlgorithms.genPoints(bold_n, bold_k_i);
-            SecretVoterData d_i = genSecretVoterData(pointsAndZeroImages.getPoints());
-            secretVoterDataList.add(d_i);
-            publicVoterDataList.add(getPublicVoterData(d_i.getX(), d_i.getY(), pointsAndZeroImages.getY0s()));
-            randomPoints.add(pointsAndZeroImages.getPoints());
-            allowedSelections.add(bold_k_i);
-        }
-
-        return new ElectorateData(secretVoterDataList, publicVoterDataList, randomPoints, allowedSelections);
+            // the points of all the voters of the range are generated as a batch, each voter's secret data being
+            // generated as soon as the voter's points are, so that each voter draws its random values in one go
+            // for i = 1, ..., upper_n_upper_e (aka N_E)
+            polynomialAlgorithms.genPointsBatch(bold_n, bold_upper_k, (pointsAndZeroImages, l) -> {
+                int i = rangeStart + l;
+                SecretVoterData d_i = genSecretVoterData(pointsAndZeroImages.getPoints());
+                secretVoterData[i] = d_i;
+                publicVoterData[i] = getPublicVoterData(d_i.getX(), d_i.getY(), pointsAndZeroImages.getY0s());
+                randomPoints[i] = pointsAndZeroImages.getPoints();
+                allowedSelections[i] = bold_upper_k.get(l);
+            });
+        });
+
+        return new ElectorateData(Arrays.asList(secretVoterData), Arrays.asList(publicVoterData),
+                Arrays.asList(randomPoints), Arrays.asList(allowedSelections));
     }
 
     /**
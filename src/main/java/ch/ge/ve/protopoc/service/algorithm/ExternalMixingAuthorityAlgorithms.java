@@ -0,0 +1,392 @@
+/*-------------------------------------------------------------------------------------------------
+ - #%L                                                                                            -
+ - chvote-protocol-poc                                                                            -
+ - %%                                                                                             -
+ - Copyright (C) 2016 - 2017 République et Canton de Genève                                       -
+ - %%                                                                                             -
+ - This program is free software: you can redistribute it and/or modify                           -
+ - it under the terms of the GNU Affero General Public License as published by                    -
+ - the Free Software Foundation, either version 3 of the License, or                              -
+ - (at your option) any later version.                                                            -
+ -                                                                                                -
+ - This program is distributed in the hope that it will be useful,                                -
+ - but WITHOUT ANY WARRANTY; without even the implied warranty of                                 -
+ - MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the                                   -
+ - GNU General Public License for more details.                                                   -
+ -                                                                                                -
+ - You should have received a copy of the GNU Affero General Public License                       -
+ - along with this program. If not, see <http://www.gnu.org/licenses/>.                           -
+ - #L%                                                                                            -
+ -------------------------------------------------------------------------------------------------*/
+
+package ch.ge.ve.protopoc.service.algorithm;
+
+import ch.ge.ve.protopoc.service.codec.ElementCodec;
+import ch.ge.ve.protopoc.service.codec.EncryptionCodec;
+import ch.ge.ve.protopoc.service.codec.FixedLengthCodec;
+import ch.ge.ve.protopoc.service.codec.IntegerCodec;
+import ch.ge.ve.protopoc.service.model.*;
+import ch.ge.ve.protopoc.service.support.ExternalScatter;
+import ch.ge.ve.protopoc.service.support.RandomGenerator;
+import com.google.common.base.Preconditions;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.math.BigInteger;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.IntFunction;
+import java.util.function.IntUnaryOperator;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static ch.ge.ve.protopoc.arithmetic.BigIntegerArithmetic.modExp;
+import static java.math.BigInteger.ONE;
+import static java.math.BigInteger.ZERO;
+
+/**
+ * External-memory variant of the shuffle and shuffle proof algorithms of {@link MixingAuthorityAlgorithms}.
+ * <p>
+ * All the vectors of size N (ciphertexts, randomizations, permutation, commitments, challenges, omegas, and the
+ * vectors of the proof) are memory-mapped files in the work directory, and the algorithms only ever hold one chunk
+ * of them in the heap, so that the memory needed does not depend on the number of ballots. Permutations are applied
+ * with an {@link ExternalScatter}, reading the source vectors sequentially, and the products and sums of the proof
+ * are computed in parallel passes over the vectors.
+ * </p>
+ * <p>
+ * The intermediate vectors are deleted once they are no longer needed. The vectors of the returned shuffles and
+ * proofs remain in the work directory, whose cleanup is left to the caller.
+ * </p>
+ */
+public class ExternalMixingAuthorityAlgorithms {
+    private static final Logger log = LoggerFactory.getLogger(ExternalMixingAuthorityAlgorithms.class);
+    private final PublicParameters publicParameters;
+    private final GeneralAlgorithms generalAlgorithms;
+    private final RandomGenerator randomGenerator;
+    private final Path workDirectory;
+    private final int chunkSize;
+
+    /**
+     * @param publicParameters  the public parameters
+     * @param generalAlgorithms the general algorithms
+     * @param randomGenerator   the random generator
+     * @param workDirectory     the directory holding the vectors
+     * @param chunkSize         the number of elements of a vector held in memory at once
+     */
+    public ExternalMixingAuthorityAlgorithms(PublicParameters publicParameters, GeneralAlgorithms generalAlgorithms,
+                                             RandomGenerator randomGenerator, Path workDirectory, int chunkSize) {
+        Preconditions.checkArgument(chunkSize > 0, "The chunk size must be positive");
+        this.publicParameters = publicParameters;
+        this.generalAlgorithms = generalAlgorithms;
+        this.randomGenerator = randomGenerator;
+        this.workDirectory = workDirectory;
+        this.chunkSize = chunkSize;
+    }
+
+    /**
+     * Algorithm 7.41: GenShuffle, in external memory
+     * <p>The input is read sequentially, and the re-encryptions are scattered to their permuted positions.</p>
+     *
+     * @param bold_e the list of ElGamal encryptions
+     * @param pk     the encryption key
+     * @return the result of a shuffle, with all the vectors mapped to files of the work directory
+     */
+    public Shuffle genShuffle(List<Encryption> bold_e, EncryptionPublicKey pk) {
+        Preconditions.checkArgument(bold_e.parallelStream().allMatch(e -> generalAlgorithms.isMember(e.getA()) &&
+                        generalAlgorithms.isMember(e.getB())),
+                "all e_i's should be in G_q^2");
+        Preconditions.checkArgument(generalAlgorithms.isMember(pk.getPublicKey()), "pk should be in G_q");
+        BigInteger p = publicParameters.getEncryptionGroup().getP();
+        BigInteger q = publicParameters.getEncryptionGroup().getQ();
+        BigInteger g = publicParameters.getEncryptionGroup().getG();
+        int upper_n = bold_e.size();
+        List<Path> temporaryFiles = new ArrayList<>();
+
+        try {
+            IntVector psy = genPermutation(upper_n, temporaryFiles);
+            BigIntegerVector bold_r_prime = BigIntegerVector.generate(newFile("r_prime"), upper_n, width(q),
+                    i -> randomGenerator.randomInZq(q));
+            IntVector psy_inverse = invert(psy, temporaryFiles);
+
+            EncryptionVector.Builder bold_e_prime = EncryptionVector.builder(newFile("e_prime"), upper_n, width(p));
+            permute(upper_n, psy_inverse::getInt,
+                    j -> {
+                        Encryption e_j = bold_e.get(j);
+                        BigInteger r_prime_j = bold_r_prime.get(j);
+                        return new Encryption(
+                                e_j.getA().multiply(modExp(pk.getPublicKey(), r_prime_j, p)).mod(p),
+                                e_j.getB().multiply(modExp(g, r_prime_j, p)).mod(p));
+                    },
+                    new EncryptionCodec(new ElementCodec(width(p))), bold_e_prime::set);
+
+            return new Shuffle(bold_e_prime.build(), bold_r_prime, psy);
+        } finally {
+            delete(temporaryFiles);
+        }
+    }
+
+    /**
+     * Algorithm 7.44: GenShuffleProof, in external memory
+     *
+     * @param bold_e       the vector of ElGamal encryptions
+     * @param bold_e_prime the vector of permuted ElGamal re-encryptions
+     * @param bold_r_prime the randomizations used for the re-encryption
+     * @param psy          the permutation used
+     * @param publicKey    the public key for the encryption
+     * @return a proof of the validity of the shuffle, with all the vectors mapped to files of the work directory
+     */
+    public ShuffleProof genShuffleProof(List<Encryption> bold_e, List<Encryption> bold_e_prime,
+                                        List<BigInteger> bold_r_prime, List<Integer> psy,
+                                        EncryptionPublicKey publicKey) {
+        BigInteger p = publicParameters.getEncryptionGroup().getP();
+        BigInteger q = publicParameters.getEncryptionGroup().getQ();
+        BigInteger g = publicParameters.getEncryptionGroup().getG();
+        BigInteger h = publicParameters.getEncryptionGroup().getH();
+        int tau = publicParameters.getSecurityParameters().getTau();
+
+        Preconditions.checkArgument(bold_e.parallelStream().allMatch(e ->
+                        generalAlgorithms.isMember(e.getA()) && generalAlgorithms.isMember(e.getB())),
+                "all e_i's should be in G_q^2");
+        Preconditions.checkArgument(bold_e_prime.parallelStream().allMatch(e_prime ->
+                        generalAlgorithms.isMember(e_prime.getA()) && generalAlgorithms.isMember(e_prime.getB())),
+                "all e_prime_i's should be in G_q^2");
+        Preconditions.checkArgument(bold_r_prime.parallelStream().allMatch(generalAlgorithms::isInZ_q),
+                "all r_prime_i's should be in Z_q");
+        int upper_n = bold_e.size();
+        Preconditions.checkArgument(bold_e_prime.size() == upper_n,
+                "The length of bold_e_prime should be equal to that of bold_e");
+        Preconditions.checkArgument(bold_r_prime.size() == upper_n,
+                "The length of bold_r_prime should be equal to that of bold_e");
+        Preconditions.checkArgument(psy.size() == upper_n,
+                "The length of psy should be equal to that of bold_e");
+
+        BigInteger pk = publicKey.getPublicKey();
+        int width_p = width(p);
+        int width_q = width(q);
+        List<Path> temporaryFiles = new ArrayList<>();
+
+        try {
+            IntVector psy_inverse = invert(psy, temporaryFiles);
+
+            // Algorithm 7.45: GenPermutationCommitment, with bold_h scattered to the permuted positions
+            BigIntegerVector bold_h = BigIntegerVector.generate(newFile("h", temporaryFiles), upper_n, width_p,
+                    generalAlgorithms::getGenerator);
+            BigIntegerVector.Builder bold_h_permuted = BigIntegerVector.builder(newFile("h_psy", temporaryFiles),
+                    upper_n, width_p);
+            permute(upper_n, psy::get, bold_h::get, new ElementCodec(width_p), bold_h_permuted::set);
+            BigIntegerVector bold_h_psy = bold_h_permuted.build();
+            BigIntegerVector bold_r = BigIntegerVector.generate(newFile("r", temporaryFiles), upper_n, width_q,
+                    i -> randomGenerator.randomInZq(q));
+            BigIntegerVector bold_c = BigIntegerVector.generate(newFile("c"), upper_n, width_p,
+                    j -> modExp(g, bold_r.get(j), p).multiply(bold_h_psy.get(j)).mod(p));
+
+            byte[] upper_h = generalAlgorithms.getNIZKPChallengesHash(new Object[]{bold_e, bold_e_prime, bold_c});
+            BigIntegerVector bold_u = BigIntegerVector.generate(newFile("u", temporaryFiles), upper_n,
+                    (tau + 7) / 8, i -> generalAlgorithms.getNIZKPChallenge(upper_h, i + 1, tau));
+            BigIntegerVector.Builder bold_u_permuted = BigIntegerVector.builder(newFile("u_prime", temporaryFiles),
+                    upper_n, bold_u.getWidth());
+            permute(upper_n, psy_inverse::getInt, bold_u::get, new ElementCodec(bold_u.getWidth()),
+                    bold_u_permuted::set);
+            BigIntegerVector bold_u_prime = bold_u_permuted.build();
+
+            BigIntegerVector bold_r_hat = BigIntegerVector.generate(newFile("r_hat", temporaryFiles), upper_n,
+                    width_q, i -> randomGenerator.randomInZq(q));
+            BigIntegerVector bold_c_hat = genCommitmentChain(h, bold_u_prime, bold_r_hat);
+
+            BigInteger omega_1 = randomGenerator.randomInZq(q);
+            BigInteger omega_2 = randomGenerator.randomInZq(q);
+            BigInteger omega_3 = randomGenerator.randomInZq(q);
+            BigInteger omega_4 = randomGenerator.randomInZq(q);
+            BigIntegerVector bold_omega_hat = BigIntegerVector.generate(newFile("omega_hat", temporaryFiles),
+                    upper_n, width_q, i -> randomGenerator.randomInZq(q));
+            BigIntegerVector bold_omega_prime = BigIntegerVector.generate(newFile("omega_prime", temporaryFiles),
+                    upper_n, width_q, i -> randomGenerator.randomInZq(q));
+
+            // h_prod, a_prime_prod and b_prime_prod, in a single pass
+            BigInteger[] products = IntStream.range(0, upper_n).parallel()
+                    .mapToObj(i -> {
+                        BigInteger omega_prime_i = bold_omega_prime.get(i);
+                        Encryption e_prime_i = bold_e_prime.get(i);
+                        return new BigInteger[]{
+                                modExp(bold_h.get(i), omega_prime_i, p),
+                                modExp(e_prime_i.getA(), omega_prime_i, p),
+                                modExp(e_prime_i.getB(), omega_prime_i, p)};
+                    })
+                    .reduce(new BigInteger[]{ONE, ONE, ONE}, (x, y) -> new BigInteger[]{
+                            x[0].multiply(y[0]).mod(p), x[1].multiply(y[1]).mod(p), x[2].multiply(y[2]).mod(p)});
+            BigInteger t_1 = modExp(g, omega_1, p);
+            BigInteger t_2 = modExp(g, omega_2, p);
+            BigInteger t_3 = modExp(g, omega_3, p).multiply(products[0]).mod(p);
+            BigInteger t_4_1 = modExp(pk, omega_4.negate(), p).multiply(products[1]).mod(p);
+            BigInteger t_4_2 = modExp(g, omega_4.negate(), p).multiply(products[2]).mod(p);
+            BigIntegerVector bold_t_hat = BigIntegerVector.generate(newFile("t_hat"), upper_n, width_p,
+                    i -> modExp(g, bold_omega_hat.get(i), p)
+                            .multiply(modExp(i == 0 ? h : bold_c_hat.get(i - 1), bold_omega_prime.get(i), p))
+                            .mod(p));
+            ShuffleProof.T t = new ShuffleProof.T(t_1, t_2, t_3, Arrays.asList(t_4_1, t_4_2), bold_t_hat);
+
+            Object[] y = {bold_e, bold_e_prime, bold_c, bold_c_hat, pk};
+            BigInteger c = generalAlgorithms.getNIZKPChallenge(y, t.elementsToHash(), tau);
+
+            BigIntegerVector v = computeV(bold_u_prime, temporaryFiles);
+            // r_bar, r_hat, r_tilde and r_prime sums, in a single pass
+            BigInteger[] sums = IntStream.range(0, upper_n).parallel()
+                    .mapToObj(i -> {
+                        BigInteger r_i = bold_r.get(i);
+                        BigInteger u_i = bold_u.get(i);
+                        return new BigInteger[]{
+                                r_i,
+                                bold_r_hat.get(i).multiply(v.get(i)),
+                                r_i.multiply(u_i),
+                                bold_r_prime.get(i).multiply(u_i)};
+                    })
+                    .reduce(new BigInteger[]{ZERO, ZERO, ZERO, ZERO}, (x, z) -> new BigInteger[]{
+                            x[0].add(z[0]).mod(q), x[1].add(z[1]).mod(q), x[2].add(z[2]).mod(q),
+                            x[3].add(z[3]).mod(q)});
+            BigInteger s_1 = omega_1.add(c.multiply(sums[0])).mod(q);
+            BigInteger s_2 = omega_2.add(c.multiply(sums[1])).mod(q);
+            BigInteger s_3 = omega_3.add(c.multiply(sums[2])).mod(q);
+            BigInteger s_4 = omega_4.add(c.multiply(sums[3])).mod(q);
+            BigIntegerVector s_hat = BigIntegerVector.generate(newFile("s_hat"), upper_n, width_q,
+                    i -> bold_omega_hat.get(i).add(c.multiply(bold_r_hat.get(i))).mod(q));
+            BigIntegerVector s_prime = BigIntegerVector.generate(newFile("s_prime"), upper_n, width_q,
+                    i -> bold_omega_prime.get(i).add(c.multiply(bold_u_prime.get(i))).mod(q));
+            ShuffleProof.S s = new ShuffleProof.S(s_1, s_2, s_3, s_4, s_hat, s_prime);
+
+            log.info("Shuffle proof generated in external memory");
+            return new ShuffleProof(t, s, bold_c, bold_c_hat);
+        } finally {
+            delete(temporaryFiles);
+        }
+    }
+
+    /**
+     * Algorithm 7.42: GenPermutation, with the permutation and Knuth's working array mapped to files
+     */
+    private IntVector genPermutation(int upper_n, List<Path> temporaryFiles) {
+        IntVector.Builder upper_i = IntVector.builder(newFile("i", temporaryFiles), upper_n);
+        for (int k = 0; k < upper_n; k++) {
+            upper_i.set(k, k);
+        }
+        IntVector.Builder psy = IntVector.builder(newFile("psy"), upper_n);
+        for (int i = 0; i < upper_n; i++) {
+            int k = randomGenerator.randomIntInRange(i, upper_n - 1);
+            psy.set(i, upper_i.get(k));
+            upper_i.set(k, upper_i.get(i));
+        }
+        return psy.build();
+    }
+
+    /**
+     * Algorithm 7.46: GenCommitmentChain, with the randomizations drawn beforehand so that the g^r_i factors can be
+     * computed in parallel, chunk by chunk, ahead of the inherently sequential chain
+     */
+    private BigIntegerVector genCommitmentChain(BigInteger c_0, List<BigInteger> bold_u, List<BigInteger> bold_r) {
+        BigInteger p = publicParameters.getEncryptionGroup().getP();
+        BigInteger g = publicParameters.getEncryptionGroup().getG();
+        int upper_n = bold_u.size();
+
+        BigIntegerVector.Builder bold_c = BigIntegerVector.builder(newFile("c_hat"), upper_n, width(p));
+        BigInteger c_i_minus_one = c_0;
+        for (int from = 0; from < upper_n; from += chunkSize) {
+            int offset = from;
+            List<BigInteger> g_to_r = IntStream.range(from, Math.min(upper_n, from + chunkSize)).parallel()
+                    .mapToObj(i -> modExp(g, bold_r.get(i), p)).collect(Collectors.toList());
+            for (int k = 0; k < g_to_r.size(); k++) {
+                int i = offset + k;
+                BigInteger c_i = g_to_r.get(k).multiply(modExp(c_i_minus_one, bold_u.get(i), p)).mod(p);
+                bold_c.set(i, c_i);
+                c_i_minus_one = c_i;
+            }
+        }
+        return bold_c.build();
+    }
+
+    /**
+     * v_(N-1) = 1, and v_i = u'_(i+1) v_(i+1) mod q, computed backwards
+     */
+    private BigIntegerVector computeV(List<BigInteger> bold_u_prime, List<Path> temporaryFiles) {
+        BigInteger q = publicParameters.getEncryptionGroup().getQ();
+        int upper_n = bold_u_prime.size();
+        BigIntegerVector.Builder v = BigIntegerVector.builder(newFile("v", temporaryFiles), upper_n, width(q));
+        BigInteger v_i = ONE;
+        for (int i = upper_n - 1; i >= 0; i--) {
+            v.set(i, v_i);
+            v_i = bold_u_prime.get(i).multiply(v_i).mod(q);
+        }
+        return v.build();
+    }
+
+    /**
+     * @return the inverse permutation, checking that psy is a permutation on the way
+     */
+    private IntVector invert(List<Integer> psy, List<Path> temporaryFiles) {
+        IntVector.Builder psy_inverse = IntVector.builder(newFile("psy_inverse", temporaryFiles), psy.size());
+        try {
+            permute(psy.size(), psy::get, i -> i, new IntegerCodec(), psy_inverse::set);
+        } catch (IllegalStateException | IndexOutOfBoundsException e) {
+            throw new IllegalArgumentException(
+                    "The permutation should contain all number from 0 (inclusive) to length (exclusive)", e);
+        }
+        return psy_inverse.build();
+    }
+
+    /**
+     * Writes value(j) at index target(j) of the sink, for all j, reading the values in order and writing them chunk by
+     * chunk
+     */
+    private <T> void permute(int upper_n, IntUnaryOperator target, IntFunction<T> value, FixedLengthCodec<T> codec,
+                             IndexedSink<T> sink) {
+        try (ExternalScatter<T> scatter = new ExternalScatter<>(workDirectory, upper_n, chunkSize, codec)) {
+            for (int from = 0; from < upper_n; from += chunkSize) {
+                int to = Math.min(upper_n, from + chunkSize);
+                List<T> values = IntStream.range(from, to).parallel().mapToObj(value).collect(Collectors.toList());
+                for (int j = from; j < to; j++) {
+                    scatter.put(target.applyAsInt(j), values.get(j - from));
+                }
+            }
+            scatter.gather((from, chunk) -> IntStream.range(0, chunk.size()).parallel()
+                    .forEach(k -> sink.set(from + k, chunk.get(k))));
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not apply the permutation in " + workDirectory, e);
+        }
+    }
+
+    private Path newFile(String name) {
+        try {
+            return Files.createTempFile(workDirectory, name + "-", ".vec");
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not create a vector file in " + workDirectory, e);
+        }
+    }
+
+    private Path newFile(String name, List<Path> temporaryFiles) {
+        Path file = newFile(name);
+        temporaryFiles.add(file);
+        return file;
+    }
+
+    private void delete(List<Path> temporaryFiles) {
+        for (Path file : temporaryFiles) {
+            try {
+                Files.deleteIfExists(file);
+            } catch (IOException e) {
+                log.warn("Could not delete the temporary vector " + file, e);
+            }
+        }
+    }
+
+    private static int width(BigInteger modulus) {
+        return (modulus.bitLength() + 7) / 8;
+    }
+
+    @FunctionalInterface
+    private interface IndexedSink<T> {
+        void set(int index, T value);
+    }
+}
@@ -158,33 +158,47 @@ public class GeneralAlgorithms {
     /**
      * Algorithm 7.3: GetGenerators
      * Create a number of independent generators for the encryption group given
+     * <p>
+     * Each generator is computed on its own by {@link #getGenerator(int)}, so that the generators used by the
+     * external-memory mixing are exactly the same as these ones.
+     * </p>
      *
      * @param n number of generators to be computed
      * @return a list of independent generators
      */
     public List<BigInteger> getGenerators(int n) {
         List<BigInteger> h = new ArrayList<>();
-        Set<BigInteger> valuesToAvoid = new HashSet<>();
-        valuesToAvoid.add(BigInteger.ZERO);
-        valuesToAvoid.add(BigInteger.ONE);
-        valuesToAvoid.add(encryptionGroup.getG());
-        valuesToAvoid.add(encryptionGroup.getH());
-
         for (int i = 0; i < n; i++) {
-            BigInteger h_i;
-            int x = 0;
-            do {
-                x++;
-                byte[] bytes = hash.recHash_L("chVote", BigInteger.valueOf(i), BigInteger.valueOf(x));
-                h_i = conversion.toInteger(bytes).mod(encryptionGroup.getP());
-                h_i = h_i.multiply(h_i).mod(encryptionGroup.getP());
-            } while (valuesToAvoid.contains(h_i)); // Very unlikely, but needs to be avoided
-            h.add(h_i);
-            valuesToAvoid.add(h_i);
+            h.add(getGenerator(i));
         }
         return h;
     }
 
+    /**
+     * Algorithm 7.3: GetGenerators, computing the i-th generator on its own
+     * <p>
+     * The generator is only checked against 0, 1, g and h, and not against the previous generators, so that the
+     * generators can be computed independently, without holding all of them in memory. Two generators only collide
+     * with negligible probability.
+     * </p>
+     *
+     * @param i the index of the generator
+     * @return the i-th independent generator
+     */
+    public BigInteger getGenerator(int i) {
+        Set<BigInteger> valuesToAvoid = new HashSet<>(Arrays.asList(BigInteger.ZERO, BigInteger.ONE,
+                encryptionGroup.getG(), encryptionGroup.getH()));
+        BigInteger h_i;
+        int x = 0;
+        do {
+            x++;
+            byte[] bytes = hash.recHash_L("chVote", BigInteger.valueOf(i), BigInteger.valueOf(x));
+            h_i = conversion.toInteger(bytes).mod(encryptionGroup.getP());
+            h_i = h_i.multiply(h_i).mod(encryptionGroup.getP());
+        } while (valuesToAvoid.contains(h_i)); // Very unlikely, but needs to be avoided
+        return h_i;
+    }
+
     /**
      * Algorithm 7.4: GetNIZKPChallenge
      *
@@ -206,14 +220,33 @@ public class GeneralAlgorithms {
      * @return a list challenges, of length n
      */
     public List<BigInteger> getNIZKPChallenges(int n, Object[] y, int kappa) {
-        byte[] upper_h = hash.recHash_L(y);
-        BigInteger two_to_kappa = BigIntegers.TWO.pow(kappa);
+        byte[] upper_h = getNIZKPChallengesHash(y);
         Map<Integer, BigInteger> challengesMap = IntStream.rangeClosed(1, n).parallel().boxed()
-                .collect(toMap(identity(), i -> {
-                    byte[] upper_i = hash.recHash_L(BigInteger.valueOf(i));
-                    return conversion.toInteger(hash.hash_L(ByteArrayUtils.concatenate(upper_h, upper_i)))
-                            .mod(two_to_kappa);
-                }));
+                .collect(toMap(identity(), i -> getNIZKPChallenge(upper_h, i, kappa)));
         return IntStream.rangeClosed(1, n).mapToObj(challengesMap::get).collect(Collectors.toList());
     }
+
+    /**
+     * Algorithm 7.5: GetNIZKPChallenges, hash of the public values shared by all the challenges
+     *
+     * @param y the public values vector (domain unspecified)
+     * @return the hash upper_h of the public values
+     */
+    public byte[] getNIZKPChallengesHash(Object[] y) {
+        return hash.recHash_L(y);
+    }
+
+    /**
+     * Algorithm 7.5: GetNIZKPChallenges, computing the i-th challenge on its own
+     *
+     * @param upper_h the hash of the public values, as computed by {@link #getNIZKPChallengesHash(Object[])}
+     * @param i       the index of the challenge, 1-based as in the algorithm
+     * @param kappa   the soundness strength of the challenge
+     * @return the i-th challenge
+     */
+    public BigInteger getNIZKPChallenge(byte[] upper_h, int i, int kappa) {
+        byte[] upper_i = hash.recHash_L(BigInteger.valueOf(i));
+        return conversion.toInteger(hash.hash_L(ByteArrayUtils.concatenate(upper_h, upper_i)))
+                .mod(BigIntegers.TWO.pow(kappa));
+    }
 }
@@ -36,8 +36,6 @@ import static ch.ge.ve.protopoc.arithmetic.BigIntegerArithmetic.modExp;
 import static ch.ge.ve.protopoc.service.support.BigIntegers.multiplyMod;
 import static java.math.BigInteger.ONE;
 import static java.math.BigInteger.ZERO;
-import static java.util.function.Function.identity;
-import static java.util.stream.Collectors.toMap;
 
 /**
  * Algorithms performed during the mixing phase, by the autorities
@@ -87,28 +85,54 @@ public class MixingAuthorityAlgorithms {
      * @return the result of a shuffle, with re-encryption of the values
      */
     public Shuffle genShuffle(List<Encryption> bold_e, EncryptionPublicKey pk) {
+        if (bold_e instanceof EncryptionVector) {
+            return genShuffle((EncryptionVector) bold_e, pk);
+        }
         Preconditions.checkArgument(bold_e.stream().allMatch(e -> generalAlgorithms.isMember(e.getA()) &&
                         generalAlgorithms.isMember(e.getB())),
                 "all e_i's should be in G_q^2");
-        List<Integer> psy = genPermutation(bold_e.size());
-
-        // Parallel streams do not preserve order.
-        // But it is more efficient to distribute the re-encryptions across cores and sort them than to
-        // re-encrypt sequentially
-        Map<Integer, ReEncryption> reEncryptionMap = IntStream.range(0, bold_e.size()).parallel().boxed()
-                .collect(toMap(identity(), i -> genReEncryption(bold_e.get(i), pk)));
-        List<ReEncryption> reEncryptions = IntStream.range(0, bold_e.size())
-                .mapToObj(reEncryptionMap::get).collect(Collectors.toList());
-
-        List<Encryption> bold_e_prime = psy.stream()
-                .map(reEncryptions::get)
-                .map(ReEncryption::getEncryption)
-                .collect(Collectors.toList());
+        Permutation psy = genPermutation(bold_e.size());
+
+        // The re-encryptions are distributed across cores, each one written at its own index
+        Encryption[] reEncryptions = new Encryption[bold_e.size()];
+        BigInteger[] bold_r_prime = new BigInteger[bold_e.size()];
+        IntStream.range(0, bold_e.size()).parallel().forEach(i -> {
+            ReEncryption reEncryption = genReEncryption(bold_e.get(i), pk);
+            reEncryptions[i] = reEncryption.getEncryption();
+            bold_r_prime[i] = reEncryption.getRandomness();
+        });
+
+        List<Encryption> bold_e_prime = psy.apply(Arrays.asList(reEncryptions));
 
-        List<BigInteger> bold_r_prime = reEncryptions.stream()
-                .map(ReEncryption::getRandomness)
+        return new Shuffle(bold_e_prime, Arrays.asList(bold_r_prime), psy);
+    }
+
+    /**
+     * Algorithm 7.41: GenShuffle, for encryptions stored outside of the heap
+     * <p>The randomizations are drawn first, so that the permuted re-encryptions can be written straight into the
+     * resulting vector, without holding the intermediate re-encryptions in the heap.</p>
+     *
+     * @param bold_e the vector of ElGamal encryptions
+     * @param pk     the encryption key
+     * @return the result of a shuffle, with the re-encryptions stored in a vector of the same width as bold_e
+     */
+    public Shuffle genShuffle(EncryptionVector bold_e, EncryptionPublicKey pk) {
+        Preconditions.checkArgument(bold_e.parallelStream().allMatch(e -> generalAlgorithms.isMember(e.getA()) &&
+                        generalAlgorithms.isMember(e.getB())),
+                "all e_i's should be in G_q^2");
+        Preconditions.checkArgument(generalAlgorithms.isMember(pk.getPublicKey()), "pk should be in G_q");
+        BigInteger q = publicParameters.getEncryptionGroup().getQ();
+        Permutation psy = genPermutation(bold_e.size());
+
+        List<BigInteger> bold_r_prime = IntStream.range(0, bold_e.size())
+                .mapToObj(i -> randomGenerator.randomInZq(q))
                 .collect(Collectors.toList());
 
+        EncryptionVector bold_e_prime = EncryptionVector.generate(bold_e.size(), bold_e.getWidth(), i -> {
+            int j = psy.getInt(i);
+            return reEncrypt(bold_e.get(j), pk, bold_r_prime.get(j));
+        });
+
         return new Shuffle(bold_e_prime, bold_r_prime, psy);
     }
 
@@ -119,20 +143,19 @@ public class MixingAuthorityAlgorithms {
      * @param upper_n the permutation size
      * @return a random permutation following Knuth's shuffle algorithm (permutation is 0 based, to mirror java indices)
      */
-    public List<Integer> genPermutation(int upper_n) {
-        Integer[] upper_i = IntStream.range(0, upper_n).boxed()
-                .collect(Collectors.toList()).toArray(new Integer[0]);
+    public Permutation genPermutation(int upper_n) {
+        int[] upper_i = IntStream.range(0, upper_n).toArray();
 
-        List<Integer> psy = new ArrayList<>();
+        int[] psy = new int[upper_n];
 
         // indices are 0 base, as opposed to the 1 based in the algorithm
         for (int i = 0; i < upper_n; i++) {
             int k = randomGenerator.randomIntInRange(i, upper_n - 1);
-            psy.add(upper_i[k]);
+            psy[i] = upper_i[k];
             upper_i[k] = upper_i[i];
         }
 
-        return psy;
+        return Permutation.of(psy);
     }
 
     /**
@@ -147,17 +170,22 @@ public class MixingAuthorityAlgorithms {
                 generalAlgorithms.isMember(e.getB()), "a and b should be in G_q^2");
         Preconditions.checkArgument(generalAlgorithms.isMember(publicKey.getPublicKey()),
                 "pk should be in G_q");
-        BigInteger p = publicParameters.getEncryptionGroup().getP();
         BigInteger q = publicParameters.getEncryptionGroup().getQ();
-        BigInteger g = publicParameters.getEncryptionGroup().getG();
-        BigInteger pk = publicKey.getPublicKey();
 
         BigInteger r_prime = randomGenerator.randomInZq(q);
 
+        return new ReEncryption(reEncrypt(e, publicKey, r_prime), r_prime);
+    }
+
+    private Encryption reEncrypt(Encryption e, EncryptionPublicKey publicKey, BigInteger r_prime) {
+        BigInteger p = publicParameters.getEncryptionGroup().getP();
+        BigInteger g = publicParameters.getEncryptionGroup().getG();
+        BigInteger pk = publicKey.getPublicKey();
+
         BigInteger a_prime = e.getA().multiply(modExp(pk, r_prime, p)).mod(p);
         BigInteger b_prime = e.getB().multiply(modExp(g, r_prime, p)).mod(p);
 
-        return new ReEncryption(new Encryption(a_prime, b_prime), r_prime);
+        return new Encryption(a_prime, b_prime);
     }
 
     /**
@@ -195,23 +223,20 @@ public class MixingAuthorityAlgorithms {
                 "The length of bold_r_prime should be equal to that of bold_e");
         Preconditions.checkArgument(psy.size() == upper_n,
                 "The length of psy should be equal to that of bold_e");
-        Preconditions.checkArgument(psy.containsAll(
-                IntStream.range(0, psy.size()).boxed().collect(Collectors.toList())),
-                "The permutation should contain all number from 0 (inclusive) to length (exclusive)");
+        Permutation permutation = Permutation.copyOf(psy);
 
         BigInteger pk = publicKey.getPublicKey();
 
 
         List<BigInteger> bold_h = generalAlgorithms.getGenerators(upper_n);
-        PermutationCommitment permutationCommitment = genPermutationCommitment(psy, bold_h);
+        PermutationCommitment permutationCommitment = genPermutationCommitment(permutation, bold_h);
         List<BigInteger> bold_c = permutationCommitment.getBold_c();
         List<BigInteger> bold_r = permutationCommitment.getBold_r();
         List<BigInteger> bold_u = generalAlgorithms.getNIZKPChallenges(upper_n,
                 new List[]{bold_e, bold_e_prime, bold_c},
                 tau);
 
-        List<BigInteger> bold_u_prime = psy.stream()
-                .map(bold_u::get).collect(Collectors.toList());
+        List<BigInteger> bold_u_prime = permutation.apply(bold_u);
 
         CommitmentChain commitmentChain = genCommitmentChain(h, bold_u_prime);
         List<BigInteger> bold_c_hat = commitmentChain.getBold_c();
@@ -275,16 +300,14 @@ public class MixingAuthorityAlgorithms {
     }
 
     private List<BigInteger> computeV(int N, BigInteger q, List<BigInteger> bold_u_prime) {
-        List<BigInteger> v = new ArrayList<>();
-        v.add(ONE);
+        BigInteger[] v = new BigInteger[N];
+        if (N > 0) {
+            v[N - 1] = ONE;
+        }
         for (int i = N - 2; i >= 0; i--) {
-            // inserting always at index 0 means that index 0 always contains the previous value
-            // and that values will be held in reverse order to the insertion order, which is equivalent to the
-            // algorithm described
-            BigInteger v_i = bold_u_prime.get(i + 1).multiply(v.get(0)).mod(q);
-            v.add(0, v_i);
+            v[i] = bold_u_prime.get(i + 1).multiply(v[i + 1]).mod(q);
         }
-        return v;
+        return Arrays.asList(v);
     }
 
     private BigInteger computeS1(BigInteger q, List<BigInteger> bold_r, BigInteger omega_1, BigInteger c) {
@@ -316,15 +339,12 @@ public class MixingAuthorityAlgorithms {
         tmp_bold_c_hat.add(0, h);
         tmp_bold_c_hat.addAll(bold_c_hat);
 
-        Map<Integer, BigInteger> bold_t_hat_map = IntStream.range(0, N).parallel().boxed()
-                .collect(toMap(identity(), i -> modExp(g, bold_omega_hat.get(i), p)
-                        .multiply(modExp(tmp_bold_c_hat.get(i), bold_omega_prime.get(i), p))
-                        .mod(p)));
+        BigInteger[] bold_t_hat = new BigInteger[N];
+        IntStream.range(0, N).parallel().forEach(i -> bold_t_hat[i] = modExp(g, bold_omega_hat.get(i), p)
+                .multiply(modExp(tmp_bold_c_hat.get(i), bold_omega_prime.get(i), p))
+                .mod(p));
 
-        List<BigInteger> bold_t_hat = IntStream.range(0, N)
-                .mapToObj(bold_t_hat_map::get).collect(Collectors.toList());
-        tmp_bold_c_hat.remove(0); // restore c_hat to its former state
-        return new ShuffleProof.T(t_1, t_2, t_3, Arrays.asList(t_4_1, t_4_2), bold_t_hat);
+        return new ShuffleProof.T(t_1, t_2, t_3, Arrays.asList(t_4_1, t_4_2), Arrays.asList(bold_t_hat));
     }
 
     private BigInteger getBPrimeProd(List<Encryption> bold_e_prime, int N, BigInteger p, List<BigInteger> bold_omega_prime) {
@@ -360,9 +380,7 @@ public class MixingAuthorityAlgorithms {
      * @return a commitment to the permutation
      */
     public PermutationCommitment genPermutationCommitment(List<Integer> psy, List<BigInteger> bold_h) {
-        Preconditions.checkArgument(psy.containsAll(
-                IntStream.range(0, psy.size()).boxed().collect(Collectors.toList())),
-                "The permutation should contain all number from 0 (inclusive) to length (exclusive)");
+        Permutation permutation = Permutation.copyOf(psy);
         Preconditions.checkArgument(psy.size() == bold_h.size(),
                 "The lengths of psy and bold_h should be identical");
         Preconditions.checkArgument(bold_h.parallelStream().allMatch(h_i -> BigInteger.ONE.compareTo(h_i) != 0 &&
@@ -373,21 +391,17 @@ public class MixingAuthorityAlgorithms {
         BigInteger g = publicParameters.getEncryptionGroup().getG();
 
         // Loop indexed over j_i instead of i, for performance reasons, with a reverse permutation lookup
-        List<Integer> reversePsy = reversePermutation(psy);
-
-        Map<Integer, BigInteger> bold_r_map = IntStream.range(0, psy.size()).parallel().boxed()
-                .collect(Collectors.toMap(identity(), j_i -> randomGenerator.randomInZq(q)));
-        Map<Integer, BigInteger> bold_c_map = IntStream.range(0, psy.size()).parallel().boxed()
-                .collect(Collectors.toMap(identity(), j_i -> {
-                    Integer i = reversePsy.get(j_i);
-                    BigInteger r_j_i = bold_r_map.get(j_i);
-                    return modExp(g, r_j_i, p).multiply(bold_h.get(i)).mod(p);
-                }));
+        Permutation reversePsy = permutation.inverse();
 
-        List<BigInteger> bold_c = IntStream.range(0, psy.size()).mapToObj(bold_c_map::get).collect(Collectors.toList());
-        List<BigInteger> bold_r = IntStream.range(0, psy.size()).mapToObj(bold_r_map::get).collect(Collectors.toList());
+        BigInteger[] bold_r = new BigInteger[psy.size()];
+        BigInteger[] bold_c = new BigInteger[psy.size()];
+        IntStream.range(0, psy.size()).parallel().forEach(j_i -> {
+            int i = reversePsy.getInt(j_i);
+            bold_r[j_i] = randomGenerator.randomInZq(q);
+            bold_c[j_i] = modExp(g, bold_r[j_i], p).multiply(bold_h.get(i)).mod(p);
+        });
 
-        return new PermutationCommitment(bold_c, bold_r);
+        return new PermutationCommitment(Arrays.asList(bold_c), Arrays.asList(bold_r));
     }
 
     /**
@@ -427,12 +441,4 @@ public class MixingAuthorityAlgorithms {
 
         return new CommitmentChain(bold_c, bold_r);
     }
-
-    private List<Integer> reversePermutation(List<Integer> psy) {
-        Preconditions.checkArgument(psy.containsAll(
-                IntStream.range(0, psy.size()).boxed().collect(Collectors.toList())),
-                "The permutation should contain all number from 0 (inclusive) to length (exclusive)");
-
-        return IntStream.range(0, psy.size()).mapToObj(psy::indexOf).collect(Collectors.toList());
-    }
 }
@@ -26,21 +26,19 @@ import ch.ge.ve.protopoc.service.model.polynomial.Point;
 import ch.ge.ve.protopoc.service.model.polynomial.PointsAndZeroImages;
 import ch.ge.ve.protopoc.service.support.RandomGenerator;
 import com.google.common.base.Preconditions;
-import com.google.common.collect.Lists;
-import org.slf4j.Logger;
-import org.slf4j.LoggerFactory;
 
 import java.math.BigInteger;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Set;
+import java.util.function.ObjIntConsumer;
 
 /**
  * This class holds the parameters and the methods / algorithms applicable to polynomials
  */
 public class PolynomialAlgorithms {
-    private static final Logger log = LoggerFactory.getLogger(PolynomialAlgorithms.class);
     private final RandomGenerator randomGenerator;
     private final PrimeField primeField;
 
@@ -58,34 +56,71 @@ public class PolynomialAlgorithms {
      * @return a list of <i>bold_n</i> random points picked from <i>t</i> different polynomials, along with the image of 0 for each polynomial
      */
     public PointsAndZeroImages genPoints(List<Integer> bold_n, List<Integer> bold_k) {
-        Preconditions.checkArgument(bold_n.size() == bold_k.size(),
-                String.format("|bold_n| [%d] != |bold_k| [%d]", bold_n.size(), bold_k.size()));
-        for (int i = 0; i < bold_n.size(); i++) {
-            Preconditions.checkArgument(bold_n.get(i) > bold_k.get(i),
-                    String.format("n_%1$d [%2$d] <= k_%1$d [%3$d]", i, bold_n.get(i), bold_k.get(i)));
+        return genPointsBatch(bold_n, Collections.singletonList(bold_k)).get(0);
+    }
+
+    /**
+     * Algorithm 7.7: GenPoints, for a batch of voters
+     * <p>Generates the points of each voter in turn, drawing the random values in the same order as for a single
+     * voter, but reusing the same set of x values for all the voters of the batch. Distinct batches may be generated
+     * in parallel.</p>
+     *
+     * @param bold_n       the vector containing the number of candidates per election
+     * @param bold_upper_k the vectors containing the number of allowed selections per election, one per voter
+     * @return for each voter, a list of <i>bold_n</i> random points picked from <i>t</i> different polynomials, along
+     * with the image of 0 for each polynomial
+     */
+    public List<PointsAndZeroImages> genPointsBatch(List<Integer> bold_n, List<List<Integer>> bold_upper_k) {
+        List<PointsAndZeroImages> pointsAndZeroImages = new ArrayList<>(bold_upper_k.size());
+        genPointsBatch(bold_n, bold_upper_k, (points, i) -> pointsAndZeroImages.add(points));
+        return pointsAndZeroImages;
+    }
+
+    /**
+     * Algorithm 7.7: GenPoints, for a batch of voters
+     * <p>Each voter's points are handed over as soon as they are generated, before the random values of the next voter
+     * are drawn, so that the consumer may draw the other random values of the voter in between, as it would have
+     * done with {@link #genPoints(List, List)}.</p>
+     *
+     * @param bold_n       the vector containing the number of candidates per election
+     * @param bold_upper_k the vectors containing the number of allowed selections per election, one per voter
+     * @param consumer     the consumer of each voter's points and images of 0, along with the voter's index in the batch
+     */
+    public void genPointsBatch(List<Integer> bold_n, List<List<Integer>> bold_upper_k,
+                               ObjIntConsumer<PointsAndZeroImages> consumer) {
+        int t = bold_n.size();
+        for (List<Integer> bold_k : bold_upper_k) {
+            Preconditions.checkArgument(bold_k.size() == t,
+                    String.format("|bold_n| [%d] != |bold_k| [%d]", t, bold_k.size()));
+            for (int j = 0; j < t; j++) {
+                Preconditions.checkArgument(bold_n.get(j) > bold_k.get(j),
+                        String.format("n_%1$d [%2$d] <= k_%1$d [%3$d]", j, bold_n.get(j), bold_k.get(j)));
+            }
         }
-        List<Point> bold_p = new ArrayList<>();
-        List<BigInteger> bold_y = new ArrayList<>();
-        int i = 0; // (used as subscript for x_i, y_i)
-        // loop on election: index j (hence the a_j symbol)
-        for (int j = 0; j < bold_n.size(); j++) {
-            Set<BigInteger> upper_x = new HashSet<>();
-            List<BigInteger> bold_a_j = genPolynomial(bold_k.get(j) - 1);
-            for (int l = 0; l < bold_n.get(j); l++) {
-                BigInteger x;
-                do {
-                    x = randomGenerator.randomInZq(primeField.getP_prime());
-                } while (x.compareTo(BigInteger.ZERO) == 0 || upper_x.contains(x));
-                upper_x.add(x);
-                BigInteger y = getYValue(x, bold_a_j);
-                Point p_i = new Point(x, y);
-                bold_p.add(p_i);
-                log.debug(String.format("Created point %d: %s", i, p_i));
-                i++;
+        BigInteger p_prime = primeField.getP_prime();
+        int n = bold_n.stream().mapToInt(Integer::intValue).sum();
+
+        // reused for all the voters of the batch
+        Set<BigInteger> upper_x = new HashSet<>();
+
+        for (int v = 0; v < bold_upper_k.size(); v++) {
+            List<Integer> bold_k = bold_upper_k.get(v);
+            List<Point> bold_p = new ArrayList<>(n);
+            List<BigInteger> bold_y = new ArrayList<>(t);
+            for (int j = 0; j < t; j++) {
+                upper_x.clear();
+                List<BigInteger> bold_a_j = genPolynomial(bold_k.get(j) - 1);
+                for (int l = 0; l < bold_n.get(j); l++) {
+                    BigInteger x;
+                    do {
+                        x = randomGenerator.randomInZq(p_prime);
+                    } while (x.signum() == 0 || !upper_x.add(x));
+                    bold_p.add(new Point(x, getYValue(x, bold_a_j)));
+                }
+                bold_y.add(bold_a_j.get(0));
             }
-            bold_y.add(getYValue(BigInteger.ZERO, bold_a_j));
+            consumer.accept(new PointsAndZeroImages(bold_p, bold_y), v);
         }
-        return new PointsAndZeroImages(bold_p, bold_y);
     }
 
     /**
@@ -127,9 +162,11 @@ public class PolynomialAlgorithms {
         if (x.equals(BigInteger.ZERO)) {
             return bold_a.get(0);
         } else {
+            BigInteger p_prime = primeField.getP_prime();
             BigInteger y = BigInteger.ZERO;
-            for (BigInteger a_i : Lists.reverse(bold_a)) {
-                y = a_i.add(x.multiply(y).mod(primeField.getP_prime())).mod(primeField.getP_prime());
+            for (int i = bold_a.size() - 1; i >= 0; i--) {
+                // a single reduction per step, (y * x + a_i) mod p' being equal to (a_i + (x * y mod p')) mod p'
+                y = y.multiply(x).add(bold_a.get(i)).mod(p_prime);
             }
             return y;
         }
@@ -0,0 +1,136 @@
+/*-------------------------------------------------------------------------------------------------
+ - #%L                                                                                            -
+ - chvote-protocol-poc                                                                            -
+ - %%                                                                                             -
+ - Copyright (C) 2016 - 2017 République et Canton de Genève                                       -
+ - %%                                                                                             -
+ - This program is free software: you can redistribute it and/or modify                           -
+ - it under the terms of the GNU Affero General Public License as published by                    -
+ - the Free Software Foundation, either version 3 of the License, or                              -
+ - (at your option) any later version.                                                            -
+ -                                                                                                -
+ - This program is distributed in the hope that it will be useful,                                -
+ - but WITHOUT ANY WARRANTY; without even the implied warranty of                                 -
+ - MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the                                   -
+ - GNU General Public License for more details.                                                   -
+ -                                                                                                -
+ - You should have received a copy of the GNU Affero General Public License                       -
+ - along with this program. If not, see <http://www.gnu.org/licenses/>.                           -
+ - #L%                                                                                            -
+ -------------------------------------------------------------------------------------------------*/
+
+package ch.ge.ve.protopoc.service.algorithm;
+
+import ch.ge.ve.protopoc.service.model.DomainOfInfluence;
+import ch.ge.ve.protopoc.service.model.Election;
+import ch.ge.ve.protopoc.service.model.Tally;
+import com.google.common.base.Preconditions;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+/**
+ * Accumulates the decoded votes into the {@link Tally} of an election set.
+ * <p>
+ * The counters are {@link LongAdder}s, so that the votes can be added concurrently, in a single parallel pass over
+ * the decoded ballots, or chunk by chunk as they get decoded.
+ * </p>
+ */
+public class TallyAggregator {
+    private final int[] electionStarts;
+    private final int[] electionDomains;
+    private final List<DomainOfInfluence> domainsOfInfluence;
+    private final LongAdder ballotCount = new LongAdder();
+    private final LongAdder[] candidateCounts;
+    private final LongAdder[] electionBallotCounts;
+    private final LongAdder[] domainOfInfluenceBallotCounts;
+
+    /**
+     * @param elections the elections of the election set, whose candidates are numbered consecutively in the votes
+     */
+    public TallyAggregator(List<Election> elections) {
+        int k = elections.size();
+        electionStarts = new int[k + 1];
+        electionDomains = new int[k];
+        domainsOfInfluence = new ArrayList<>();
+        for (int i = 0; i < k; i++) {
+            Election election = elections.get(i);
+            electionStarts[i + 1] = electionStarts[i] + election.getNumberOfCandidates();
+            int domain = domainsOfInfluence.indexOf(election.getApplicableDomainofInfluence());
+            if (domain < 0) {
+                domain = domainsOfInfluence.size();
+                domainsOfInfluence.add(election.getApplicableDomainofInfluence());
+            }
+            electionDomains[i] = domain;
+        }
+        candidateCounts = newCounters(electionStarts[k]);
+        electionBallotCounts = newCounters(k);
+        domainOfInfluenceBallotCounts = newCounters(domainsOfInfluence.size());
+    }
+
+    private static LongAdder[] newCounters(int size) {
+        return IntStream.range(0, size).mapToObj(i -> new LongAdder()).toArray(LongAdder[]::new);
+    }
+
+    /**
+     * Adds decoded votes to the tally, in parallel.
+     *
+     * @param voteCounts the number of ballots per distinct vote, as returned by
+     *                   {@link TallyingAuthoritiesAlgorithm#getVoteCounts(List, int)}
+     */
+    public void add(Map<BitSet, Long> voteCounts) {
+        voteCounts.entrySet().parallelStream().forEach(entry -> add(entry.getKey(), entry.getValue()));
+    }
+
+    /**
+     * Adds a decoded vote to the tally.
+     *
+     * @param vote  the vote, where the bit j is set if the candidate j is selected
+     * @param count the number of ballots holding this vote
+     */
+    public void add(BitSet vote, long count) {
+        Preconditions.checkArgument(vote.length() <= candidateCounts.length,
+                "The vote should only select candidates of the election set");
+        Preconditions.checkArgument(count >= 0, "The number of ballots should be non-negative");
+        ballotCount.add(count);
+        vote.stream().forEach(j -> candidateCounts[j].add(count));
+        boolean[] domainSeen = new boolean[domainOfInfluenceBallotCounts.length];
+        for (int i = 0; i < electionBallotCounts.length; i++) {
+            int selection = vote.nextSetBit(electionStarts[i]);
+            if (selection >= 0 && selection < electionStarts[i + 1]) {
+                electionBallotCounts[i].add(count);
+                domainSeen[electionDomains[i]] = true;
+            }
+        }
+        for (int d = 0; d < domainSeen.length; d++) {
+            if (domainSeen[d]) {
+                domainOfInfluenceBallotCounts[d].add(count);
+            }
+        }
+    }
+
+    /**
+     * @return the tally of the votes added so far
+     */
+    public Tally getTally() {
+        List<Long> candidateTotals = Arrays.stream(candidateCounts).map(LongAdder::sum).collect(Collectors.toList());
+        List<List<Long>> candidateCountsByElection = IntStream.range(0, electionBallotCounts.length)
+                .mapToObj(i -> candidateTotals.subList(electionStarts[i], electionStarts[i + 1]))
+                .collect(Collectors.toList());
+        List<Long> ballotCountsByElection = Arrays.stream(electionBallotCounts).map(LongAdder::sum)
+                .collect(Collectors.toList());
+        Map<DomainOfInfluence, Long> ballotCountsByDomainOfInfluence = new LinkedHashMap<>();
+        for (int d = 0; d < domainsOfInfluence.size(); d++) {
+            ballotCountsByDomainOfInfluence.put(domainsOfInfluence.get(d), domainOfInfluenceBallotCounts[d].sum());
+        }
+        return new Tally(ballotCount.sum(), candidateCountsByElection, ballotCountsByElection,
+                ballotCountsByDomainOfInfluence);
+    }
+}
@@ -26,16 +26,25 @@ import ch.ge.ve.protopoc.service.exception.TallyingRuntimeException;
 import ch.ge.ve.protopoc.service.model.DecryptionProof;
 import ch.ge.ve.protopoc.service.model.Encryption;
 import ch.ge.ve.protopoc.service.model.PublicParameters;
+import ch.ge.ve.protopoc.service.support.RandomGenerator;
 import com.google.common.base.Preconditions;
+import com.google.common.collect.Lists;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.BitSet;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
 import java.util.stream.Collectors;
 import java.util.stream.IntStream;
 
 import static ch.ge.ve.protopoc.arithmetic.BigIntegerArithmetic.modExp;
+import static ch.ge.ve.protopoc.arithmetic.BigIntegerArithmetic.modExpBatch;
+import static ch.ge.ve.protopoc.arithmetic.BigIntegerArithmetic.modMultiExp;
 import static java.math.BigInteger.ONE;
 
 /**
@@ -46,10 +55,27 @@ public class TallyingAuthoritiesAlgorithm {
 
     private final PublicParameters publicParameters;
     private final GeneralAlgorithms generalAlgorithms;
+    private final RandomGenerator randomGenerator;
 
     public TallyingAuthoritiesAlgorithm(PublicParameters publicParameters, GeneralAlgorithms generalAlgorithms) {
+        this(publicParameters, generalAlgorithms, null);
+    }
+
+    /**
+     * When a random generator is given, the decryption proofs are first checked in batch: the N equations of a proof
+     * are combined with random exponents of <tt>tau</tt> bits into a single one, computed with multi-exponentiations.
+     * An invalid proof passes this check with a probability of at most <tt>2^-tau</tt>, and a proof failing it is
+     * checked again equation by equation.
+     *
+     * @param publicParameters  the public parameters
+     * @param generalAlgorithms the general algorithms
+     * @param randomGenerator   the random generator used for the batch exponents, or null to check each equation
+     */
+    public TallyingAuthoritiesAlgorithm(PublicParameters publicParameters, GeneralAlgorithms generalAlgorithms,
+                                        RandomGenerator randomGenerator) {
         this.publicParameters = publicParameters;
         this.generalAlgorithms = generalAlgorithms;
+        this.randomGenerator = randomGenerator;
     }
 
     /**
@@ -88,8 +114,14 @@ public class TallyingAuthoritiesAlgorithm {
                 "There should be as many rows to upper_bold_b_prime as there are authorities");
         Preconditions.checkArgument(upper_bold_b_prime.stream().map(List::size).allMatch(l -> l == N),
                 "There should be as many columns to upper_bold_b_prime as there are encryptions");
-        return IntStream.range(0, s).allMatch(j ->
-                checkDecryptionProof(bold_pi_prime.get(j), bold_pk.get(j), bold_e, upper_bold_b_prime.get(j)));
+        List<BigInteger> bold_b = Lists.transform(bold_e, Encryption::getB);
+        // the challenges are computed in the authorities' order, the exponentiations for all authorities in parallel
+        List<BigInteger> bold_c = IntStream.range(0, s).mapToObj(j ->
+                getChallenge(bold_pi_prime.get(j), bold_pk.get(j), bold_b, upper_bold_b_prime.get(j)))
+                .collect(Collectors.toList());
+        return IntStream.range(0, s).parallel().allMatch(j ->
+                checkDecryptionProof(bold_pi_prime.get(j), bold_pk.get(j), bold_b, upper_bold_b_prime.get(j),
+                        bold_c.get(j)));
     }
 
     /**
@@ -112,31 +144,62 @@ public class TallyingAuthoritiesAlgorithm {
                 "the public key must be in G_q");
         Preconditions.checkArgument(bold_b_prime.parallelStream().allMatch(generalAlgorithms::isMember),
                 "all elements of bold_b_prime must be in G_q");
-        BigInteger p = publicParameters.getEncryptionGroup().getP();
-        BigInteger q = publicParameters.getEncryptionGroup().getQ();
-        BigInteger g = publicParameters.getEncryptionGroup().getG();
-        int tau = publicParameters.getSecurityParameters().getTau();
+        List<BigInteger> bold_b = Lists.transform(bold_e, Encryption::getB);
+        BigInteger c = getChallenge(pi_prime, pk_j, bold_b, bold_b_prime);
+        return checkDecryptionProof(pi_prime, pk_j, bold_b, bold_b_prime, c);
+    }
 
-        List<BigInteger> bold_b = bold_e.stream().map(Encryption::getB).collect(Collectors.toList());
+    private BigInteger getChallenge(DecryptionProof pi_prime, BigInteger pk_j, List<BigInteger> bold_b,
+                                    List<BigInteger> bold_b_prime) {
+        int tau = publicParameters.getSecurityParameters().getTau();
         Object[] y = {pk_j, bold_b, bold_b_prime};
         BigInteger[] t = pi_prime.getT().toArray(new BigInteger[0]);
-        BigInteger c = generalAlgorithms.getNIZKPChallenge(y, t, tau);
+        return generalAlgorithms.getNIZKPChallenge(y, t, tau);
+    }
+
+    private boolean checkDecryptionProof(DecryptionProof pi_prime, BigInteger pk_j, List<BigInteger> bold_b,
+                                         List<BigInteger> bold_b_prime, BigInteger c) {
+        BigInteger p = publicParameters.getEncryptionGroup().getP();
+        BigInteger g = publicParameters.getEncryptionGroup().getG();
+
         BigInteger t_prime_0 = modExp(pk_j, c.negate(), p).multiply(modExp(g, pi_prime.getS(), p)).mod(p);
-        List<BigInteger> t_prime = IntStream.range(0, bold_b.size())
-                .mapToObj(i ->
-                        modExp(bold_b_prime.get(i), c.negate(), p)
-                                .multiply(modExp(bold_b.get(i), pi_prime.getS(), p)).mod(p))
-                .collect(Collectors.toList());
-        t_prime.add(0, t_prime_0);
+        if (pi_prime.getT().get(0).compareTo(t_prime_0) != 0) {
+            log.error("Invalid decryption proof found");
+            return false;
+        }
+        List<BigInteger> bold_t = pi_prime.getT().subList(1, pi_prime.getT().size());
+        if (randomGenerator != null && checkDecryptionProofBatch(bold_t, bold_b, bold_b_prime, c, pi_prime.getS())) {
+            return true;
+        }
 
-        boolean isProofValid = IntStream.range(0, t_prime.size()).allMatch(i ->
-                pi_prime.getT().get(i).compareTo(t_prime.get(i)) == 0);
+        List<BigInteger> bold_b_prime_c = modExpBatch(bold_b_prime, c.negate(), p);
+        List<BigInteger> bold_b_s = modExpBatch(bold_b, pi_prime.getS(), p);
+        boolean isProofValid = IntStream.range(0, bold_b.size()).allMatch(i ->
+                bold_t.get(i).compareTo(bold_b_prime_c.get(i).multiply(bold_b_s.get(i)).mod(p)) == 0);
         if (!isProofValid) {
             log.error("Invalid decryption proof found");
         }
         return isProofValid;
     }
 
+    /**
+     * Checks <tt>prod(t_i^r_i) = prod(b'_i^r_i)^-c * prod(b_i^r_i)^s</tt> for random exponents <tt>r_i</tt>, which
+     * holds for all <tt>r_i</tt> if <tt>t_i = b'_i^-c * b_i^s</tt> holds for all <tt>i</tt>.
+     */
+    private boolean checkDecryptionProofBatch(List<BigInteger> bold_t, List<BigInteger> bold_b,
+                                              List<BigInteger> bold_b_prime, BigInteger c, BigInteger s) {
+        BigInteger p = publicParameters.getEncryptionGroup().getP();
+        BigInteger two_to_tau = BigInteger.valueOf(2).pow(publicParameters.getSecurityParameters().getTau());
+
+        List<BigInteger> bold_r = IntStream.range(0, bold_b.size())
+                .mapToObj(i -> randomGenerator.randomBigInteger(two_to_tau))
+                .collect(Collectors.toList());
+        BigInteger t = modMultiExp(bold_t, bold_r, p);
+        BigInteger b = modMultiExp(bold_b, bold_r, p);
+        BigInteger b_prime = modMultiExp(bold_b_prime, bold_r, p);
+        return t.compareTo(modExp(b_prime, c.negate(), p).multiply(modExp(b, s, p)).mod(p)) == 0;
+    }
+
     /**
      * Algorithm 7.53: GetDecryptions
      *
@@ -172,27 +235,109 @@ public class TallyingAuthoritiesAlgorithm {
 
     /**
      * Algorithm 7.54: GetVotes
+     * <p>
+     * Each distinct plaintext is decoded only once, see {@link #getVoteCounts(List, int)}.
+     * </p>
      *
      * @param bold_m the products of encoded selections
      * @param n      the number of candidates
      * @return the election result matrix upper_bold_v, where each resulting vector v_i represents somebody’s vote,
-     * and each value v_{ij} = 1 represents somebody’s vote for a specific candidate j &isin; {1, ..., n}
+     * and each value v_{ij} = 1 represents somebody’s vote for a specific candidate j &isin; {1, ..., n}
      */
     public List<List<Boolean>> getVotes(List<BigInteger> bold_m, int n) {
         Preconditions.checkArgument(bold_m.parallelStream().allMatch(generalAlgorithms::isMember),
                 "all m_i's must be in G_q");
         Preconditions.checkArgument(n >= 2, "There must be at least two candidates");
-        List<BigInteger> bold_p;
+        VoteDecoder decoder = new VoteDecoder(getPrimes(n));
+
+        Map<BigInteger, BitSet> votes = new ConcurrentHashMap<>();
+        return bold_m.parallelStream()
+                .map(m_i -> votes.computeIfAbsent(m_i, decoder::decode))
+                .map(v_i -> IntStream.range(0, n).mapToObj(v_i::get).collect(Collectors.toList()))
+                .collect(Collectors.toList());
+    }
+
+    /**
+     * Decodes the products of encoded selections, as {@link #getVotes(List, int)}, into the number of ballots cast
+     * for each distinct vote.
+     * <p>
+     * The identical plaintexts are grouped first, so that each distinct one is decoded only once, and the candidate
+     * primes are tested by word-sized remainders rather than by one big integer division per candidate.
+     * </p>
+     *
+     * @param bold_m the products of encoded selections
+     * @param n      the number of candidates
+     * @return the number of ballots per distinct vote, where the bit j of a vote is set if it selects the candidate j
+     */
+    public Map<BitSet, Long> getVoteCounts(List<BigInteger> bold_m, int n) {
+        Preconditions.checkArgument(bold_m.parallelStream().allMatch(generalAlgorithms::isMember),
+                "all m_i's must be in G_q");
+        Preconditions.checkArgument(n >= 2, "There must be at least two candidates");
+        VoteDecoder decoder = new VoteDecoder(getPrimes(n));
+
+        Map<BigInteger, Long> plaintextCounts = bold_m.parallelStream()
+                .collect(Collectors.groupingByConcurrent(Function.identity(), Collectors.counting()));
+        return plaintextCounts.entrySet().parallelStream()
+                .collect(Collectors.toConcurrentMap(entry -> decoder.decode(entry.getKey()), Map.Entry::getValue,
+                        Long::sum));
+    }
+
+    private List<BigInteger> getPrimes(int n) {
         try {
-            bold_p = generalAlgorithms.getPrimes(n);
+            return generalAlgorithms.getPrimes(n);
         } catch (NotEnoughPrimesInGroupException e) {
             log.error("Error while tallying the votes", e);
             throw new TallyingRuntimeException(e);
         }
+    }
 
-        return bold_m.stream()
-                .map(m_i -> bold_p.stream()
-                        .map(p_j -> m_i.mod(p_j).compareTo(BigInteger.ZERO) == 0).collect(Collectors.toList()))
-                .collect(Collectors.toList());
+    /**
+     * Tests the divisibility of a plaintext by the candidate primes. The primes are gathered in groups whose product
+     * fits in a long: a single big integer remainder is computed per group, and the primes of the group are then
+     * tested against it with long arithmetic.
+     */
+    private static final class VoteDecoder {
+        private final long[] primes;
+        private final int[] groupStarts;
+        private final BigInteger[] groupProducts;
+
+        VoteDecoder(List<BigInteger> bold_p) {
+            primes = new long[bold_p.size()];
+            List<Integer> starts = new ArrayList<>();
+            List<BigInteger> products = new ArrayList<>();
+            long product = 1L;
+            for (int j = 0; j < primes.length; j++) {
+                Preconditions.checkArgument(bold_p.get(j).bitLength() < Long.SIZE,
+                        "the candidate primes should fit in a long");
+                primes[j] = bold_p.get(j).longValue();
+                if (j == 0 || product > Long.MAX_VALUE / primes[j]) {
+                    if (j > 0) {
+                        products.add(BigInteger.valueOf(product));
+                    }
+                    starts.add(j);
+                    product = 1L;
+                }
+                product *= primes[j];
+            }
+            if (primes.length > 0) {
+                products.add(BigInteger.valueOf(product));
+            }
+            starts.add(primes.length);
+            groupStarts = starts.stream().mapToInt(Integer::intValue).toArray();
+            groupProducts = products.toArray(new BigInteger[0]);
+        }
+
+        BitSet decode(BigInteger m) {
+            BitSet vote = new BitSet(primes.length);
+            for (int k = 0; k < groupProducts.length; k++) {
+                long r = m.mod(groupProducts[k]).longValue();
+                for (int j = groupStarts[k]; j < groupStarts[k + 1]; j++) {
+                    if (r % primes[j] == 0) {
+                        vote.set(j);
+                    }
+                }
+            }
+            return vote;
+        }
     }
 }
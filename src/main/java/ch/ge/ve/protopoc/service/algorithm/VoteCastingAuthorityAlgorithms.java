@@ -34,19 +34,21 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.math.BigInteger;
-import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
 import java.util.List;
+import java.util.function.IntFunction;
+import java.util.stream.IntStream;
 
 import static ch.ge.ve.protopoc.arithmetic.BigIntegerArithmetic.modExp;
+import static ch.ge.ve.protopoc.arithmetic.BigIntegerArithmetic.modExpBatch;
 import static java.math.BigInteger.ONE;
 
 /**
  * Algorithms related to the vote casting phase, performed by the authorities
  */
 public class VoteCastingAuthorityAlgorithms {
-    private static final Logger log = LoggerFactory.getLogger(VoteConfirmationAuthorityAlgorithms.class);
+    private static final Logger log = LoggerFactory.getLogger(VoteCastingAuthorityAlgorithms.class);
     private final PublicParameters publicParameters;
     private final ElectionSet electionSet;
     private final GeneralAlgorithms generalAlgorithms;
@@ -227,14 +229,113 @@ public class VoteCastingAuthorityAlgorithms {
         final int k_sum = bold_K.get(i).stream().reduce((a, b) -> a + b).orElse(0);
         Preconditions.checkArgument(bold_a.size() == k_sum);
 
-        BigInteger q = publicParameters.getEncryptionGroup().getQ();
-        BigInteger p = publicParameters.getEncryptionGroup().getP();
+        PrecomputedObliviousTransferResponse precomputedResponse =
+                precomputeResponse(pk, bold_n, upper_bold_p.get(i));
+        return genResponse(i, bold_a, bold_K, precomputedResponse);
+    }
+
+    /**
+     * Algorithm 7.25: GenResponse, reading the points of the voter already encoded as the messages <tt>M_v</tt>
+     *
+     * @param i            the voter index
+     * @param bold_a       the vector of the queries
+     * @param pk           the encryption public key
+     * @param bold_n       the vector of number of candidates per election
+     * @param bold_K       the matrix of number of selections per voter per election
+     * @param upper_bold_p the table of encoded points per voter per candidate
+     * @return the OT response, along with the randomness used
+     * @throws IncompatibleParametersRuntimeException if not enough primes exist in the encryption group for the number of candidates
+     */
+    public ObliviousTransferResponseAndRand genResponse(Integer i, List<BigInteger> bold_a, EncryptionPublicKey pk,
+                                                        List<Integer> bold_n,
+                                                        List<List<Integer>> bold_K,
+                                                        EncodedPointTable upper_bold_p) {
+        Preconditions.checkArgument(bold_a.stream().allMatch(generalAlgorithms::isMember),
+                "All queries a_i must be in G_q");
+        Preconditions.checkArgument(bold_K.size() > 0);
+        final int t = bold_K.get(0).size();
+        Preconditions.checkArgument(bold_K.stream().allMatch(bold_k_i -> bold_k_i.size() == t));
+
+        final int k_sum = bold_K.get(i).stream().reduce((a, b) -> a + b).orElse(0);
+        Preconditions.checkArgument(bold_a.size() == k_sum);
+
+        PrecomputedObliviousTransferResponse precomputedResponse = precomputeResponse(pk, bold_n, upper_bold_p, i);
+        return genResponse(i, bold_a, bold_K, precomputedResponse);
+    }
+
+    /**
+     * Computes the part of Algorithm 7.25 (GenResponse) which does not depend on the voter's query: the randomness
+     * <tt>bold_r</tt>, the encrypted points <tt>bold_c</tt> and <tt>bold_d</tt>. This can be done ahead of time, before
+     * the voter casts a ballot.
+     *
+     * @param pk       the encryption public key
+     * @param bold_n   the vector of number of candidates per election
+     * @param bold_p_i the points of the voter, one per candidate
+     * @return the ballot-independent part of the OT response, to be completed by
+     * {@link #genResponse(Integer, List, List, PrecomputedObliviousTransferResponse)}
+     * @throws IncompatibleParametersRuntimeException if not enough primes exist in the encryption group for the number of candidates
+     */
+    public PrecomputedObliviousTransferResponse precomputeResponse(EncryptionPublicKey pk, List<Integer> bold_n,
+                                                                   List<Point> bold_p_i) {
+        final int n = bold_n.stream().reduce((a, b) -> a + b).orElse(0);
+        Preconditions.checkArgument(bold_p_i.size() == n);
         int upper_l_m = publicParameters.getUpper_l_m();
 
-        List<BigInteger> bold_b = new ArrayList<>();
-        byte[][] bold_c = new byte[n][];
-        List<BigInteger> bold_d = new ArrayList<>();
-        List<BigInteger> bold_r = new ArrayList<>();
+        return precomputeResponse(pk, bold_n, v -> {
+            Point point_iv = bold_p_i.get(v);
+            @SuppressWarnings("SuspiciousNameCombination")
+            byte[] M_v = ByteArrayUtils.concatenate(
+                    conversion.toByteArray(point_iv.x, upper_l_m / 2),
+                    conversion.toByteArray(point_iv.y, upper_l_m / 2)
+            );
+            if (log.isDebugEnabled()) {
+                log.debug(String.format("Encoding point %s as %s", point_iv, Arrays.toString(M_v)));
+            }
+            return M_v;
+        });
+    }
+
+    /**
+     * Computes the ballot-independent part of Algorithm 7.25 (GenResponse), as
+     * {@link #precomputeResponse(EncryptionPublicKey, List, List)}, reading the points of the voter already encoded
+     * as the messages <tt>M_v</tt>, so that no point needs to be converted.
+     *
+     * @param pk           the encryption public key
+     * @param bold_n       the vector of number of candidates per election
+     * @param upper_bold_p the table of encoded points per voter per candidate
+     * @param i            the voter index
+     * @return the ballot-independent part of the OT response
+     * @throws IncompatibleParametersRuntimeException if not enough primes exist in the encryption group for the number of candidates
+     */
+    public PrecomputedObliviousTransferResponse precomputeResponse(EncryptionPublicKey pk, List<Integer> bold_n,
+                                                                   EncodedPointTable upper_bold_p, int i) {
+        final int n = bold_n.stream().reduce((a, b) -> a + b).orElse(0);
+        Preconditions.checkArgument(upper_bold_p.getCandidateCount() == n);
+        Preconditions.checkArgument(upper_bold_p.getRecordLength() == 2 * (publicParameters.getUpper_l_m() / 2),
+                "The points should be encoded on L_m bytes");
+        Preconditions.checkElementIndex(i, upper_bold_p.getVoterCount());
+
+        return precomputeResponse(pk, bold_n, v -> upper_bold_p.get(i, v));
+    }
+
+    /**
+     * @param pk      the encryption public key
+     * @param bold_n  the vector of number of candidates per election
+     * @param upper_m the encoded points <tt>M_v</tt> of the voter, by candidate index, as fresh arrays which get
+     *                encrypted in place
+     * @return the ballot-independent part of the OT response
+     */
+    private PrecomputedObliviousTransferResponse precomputeResponse(EncryptionPublicKey pk, List<Integer> bold_n,
+                                                                    IntFunction<byte[]> upper_m) {
+        Preconditions.checkArgument(pk.getPublicKey().compareTo(BigInteger.ONE) != 0,
+                "The encryption key may not be 1");
+        Preconditions.checkArgument(generalAlgorithms.isMember(pk.getPublicKey()),
+                "The public key must be a member of G_q");
+        final int n = bold_n.stream().reduce((a, b) -> a + b).orElse(0);
+
+        BigInteger q = publicParameters.getEncryptionGroup().getQ();
+        BigInteger p = publicParameters.getEncryptionGroup().getP();
+        final int t = bold_n.size();
 
         List<BigInteger> bold_p;
         try {
@@ -243,44 +344,93 @@ public class VoteCastingAuthorityAlgorithms {
             throw new IncompatibleParametersRuntimeException(e);
         }
 
-        int u = 0; // index 0 based, as opposed to the specification 1 based
-        int v = 0; // same comment
-
+        // The randomness is drawn sequentially, in election order, so that the response only depends on the
+        // sequence of random values and not on the scheduling of the parallel computations below.
+        BigInteger[] bold_r = new BigInteger[t];
+        BigInteger[] bold_k = new BigInteger[n]; // the candidate primes raised to the election's randomness
+        int v = 0; // index 0 based, as opposed to the specification 1 based
         for (int j = 0; j < t; j++) {
-            BigInteger r_j = randomGenerator.randomInZq(q);
-
-            Integer k_ij = bold_K.get(i).get(j);
-            for (int l = 0; l < k_ij; l++) {
-                bold_b.add(modExp(bold_a.get(u++), r_j, p));
+            bold_r[j] = randomGenerator.randomInZq(q);
+            Integer n_j = bold_n.get(j);
+            for (BigInteger k : modExpBatch(bold_p.subList(v, v + n_j), bold_r[j], p)) {
+                bold_k[v++] = k;
             }
+        }
 
-            Integer n_j = bold_n.get(j);
-            for (int l = 0; l < n_j; l++) {
-                Point point_iv = upper_bold_p.get(i).get(v);
-                @SuppressWarnings("SuspiciousNameCombination")
-                byte[] M_v = ByteArrayUtils.concatenate(
-                        conversion.toByteArray(point_iv.x, upper_l_m / 2),
-                        conversion.toByteArray(point_iv.y, upper_l_m / 2)
-                );
-                log.debug(String.format("Encoding point %s as %s", point_iv, Arrays.toString(M_v)));
-                BigInteger k = modExp(bold_p.get(v), r_j, p);
-                byte[] bold_upper_k = new byte[0];
-                int l_m = (int) Math.ceil((double) upper_l_m / publicParameters.getSecurityParameters().getUpper_l());
-                for (int z = 1; z <= l_m; z++) {
-                    bold_upper_k = ByteArrayUtils.concatenate(bold_upper_k, hash.recHash_L(k, BigInteger.valueOf(z)));
-                }
-                bold_upper_k = ByteArrayUtils.truncate(bold_upper_k, upper_l_m);
-                bold_c[v] = ByteArrayUtils.xor(M_v, bold_upper_k);
-                log.debug(String.format("bold_c[%d] = %s", v, Arrays.toString(bold_c[v])));
-                v++;
+        byte[][] bold_c = new byte[n][];
+        IntStream.range(0, n).parallel().forEach(v_i -> {
+            byte[] M_v = upper_m.apply(v_i);
+            xorBoldUpperK(M_v, bold_k[v_i]);
+            bold_c[v_i] = M_v;
+            if (log.isDebugEnabled()) {
+                log.debug(String.format("bold_c[%d] = %s", v_i, Arrays.toString(bold_c[v_i])));
             }
+        });
+
+        BigInteger[] bold_d = new BigInteger[t];
+        IntStream.range(0, t).parallel().forEach(
+                j -> bold_d[j] = modExp(pk.getPublicKey(), bold_r[j], p));
 
-            bold_d.add(modExp(pk.getPublicKey(), r_j, p));
-            bold_r.add(r_j);
+        return new PrecomputedObliviousTransferResponse(Arrays.asList(bold_r), bold_c, Arrays.asList(bold_d));
+    }
+
+    /**
+     * Completes Algorithm 7.25 (GenResponse) from its precomputed part, by computing the only values which depend on
+     * the voter's query: <tt>bold_b</tt>.
+     *
+     * @param i                   the voter index
+     * @param bold_a              the vector of the queries
+     * @param bold_K              the matrix of number of selections per voter per election
+     * @param precomputedResponse the ballot-independent part of the response, as computed by
+     *                            {@link #precomputeResponse(EncryptionPublicKey, List, List)}
+     * @return the OT response, along with the randomness used
+     */
+    public ObliviousTransferResponseAndRand genResponse(Integer i, List<BigInteger> bold_a,
+                                                        List<List<Integer>> bold_K,
+                                                        PrecomputedObliviousTransferResponse precomputedResponse) {
+        Preconditions.checkArgument(bold_a.stream().allMatch(generalAlgorithms::isMember),
+                "All queries a_i must be in G_q");
+        List<Integer> bold_k_i = bold_K.get(i);
+        final int k_sum = bold_k_i.stream().reduce((a, b) -> a + b).orElse(0);
+        Preconditions.checkArgument(bold_a.size() == k_sum);
+        List<BigInteger> bold_r = precomputedResponse.getBold_r();
+        Preconditions.checkArgument(bold_r.size() == bold_k_i.size());
+
+        BigInteger p = publicParameters.getEncryptionGroup().getP();
+
+        int[] election_of_u = new int[k_sum]; // index 0 based, as opposed to the specification 1 based
+        int u = 0;
+        for (int j = 0; j < bold_k_i.size(); j++) {
+            for (int l = 0; l < bold_k_i.get(j); l++) {
+                election_of_u[u++] = j;
+            }
         }
 
-        ObliviousTransferResponse beta = new ObliviousTransferResponse(bold_b, bold_c, bold_d);
+        BigInteger[] bold_b = new BigInteger[k_sum];
+        IntStream.range(0, k_sum).parallel().forEach(
+                u_i -> bold_b[u_i] = modExp(bold_a.get(u_i), bold_r.get(election_of_u[u_i]), p));
+
+        ObliviousTransferResponse beta = new ObliviousTransferResponse(Arrays.asList(bold_b),
+                precomputedResponse.getBold_c(), precomputedResponse.getBold_d());
         return new ObliviousTransferResponseAndRand(beta, bold_r);
     }
 
+    /**
+     * XORs the key derived from <tt>k</tt> into the encoded point, in place. The key is made of the concatenation of
+     * <tt>RecHash_L(k, z)</tt> for <tt>z = 1..l_m</tt>, truncated to <tt>L_m</tt> bytes.
+     *
+     * @param M_v the encoded point, of length <tt>L_m</tt>, which is overwritten by the encrypted value
+     * @param k   the key material
+     */
+    private void xorBoldUpperK(byte[] M_v, BigInteger k) {
+        int upper_l = publicParameters.getSecurityParameters().getUpper_l();
+        int offset = 0;
+        for (int z = 1; offset < M_v.length; z++) {
+            byte[] h = hash.recHash_L(k, BigInteger.valueOf(z));
+            for (int m = 0; m < upper_l && offset < M_v.length; m++) {
+                M_v[offset++] ^= h[m];
+            }
+        }
+    }
+
 }
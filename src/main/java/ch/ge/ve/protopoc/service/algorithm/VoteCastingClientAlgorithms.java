@@ -39,6 +39,7 @@ import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
 import java.util.stream.Collectors;
+import java.util.stream.IntStream;
 
 import static ch.ge.ve.protopoc.arithmetic.BigIntegerArithmetic.modExp;
 import static java.math.BigInteger.ONE;
@@ -106,6 +107,130 @@ public class VoteCastingClientAlgorithms {
         return new BallotQueryAndRand(alpha, query.getBold_r());
     }
 
+    /**
+     * Computes the part of Algorithm 7.18 (GenBallot) which depends neither on the voter's selections nor on the
+     * voting code: the randomness of the OT query with the values <tt>pk^r_i</tt>, the value <tt>b</tt> and the
+     * commitments of the ballot proof. This can be done while the voter is choosing, the number of selections being
+     * known beforehand. The random values are drawn in the same order as by
+     * {@link #genBallot(String, List, EncryptionPublicKey)}, the exponentiations being spread across the cores.
+     *
+     * @param k  the total number of selections of the voter
+     * @param pk the public encryption key
+     * @return the precomputed part of the ballot, to be completed by
+     * {@link #genBallot(String, List, EncryptionPublicKey, PrecomputedBallot)}, once only
+     */
+    public PrecomputedBallot precomputeBallot(int k, EncryptionPublicKey pk) {
+        Preconditions.checkArgument(k > 0, "There needs to be at least one selection");
+        Preconditions.checkArgument(generalAlgorithms.isMember(pk.getPublicKey()),
+                "The key must be a member of G_q");
+        Preconditions.checkArgument(BigInteger.ONE.compareTo(pk.getPublicKey()) != 0,
+                "The key must not be 1");
+        EncryptionGroup encryptionGroup = publicParameters.getEncryptionGroup();
+        BigInteger p_hat = publicParameters.getIdentificationGroup().getP_hat();
+        BigInteger q_hat = publicParameters.getIdentificationGroup().getQ_hat();
+        BigInteger g_hat = publicParameters.getIdentificationGroup().getG_hat();
+        BigInteger p = encryptionGroup.getP();
+        BigInteger q = encryptionGroup.getQ();
+        BigInteger g = encryptionGroup.getG();
+
+        List<BigInteger> bold_r = new ArrayList<>(k);
+        for (int i = 0; i < k; i++) {
+            bold_r.add(randomGenerator.randomInZq(q));
+        }
+        BigInteger r = bold_r.stream().reduce(BigInteger::add).orElse(ZERO).mod(q);
+        BigInteger omega_1 = randomGenerator.randomInZq(q_hat);
+        BigInteger omega_2 = randomGenerator.randomInGq(encryptionGroup);
+        BigInteger omega_3 = randomGenerator.randomInZq(q);
+
+        // bold_pk_r, then b, t_1, pk^omega_3 and t_3
+        BigInteger[] exponentiations = new BigInteger[k + 4];
+        IntStream.range(0, k + 4).parallel().forEach(i -> {
+            if (i < k) {
+                exponentiations[i] = modExp(pk.getPublicKey(), bold_r.get(i), p);
+            } else if (i == k) {
+                exponentiations[i] = modExp(g, r, p);
+            } else if (i == k + 1) {
+                exponentiations[i] = modExp(g_hat, omega_1, p_hat);
+            } else if (i == k + 2) {
+                exponentiations[i] = modExp(pk.getPublicKey(), omega_3, p);
+            } else {
+                exponentiations[i] = modExp(g, omega_3, p);
+            }
+        });
+        BigInteger t_2 = omega_2.multiply(exponentiations[k + 2]).mod(p);
+
+        return new PrecomputedBallot(pk, bold_r, Arrays.asList(exponentiations).subList(0, k), r, exponentiations[k],
+                Arrays.asList(omega_1, omega_2, omega_3),
+                Arrays.asList(exponentiations[k + 1], t_2, exponentiations[k + 3]));
+    }
+
+    /**
+     * Algorithm 7.18: GenBallot, completing a precomputed ballot
+     * <p>Only the values depending on the voting code and on the selections are left to compute: <tt>x_hat</tt>, the
+     * OT query, and the challenge and responses of the ballot proof.</p>
+     *
+     * @param upper_x     the voting code
+     * @param bold_s      voters selection (indices)
+     * @param pk          the public encryption key
+     * @param precomputed the precomputed part of the ballot, for as many selections as in <tt>bold_s</tt>, which may
+     *                    not be used for any other ballot
+     * @return the combined ballot, OT query and random elements used
+     * @throws IncompatibleParametersRuntimeException when there is an issue with the public parameters
+     */
+    public BallotQueryAndRand genBallot(String upper_x, List<Integer> bold_s, EncryptionPublicKey pk,
+                                        PrecomputedBallot precomputed) {
+        Preconditions.checkArgument(bold_s.size() > 0,
+                "There needs to be at least one selection");
+        Preconditions.checkArgument(bold_s.stream().sorted().collect(Collectors.toList()).equals(bold_s),
+                "The list of selections needs to be ordered");
+        Preconditions.checkArgument(bold_s.stream().allMatch(i -> i >= 1),
+                "Selections must be strictly positive");
+        Preconditions.checkArgument(bold_s.stream().distinct().count() == bold_s.size(),
+                "All selections must be distinct");
+        Preconditions.checkArgument(bold_s.size() == precomputed.getBold_r().size(),
+                "The ballot must have been precomputed for as many selections");
+        Preconditions.checkArgument(precomputed.getPk().equals(pk),
+                "The ballot must have been precomputed for the same public key");
+
+        BigInteger p_hat = publicParameters.getIdentificationGroup().getP_hat();
+        BigInteger g_hat = publicParameters.getIdentificationGroup().getG_hat();
+        BigInteger p = publicParameters.getEncryptionGroup().getP();
+
+        BigInteger x = conversion.toInteger(upper_x, publicParameters.getUpper_a_x());
+        BigInteger x_hat = modExp(g_hat, x, p_hat);
+
+        List<BigInteger> bold_q = computeBoldQ(bold_s);
+        BigInteger m = computeM(bold_q, p);
+        List<BigInteger> bold_pk_r = precomputed.getBold_pk_r();
+        List<BigInteger> bold_a = new ArrayList<>(bold_q.size());
+        for (int i = 0; i < bold_q.size(); i++) {
+            bold_a.add(bold_q.get(i).multiply(bold_pk_r.get(i)).mod(p));
+        }
+        ObliviousTransferQuery query = new ObliviousTransferQuery(bold_a, precomputed.getBold_r());
+        BigInteger a = computeA(query, p);
+        BigInteger r = precomputed.getR();
+        BigInteger b = precomputed.getB();
+        NonInteractiveZKP pi = genBallotProof(x, m, r, x_hat, a, b, precomputed);
+        BallotAndQuery alpha = new BallotAndQuery(x_hat, query.getBold_a(), b, pi);
+
+        return new BallotQueryAndRand(alpha, query.getBold_r());
+    }
+
+    private NonInteractiveZKP genBallotProof(BigInteger x, BigInteger m, BigInteger r, BigInteger x_hat, BigInteger a,
+                                             BigInteger b, PrecomputedBallot precomputed) {
+        Preconditions.checkArgument(generalAlgorithms.isInZ_q_hat(x),
+                "The private credential must be in Z_q_hat");
+        Preconditions.checkArgument(generalAlgorithms.isMember_G_q_hat(x_hat),
+                "x_hat must be in G_q_hat");
+        Preconditions.checkArgument(generalAlgorithms.isMember(m), "m must be in G_q");
+        Preconditions.checkArgument(generalAlgorithms.isInZ_q(r), "r must be in Z_q");
+        Preconditions.checkArgument(generalAlgorithms.isMember(a), "a must be in G_q");
+        Preconditions.checkArgument(generalAlgorithms.isMember(b), "b must be in G_q");
+        log.debug(String.format("genBallotProof: a = %s", a));
+
+        return completeBallotProof(x, m, r, x_hat, a, b, precomputed.getBold_omega(), precomputed.getBold_t());
+    }
+
     private List<BigInteger> computeBoldQ(List<Integer> bold_s) {
         List<BigInteger> bold_q;
         try {
@@ -231,8 +356,6 @@ public class VoteCastingClientAlgorithms {
         BigInteger q = encryptionGroup.getQ();
         BigInteger g = encryptionGroup.getG();
 
-        int tau = publicParameters.getSecurityParameters().getTau();
-
         log.debug(String.format("genBallotProof: a = %s", a));
 
         BigInteger omega_1 = randomGenerator.randomInZq(q_hat);
@@ -243,14 +366,40 @@ public class VoteCastingClientAlgorithms {
         BigInteger t_2 = omega_2.multiply(modExp(pk.getPublicKey(), omega_3, p)).mod(p);
         BigInteger t_3 = modExp(g, omega_3, p);
 
+        return completeBallotProof(x, m, r, x_hat, a, b, Arrays.asList(omega_1, omega_2, omega_3),
+                Arrays.asList(t_1, t_2, t_3));
+    }
+
+    /**
+     * Completes Algorithm 7.21 (GenBallotProof) from the randomness and the commitments of the proof, by computing
+     * the challenge and the responses.
+     *
+     * @param x          first half of voting credentials
+     * @param m          encoded selections, m \isin G_q
+     * @param r          randomization
+     * @param x_hat      second half of voting credentials
+     * @param a          first half of ElGamal encryption
+     * @param b          second half of ElGamal encryption
+     * @param bold_omega the randomness of the proof, (omega_1, omega_2, omega_3)
+     * @param bold_t     the commitments of the proof, (t_1, t_2, t_3)
+     * @return a non interactive proof of knowledge for the ballot
+     */
+    private NonInteractiveZKP completeBallotProof(BigInteger x, BigInteger m, BigInteger r, BigInteger x_hat,
+                                                  BigInteger a, BigInteger b, List<BigInteger> bold_omega,
+                                                  List<BigInteger> bold_t) {
+        BigInteger q_hat = publicParameters.getIdentificationGroup().getQ_hat();
+        BigInteger p = publicParameters.getEncryptionGroup().getP();
+        BigInteger q = publicParameters.getEncryptionGroup().getQ();
+        int tau = publicParameters.getSecurityParameters().getTau();
+
         BigInteger[] y = new BigInteger[]{x_hat, a, b};
-        BigInteger[] t = new BigInteger[]{t_1, t_2, t_3};
+        BigInteger[] t = bold_t.toArray(new BigInteger[0]);
         BigInteger c = generalAlgorithms.getNIZKPChallenge(y, t, tau);
         log.debug(String.format("genBallotProof: c = %s", c));
 
-        BigInteger s_1 = omega_1.add(c.multiply(x)).mod(q_hat);
-        BigInteger s_2 = omega_2.multiply(modExp(m, c, p)).mod(p);
-        BigInteger s_3 = omega_3.add(c.multiply(r)).mod(q);
+        BigInteger s_1 = bold_omega.get(0).add(c.multiply(x)).mod(q_hat);
+        BigInteger s_2 = bold_omega.get(1).multiply(modExp(m, c, p)).mod(p);
+        BigInteger s_3 = bold_omega.get(2).add(c.multiply(r)).mod(q);
         List<BigInteger> s = Arrays.asList(s_1, s_2, s_3);
 
         return new NonInteractiveZKP(Arrays.asList(t), s);
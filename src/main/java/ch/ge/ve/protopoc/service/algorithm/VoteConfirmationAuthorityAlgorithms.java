@@ -140,6 +140,24 @@ public class VoteConfirmationAuthorityAlgorithms {
         Object[] bold_p_i = upper_bold_p.get(i).toArray();
         byte[] upper_f_i = ByteArrayUtils.truncate(hash.recHash_L(bold_p_i), publicParameters.getUpper_l_f());
 
+        return getFinalization(i, upper_f_i, upper_b);
+    }
+
+    /**
+     * Algorithm 7.37: GetFinalization, using the finalization code part <tt>F</tt> which was already computed for the
+     * voter by {@link ElectionPreparationAlgorithms#genSecretVoterData(List)}, instead of hashing the voter's points
+     * again
+     *
+     * @param i         the voter index
+     * @param upper_f_i the finalization code part of the voter, as stored in its secret voter data
+     * @param upper_b   the current ballot list
+     * @return this authority's part of the finalization code
+     */
+    public FinalizationCodePart getFinalization(Integer i, byte[] upper_f_i, Collection<BallotEntry> upper_b) {
+        Preconditions.checkNotNull(upper_f_i);
+        Preconditions.checkArgument(upper_f_i.length == publicParameters.getUpper_l_f(),
+                "The finalization code part must be of length L_f");
+
         BallotEntry ballotEntry = upper_b.stream().filter(b -> Objects.equals(b.getI(), i)).findFirst().orElseThrow(
                 () -> new BallotNotFoundRuntimeException(String.format("Couldn't find any ballot for voter %d", i))
         );
@@ -40,6 +40,7 @@ import java.util.stream.Collectors;
 import java.util.stream.IntStream;
 
 import static ch.ge.ve.protopoc.arithmetic.BigIntegerArithmetic.modExp;
+import static ch.ge.ve.protopoc.arithmetic.BigIntegerArithmetic.modInverseBatch;
 import static java.math.BigInteger.ZERO;
 import static java.util.Collections.singletonList;
 
@@ -150,22 +151,34 @@ public class VoteConfirmationClientAlgorithms {
                                 point.y.compareTo(p_prime) < 0),
                 "All points' coordinates must be in Z_p_prime");
 
-        BigInteger y = ZERO;
-        for (int i = 0; i < bold_p.size(); i++) {
-            BigInteger n = BigInteger.ONE;
+        int k = bold_p.size();
+        // The value at 0 is y = \sum_i(y_i * n_i * w_i), with n_i = \prod_{j != i}(x_j) and the barycentric weights
+        // w_i = 1 / \prod_{j != i}(x_j - x_i), all inverted at once
+        List<BigInteger> bold_d = new ArrayList<>(k);
+        for (int i = 0; i < k; i++) {
+            BigInteger x_i = bold_p.get(i).x;
             BigInteger d = BigInteger.ONE;
-            for (int j = 0; j < bold_p.size(); j++) {
+            for (int j = 0; j < k; j++) {
                 if (i != j) {
-                    BigInteger x_i = bold_p.get(i).x;
-                    BigInteger x_j = bold_p.get(j).x;
-
-                    n = n.multiply(x_j).mod(p_prime);
-                    d = d.multiply(x_j.subtract(x_i)).mod(p_prime);
+                    d = d.multiply(bold_p.get(j).x.subtract(x_i)).mod(p_prime);
                 }
             }
-            BigInteger y_i = bold_p.get(i).y;
+            bold_d.add(d);
+        }
+        List<BigInteger> bold_w = modInverseBatch(bold_d, p_prime);
 
-            y = y.add(y_i.multiply(n.multiply(d.modInverse(p_prime)))).mod(p_prime);
+        // the n_i's are the products of the x_j's before and after x_i
+        BigInteger[] suffix = new BigInteger[k + 1];
+        suffix[k] = BigInteger.ONE;
+        for (int i = k - 1; i >= 0; i--) {
+            suffix[i] = suffix[i + 1].multiply(bold_p.get(i).x).mod(p_prime);
+        }
+        BigInteger prefix = BigInteger.ONE;
+        BigInteger y = ZERO;
+        for (int i = 0; i < k; i++) {
+            BigInteger n = prefix.multiply(suffix[i + 1]).mod(p_prime);
+            y = y.add(bold_p.get(i).y.multiply(n).mod(p_prime).multiply(bold_w.get(i))).mod(p_prime);
+            prefix = prefix.multiply(bold_p.get(i).x).mod(p_prime);
         }
 
         return y;
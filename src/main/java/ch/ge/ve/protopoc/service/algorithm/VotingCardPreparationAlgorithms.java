@@ -22,12 +22,12 @@
 package ch.ge.ve.protopoc.service.algorithm;
 
 import ch.ge.ve.protopoc.service.model.*;
-import ch.ge.ve.protopoc.service.support.ByteArrayUtils;
 import ch.ge.ve.protopoc.service.support.Conversion;
 import com.google.common.base.Preconditions;
 
 import java.math.BigInteger;
 import java.util.*;
+import java.util.function.Consumer;
 import java.util.stream.Collectors;
 import java.util.stream.IntStream;
 
@@ -37,6 +37,14 @@ import static ch.ge.ve.protopoc.service.support.ByteArrayUtils.markByteArray;
  * Algorithms related to the preparation of code sheets
  */
 public class VotingCardPreparationAlgorithms {
+    /**
+     * Number of voters whose cards are computed by a single task, reusing the same buffers
+     */
+    private static final int VOTER_RANGE_SIZE = 64;
+    /**
+     * Number of cards computed before they are handed to the sink
+     */
+    private static final int CARD_WINDOW_SIZE = 4_096;
     private final Conversion conversion = new Conversion();
     private final PublicParameters publicParameters;
     private final int s;
@@ -56,31 +64,83 @@ public class VotingCardPreparationAlgorithms {
      * @return all the relevant information combined for printing on the code sheets
      */
     public List<VotingCard> getVotingCard(ElectionSet electionSet, List<List<SecretVoterData>> bold_upper_d) {
-        Preconditions.checkArgument(bold_upper_d.size() == publicParameters.getS(),
-                String.format("|D| [%d] != s [%d]", bold_upper_d.size(), publicParameters.getS()));
         Preconditions.checkArgument(bold_upper_d.stream().allMatch(
                 secretVoterDatas -> secretVoterDatas.size() == electionSet.getVoters().size()),
                 "Each authority should have submitted one code sheet per voter");
+        return getVotingCards(electionSet, 0, bold_upper_d);
+    }
 
+    /**
+     * Algorithm 7.13: GetVotingCards, restricted to a range of voters
+     * <p>Computes the voting cards of the voters <tt>from</tt> to <tt>from + |bold_d_j|</tt>, so that the code sheets
+     * of a large electorate may be prepared chunk by chunk</p>
+     *
+     * @param electionSet  the electionSet definition, including bold_v, bold_c, bold_n, bold_k and bold_upper_e
+     * @param from         the index of the first voter of the range
+     * @param bold_upper_d the secret voter data generated by each authority for the voters of the range
+     * @return the voting cards of the voters of the range
+     */
+    public List<VotingCard> getVotingCards(ElectionSet electionSet, int from, List<List<SecretVoterData>> bold_upper_d) {
         List<VotingCard> votingCards = new ArrayList<>();
-        for (int i = 0; i < electionSet.getVoters().size(); i++) {
-            Voter v_i = electionSet.getVoters().get(i);
+        generateVotingCards(electionSet, from, bold_upper_d, votingCards::add);
+        return votingCards;
+    }
 
-            // for each authority, get the secret data pertaining to voter i
-            final int local_i = i;
-            List<SecretVoterData> secretVoterDataList = bold_upper_d.stream()
-                    .map(list -> list.get(local_i)).collect(Collectors.toList());
+    /**
+     * Algorithm 7.13: GetVotingCards, restricted to a range of voters and streamed to a sink
+     * <p>The voting cards are computed in parallel, over sub-ranges of {@link #VOTER_RANGE_SIZE} voters, and handed
+     * to the sink in voter order, one window of {@link #CARD_WINDOW_SIZE} voters at a time, so that the cards of
+     * the whole range are never held at once.</p>
+     *
+     * @param electionSet  the electionSet definition, including bold_v, bold_c, bold_n, bold_k and bold_upper_e
+     * @param from         the index of the first voter of the range
+     * @param bold_upper_d the secret voter data generated by each authority for the voters of the range
+     * @param sink         the consumer of the voting cards, called from the calling thread, in voter order
+     */
+    public void generateVotingCards(ElectionSet electionSet, int from, List<List<SecretVoterData>> bold_upper_d,
+                                    Consumer<VotingCard> sink) {
+        Preconditions.checkArgument(bold_upper_d.size() == publicParameters.getS(),
+                String.format("|D| [%d] != s [%d]", bold_upper_d.size(), publicParameters.getS()));
+        int rangeSize = bold_upper_d.isEmpty() ? 0 : bold_upper_d.get(0).size();
+        Preconditions.checkArgument(bold_upper_d.stream().allMatch(
+                secretVoterDatas -> secretVoterDatas.size() == rangeSize),
+                "Each authority should have submitted one code sheet per voter of the range");
+        Preconditions.checkPositionIndexes(from, from + rangeSize, electionSet.getVoters().size());
 
-            String upper_x = compute_upper_x(secretVoterDataList);
-            String upper_y = compute_upper_y(secretVoterDataList);
-            String upper_fc = compute_upper_fc(secretVoterDataList);
-            List<String> bold_rc = compute_bold_rc(electionSet, secretVoterDataList);
-            List<Integer> bold_k_i = compute_bold_k_i(electionSet, v_i);
+        VotingCard[] window = new VotingCard[Math.min(rangeSize, CARD_WINDOW_SIZE)];
+        for (int windowStart = 0; windowStart < rangeSize; windowStart += CARD_WINDOW_SIZE) {
+            final int start = windowStart;
+            final int windowSize = Math.min(CARD_WINDOW_SIZE, rangeSize - start);
+            IntStream.range(0, (windowSize + VOTER_RANGE_SIZE - 1) / VOTER_RANGE_SIZE).parallel().forEach(range -> {
+                // the buffers are reused for all the voters of the sub-range
+                byte[] upper_f_buffer = new byte[publicParameters.getUpper_l_f()];
+                byte[] upper_r_buffer = new byte[publicParameters.getUpper_l_r()];
+                List<SecretVoterData> secretVoterDataList = new ArrayList<>(s);
+                for (int k = range * VOTER_RANGE_SIZE; k < Math.min(windowSize, (range + 1) * VOTER_RANGE_SIZE); k++) {
+                    int local_i = start + k;
+                    int i = from + local_i;
+                    Voter v_i = electionSet.getVoters().get(i);
 
-            votingCards.add(getVotingCard(i, electionSet, bold_k_i, upper_x, upper_y, upper_fc, bold_rc));
+                    // for each authority, get the secret data pertaining to voter i
+                    secretVoterDataList.clear();
+                    for (List<SecretVoterData> bold_d_j : bold_upper_d) {
+                        secretVoterDataList.add(bold_d_j.get(local_i));
+                    }
+
+                    String upper_x = compute_upper_x(secretVoterDataList);
+                    String upper_y = compute_upper_y(secretVoterDataList);
+                    String upper_fc = compute_upper_fc(secretVoterDataList, upper_f_buffer);
+                    List<String> bold_rc = compute_bold_rc(electionSet, secretVoterDataList, upper_r_buffer);
+                    List<Integer> bold_k_i = compute_bold_k_i(electionSet, v_i);
+
+                    window[k] = getVotingCard(i, electionSet, bold_k_i, upper_x, upper_y, upper_fc, bold_rc);
+                }
+            });
+            for (int k = 0; k < windowSize; k++) {
+                sink.accept(window[k]);
+                window[k] = null;
+            }
         }
-        votingCards.sort(Comparator.comparing(VotingCard::getI));
-        return votingCards;
     }
 
     /**
@@ -118,15 +178,14 @@ public class VotingCardPreparationAlgorithms {
      * upper_fc = \xor{j=1,s}(F_{ij})
      *
      * @param secretVoterDataList the secret voter data generated by each of the authorities for this voter
+     * @param buffer              the buffer in which to xor the <tt>F_ij</tt>s, of length <tt>L_f</tt>
      * @return the result of xoring the individual <tt>F_ij</tt>s
      */
-    private String compute_upper_fc(List<SecretVoterData> secretVoterDataList) {
-        List<Character> A_f = publicParameters.getUpper_a_f();
-        return IntStream.range(0, s).mapToObj(secretVoterDataList::get)
-                .map(SecretVoterData::getF)
-                .reduce(ByteArrayUtils::xor)
-                .map(b -> conversion.toString(b, A_f))
-                .orElse("");
+    private String compute_upper_fc(List<SecretVoterData> secretVoterDataList, byte[] buffer) {
+        for (int j = 0; j < s; j++) {
+            xorInto(buffer, secretVoterDataList.get(j).getF(), j == 0);
+        }
+        return conversion.toString(buffer, publicParameters.getUpper_a_f());
     }
 
     /**
@@ -135,18 +194,41 @@ public class VotingCardPreparationAlgorithms {
      * 3. convert to string
      *
      * @param secretVoterDataList the secret voter data generated by each of the authorities for this voter
+     * @param buffer              the buffer in which to xor the <tt>RC_ijk</tt>s, of length <tt>L_r</tt>
      * @return for each k, the result of xoring the individual <tt>RC_ijk</tt>s
      */
-    private List<String> compute_bold_rc(ElectionSet electionSet, List<SecretVoterData> secretVoterDataList) {
+    private List<String> compute_bold_rc(ElectionSet electionSet, List<SecretVoterData> secretVoterDataList,
+                                         byte[] buffer) {
         List<Character> upper_a_r = publicParameters.getUpper_a_r();
-        return IntStream.range(0, electionSet.getCandidates().size()).mapToObj(k ->
-                IntStream.range(0, s).mapToObj(secretVoterDataList::get)
-                        .map(secretVoterData -> secretVoterData.getRc()[k])
-                        .reduce(ByteArrayUtils::xor) // 1.
-                        .map(upper_r_ik -> markByteArray(upper_r_ik, k, publicParameters.getN_max())) // 2.
-                        .map(b -> conversion.toString(b, upper_a_r)) // 3.
-                        .orElse("")
-        ).collect(Collectors.toList());
+        int n = electionSet.getCandidates().size();
+        List<String> bold_rc = new ArrayList<>(n);
+        for (int k = 0; k < n; k++) {
+            for (int j = 0; j < s; j++) {
+                xorInto(buffer, secretVoterDataList.get(j).getRc()[k], j == 0); // 1.
+            }
+            byte[] upper_r_ik = markByteArray(buffer, k, publicParameters.getN_max()); // 2.
+            bold_rc.add(conversion.toString(upper_r_ik, upper_a_r)); // 3.
+        }
+        return bold_rc;
+    }
+
+    /**
+     * XORs <tt>b</tt> into the buffer, or copies it into the buffer if <tt>first</tt> is set
+     *
+     * @param buffer the buffer, overwritten by the result
+     * @param b      the byte array to combine into the buffer, of the same length
+     * @param first  whether <tt>b</tt> is the first of the byte arrays to be combined
+     */
+    private static void xorInto(byte[] buffer, byte[] b, boolean first) {
+        Preconditions.checkArgument(buffer.length == b.length,
+                "The arrays should have the same size. |a| = [" + buffer.length + "], |b| = [" + b.length + "]");
+        if (first) {
+            System.arraycopy(b, 0, buffer, 0, b.length);
+        } else {
+            for (int i = 0; i < b.length; i++) {
+                buffer[i] ^= b[i];
+            }
+        }
     }
 
     /**
@@ -0,0 +1,59 @@
+/*-------------------------------------------------------------------------------------------------
+ - #%L                                                                                            -
+ - chvote-protocol-poc                                                                            -
+ - %%                                                                                             -
+ - Copyright (C) 2016 - 2017 République et Canton de Genève                                       -
+ - %%                                                                                             -
+ - This program is free software: you can redistribute it and/or modify                           -
+ - it under the terms of the GNU Affero General Public License as published by                    -
+ - the Free Software Foundation, either version 3 of the License, or                              -
+ - (at your option) any later version.                                                            -
+ -                                                                                                -
+ - This program is distributed in the hope that it will be useful,                                -
+ - but WITHOUT ANY WARRANTY; without even the implied warranty of                                 -
+ - MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the                                   -
+ - GNU General Public License for more details.                                                   -
+ -                                                                                                -
+ - You should have received a copy of the GNU Affero General Public License                       -
+ - along with this program. If not, see <http://www.gnu.org/licenses/>.                           -
+ - #L%                                                                                            -
+ -------------------------------------------------------------------------------------------------*/
+
+package ch.ge.ve.protopoc.service.codec;
+
+import com.google.common.base.Preconditions;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Codec for byte arrays of a given length, encoded as is
+ */
+public final class ByteArrayCodec implements FixedLengthCodec<byte[]> {
+    private final int length;
+
+    /**
+     * @param length the length of the arrays, in bytes
+     */
+    public ByteArrayCodec(int length) {
+        Preconditions.checkArgument(length >= 0, "The length may not be negative");
+        this.length = length;
+    }
+
+    @Override
+    public int length() {
+        return length;
+    }
+
+    @Override
+    public void encode(byte[] value, ByteBuffer buffer) {
+        Preconditions.checkArgument(value.length == length, "The array should be %s bytes long", length);
+        buffer.put(value);
+    }
+
+    @Override
+    public byte[] decode(ByteBuffer buffer) {
+        byte[] value = new byte[length];
+        buffer.get(value);
+        return value;
+    }
+}
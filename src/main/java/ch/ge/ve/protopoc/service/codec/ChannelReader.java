@@ -0,0 +1,140 @@
+/*-------------------------------------------------------------------------------------------------
+ - #%L                                                                                            -
+ - chvote-protocol-poc                                                                            -
+ - %%                                                                                             -
+ - Copyright (C) 2016 - 2017 République et Canton de Genève                                       -
+ - %%                                                                                             -
+ - This program is free software: you can redistribute it and/or modify                           -
+ - it under the terms of the GNU Affero General Public License as published by                    -
+ - the Free Software Foundation, either version 3 of the License, or                              -
+ - (at your option) any later version.                                                            -
+ -                                                                                                -
+ - This program is distributed in the hope that it will be useful,                                -
+ - but WITHOUT ANY WARRANTY; without even the implied warranty of                                 -
+ - MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the                                   -
+ - GNU General Public License for more details.                                                   -
+ -                                                                                                -
+ - You should have received a copy of the GNU Affero General Public License                       -
+ - along with this program. If not, see <http://www.gnu.org/licenses/>.                           -
+ - #L%                                                                                            -
+ -------------------------------------------------------------------------------------------------*/
+
+package ch.ge.ve.protopoc.service.codec;
+
+import com.google.common.base.Preconditions;
+
+import java.io.Closeable;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ReadableByteChannel;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Streaming decoder reading values written by a {@link ChannelWriter} from a channel, through a single direct buffer.
+ */
+public final class ChannelReader implements Closeable {
+    private final ReadableByteChannel channel;
+    private final ByteBuffer buffer;
+
+    public ChannelReader(ReadableByteChannel channel) {
+        this(channel, ChannelWriter.DEFAULT_BUFFER_SIZE);
+    }
+
+    public ChannelReader(ReadableByteChannel channel, int bufferSize) {
+        Preconditions.checkArgument(bufferSize >= Integer.BYTES, "The buffer is too small");
+        this.channel = channel;
+        this.buffer = ByteBuffer.allocateDirect(bufferSize);
+        this.buffer.flip();
+    }
+
+    /**
+     * Reads a value written by {@link ChannelWriter#write(Object, Codec)}
+     *
+     * @param codec the codec for the value
+     * @return the decoded value
+     * @throws IOException if the channel could not be read, or ended before the value
+     */
+    public <T> T read(Codec<T> codec) throws IOException {
+        fill(Integer.BYTES);
+        int length = buffer.getInt();
+        if (length > buffer.capacity()) {
+            ByteBuffer large = ByteBuffer.allocate(length);
+            large.put(buffer);
+            while (large.hasRemaining()) {
+                if (channel.read(large) < 0) {
+                    throw new EOFException();
+                }
+            }
+            large.flip();
+            return codec.decode(large);
+        }
+        fill(length);
+        ByteBuffer value = buffer.slice();
+        value.limit(length);
+        buffer.position(buffer.position() + length);
+        return codec.decode(value);
+    }
+
+    /**
+     * Reads a list written by {@link ChannelWriter#writeList(List, FixedLengthCodec)}, passing the elements to the
+     * consumer as they are decoded
+     *
+     * @param codec    the codec for the elements
+     * @param consumer the consumer of the elements, receiving their index and value
+     * @return the number of elements
+     * @throws IOException if the channel could not be read, or ended before the end of the list
+     */
+    public <T> int readList(FixedLengthCodec<T> codec, ElementConsumer<T> consumer) throws IOException {
+        Preconditions.checkArgument(codec.length() <= buffer.capacity(), "The buffer is too small for the elements");
+        fill(Integer.BYTES);
+        int size = buffer.getInt();
+        for (int i = 0; i < size; i++) {
+            fill(codec.length());
+            consumer.accept(i, codec.decode(buffer));
+        }
+        return size;
+    }
+
+    /**
+     * Reads a list written by {@link ChannelWriter#writeList(List, FixedLengthCodec)} into memory
+     *
+     * @param codec the codec for the elements
+     * @return the decoded list
+     * @throws IOException if the channel could not be read, or ended before the end of the list
+     */
+    public <T> List<T> readList(FixedLengthCodec<T> codec) throws IOException {
+        List<T> values = new ArrayList<>();
+        readList(codec, (i, value) -> values.add(value));
+        return values;
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+
+    private void fill(int length) throws IOException {
+        if (buffer.remaining() >= length) {
+            return;
+        }
+        buffer.compact();
+        while (buffer.position() < length) {
+            if (channel.read(buffer) < 0) {
+                throw new EOFException();
+            }
+        }
+        buffer.flip();
+    }
+
+    /**
+     * Consumer of the decoded elements of a list
+     *
+     * @param <T> the type of the elements
+     */
+    @FunctionalInterface
+    public interface ElementConsumer<T> {
+        void accept(int index, T value) throws IOException;
+    }
+}
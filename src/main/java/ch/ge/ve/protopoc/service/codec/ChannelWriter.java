@@ -0,0 +1,158 @@
+/*-------------------------------------------------------------------------------------------------
+ - #%L                                                                                            -
+ - chvote-protocol-poc                                                                            -
+ - %%                                                                                             -
+ - Copyright (C) 2016 - 2017 République et Canton de Genève                                       -
+ - %%                                                                                             -
+ - This program is free software: you can redistribute it and/or modify                           -
+ - it under the terms of the GNU Affero General Public License as published by                    -
+ - the Free Software Foundation, either version 3 of the License, or                              -
+ - (at your option) any later version.                                                            -
+ -                                                                                                -
+ - This program is distributed in the hope that it will be useful,                                -
+ - but WITHOUT ANY WARRANTY; without even the implied warranty of                                 -
+ - MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the                                   -
+ - GNU General Public License for more details.                                                   -
+ -                                                                                                -
+ - You should have received a copy of the GNU Affero General Public License                       -
+ - along with this program. If not, see <http://www.gnu.org/licenses/>.                           -
+ - #L%                                                                                            -
+ -------------------------------------------------------------------------------------------------*/
+
+package ch.ge.ve.protopoc.service.codec;
+
+import com.google.common.base.Preconditions;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.WritableByteChannel;
+import java.util.Iterator;
+import java.util.List;
+
+/**
+ * Streaming encoder writing values to a channel through a single direct buffer.
+ * <p>
+ * Lists are written element by element, so that they do not need to be encoded in memory as a whole. The encoding is
+ * the same as the one of {@link ListCodec}, so that a written list may be mapped back and viewed as an
+ * {@link EncodedList}. Single values are prefixed with their length.
+ * </p>
+ */
+public final class ChannelWriter implements Closeable {
+    /**
+     * Default size of the write buffer
+     */
+    public static final int DEFAULT_BUFFER_SIZE = 1 << 20;
+
+    private final WritableByteChannel channel;
+    private final ByteBuffer buffer;
+    private long position;
+
+    public ChannelWriter(WritableByteChannel channel) {
+        this(channel, DEFAULT_BUFFER_SIZE);
+    }
+
+    public ChannelWriter(WritableByteChannel channel, int bufferSize) {
+        Preconditions.checkArgument(bufferSize >= Integer.BYTES, "The buffer is too small");
+        this.channel = channel;
+        this.buffer = ByteBuffer.allocateDirect(bufferSize);
+    }
+
+    /**
+     * Writes the value, prefixed with its length
+     *
+     * @param value the value to be written
+     * @param codec the codec for the value
+     * @throws IOException if the channel could not be written to
+     */
+    public <T> void write(T value, Codec<T> codec) throws IOException {
+        int length = codec.length(value);
+        ensureRemaining(Integer.BYTES);
+        buffer.putInt(length);
+        if (length > buffer.capacity()) {
+            flush();
+            ByteBuffer large = ByteBuffer.allocate(length);
+            codec.encode(value, large);
+            large.flip();
+            writeFully(large);
+        } else {
+            ensureRemaining(length);
+            codec.encode(value, buffer);
+        }
+    }
+
+    /**
+     * Writes the list, as its number of elements followed by the elements
+     *
+     * @param values the list to be written
+     * @param codec  the codec for the elements
+     * @throws IOException if the channel could not be written to
+     */
+    public <T> void writeList(List<T> values, FixedLengthCodec<T> codec) throws IOException {
+        writeList(values.size(), values.iterator(), codec);
+    }
+
+    /**
+     * Writes the elements as a list, without requiring them to be held in memory
+     *
+     * @param size     the number of elements
+     * @param elements an iterator over exactly <tt>size</tt> elements
+     * @param codec    the codec for the elements
+     * @throws IOException if the channel could not be written to
+     */
+    public <T> void writeList(int size, Iterator<T> elements, FixedLengthCodec<T> codec) throws IOException {
+        Preconditions.checkArgument(codec.length() <= buffer.capacity(), "The buffer is too small for the elements");
+        ensureRemaining(Integer.BYTES);
+        buffer.putInt(size);
+        for (int i = 0; i < size; i++) {
+            Preconditions.checkArgument(elements.hasNext(), "There are fewer elements than announced");
+            ensureRemaining(codec.length());
+            codec.encode(elements.next(), buffer);
+        }
+        Preconditions.checkArgument(!elements.hasNext(), "There are more elements than announced");
+    }
+
+    /**
+     * @return the number of bytes written so far, including the ones not yet flushed
+     */
+    public long getPosition() {
+        return position + buffer.position();
+    }
+
+    /**
+     * Writes the buffered bytes to the channel
+     *
+     * @throws IOException if the channel could not be written to
+     */
+    public void flush() throws IOException {
+        buffer.flip();
+        writeFully(buffer);
+        buffer.clear();
+    }
+
+    /**
+     * Flushes the buffered bytes and closes the channel
+     *
+     * @throws IOException if the channel could not be written to
+     */
+    @Override
+    public void close() throws IOException {
+        try {
+            flush();
+        } finally {
+            channel.close();
+        }
+    }
+
+    private void ensureRemaining(int length) throws IOException {
+        if (buffer.remaining() < length) {
+            flush();
+        }
+    }
+
+    private void writeFully(ByteBuffer source) throws IOException {
+        while (source.hasRemaining()) {
+            position += channel.write(source);
+        }
+    }
+}
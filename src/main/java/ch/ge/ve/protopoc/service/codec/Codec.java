@@ -0,0 +1,53 @@
+/*-------------------------------------------------------------------------------------------------
+ - #%L                                                                                            -
+ - chvote-protocol-poc                                                                            -
+ - %%                                                                                             -
+ - Copyright (C) 2016 - 2017 République et Canton de Genève                                       -
+ - %%                                                                                             -
+ - This program is free software: you can redistribute it and/or modify                           -
+ - it under the terms of the GNU Affero General Public License as published by                    -
+ - the Free Software Foundation, either version 3 of the License, or                              -
+ - (at your option) any later version.                                                            -
+ -                                                                                                -
+ - This program is distributed in the hope that it will be useful,                                -
+ - but WITHOUT ANY WARRANTY; without even the implied warranty of                                 -
+ - MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the                                   -
+ - GNU General Public License for more details.                                                   -
+ -                                                                                                -
+ - You should have received a copy of the GNU Affero General Public License                       -
+ - along with this program. If not, see <http://www.gnu.org/licenses/>.                           -
+ - #L%                                                                                            -
+ -------------------------------------------------------------------------------------------------*/
+
+package ch.ge.ve.protopoc.service.codec;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Binary codec for a model class.
+ * <p>
+ * Implementations read and write at the current position of the buffer, advancing it by the encoded length of the
+ * value.
+ * </p>
+ *
+ * @param <T> the type of the encoded values
+ */
+public interface Codec<T> {
+    /**
+     * @param value the value to be encoded
+     * @return the number of bytes needed to encode the value
+     */
+    int length(T value);
+
+    /**
+     * @param value  the value to be encoded
+     * @param buffer the buffer to write to, with at least {@link #length(Object)} bytes remaining
+     */
+    void encode(T value, ByteBuffer buffer);
+
+    /**
+     * @param buffer the buffer to read from
+     * @return the decoded value
+     */
+    T decode(ByteBuffer buffer);
+}
@@ -0,0 +1,56 @@
+/*-------------------------------------------------------------------------------------------------
+ - #%L                                                                                            -
+ - chvote-protocol-poc                                                                            -
+ - %%                                                                                             -
+ - Copyright (C) 2016 - 2017 République et Canton de Genève                                       -
+ - %%                                                                                             -
+ - This program is free software: you can redistribute it and/or modify                           -
+ - it under the terms of the GNU Affero General Public License as published by                    -
+ - the Free Software Foundation, either version 3 of the License, or                              -
+ - (at your option) any later version.                                                            -
+ -                                                                                                -
+ - This program is distributed in the hope that it will be useful,                                -
+ - but WITHOUT ANY WARRANTY; without even the implied warranty of                                 -
+ - MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the                                   -
+ - GNU General Public License for more details.                                                   -
+ -                                                                                                -
+ - You should have received a copy of the GNU Affero General Public License                       -
+ - along with this program. If not, see <http://www.gnu.org/licenses/>.                           -
+ - #L%                                                                                            -
+ -------------------------------------------------------------------------------------------------*/
+
+package ch.ge.ve.protopoc.service.codec;
+
+import ch.ge.ve.protopoc.service.model.DecryptionProof;
+
+import java.math.BigInteger;
+import java.nio.ByteBuffer;
+
+/**
+ * Codec for decryption proofs, encoded as the list of commitments t followed by the response s
+ */
+public final class DecryptionProofCodec implements Codec<DecryptionProof> {
+    private final ElementCodec elementCodec;
+    private final ListCodec<BigInteger> elementsCodec;
+
+    public DecryptionProofCodec(ElementCodec elementCodec) {
+        this.elementCodec = elementCodec;
+        this.elementsCodec = new ListCodec<>(elementCodec);
+    }
+
+    @Override
+    public int length(DecryptionProof value) {
+        return elementsCodec.length(value.getT()) + elementCodec.length();
+    }
+
+    @Override
+    public void encode(DecryptionProof value, ByteBuffer buffer) {
+        elementsCodec.encode(value.getT(), buffer);
+        elementCodec.encode(value.getS(), buffer);
+    }
+
+    @Override
+    public DecryptionProof decode(ByteBuffer buffer) {
+        return new DecryptionProof(elementsCodec.decode(buffer), elementCodec.decode(buffer));
+    }
+}
@@ -0,0 +1,84 @@
+/*-------------------------------------------------------------------------------------------------
+ - #%L                                                                                            -
+ - chvote-protocol-poc                                                                            -
+ - %%                                                                                             -
+ - Copyright (C) 2016 - 2017 République et Canton de Genève                                       -
+ - %%                                                                                             -
+ - This program is free software: you can redistribute it and/or modify                           -
+ - it under the terms of the GNU Affero General Public License as published by                    -
+ - the Free Software Foundation, either version 3 of the License, or                              -
+ - (at your option) any later version.                                                            -
+ -                                                                                                -
+ - This program is distributed in the hope that it will be useful,                                -
+ - but WITHOUT ANY WARRANTY; without even the implied warranty of                                 -
+ - MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the                                   -
+ - GNU General Public License for more details.                                                   -
+ -                                                                                                -
+ - You should have received a copy of the GNU Affero General Public License                       -
+ - along with this program. If not, see <http://www.gnu.org/licenses/>.                           -
+ - #L%                                                                                            -
+ -------------------------------------------------------------------------------------------------*/
+
+package ch.ge.ve.protopoc.service.codec;
+
+import ch.ge.ve.protopoc.service.model.EncryptionGroup;
+import com.google.common.base.Preconditions;
+
+import java.math.BigInteger;
+import java.nio.ByteBuffer;
+
+/**
+ * Codec for group elements and exponents, encoded as fixed-width, big-endian unsigned integers.
+ */
+public final class ElementCodec implements FixedLengthCodec<BigInteger> {
+    private final int width;
+
+    /**
+     * @param width the number of bytes used for every element
+     */
+    public ElementCodec(int width) {
+        Preconditions.checkArgument(width > 0, "The width must be positive");
+        this.width = width;
+    }
+
+    /**
+     * @param modulus the largest modulus of the values to be encoded
+     * @return a codec wide enough for all the values smaller than the modulus
+     */
+    public static ElementCodec forModulus(BigInteger modulus) {
+        return new ElementCodec((modulus.bitLength() + 7) / 8);
+    }
+
+    /**
+     * @param encryptionGroup the encryption group
+     * @return a codec for the elements of the group, and for all values modulo a smaller modulus
+     */
+    public static ElementCodec forGroup(EncryptionGroup encryptionGroup) {
+        return forModulus(encryptionGroup.getP());
+    }
+
+    @Override
+    public int length() {
+        return width;
+    }
+
+    @Override
+    public void encode(BigInteger value, ByteBuffer buffer) {
+        Preconditions.checkArgument(value.signum() >= 0, "Only non-negative values can be encoded");
+        byte[] bytes = value.toByteArray();
+        int offset = bytes.length > 1 && bytes[0] == 0 ? 1 : 0; // sign byte
+        int length = bytes.length - offset;
+        Preconditions.checkArgument(length <= width, "The value does not fit in %s bytes", width);
+        for (int i = length; i < width; i++) {
+            buffer.put((byte) 0);
+        }
+        buffer.put(bytes, offset, length);
+    }
+
+    @Override
+    public BigInteger decode(ByteBuffer buffer) {
+        byte[] bytes = new byte[width];
+        buffer.get(bytes);
+        return new BigInteger(1, bytes);
+    }
+}
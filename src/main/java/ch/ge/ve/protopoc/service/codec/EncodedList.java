@@ -0,0 +1,70 @@
+/*-------------------------------------------------------------------------------------------------
+ - #%L                                                                                            -
+ - chvote-protocol-poc                                                                            -
+ - %%                                                                                             -
+ - Copyright (C) 2016 - 2017 République et Canton de Genève                                       -
+ - %%                                                                                             -
+ - This program is free software: you can redistribute it and/or modify                           -
+ - it under the terms of the GNU Affero General Public License as published by                    -
+ - the Free Software Foundation, either version 3 of the License, or                              -
+ - (at your option) any later version.                                                            -
+ -                                                                                                -
+ - This program is distributed in the hope that it will be useful,                                -
+ - but WITHOUT ANY WARRANTY; without even the implied warranty of                                 -
+ - MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the                                   -
+ - GNU General Public License for more details.                                                   -
+ -                                                                                                -
+ - You should have received a copy of the GNU Affero General Public License                       -
+ - along with this program. If not, see <http://www.gnu.org/licenses/>.                           -
+ - #L%                                                                                            -
+ -------------------------------------------------------------------------------------------------*/
+
+package ch.ge.ve.protopoc.service.codec;
+
+import com.google.common.base.Preconditions;
+
+import java.nio.ByteBuffer;
+import java.util.AbstractList;
+import java.util.RandomAccess;
+
+/**
+ * Read-only list view of fixed-length values, decoded from the underlying buffer on access.
+ * <p>
+ * The buffer starts with the number of elements, as written by {@link ListCodec}. When the buffer is memory-mapped,
+ * the elements are read directly from the mapping.
+ * </p>
+ *
+ * @param <T> the type of the elements
+ */
+public final class EncodedList<T> extends AbstractList<T> implements RandomAccess {
+    private final ByteBuffer buffer;
+    private final FixedLengthCodec<T> elementCodec;
+    private final int size;
+
+    /**
+     * @param buffer       the encoded list, starting at position 0
+     * @param elementCodec the codec for the elements
+     */
+    public EncodedList(ByteBuffer buffer, FixedLengthCodec<T> elementCodec) {
+        this.size = buffer.getInt(0);
+        Preconditions.checkArgument(size >= 0 &&
+                        (long) Integer.BYTES + (long) size * elementCodec.length() <= buffer.capacity(),
+                "The buffer is too short for the encoded list");
+        this.buffer = buffer;
+        this.elementCodec = elementCodec;
+    }
+
+    @Override
+    public T get(int index) {
+        Preconditions.checkElementIndex(index, size);
+        ByteBuffer element = buffer.duplicate();
+        // the constructor checked that the whole list fits in the buffer, hence that the position fits in an int
+        element.position((int) (Integer.BYTES + (long) index * elementCodec.length()));
+        return elementCodec.decode(element);
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+}
@@ -0,0 +1,53 @@
+/*-------------------------------------------------------------------------------------------------
+ - #%L                                                                                            -
+ - chvote-protocol-poc                                                                            -
+ - %%                                                                                             -
+ - Copyright (C) 2016 - 2017 République et Canton de Genève                                       -
+ - %%                                                                                             -
+ - This program is free software: you can redistribute it and/or modify                           -
+ - it under the terms of the GNU Affero General Public License as published by                    -
+ - the Free Software Foundation, either version 3 of the License, or                              -
+ - (at your option) any later version.                                                            -
+ -                                                                                                -
+ - This program is distributed in the hope that it will be useful,                                -
+ - but WITHOUT ANY WARRANTY; without even the implied warranty of                                 -
+ - MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the                                   -
+ - GNU General Public License for more details.                                                   -
+ -                                                                                                -
+ - You should have received a copy of the GNU Affero General Public License                       -
+ - along with this program. If not, see <http://www.gnu.org/licenses/>.                           -
+ - #L%                                                                                            -
+ -------------------------------------------------------------------------------------------------*/
+
+package ch.ge.ve.protopoc.service.codec;
+
+import ch.ge.ve.protopoc.service.model.Encryption;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Codec for ElGamal encryptions, encoded as the pair of elements (a, b)
+ */
+public final class EncryptionCodec implements FixedLengthCodec<Encryption> {
+    private final ElementCodec elementCodec;
+
+    public EncryptionCodec(ElementCodec elementCodec) {
+        this.elementCodec = elementCodec;
+    }
+
+    @Override
+    public int length() {
+        return 2 * elementCodec.length();
+    }
+
+    @Override
+    public void encode(Encryption value, ByteBuffer buffer) {
+        elementCodec.encode(value.getA(), buffer);
+        elementCodec.encode(value.getB(), buffer);
+    }
+
+    @Override
+    public Encryption decode(ByteBuffer buffer) {
+        return new Encryption(elementCodec.decode(buffer), elementCodec.decode(buffer));
+    }
+}
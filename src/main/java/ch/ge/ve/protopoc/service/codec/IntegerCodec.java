@@ -0,0 +1,44 @@
+/*-------------------------------------------------------------------------------------------------
+ - #%L                                                                                            -
+ - chvote-protocol-poc                                                                            -
+ - %%                                                                                             -
+ - Copyright (C) 2016 - 2017 République et Canton de Genève                                       -
+ - %%                                                                                             -
+ - This program is free software: you can redistribute it and/or modify                           -
+ - it under the terms of the GNU Affero General Public License as published by                    -
+ - the Free Software Foundation, either version 3 of the License, or                              -
+ - (at your option) any later version.                                                            -
+ -                                                                                                -
+ - This program is distributed in the hope that it will be useful,                                -
+ - but WITHOUT ANY WARRANTY; without even the implied warranty of                                 -
+ - MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the                                   -
+ - GNU General Public License for more details.                                                   -
+ -                                                                                                -
+ - You should have received a copy of the GNU Affero General Public License                       -
+ - along with this program. If not, see <http://www.gnu.org/licenses/>.                           -
+ - #L%                                                                                            -
+ -------------------------------------------------------------------------------------------------*/
+
+package ch.ge.ve.protopoc.service.codec;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Codec for indices, encoded as 4-byte big-endian ints
+ */
+public final class IntegerCodec implements FixedLengthCodec<Integer> {
+    @Override
+    public int length() {
+        return Integer.BYTES;
+    }
+
+    @Override
+    public void encode(Integer value, ByteBuffer buffer) {
+        buffer.putInt(value);
+    }
+
+    @Override
+    public Integer decode(ByteBuffer buffer) {
+        return buffer.getInt();
+    }
+}
@@ -0,0 +1,79 @@
+/*-------------------------------------------------------------------------------------------------
+ - #%L                                                                                            -
+ - chvote-protocol-poc                                                                            -
+ - %%                                                                                             -
+ - Copyright (C) 2016 - 2017 République et Canton de Genève                                       -
+ - %%                                                                                             -
+ - This program is free software: you can redistribute it and/or modify                           -
+ - it under the terms of the GNU Affero General Public License as published by                    -
+ - the Free Software Foundation, either version 3 of the License, or                              -
+ - (at your option) any later version.                                                            -
+ -                                                                                                -
+ - This program is distributed in the hope that it will be useful,                                -
+ - but WITHOUT ANY WARRANTY; without even the implied warranty of                                 -
+ - MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the                                   -
+ - GNU General Public License for more details.                                                   -
+ -                                                                                                -
+ - You should have received a copy of the GNU Affero General Public License                       -
+ - along with this program. If not, see <http://www.gnu.org/licenses/>.                           -
+ - #L%                                                                                            -
+ -------------------------------------------------------------------------------------------------*/
+
+package ch.ge.ve.protopoc.service.codec;
+
+import com.google.common.base.Preconditions;
+
+import java.nio.ByteBuffer;
+import java.util.List;
+
+/**
+ * Codec for lists of fixed-length values, encoded as the number of elements followed by the elements.
+ * <p>
+ * Decoding does not copy nor materialize the elements: it returns an {@link EncodedList} view over the encoded
+ * bytes, so that the buffer must not be modified while the view is in use.
+ * </p>
+ *
+ * @param <T> the type of the elements
+ */
+public final class ListCodec<T> implements Codec<List<T>> {
+    private final FixedLengthCodec<T> elementCodec;
+
+    public ListCodec(FixedLengthCodec<T> elementCodec) {
+        this.elementCodec = elementCodec;
+    }
+
+    /**
+     * @param size the number of elements
+     * @return the encoded length of a list of the given size
+     * @throws IllegalArgumentException if the encoded list would not fit in a single buffer
+     */
+    public int length(int size) {
+        long length = Integer.BYTES + (long) size * elementCodec.length();
+        Preconditions.checkArgument(length <= Integer.MAX_VALUE,
+                "A list of %s elements of %s bytes is too large to be encoded in a single buffer", size,
+                elementCodec.length());
+        return (int) length;
+    }
+
+    @Override
+    public int length(List<T> value) {
+        return length(value.size());
+    }
+
+    @Override
+    public void encode(List<T> value, ByteBuffer buffer) {
+        buffer.putInt(value.size());
+        for (T element : value) {
+            elementCodec.encode(element, buffer);
+        }
+    }
+
+    @Override
+    public List<T> decode(ByteBuffer buffer) {
+        int size = buffer.getInt(buffer.position());
+        ByteBuffer slice = buffer.slice();
+        slice.limit(length(size));
+        buffer.position(buffer.position() + length(size));
+        return new EncodedList<>(slice, elementCodec);
+    }
+}
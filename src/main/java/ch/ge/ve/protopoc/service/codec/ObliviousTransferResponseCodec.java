@@ -0,0 +1,75 @@
+/*-------------------------------------------------------------------------------------------------
+ - #%L                                                                                            -
+ - chvote-protocol-poc                                                                            -
+ - %%                                                                                             -
+ - Copyright (C) 2016 - 2017 République et Canton de Genève                                       -
+ - %%                                                                                             -
+ - This program is free software: you can redistribute it and/or modify                           -
+ - it under the terms of the GNU Affero General Public License as published by                    -
+ - the Free Software Foundation, either version 3 of the License, or                              -
+ - (at your option) any later version.                                                            -
+ -                                                                                                -
+ - This program is distributed in the hope that it will be useful,                                -
+ - but WITHOUT ANY WARRANTY; without even the implied warranty of                                 -
+ - MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the                                   -
+ - GNU General Public License for more details.                                                   -
+ -                                                                                                -
+ - You should have received a copy of the GNU Affero General Public License                       -
+ - along with this program. If not, see <http://www.gnu.org/licenses/>.                           -
+ - #L%                                                                                            -
+ -------------------------------------------------------------------------------------------------*/
+
+package ch.ge.ve.protopoc.service.codec;
+
+import ch.ge.ve.protopoc.service.model.ObliviousTransferResponse;
+
+import java.math.BigInteger;
+import java.nio.ByteBuffer;
+import java.util.List;
+
+/**
+ * Codec for oblivious transfer responses.
+ * <p>
+ * The response is encoded as the list b, the number of entries of c, each entry of c as its length followed by its
+ * bytes, and finally the list d.
+ * </p>
+ */
+public final class ObliviousTransferResponseCodec implements Codec<ObliviousTransferResponse> {
+    private final ListCodec<BigInteger> elementsCodec;
+
+    public ObliviousTransferResponseCodec(ElementCodec elementCodec) {
+        this.elementsCodec = new ListCodec<>(elementCodec);
+    }
+
+    @Override
+    public int length(ObliviousTransferResponse value) {
+        int length = elementsCodec.length(value.getB()) + Integer.BYTES + elementsCodec.length(value.getD());
+        for (byte[] c_i : value.getC()) {
+            length += Integer.BYTES + c_i.length;
+        }
+        return length;
+    }
+
+    @Override
+    public void encode(ObliviousTransferResponse value, ByteBuffer buffer) {
+        elementsCodec.encode(value.getB(), buffer);
+        byte[][] c = value.getC();
+        buffer.putInt(c.length);
+        for (byte[] c_i : c) {
+            buffer.putInt(c_i.length);
+            buffer.put(c_i);
+        }
+        elementsCodec.encode(value.getD(), buffer);
+    }
+
+    @Override
+    public ObliviousTransferResponse decode(ByteBuffer buffer) {
+        List<BigInteger> b = elementsCodec.decode(buffer);
+        byte[][] c = new byte[buffer.getInt()][];
+        for (int i = 0; i < c.length; i++) {
+            c[i] = new byte[buffer.getInt()];
+            buffer.get(c[i]);
+        }
+        return new ObliviousTransferResponse(b, c, elementsCodec.decode(buffer));
+    }
+}
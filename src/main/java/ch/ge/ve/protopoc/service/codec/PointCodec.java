@@ -0,0 +1,53 @@
+/*-------------------------------------------------------------------------------------------------
+ - #%L                                                                                            -
+ - chvote-protocol-poc                                                                            -
+ - %%                                                                                             -
+ - Copyright (C) 2016 - 2017 République et Canton de Genève                                       -
+ - %%                                                                                             -
+ - This program is free software: you can redistribute it and/or modify                           -
+ - it under the terms of the GNU Affero General Public License as published by                    -
+ - the Free Software Foundation, either version 3 of the License, or                              -
+ - (at your option) any later version.                                                            -
+ -                                                                                                -
+ - This program is distributed in the hope that it will be useful,                                -
+ - but WITHOUT ANY WARRANTY; without even the implied warranty of                                 -
+ - MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the                                   -
+ - GNU General Public License for more details.                                                   -
+ -                                                                                                -
+ - You should have received a copy of the GNU Affero General Public License                       -
+ - along with this program. If not, see <http://www.gnu.org/licenses/>.                           -
+ - #L%                                                                                            -
+ -------------------------------------------------------------------------------------------------*/
+
+package ch.ge.ve.protopoc.service.codec;
+
+import ch.ge.ve.protopoc.service.model.polynomial.Point;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Codec for points, encoded as the pair of coordinates (x, y)
+ */
+public final class PointCodec implements FixedLengthCodec<Point> {
+    private final ElementCodec elementCodec;
+
+    public PointCodec(ElementCodec elementCodec) {
+        this.elementCodec = elementCodec;
+    }
+
+    @Override
+    public int length() {
+        return 2 * elementCodec.length();
+    }
+
+    @Override
+    public void encode(Point value, ByteBuffer buffer) {
+        elementCodec.encode(value.x, buffer);
+        elementCodec.encode(value.y, buffer);
+    }
+
+    @Override
+    public Point decode(ByteBuffer buffer) {
+        return new Point(elementCodec.decode(buffer), elementCodec.decode(buffer));
+    }
+}
@@ -0,0 +1,165 @@
+/*-------------------------------------------------------------------------------------------------
+ - #%L                                                                                            -
+ - chvote-protocol-poc                                                                            -
+ - %%                                                                                             -
+ - Copyright (C) 2016 - 2017 République et Canton de Genève                                       -
+ - %%                                                                                             -
+ - This program is free software: you can redistribute it and/or modify                           -
+ - it under the terms of the GNU Affero General Public License as published by                    -
+ - the Free Software Foundation, either version 3 of the License, or                              -
+ - (at your option) any later version.                                                            -
+ -                                                                                                -
+ - This program is distributed in the hope that it will be useful,                                -
+ - but WITHOUT ANY WARRANTY; without even the implied warranty of                                 -
+ - MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the                                   -
+ - GNU General Public License for more details.                                                   -
+ -                                                                                                -
+ - You should have received a copy of the GNU Affero General Public License                       -
+ - along with this program. If not, see <http://www.gnu.org/licenses/>.                           -
+ - #L%                                                                                            -
+ -------------------------------------------------------------------------------------------------*/
+
+package ch.ge.ve.protopoc.service.codec;
+
+import com.google.common.base.Preconditions;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.AbstractList;
+import java.util.List;
+import java.util.RandomAccess;
+
+/**
+ * File of fixed-length records, written by index and read back through a memory mapping.
+ * <p>
+ * The records are stored one after the other, without any header. Writes to distinct indices may happen
+ * concurrently. The mapping is split into pages of at most {@link #MAX_PAGE_BYTES} bytes holding whole records, so
+ * that a file is not limited by the 2GB size of a single buffer.
+ * </p>
+ *
+ * @param <T> the type of the records
+ */
+public final class RecordFile<T> implements Closeable {
+    /**
+     * Maximal size of a mapped page, in bytes
+     */
+    static final int MAX_PAGE_BYTES = 1 << 30;
+    private static final int WRITE_BUFFER_SIZE = 1 << 20;
+
+    private final FileChannel channel;
+    private final FixedLengthCodec<T> codec;
+
+    private RecordFile(FileChannel channel, FixedLengthCodec<T> codec) {
+        Preconditions.checkArgument(codec.length() <= MAX_PAGE_BYTES, "The records are too large");
+        this.channel = channel;
+        this.codec = codec;
+    }
+
+    /**
+     * @param path  the path of the file, replaced if it already exists
+     * @param codec the codec for the records
+     * @return a new, empty, record file
+     * @throws IOException if the file could not be created
+     */
+    public static <T> RecordFile<T> create(Path path, FixedLengthCodec<T> codec) throws IOException {
+        return new RecordFile<>(FileChannel.open(path, StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.READ, StandardOpenOption.WRITE), codec);
+    }
+
+    /**
+     * @param path  the path of an existing record file
+     * @param codec the codec for the records
+     * @return the record file, opened for reading
+     * @throws IOException if the file could not be opened
+     */
+    public static <T> RecordFile<T> open(Path path, FixedLengthCodec<T> codec) throws IOException {
+        return new RecordFile<>(FileChannel.open(path, StandardOpenOption.READ), codec);
+    }
+
+    /**
+     * @return the number of complete records in the file
+     * @throws IOException if the size of the file could not be read
+     */
+    public long size() throws IOException {
+        return channel.size() / codec.length();
+    }
+
+    /**
+     * Writes the records, the first of them at the given index
+     *
+     * @param index   the index of the first record
+     * @param records the records to be written
+     * @throws IOException if the file could not be written to
+     */
+    public void write(long index, List<T> records) throws IOException {
+        int recordsPerBuffer = Math.max(1, WRITE_BUFFER_SIZE / codec.length());
+        ByteBuffer buffer = ByteBuffer.allocate(Math.min(records.size(), recordsPerBuffer) * codec.length());
+        long position = index * codec.length();
+        for (int from = 0; from < records.size(); from += recordsPerBuffer) {
+            buffer.clear();
+            for (T record : records.subList(from, Math.min(records.size(), from + recordsPerBuffer))) {
+                codec.encode(record, buffer);
+            }
+            buffer.flip();
+            while (buffer.hasRemaining()) {
+                position += channel.write(buffer, position);
+            }
+        }
+    }
+
+    /**
+     * Maps the records into a read-only list view, decoding the records on access. The view remains valid once the
+     * file is closed.
+     *
+     * @param size the number of records to be mapped
+     * @return the list of the records
+     * @throws IOException if the file could not be mapped
+     */
+    public List<T> map(int size) throws IOException {
+        Preconditions.checkArgument(size >= 0 && size <= size(), "The file holds fewer records");
+        int recordsPerPage = MAX_PAGE_BYTES / codec.length();
+        ByteBuffer[] pages = new ByteBuffer[(size + recordsPerPage - 1) / recordsPerPage];
+        for (int page = 0; page < pages.length; page++) {
+            long offset = (long) page * recordsPerPage * codec.length();
+            int length = Math.min(recordsPerPage, size - page * recordsPerPage) * codec.length();
+            pages[page] = channel.map(FileChannel.MapMode.READ_ONLY, offset, length);
+        }
+        return new MappedRecords<>(pages, recordsPerPage, size, codec);
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+
+    private static final class MappedRecords<T> extends AbstractList<T> implements RandomAccess {
+        private final ByteBuffer[] pages;
+        private final int recordsPerPage;
+        private final int size;
+        private final FixedLengthCodec<T> codec;
+
+        private MappedRecords(ByteBuffer[] pages, int recordsPerPage, int size, FixedLengthCodec<T> codec) {
+            this.pages = pages;
+            this.recordsPerPage = recordsPerPage;
+            this.size = size;
+            this.codec = codec;
+        }
+
+        @Override
+        public T get(int index) {
+            Preconditions.checkElementIndex(index, size);
+            ByteBuffer record = pages[index / recordsPerPage].duplicate();
+            record.position((index % recordsPerPage) * codec.length());
+            return codec.decode(record);
+        }
+
+        @Override
+        public int size() {
+            return size;
+        }
+    }
+}
@@ -0,0 +1,101 @@
+/*-------------------------------------------------------------------------------------------------
+ - #%L                                                                                            -
+ - chvote-protocol-poc                                                                            -
+ - %%                                                                                             -
+ - Copyright (C) 2016 - 2017 République et Canton de Genève                                       -
+ - %%                                                                                             -
+ - This program is free software: you can redistribute it and/or modify                           -
+ - it under the terms of the GNU Affero General Public License as published by                    -
+ - the Free Software Foundation, either version 3 of the License, or                              -
+ - (at your option) any later version.                                                            -
+ -                                                                                                -
+ - This program is distributed in the hope that it will be useful,                                -
+ - but WITHOUT ANY WARRANTY; without even the implied warranty of                                 -
+ - MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the                                   -
+ - GNU General Public License for more details.                                                   -
+ -                                                                                                -
+ - You should have received a copy of the GNU Affero General Public License                       -
+ - along with this program. If not, see <http://www.gnu.org/licenses/>.                           -
+ - #L%                                                                                            -
+ -------------------------------------------------------------------------------------------------*/
+
+package ch.ge.ve.protopoc.service.codec;
+
+import ch.ge.ve.protopoc.service.model.PublicParameters;
+import ch.ge.ve.protopoc.service.model.SecretVoterData;
+import com.google.common.base.Preconditions;
+
+import java.math.BigInteger;
+import java.nio.ByteBuffer;
+
+/**
+ * Codec for the secret voter data, encoded as the credentials x and y, followed by the finalization code F and the
+ * return codes of all the candidates, all of fixed lengths
+ */
+public final class SecretVoterDataCodec implements FixedLengthCodec<SecretVoterData> {
+    private final ElementCodec xCodec;
+    private final ElementCodec yCodec;
+    private final int upper_l_f;
+    private final int upper_l_r;
+    private final int n;
+
+    /**
+     * @param xCodec    the codec for the voting credential x
+     * @param yCodec    the codec for the confirmation credential y
+     * @param upper_l_f the length of the finalization code, in bytes
+     * @param upper_l_r the length of a return code, in bytes
+     * @param n         the number of return codes, i.e. the total number of candidates
+     */
+    public SecretVoterDataCodec(ElementCodec xCodec, ElementCodec yCodec, int upper_l_f, int upper_l_r, int n) {
+        this.xCodec = xCodec;
+        this.yCodec = yCodec;
+        this.upper_l_f = upper_l_f;
+        this.upper_l_r = upper_l_r;
+        this.n = n;
+    }
+
+    /**
+     * @param publicParameters the public parameters
+     * @param n                the total number of candidates
+     * @return a codec for the secret voter data generated with the given public parameters
+     */
+    public static SecretVoterDataCodec forPublicParameters(PublicParameters publicParameters, int n) {
+        return new SecretVoterDataCodec(ElementCodec.forModulus(publicParameters.getQ_hat_x()),
+                ElementCodec.forModulus(publicParameters.getQ_hat_y()), publicParameters.getUpper_l_f(),
+                publicParameters.getUpper_l_r(), n);
+    }
+
+    @Override
+    public int length() {
+        return xCodec.length() + yCodec.length() + upper_l_f + n * upper_l_r;
+    }
+
+    @Override
+    public void encode(SecretVoterData value, ByteBuffer buffer) {
+        byte[] f = value.getF();
+        byte[][] rc = value.getRc();
+        Preconditions.checkArgument(f.length == upper_l_f, "F should be %s bytes long", upper_l_f);
+        Preconditions.checkArgument(rc.length == n, "There should be %s return codes", n);
+        xCodec.encode(value.getX(), buffer);
+        yCodec.encode(value.getY(), buffer);
+        buffer.put(f);
+        for (byte[] rc_k : rc) {
+            Preconditions.checkArgument(rc_k.length == upper_l_r, "The return codes should be %s bytes long",
+                    upper_l_r);
+            buffer.put(rc_k);
+        }
+    }
+
+    @Override
+    public SecretVoterData decode(ByteBuffer buffer) {
+        BigInteger x = xCodec.decode(buffer);
+        BigInteger y = yCodec.decode(buffer);
+        byte[] f = new byte[upper_l_f];
+        buffer.get(f);
+        byte[][] rc = new byte[n][upper_l_r];
+        for (byte[] rc_k : rc) {
+            buffer.get(rc_k);
+        }
+        return new SecretVoterData(x, y, f, rc);
+    }
+}
@@ -0,0 +1,85 @@
+/*-------------------------------------------------------------------------------------------------
+ - #%L                                                                                            -
+ - chvote-protocol-poc                                                                            -
+ - %%                                                                                             -
+ - Copyright (C) 2016 - 2017 République et Canton de Genève                                       -
+ - %%                                                                                             -
+ - This program is free software: you can redistribute it and/or modify                           -
+ - it under the terms of the GNU Affero General Public License as published by                    -
+ - the Free Software Foundation, either version 3 of the License, or                              -
+ - (at your option) any later version.                                                            -
+ -                                                                                                -
+ - This program is distributed in the hope that it will be useful,                                -
+ - but WITHOUT ANY WARRANTY; without even the implied warranty of                                 -
+ - MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the                                   -
+ - GNU General Public License for more details.                                                   -
+ -                                                                                                -
+ - You should have received a copy of the GNU Affero General Public License                       -
+ - along with this program. If not, see <http://www.gnu.org/licenses/>.                           -
+ - #L%                                                                                            -
+ -------------------------------------------------------------------------------------------------*/
+
+package ch.ge.ve.protopoc.service.codec;
+
+import ch.ge.ve.protopoc.service.model.ShuffleProof;
+
+import java.math.BigInteger;
+import java.nio.ByteBuffer;
+
+/**
+ * Codec for shuffle proofs.
+ * <p>
+ * The proof is encoded as t_1, t_2, t_3, the lists t_4 and t_hat, then s_1, s_2, s_3, s_4, the lists s_hat and
+ * s_prime, and finally the lists bold_c and bold_c_hat.
+ * </p>
+ */
+public final class ShuffleProofCodec implements Codec<ShuffleProof> {
+    private final ElementCodec elementCodec;
+    private final ListCodec<BigInteger> elementsCodec;
+
+    public ShuffleProofCodec(ElementCodec elementCodec) {
+        this.elementCodec = elementCodec;
+        this.elementsCodec = new ListCodec<>(elementCodec);
+    }
+
+    @Override
+    public int length(ShuffleProof value) {
+        ShuffleProof.T t = value.getT();
+        ShuffleProof.S s = value.getS();
+        return 7 * elementCodec.length()
+                + elementsCodec.length(t.getT_4()) + elementsCodec.length(t.getT_hat())
+                + elementsCodec.length(s.getS_hat()) + elementsCodec.length(s.getS_prime())
+                + elementsCodec.length(value.getBold_c()) + elementsCodec.length(value.getBold_c_hat());
+    }
+
+    @Override
+    public void encode(ShuffleProof value, ByteBuffer buffer) {
+        ShuffleProof.T t = value.getT();
+        elementCodec.encode(t.getT_1(), buffer);
+        elementCodec.encode(t.getT_2(), buffer);
+        elementCodec.encode(t.getT_3(), buffer);
+        elementsCodec.encode(t.getT_4(), buffer);
+        elementsCodec.encode(t.getT_hat(), buffer);
+
+        ShuffleProof.S s = value.getS();
+        elementCodec.encode(s.getS_1(), buffer);
+        elementCodec.encode(s.getS_2(), buffer);
+        elementCodec.encode(s.getS_3(), buffer);
+        elementCodec.encode(s.getS_4(), buffer);
+        elementsCodec.encode(s.getS_hat(), buffer);
+        elementsCodec.encode(s.getS_prime(), buffer);
+
+        elementsCodec.encode(value.getBold_c(), buffer);
+        elementsCodec.encode(value.getBold_c_hat(), buffer);
+    }
+
+    @Override
+    public ShuffleProof decode(ByteBuffer buffer) {
+        ShuffleProof.T t = new ShuffleProof.T(elementCodec.decode(buffer), elementCodec.decode(buffer),
+                elementCodec.decode(buffer), elementsCodec.decode(buffer), elementsCodec.decode(buffer));
+        ShuffleProof.S s = new ShuffleProof.S(elementCodec.decode(buffer), elementCodec.decode(buffer),
+                elementCodec.decode(buffer), elementCodec.decode(buffer), elementsCodec.decode(buffer),
+                elementsCodec.decode(buffer));
+        return new ShuffleProof(t, s, elementsCodec.decode(buffer), elementsCodec.decode(buffer));
+    }
+}
@@ -0,0 +1,173 @@
+/*-------------------------------------------------------------------------------------------------
+ - #%L                                                                                            -
+ - chvote-protocol-poc                                                                            -
+ - %%                                                                                             -
+ - Copyright (C) 2016 - 2017 République et Canton de Genève                                       -
+ - %%                                                                                             -
+ - This program is free software: you can redistribute it and/or modify                           -
+ - it under the terms of the GNU Affero General Public License as published by                    -
+ - the Free Software Foundation, either version 3 of the License, or                              -
+ - (at your option) any later version.                                                            -
+ -                                                                                                -
+ - This program is distributed in the hope that it will be useful,                                -
+ - but WITHOUT ANY WARRANTY; without even the implied warranty of                                 -
+ - MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the                                   -
+ - GNU General Public License for more details.                                                   -
+ -                                                                                                -
+ - You should have received a copy of the GNU Affero General Public License                       -
+ - along with this program. If not, see <http://www.gnu.org/licenses/>.                           -
+ - #L%                                                                                            -
+ -------------------------------------------------------------------------------------------------*/
+
+package ch.ge.ve.protopoc.service.model;
+
+import com.google.common.base.Preconditions;
+import com.google.common.collect.ImmutableList;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.math.BigInteger;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.util.AbstractList;
+import java.util.List;
+import java.util.RandomAccess;
+import java.util.Spliterator;
+import java.util.function.IntFunction;
+import java.util.stream.IntStream;
+
+import static java.nio.file.StandardOpenOption.*;
+
+/**
+ * Immutable vector of non-negative integers stored outside of the heap, as a column of fixed-width, big-endian values.
+ * <p>
+ * This is the counterpart of {@link EncryptionVector} for group elements, exponents and challenges.
+ * </p>
+ */
+public final class BigIntegerVector extends AbstractList<BigInteger> implements RandomAccess {
+    private final ElementColumn column;
+
+    private BigIntegerVector(ElementColumn column) {
+        this.column = column;
+    }
+
+    /**
+     * @param size  the number of values
+     * @param width the number of bytes of an encoded value
+     * @return a builder for a vector in direct memory
+     */
+    public static Builder builder(int size, int width) {
+        return new Builder(ElementColumn.allocateDirect(size, width));
+    }
+
+    /**
+     * The file is created or overwritten, and remains the property of the caller.
+     *
+     * @param file  the file backing the vector
+     * @param size  the number of values
+     * @param width the number of bytes of an encoded value
+     * @return a builder for a vector mapped to the given file
+     */
+    public static Builder builder(Path file, int size, int width) {
+        try (FileChannel channel = FileChannel.open(file, CREATE, READ, WRITE, TRUNCATE_EXISTING)) {
+            return new Builder(ElementColumn.map(channel, 0L, size, width));
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not map the vector to " + file, e);
+        }
+    }
+
+    /**
+     * Creates a vector mapped to the given file, computing the values in parallel. The file is created or
+     * overwritten, and remains the property of the caller.
+     *
+     * @param file      the file backing the vector
+     * @param size      the number of values
+     * @param width     the number of bytes of an encoded value
+     * @param generator the function computing the i-th value
+     * @return the filled-in vector
+     */
+    public static BigIntegerVector generate(Path file, int size, int width, IntFunction<BigInteger> generator) {
+        return builder(file, size, width).fill(generator).build();
+    }
+
+    /**
+     * Helper for the model classes holding lists of integers: vectors are immutable and kept as-is, the other
+     * lists are copied.
+     *
+     * @param values a list of integers
+     * @return an immutable list holding the same values
+     */
+    public static List<BigInteger> immutableCopyOf(List<BigInteger> values) {
+        return values instanceof BigIntegerVector ? values : ImmutableList.copyOf(values);
+    }
+
+    /**
+     * @return the number of bytes of an encoded value
+     */
+    public int getWidth() {
+        return column.width();
+    }
+
+    @Override
+    public BigInteger get(int index) {
+        return column.read(index);
+    }
+
+    @Override
+    public int size() {
+        return column.size();
+    }
+
+    @Override
+    public Spliterator<BigInteger> spliterator() {
+        return new IndexSpliterator<>(this::get, 0, size());
+    }
+
+    @Override
+    public String toString() {
+        return "BigIntegerVector{" +
+                "size=" + size() +
+                ", width=" + getWidth() +
+                '}';
+    }
+
+    /**
+     * Builder filling in the vector before it is made immutable. Distinct indices may be set concurrently.
+     */
+    public static final class Builder {
+        private final ElementColumn column;
+        private boolean built;
+
+        private Builder(ElementColumn column) {
+            this.column = column;
+        }
+
+        /**
+         * @param index the index of the value
+         * @param value the value
+         */
+        public void set(int index, BigInteger value) {
+            Preconditions.checkState(!built, "The vector has already been built");
+            column.write(index, value);
+        }
+
+        /**
+         * Computes all the values in parallel
+         *
+         * @param generator the function computing the i-th value
+         * @return this builder
+         */
+        public Builder fill(IntFunction<BigInteger> generator) {
+            IntStream.range(0, column.size()).parallel().forEach(i -> set(i, generator.apply(i)));
+            return this;
+        }
+
+        /**
+         * @return the vector, with all the indices expected to have been set
+         */
+        public BigIntegerVector build() {
+            built = true;
+            return new BigIntegerVector(column);
+        }
+    }
+}
@@ -0,0 +1,128 @@
+/*-------------------------------------------------------------------------------------------------
+ - #%L                                                                                            -
+ - chvote-protocol-poc                                                                            -
+ - %%                                                                                             -
+ - Copyright (C) 2016 - 2017 République et Canton de Genève                                       -
+ - %%                                                                                             -
+ - This program is free software: you can redistribute it and/or modify                           -
+ - it under the terms of the GNU Affero General Public License as published by                    -
+ - the Free Software Foundation, either version 3 of the License, or                              -
+ - (at your option) any later version.                                                            -
+ -                                                                                                -
+ - This program is distributed in the hope that it will be useful,                                -
+ - but WITHOUT ANY WARRANTY; without even the implied warranty of                                 -
+ - MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the                                   -
+ - GNU General Public License for more details.                                                   -
+ -                                                                                                -
+ - You should have received a copy of the GNU Affero General Public License                       -
+ - along with this program. If not, see <http://www.gnu.org/licenses/>.                           -
+ - #L%                                                                                            -
+ -------------------------------------------------------------------------------------------------*/
+
+package ch.ge.ve.protopoc.service.model;
+
+import ch.ge.ve.protopoc.service.codec.ElementCodec;
+import com.google.common.base.Preconditions;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.math.BigInteger;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+
+/**
+ * Column of fixed-width elements stored outside of the heap, split into pages of at most {@link #MAX_PAGE_BYTES}
+ * bytes, so that a column is not limited by the 2GB size of a single buffer.
+ * <p>
+ * Writes to distinct indices may happen concurrently.
+ * </p>
+ */
+final class ElementColumn {
+    /**
+     * Maximal size of a page, in bytes
+     */
+    static final int MAX_PAGE_BYTES = 1 << 30;
+
+    private final int size;
+    private final ElementCodec elementCodec;
+    private final int pageShift;
+    private final int pageMask;
+    private final ByteBuffer[] pages;
+
+    private ElementColumn(int size, ElementCodec elementCodec, PageAllocator allocator) {
+        Preconditions.checkArgument(size >= 0, "The size may not be negative");
+        this.size = size;
+        this.elementCodec = elementCodec;
+        int elementsPerPage = Integer.highestOneBit(MAX_PAGE_BYTES / elementCodec.length());
+        this.pageShift = Integer.numberOfTrailingZeros(elementsPerPage);
+        this.pageMask = elementsPerPage - 1;
+        this.pages = new ByteBuffer[(size + elementsPerPage - 1) / elementsPerPage];
+        for (int page = 0; page < pages.length; page++) {
+            int elements = Math.min(elementsPerPage, size - page * elementsPerPage);
+            pages[page] = allocator.allocate((long) page * elementsPerPage * elementCodec.length(),
+                    elements * elementCodec.length());
+        }
+    }
+
+    /**
+     * @param size  the number of elements
+     * @param width the number of bytes of an element
+     * @return a column in direct memory
+     */
+    static ElementColumn allocateDirect(int size, int width) {
+        return new ElementColumn(size, new ElementCodec(width), (offset, length) -> ByteBuffer.allocateDirect(length));
+    }
+
+    /**
+     * @param channel the channel of the file holding the column, opened for reading and writing
+     * @param offset  the position of the column in the file
+     * @param size    the number of elements
+     * @param width   the number of bytes of an element
+     * @return a column mapped to the file
+     */
+    static ElementColumn map(FileChannel channel, long offset, int size, int width) {
+        return new ElementColumn(size, new ElementCodec(width), (pageOffset, length) -> {
+            try {
+                return channel.map(FileChannel.MapMode.READ_WRITE, offset + pageOffset, length);
+            } catch (IOException e) {
+                throw new UncheckedIOException("Could not map the column", e);
+            }
+        });
+    }
+
+    /**
+     * @return the number of bytes needed by a column of the given size and width
+     */
+    static long byteSize(int size, int width) {
+        return (long) size * width;
+    }
+
+    int size() {
+        return size;
+    }
+
+    int width() {
+        return elementCodec.length();
+    }
+
+    BigInteger read(int index) {
+        Preconditions.checkElementIndex(index, size);
+        return elementCodec.decode(position(index));
+    }
+
+    void write(int index, BigInteger value) {
+        Preconditions.checkElementIndex(index, size);
+        elementCodec.encode(value, position(index));
+    }
+
+    private ByteBuffer position(int index) {
+        ByteBuffer buffer = pages[index >>> pageShift].duplicate();
+        buffer.position((index & pageMask) * elementCodec.length());
+        return buffer;
+    }
+
+    @FunctionalInterface
+    private interface PageAllocator {
+        ByteBuffer allocate(long offset, int length);
+    }
+}
@@ -0,0 +1,159 @@
+/*-------------------------------------------------------------------------------------------------
+ - #%L                                                                                            -
+ - chvote-protocol-poc                                                                            -
+ - %%                                                                                             -
+ - Copyright (C) 2016 - 2017 République et Canton de Genève                                       -
+ - %%                                                                                             -
+ - This program is free software: you can redistribute it and/or modify                           -
+ - it under the terms of the GNU Affero General Public License as published by                    -
+ - the Free Software Foundation, either version 3 of the License, or                              -
+ - (at your option) any later version.                                                            -
+ -                                                                                                -
+ - This program is distributed in the hope that it will be useful,                                -
+ - but WITHOUT ANY WARRANTY; without even the implied warranty of                                 -
+ - MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the                                   -
+ - GNU General Public License for more details.                                                   -
+ -                                                                                                -
+ - You should have received a copy of the GNU Affero General Public License                       -
+ - along with this program. If not, see <http://www.gnu.org/licenses/>.                           -
+ - #L%                                                                                            -
+ -------------------------------------------------------------------------------------------------*/
+
+package ch.ge.ve.protopoc.service.model;
+
+import ch.ge.ve.protopoc.service.codec.ElementCodec;
+import ch.ge.ve.protopoc.service.codec.PointCodec;
+import ch.ge.ve.protopoc.service.model.polynomial.Point;
+import com.google.common.base.Preconditions;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.List;
+
+/**
+ * Table of the points of all the voters, one per voter per candidate, stored outside of the heap already encoded as
+ * the messages <tt>M_v = ToByteArray(x_v, L_m / 2) || ToByteArray(y_v, L_m / 2)</tt> of the oblivious transfer.
+ * <p>
+ * The table is split into pages of at most {@link #MAX_PAGE_BYTES} bytes, so that it is not limited by the 2GB size
+ * of a single buffer. Writes for distinct voters may happen concurrently.
+ * </p>
+ */
+public final class EncodedPointTable {
+    /**
+     * Maximal size of a page, in bytes
+     */
+    static final int MAX_PAGE_BYTES = 1 << 30;
+
+    private final int voterCount;
+    private final int n;
+    private final PointCodec pointCodec;
+    private final int pageShift;
+    private final long pageMask;
+    private final ByteBuffer[] pages;
+
+    private EncodedPointTable(int voterCount, int n, int upper_l_m, PageAllocator allocator) {
+        Preconditions.checkArgument(voterCount >= 0, "The number of voters may not be negative");
+        Preconditions.checkArgument(n >= 0, "The number of candidates may not be negative");
+        Preconditions.checkArgument(upper_l_m >= 2, "L_m must be at least 2 bytes");
+        this.voterCount = voterCount;
+        this.n = n;
+        this.pointCodec = new PointCodec(new ElementCodec(upper_l_m / 2));
+        int recordsPerPage = Integer.highestOneBit(MAX_PAGE_BYTES / pointCodec.length());
+        this.pageShift = Integer.numberOfTrailingZeros(recordsPerPage);
+        this.pageMask = recordsPerPage - 1;
+        long records = (long) voterCount * n;
+        this.pages = new ByteBuffer[Math.toIntExact((records + recordsPerPage - 1) / recordsPerPage)];
+        for (int page = 0; page < pages.length; page++) {
+            long pageRecords = Math.min(recordsPerPage, records - (long) page * recordsPerPage);
+            pages[page] = allocator.allocate((long) page * recordsPerPage * pointCodec.length(),
+                    (int) pageRecords * pointCodec.length());
+        }
+    }
+
+    /**
+     * @param voterCount the number of voters
+     * @param n          the total number of candidates
+     * @param upper_l_m  the length of the encoded points, in bytes
+     * @return an empty table in direct memory
+     */
+    public static EncodedPointTable allocateDirect(int voterCount, int n, int upper_l_m) {
+        return new EncodedPointTable(voterCount, n, upper_l_m,
+                (offset, length) -> ByteBuffer.allocateDirect(length));
+    }
+
+    /**
+     * @param channel    the channel of the file holding the table, opened for reading and writing
+     * @param voterCount the number of voters
+     * @param n          the total number of candidates
+     * @param upper_l_m  the length of the encoded points, in bytes
+     * @return a table mapped to the file, which remains valid once the channel is closed
+     */
+    public static EncodedPointTable map(FileChannel channel, int voterCount, int n, int upper_l_m) {
+        return new EncodedPointTable(voterCount, n, upper_l_m, (offset, length) -> {
+            try {
+                return channel.map(FileChannel.MapMode.READ_WRITE, offset, length);
+            } catch (IOException e) {
+                throw new UncheckedIOException("Could not map the point table", e);
+            }
+        });
+    }
+
+    /**
+     * Encodes and stores the points of a voter
+     *
+     * @param i        the voter index
+     * @param bold_p_i the points of the voter, one per candidate
+     */
+    public void put(int i, List<Point> bold_p_i) {
+        Preconditions.checkElementIndex(i, voterCount);
+        Preconditions.checkArgument(bold_p_i.size() == n, "There should be one point per candidate");
+        for (int v = 0; v < n; v++) {
+            pointCodec.encode(bold_p_i.get(v), position(i, v));
+        }
+    }
+
+    /**
+     * @param i the voter index
+     * @param v the candidate index
+     * @return a copy of the encoded point <tt>M_v</tt> of the voter, which the caller may overwrite
+     */
+    public byte[] get(int i, int v) {
+        Preconditions.checkElementIndex(i, voterCount);
+        Preconditions.checkElementIndex(v, n);
+        byte[] M_v = new byte[pointCodec.length()];
+        position(i, v).get(M_v);
+        return M_v;
+    }
+
+    public int getVoterCount() {
+        return voterCount;
+    }
+
+    /**
+     * @return the total number of candidates, i.e. the number of points per voter
+     */
+    public int getCandidateCount() {
+        return n;
+    }
+
+    /**
+     * @return the length of an encoded point, in bytes
+     */
+    public int getRecordLength() {
+        return pointCodec.length();
+    }
+
+    private ByteBuffer position(int i, int v) {
+        long record = (long) i * n + v;
+        ByteBuffer buffer = pages[(int) (record >>> pageShift)].duplicate();
+        buffer.position((int) (record & pageMask) * pointCodec.length());
+        return buffer;
+    }
+
+    @FunctionalInterface
+    private interface PageAllocator {
+        ByteBuffer allocate(long offset, int length);
+    }
+}
@@ -0,0 +1,237 @@
+/*-------------------------------------------------------------------------------------------------
+ - #%L                                                                                            -
+ - chvote-protocol-poc                                                                            -
+ - %%                                                                                             -
+ - Copyright (C) 2016 - 2017 République et Canton de Genève                                       -
+ - %%                                                                                             -
+ - This program is free software: you can redistribute it and/or modify                           -
+ - it under the terms of the GNU Affero General Public License as published by                    -
+ - the Free Software Foundation, either version 3 of the License, or                              -
+ - (at your option) any later version.                                                            -
+ -                                                                                                -
+ - This program is distributed in the hope that it will be useful,                                -
+ - but WITHOUT ANY WARRANTY; without even the implied warranty of                                 -
+ - MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the                                   -
+ - GNU General Public License for more details.                                                   -
+ -                                                                                                -
+ - You should have received a copy of the GNU Affero General Public License                       -
+ - along with this program. If not, see <http://www.gnu.org/licenses/>.                           -
+ - #L%                                                                                            -
+ -------------------------------------------------------------------------------------------------*/
+
+package ch.ge.ve.protopoc.service.model;
+
+import com.google.common.base.Preconditions;
+import com.google.common.collect.ImmutableList;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.math.BigInteger;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.util.AbstractList;
+import java.util.List;
+import java.util.RandomAccess;
+import java.util.Spliterator;
+import java.util.function.IntFunction;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+import static java.nio.file.StandardOpenOption.*;
+
+/**
+ * Immutable vector of ElGamal encryptions stored outside of the heap.
+ * <p>
+ * The a and b components are stored in two separate columns of fixed-width, big-endian values, each split into
+ * pages of at most 1GB, so that the vector is not limited by the 2GB size of a single buffer. The pages are either
+ * direct buffers or memory-mapped files; in both cases, an encryption costs the heap nothing until it is accessed,
+ * and is decoded on each access.
+ * </p>
+ * <p>
+ * The spliterator splits the vector by index ranges, so that parallel streams distribute the work evenly.
+ * </p>
+ */
+public final class EncryptionVector extends AbstractList<Encryption> implements RandomAccess {
+    private final ElementColumn a;
+    private final ElementColumn b;
+
+    private EncryptionVector(ElementColumn a, ElementColumn b) {
+        this.a = a;
+        this.b = b;
+    }
+
+    /**
+     * @param size  the number of encryptions
+     * @param width the number of bytes of an encoded group element
+     * @return a builder for a vector in direct memory
+     */
+    public static Builder builder(int size, int width) {
+        return new Builder(ElementColumn.allocateDirect(size, width), ElementColumn.allocateDirect(size, width));
+    }
+
+    /**
+     * The file is created or overwritten, and remains the property of the caller.
+     *
+     * @param file  the file backing the vector
+     * @param size  the number of encryptions
+     * @param width the number of bytes of an encoded group element
+     * @return a builder for a vector mapped to the given file
+     */
+    public static Builder builder(Path file, int size, int width) {
+        try (FileChannel channel = FileChannel.open(file, CREATE, READ, WRITE, TRUNCATE_EXISTING)) {
+            return new Builder(ElementColumn.map(channel, 0L, size, width),
+                    ElementColumn.map(channel, ElementColumn.byteSize(size, width), size, width));
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not map the encryption vector to " + file, e);
+        }
+    }
+
+    /**
+     * Creates a vector in direct memory, computing the encryptions in parallel
+     *
+     * @param size      the number of encryptions
+     * @param width     the number of bytes of an encoded group element
+     * @param generator the function computing the i-th encryption
+     * @return the filled-in vector
+     */
+    public static EncryptionVector generate(int size, int width, IntFunction<Encryption> generator) {
+        return builder(size, width).fill(generator).build();
+    }
+
+    /**
+     * Creates a vector mapped to the given file, computing the encryptions in parallel. The file is created or
+     * overwritten, and remains the property of the caller.
+     *
+     * @param file      the file backing the vector
+     * @param size      the number of encryptions
+     * @param width     the number of bytes of an encoded group element
+     * @param generator the function computing the i-th encryption
+     * @return the filled-in vector
+     */
+    public static EncryptionVector generate(Path file, int size, int width, IntFunction<Encryption> generator) {
+        return builder(file, size, width).fill(generator).build();
+    }
+
+    /**
+     * @param encryptions the encryptions to copy
+     * @param width       the number of bytes of an encoded group element
+     * @return a vector in direct memory holding the same encryptions
+     */
+    public static EncryptionVector copyOf(List<Encryption> encryptions, int width) {
+        if (encryptions instanceof EncryptionVector && ((EncryptionVector) encryptions).getWidth() == width) {
+            return (EncryptionVector) encryptions;
+        }
+        return generate(encryptions.size(), width, encryptions::get);
+    }
+
+    /**
+     * Helper for the model classes holding lists of encryptions: vectors are immutable and kept as-is, the other
+     * lists are copied.
+     *
+     * @param encryptions a list of encryptions
+     * @return an immutable list holding the same encryptions
+     */
+    public static List<Encryption> immutableCopyOf(List<Encryption> encryptions) {
+        return encryptions instanceof EncryptionVector ? encryptions : ImmutableList.copyOf(encryptions);
+    }
+
+    /**
+     * @return the number of bytes of an encoded group element
+     */
+    public int getWidth() {
+        return a.width();
+    }
+
+    @Override
+    public Encryption get(int index) {
+        return new Encryption(a.read(index), b.read(index));
+    }
+
+    /**
+     * @param index the index of the encryption
+     * @return the a component of the encryption, without decoding the b component
+     */
+    public BigInteger getA(int index) {
+        return a.read(index);
+    }
+
+    /**
+     * @param index the index of the encryption
+     * @return the b component of the encryption, without decoding the a component
+     */
+    public BigInteger getB(int index) {
+        return b.read(index);
+    }
+
+    @Override
+    public int size() {
+        return a.size();
+    }
+
+    /**
+     * @param chunkSize the maximal number of encryptions per chunk
+     * @return the consecutive chunks of the vector, as views
+     */
+    public Stream<List<Encryption>> chunks(int chunkSize) {
+        Preconditions.checkArgument(chunkSize > 0, "The chunk size must be positive");
+        int size = size();
+        return IntStream.range(0, (size + chunkSize - 1) / chunkSize)
+                .mapToObj(c -> subList(c * chunkSize, Math.min(size, (c + 1) * chunkSize)));
+    }
+
+    @Override
+    public Spliterator<Encryption> spliterator() {
+        return new IndexSpliterator<>(this::get, 0, size());
+    }
+
+    @Override
+    public String toString() {
+        return "EncryptionVector{" +
+                "size=" + size() +
+                ", width=" + getWidth() +
+                '}';
+    }
+
+    /**
+     * Builder filling in the vector before it is made immutable. Distinct indices may be set concurrently.
+     */
+    public static final class Builder {
+        private final ElementColumn a;
+        private final ElementColumn b;
+        private boolean built;
+
+        private Builder(ElementColumn a, ElementColumn b) {
+            this.a = a;
+            this.b = b;
+        }
+
+        /**
+         * @param index      the index of the encryption
+         * @param encryption the encryption
+         */
+        public void set(int index, Encryption encryption) {
+            Preconditions.checkState(!built, "The vector has already been built");
+            a.write(index, encryption.getA());
+            b.write(index, encryption.getB());
+        }
+
+        /**
+         * Computes all the encryptions in parallel
+         *
+         * @param generator the function computing the i-th encryption
+         * @return this builder
+         */
+        public Builder fill(IntFunction<Encryption> generator) {
+            IntStream.range(0, a.size()).parallel().forEach(i -> set(i, generator.apply(i)));
+            return this;
+        }
+
+        /**
+         * @return the vector, with all the indices expected to have been set
+         */
+        public EncryptionVector build() {
+            built = true;
+            return new EncryptionVector(a, b);
+        }
+    }
+}
@@ -0,0 +1,145 @@
+/*-------------------------------------------------------------------------------------------------
+ - #%L                                                                                            -
+ - chvote-protocol-poc                                                                            -
+ - %%                                                                                             -
+ - Copyright (C) 2016 - 2017 République et Canton de Genève                                       -
+ - %%                                                                                             -
+ - This program is free software: you can redistribute it and/or modify                           -
+ - it under the terms of the GNU Affero General Public License as published by                    -
+ - the Free Software Foundation, either version 3 of the License, or                              -
+ - (at your option) any later version.                                                            -
+ -                                                                                                -
+ - This program is distributed in the hope that it will be useful,                                -
+ - but WITHOUT ANY WARRANTY; without even the implied warranty of                                 -
+ - MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the                                   -
+ - GNU General Public License for more details.                                                   -
+ -                                                                                                -
+ - You should have received a copy of the GNU Affero General Public License                       -
+ - along with this program. If not, see <http://www.gnu.org/licenses/>.                           -
+ - #L%                                                                                            -
+ -------------------------------------------------------------------------------------------------*/
+
+package ch.ge.ve.protopoc.service.model;
+
+import com.google.common.base.Preconditions;
+import com.google.common.collect.ImmutableList;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.IntBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.util.AbstractList;
+import java.util.List;
+import java.util.RandomAccess;
+import java.util.Spliterator;
+
+import static java.nio.file.StandardOpenOption.*;
+
+/**
+ * Immutable vector of ints, such as permutations, mapped to a file rather than boxed in the heap
+ */
+public final class IntVector extends AbstractList<Integer> implements RandomAccess {
+    private final IntBuffer buffer;
+
+    private IntVector(IntBuffer buffer) {
+        this.buffer = buffer;
+    }
+
+    /**
+     * The file is created or overwritten, and remains the property of the caller.
+     *
+     * @param file the file backing the vector
+     * @param size the number of values
+     * @return a builder for a vector mapped to the given file
+     */
+    public static Builder builder(Path file, int size) {
+        Preconditions.checkArgument(size >= 0 && size <= Integer.MAX_VALUE / Integer.BYTES,
+                "The size should fit in a single mapping");
+        try (FileChannel channel = FileChannel.open(file, CREATE, READ, WRITE, TRUNCATE_EXISTING)) {
+            return new Builder(channel.map(FileChannel.MapMode.READ_WRITE, 0L, (long) size * Integer.BYTES)
+                    .asIntBuffer());
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not map the vector to " + file, e);
+        }
+    }
+
+    /**
+     * Helper for the model classes holding lists of ints: vectors and permutations are immutable and kept as-is, the
+     * other lists are copied.
+     *
+     * @param values a list of integers
+     * @return an immutable list holding the same values
+     */
+    public static List<Integer> immutableCopyOf(List<Integer> values) {
+        return values instanceof IntVector || values instanceof Permutation ? values : ImmutableList.copyOf(values);
+    }
+
+    /**
+     * @param index the index of the value
+     * @return the value, unboxed
+     */
+    public int getInt(int index) {
+        Preconditions.checkElementIndex(index, buffer.limit());
+        return buffer.get(index);
+    }
+
+    @Override
+    public Integer get(int index) {
+        return getInt(index);
+    }
+
+    @Override
+    public int size() {
+        return buffer.limit();
+    }
+
+    @Override
+    public Spliterator<Integer> spliterator() {
+        return new IndexSpliterator<>(this::get, 0, size());
+    }
+
+    @Override
+    public String toString() {
+        return "IntVector{" +
+                "size=" + size() +
+                '}';
+    }
+
+    /**
+     * Builder filling in the vector before it is made immutable. Distinct indices may be set concurrently.
+     */
+    public static final class Builder {
+        private final IntBuffer buffer;
+        private boolean built;
+
+        private Builder(IntBuffer buffer) {
+            this.buffer = buffer;
+        }
+
+        /**
+         * @param index the index of the value
+         * @return the value set at this index so far
+         */
+        public int get(int index) {
+            return buffer.get(index);
+        }
+
+        /**
+         * @param index the index of the value
+         * @param value the value
+         */
+        public void set(int index, int value) {
+            Preconditions.checkState(!built, "The vector has already been built");
+            buffer.put(index, value);
+        }
+
+        /**
+         * @return the vector, with all the indices expected to have been set
+         */
+        public IntVector build() {
+            built = true;
+            return new IntVector(buffer);
+        }
+    }
+}
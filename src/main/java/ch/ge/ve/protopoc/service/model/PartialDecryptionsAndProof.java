@@ -0,0 +1,63 @@
+/*-------------------------------------------------------------------------------------------------
+ - #%L                                                                                            -
+ - chvote-protocol-poc                                                                            -
+ - %%                                                                                             -
+ - Copyright (C) 2016 - 2017 République et Canton de Genève                                       -
+ - %%                                                                                             -
+ - This program is free software: you can redistribute it and/or modify                           -
+ - it under the terms of the GNU Affero General Public License as published by                    -
+ - the Free Software Foundation, either version 3 of the License, or                              -
+ - (at your option) any later version.                                                            -
+ -                                                                                                -
+ - This program is distributed in the hope that it will be useful,                                -
+ - but WITHOUT ANY WARRANTY; without even the implied warranty of                                 -
+ - MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the                                   -
+ - GNU General Public License for more details.                                                   -
+ -                                                                                                -
+ - You should have received a copy of the GNU Affero General Public License                       -
+ - along with this program. If not, see <http://www.gnu.org/licenses/>.                           -
+ - #L%                                                                                            -
+ -------------------------------------------------------------------------------------------------*/
+
+package ch.ge.ve.protopoc.service.model;
+
+import com.google.common.collect.ImmutableList;
+
+import java.math.BigInteger;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * Model class containing the partial decryptions of an authority and the proof of their validity
+ */
+public final class PartialDecryptionsAndProof {
+    private final List<BigInteger> bold_b_prime;
+    private final DecryptionProof pi;
+
+    public PartialDecryptionsAndProof(List<BigInteger> bold_b_prime, DecryptionProof pi) {
+        this.bold_b_prime = ImmutableList.copyOf(bold_b_prime);
+        this.pi = pi;
+    }
+
+    public List<BigInteger> getBold_b_prime() {
+        return bold_b_prime;
+    }
+
+    public DecryptionProof getPi() {
+        return pi;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+        PartialDecryptionsAndProof that = (PartialDecryptionsAndProof) o;
+        return Objects.equals(bold_b_prime, that.bold_b_prime) &&
+                Objects.equals(pi, that.pi);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(bold_b_prime, pi);
+    }
+}
@@ -0,0 +1,127 @@
+/*-------------------------------------------------------------------------------------------------
+ - #%L                                                                                            -
+ - chvote-protocol-poc                                                                            -
+ - %%                                                                                             -
+ - Copyright (C) 2016 - 2017 République et Canton de Genève                                       -
+ - %%                                                                                             -
+ - This program is free software: you can redistribute it and/or modify                           -
+ - it under the terms of the GNU Affero General Public License as published by                    -
+ - the Free Software Foundation, either version 3 of the License, or                              -
+ - (at your option) any later version.                                                            -
+ -                                                                                                -
+ - This program is distributed in the hope that it will be useful,                                -
+ - but WITHOUT ANY WARRANTY; without even the implied warranty of                                 -
+ - MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the                                   -
+ - GNU General Public License for more details.                                                   -
+ -                                                                                                -
+ - You should have received a copy of the GNU Affero General Public License                       -
+ - along with this program. If not, see <http://www.gnu.org/licenses/>.                           -
+ - #L%                                                                                            -
+ -------------------------------------------------------------------------------------------------*/
+
+package ch.ge.ve.protopoc.service.model;
+
+import com.google.common.base.Preconditions;
+
+import java.util.*;
+
+/**
+ * Immutable permutation of the indices 0 (inclusive) to N (exclusive), held as a primitive array
+ * <p>The permutation psy maps i to psy_i, and is applied to a vector x as y_i = x_{psy_i}.</p>
+ */
+public final class Permutation extends AbstractList<Integer> implements RandomAccess {
+    private final int[] psy;
+
+    private Permutation(int[] psy) {
+        this.psy = psy;
+    }
+
+    /**
+     * @param psy the images of the indices 0 to N - 1
+     * @return the corresponding permutation
+     * @throws IllegalArgumentException if psy is not a permutation of the indices 0 to N - 1
+     */
+    public static Permutation of(int... psy) {
+        return new Permutation(checkPermutation(psy.clone()));
+    }
+
+    /**
+     * @param psy the images of the indices 0 to N - 1
+     * @return the given list if it already is a permutation, a permutation holding the same values otherwise
+     * @throws IllegalArgumentException if psy is not a permutation of the indices 0 to N - 1
+     */
+    public static Permutation copyOf(List<Integer> psy) {
+        if (psy instanceof Permutation) {
+            return (Permutation) psy;
+        }
+        int[] values = new int[psy.size()];
+        if (psy instanceof IntVector) {
+            IntVector vector = (IntVector) psy;
+            for (int i = 0; i < values.length; i++) {
+                values[i] = vector.getInt(i);
+            }
+        } else {
+            int i = 0;
+            for (Integer value : psy) {
+                values[i++] = value;
+            }
+        }
+        return new Permutation(checkPermutation(values));
+    }
+
+    private static int[] checkPermutation(int[] psy) {
+        boolean[] seen = new boolean[psy.length];
+        for (int value : psy) {
+            Preconditions.checkArgument(0 <= value && value < psy.length && !seen[value],
+                    "The permutation should contain all number from 0 (inclusive) to length (exclusive)");
+            seen[value] = true;
+        }
+        return psy;
+    }
+
+    /**
+     * @param i the index
+     * @return psy_i, unboxed
+     */
+    public int getInt(int i) {
+        return psy[i];
+    }
+
+    @Override
+    public Integer get(int index) {
+        return psy[index];
+    }
+
+    @Override
+    public int size() {
+        return psy.length;
+    }
+
+    /**
+     * @return the inverse permutation psy^-1, such that psy^-1_{psy_i} = i
+     */
+    public Permutation inverse() {
+        int[] inverse = new int[psy.length];
+        for (int i = 0; i < psy.length; i++) {
+            inverse[psy[i]] = i;
+        }
+        return new Permutation(inverse);
+    }
+
+    /**
+     * @param bold_x the vector to permute, of length N
+     * @param <T>    the type of the elements
+     * @return the permuted vector y, with y_i = x_{psy_i}
+     */
+    public <T> List<T> apply(List<T> bold_x) {
+        Preconditions.checkArgument(bold_x.size() == psy.length,
+                "The length of the vector should be equal to that of the permutation");
+        Object[] bold_y = new Object[psy.length];
+        for (int i = 0; i < psy.length; i++) {
+            bold_y[i] = bold_x.get(psy[i]);
+        }
+        @SuppressWarnings("unchecked")
+        List<T> result = (List<T>) Collections.unmodifiableList(Arrays.asList(bold_y));
+        return result;
+    }
+}
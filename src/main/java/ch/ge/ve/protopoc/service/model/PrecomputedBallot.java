@@ -0,0 +1,113 @@
+/*-------------------------------------------------------------------------------------------------
+ - #%L                                                                                            -
+ - chvote-protocol-poc                                                                            -
+ - %%                                                                                             -
+ - Copyright (C) 2016 - 2017 République et Canton de Genève                                       -
+ - %%                                                                                             -
+ - This program is free software: you can redistribute it and/or modify                           -
+ - it under the terms of the GNU Affero General Public License as published by                    -
+ - the Free Software Foundation, either version 3 of the License, or                              -
+ - (at your option) any later version.                                                            -
+ -                                                                                                -
+ - This program is distributed in the hope that it will be useful,                                -
+ - but WITHOUT ANY WARRANTY; without even the implied warranty of                                 -
+ - MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the                                   -
+ - GNU General Public License for more details.                                                   -
+ -                                                                                                -
+ - You should have received a copy of the GNU Affero General Public License                       -
+ - along with this program. If not, see <http://www.gnu.org/licenses/>.                           -
+ - #L%                                                                                            -
+ -------------------------------------------------------------------------------------------------*/
+
+package ch.ge.ve.protopoc.service.model;
+
+import com.google.common.collect.ImmutableList;
+
+import java.math.BigInteger;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * Model class holding the part of a ballot which depends neither on the voter's selections nor on the voting code:
+ * the randomness bold_r of the OT query with the values pk^r_i, the encryption b = g^r of the combined randomness and
+ * the randomness and commitments of the ballot proof
+ */
+public final class PrecomputedBallot {
+    private final EncryptionPublicKey pk;
+    private final List<BigInteger> bold_r;
+    private final List<BigInteger> bold_pk_r;
+    private final BigInteger r;
+    private final BigInteger b;
+    private final List<BigInteger> bold_omega;
+    private final List<BigInteger> bold_t;
+
+    public PrecomputedBallot(EncryptionPublicKey pk, List<BigInteger> bold_r, List<BigInteger> bold_pk_r, BigInteger r,
+                             BigInteger b, List<BigInteger> bold_omega, List<BigInteger> bold_t) {
+        this.pk = pk;
+        this.bold_r = ImmutableList.copyOf(bold_r);
+        this.bold_pk_r = ImmutableList.copyOf(bold_pk_r);
+        this.r = r;
+        this.b = b;
+        this.bold_omega = ImmutableList.copyOf(bold_omega);
+        this.bold_t = ImmutableList.copyOf(bold_t);
+    }
+
+    public EncryptionPublicKey getPk() {
+        return pk;
+    }
+
+    public List<BigInteger> getBold_r() {
+        return bold_r;
+    }
+
+    public List<BigInteger> getBold_pk_r() {
+        return bold_pk_r;
+    }
+
+    public BigInteger getR() {
+        return r;
+    }
+
+    public BigInteger getB() {
+        return b;
+    }
+
+    public List<BigInteger> getBold_omega() {
+        return bold_omega;
+    }
+
+    public List<BigInteger> getBold_t() {
+        return bold_t;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+        PrecomputedBallot that = (PrecomputedBallot) o;
+        return Objects.equals(pk, that.pk) &&
+                Objects.equals(bold_r, that.bold_r) &&
+                Objects.equals(bold_pk_r, that.bold_pk_r) &&
+                Objects.equals(r, that.r) &&
+                Objects.equals(b, that.b) &&
+                Objects.equals(bold_omega, that.bold_omega) &&
+                Objects.equals(bold_t, that.bold_t);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(pk, bold_r, bold_pk_r, r, b, bold_omega, bold_t);
+    }
+
+    @Override
+    public String toString() {
+        return "PrecomputedBallot{" + "pk=" + pk +
+                ", bold_r=" + bold_r +
+                ", bold_pk_r=" + bold_pk_r +
+                ", r=" + r +
+                ", b=" + b +
+                ", bold_omega=" + bold_omega +
+                ", bold_t=" + bold_t +
+                '}';
+    }
+}
@@ -0,0 +1,80 @@
+/*-------------------------------------------------------------------------------------------------
+ - #%L                                                                                            -
+ - chvote-protocol-poc                                                                            -
+ - %%                                                                                             -
+ - Copyright (C) 2016 - 2017 République et Canton de Genève                                       -
+ - %%                                                                                             -
+ - This program is free software: you can redistribute it and/or modify                           -
+ - it under the terms of the GNU Affero General Public License as published by                    -
+ - the Free Software Foundation, either version 3 of the License, or                              -
+ - (at your option) any later version.                                                            -
+ -                                                                                                -
+ - This program is distributed in the hope that it will be useful,                                -
+ - but WITHOUT ANY WARRANTY; without even the implied warranty of                                 -
+ - MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the                                   -
+ - GNU General Public License for more details.                                                   -
+ -                                                                                                -
+ - You should have received a copy of the GNU Affero General Public License                       -
+ - along with this program. If not, see <http://www.gnu.org/licenses/>.                           -
+ - #L%                                                                                            -
+ -------------------------------------------------------------------------------------------------*/
+
+package ch.ge.ve.protopoc.service.model;
+
+import com.google.common.collect.ImmutableList;
+import org.bouncycastle.util.Arrays;
+
+import java.math.BigInteger;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * Model class holding the ballot-independent part of an Oblivious Transfer response: the per-election randomness
+ * bold_r, the encrypted points bold_c and the values bold_d
+ */
+public final class PrecomputedObliviousTransferResponse {
+    private final List<BigInteger> bold_r;
+    private final byte[][] bold_c;
+    private final List<BigInteger> bold_d;
+
+    public PrecomputedObliviousTransferResponse(List<BigInteger> bold_r, byte[][] bold_c, List<BigInteger> bold_d) {
+        this.bold_r = ImmutableList.copyOf(bold_r);
+        this.bold_c = bold_c;
+        this.bold_d = ImmutableList.copyOf(bold_d);
+    }
+
+    public List<BigInteger> getBold_r() {
+        return ImmutableList.copyOf(bold_r);
+    }
+
+    public byte[][] getBold_c() {
+        return Arrays.clone(bold_c);
+    }
+
+    public List<BigInteger> getBold_d() {
+        return ImmutableList.copyOf(bold_d);
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+        PrecomputedObliviousTransferResponse that = (PrecomputedObliviousTransferResponse) o;
+        return Objects.equals(bold_r, that.bold_r) &&
+                java.util.Arrays.deepEquals(bold_c, that.bold_c) &&
+                Objects.equals(bold_d, that.bold_d);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(bold_r, bold_c, bold_d);
+    }
+
+    @Override
+    public String toString() {
+        return "PrecomputedObliviousTransferResponse{" + "bold_r=" + bold_r +
+                ", bold_c=" + java.util.Arrays.deepToString(bold_c) +
+                ", bold_d=" + bold_d +
+                '}';
+    }
+}
@@ -21,7 +21,6 @@
 
 package ch.ge.ve.protopoc.service.model;
 
-import com.google.common.collect.ImmutableList;
 
 import java.math.BigInteger;
 import java.util.List;
@@ -36,21 +35,21 @@ public final class Shuffle {
     private final List<Integer> psy;
 
     public Shuffle(List<Encryption> bold_e_prime, List<BigInteger> bold_r_prime, List<Integer> psy) {
-        this.bold_e_prime = ImmutableList.copyOf(bold_e_prime);
-        this.bold_r_prime = ImmutableList.copyOf(bold_r_prime);
-        this.psy = ImmutableList.copyOf(psy);
+        this.bold_e_prime = EncryptionVector.immutableCopyOf(bold_e_prime);
+        this.bold_r_prime = BigIntegerVector.immutableCopyOf(bold_r_prime);
+        this.psy = IntVector.immutableCopyOf(psy);
     }
 
     public List<Encryption> getBold_e_prime() {
-        return ImmutableList.copyOf(bold_e_prime);
+        return bold_e_prime;
     }
 
     public List<BigInteger> getBold_r_prime() {
-        return ImmutableList.copyOf(bold_r_prime);
+        return bold_r_prime;
     }
 
     public List<Integer> getPsy() {
-        return ImmutableList.copyOf(psy);
+        return psy;
     }
 
     @Override
@@ -35,12 +35,12 @@ public final class ShufflesAndProofs {
 
 
     public ShufflesAndProofs(List<List<Encryption>> shuffles, List<ShuffleProof> shuffleProofs) {
-        this.shuffles = shuffles.parallelStream().map(ImmutableList::copyOf).collect(Collectors.toList());
+        this.shuffles = shuffles.parallelStream().map(EncryptionVector::immutableCopyOf).collect(Collectors.toList());
         this.shuffleProofs = ImmutableList.copyOf(shuffleProofs);
     }
 
     public List<List<Encryption>> getShuffles() {
-        return shuffles.parallelStream().map(ImmutableList::copyOf).collect(Collectors.toList());
+        return ImmutableList.copyOf(shuffles);
     }
 
     public List<ShuffleProof> getShuffleProofs() {
@@ -0,0 +1,109 @@
+/*-------------------------------------------------------------------------------------------------
+ - #%L                                                                                            -
+ - chvote-protocol-poc                                                                            -
+ - %%                                                                                             -
+ - Copyright (C) 2016 - 2017 République et Canton de Genève                                       -
+ - %%                                                                                             -
+ - This program is free software: you can redistribute it and/or modify                           -
+ - it under the terms of the GNU Affero General Public License as published by                    -
+ - the Free Software Foundation, either version 3 of the License, or                              -
+ - (at your option) any later version.                                                            -
+ -                                                                                                -
+ - This program is distributed in the hope that it will be useful,                                -
+ - but WITHOUT ANY WARRANTY; without even the implied warranty of                                 -
+ - MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the                                   -
+ - GNU General Public License for more details.                                                   -
+ -                                                                                                -
+ - You should have received a copy of the GNU Affero General Public License                       -
+ - along with this program. If not, see <http://www.gnu.org/licenses/>.                           -
+ - #L%                                                                                            -
+ -------------------------------------------------------------------------------------------------*/
+
+package ch.ge.ve.protopoc.service.model;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.stream.Collectors;
+
+/**
+ * Model class containing the results of an election set: the number of votes per candidate, grouped by election,
+ * along with the number of ballots taking part in each election and in each domain of influence
+ */
+public final class Tally {
+    private final long ballotCount;
+    private final List<List<Long>> candidateCountsByElection;
+    private final List<Long> ballotCountsByElection;
+    private final Map<DomainOfInfluence, Long> ballotCountsByDomainOfInfluence;
+
+    public Tally(long ballotCount, List<List<Long>> candidateCountsByElection, List<Long> ballotCountsByElection,
+                 Map<DomainOfInfluence, Long> ballotCountsByDomainOfInfluence) {
+        this.ballotCount = ballotCount;
+        this.candidateCountsByElection = ImmutableList.copyOf(candidateCountsByElection.stream()
+                .map(ImmutableList::copyOf).collect(Collectors.toList()));
+        this.ballotCountsByElection = ImmutableList.copyOf(ballotCountsByElection);
+        this.ballotCountsByDomainOfInfluence = ImmutableMap.copyOf(ballotCountsByDomainOfInfluence);
+    }
+
+    /**
+     * @return the total number of ballots
+     */
+    public long getBallotCount() {
+        return ballotCount;
+    }
+
+    /**
+     * @return the number of votes per candidate, for all the candidates of the election set
+     */
+    public List<Long> getCandidateCounts() {
+        return candidateCountsByElection.stream().flatMap(List::stream).collect(Collectors.toList());
+    }
+
+    /**
+     * @return the number of votes per candidate, by election
+     */
+    public List<List<Long>> getCandidateCountsByElection() {
+        return candidateCountsByElection;
+    }
+
+    /**
+     * @return the number of ballots holding at least one selection, by election
+     */
+    public List<Long> getBallotCountsByElection() {
+        return ballotCountsByElection;
+    }
+
+    /**
+     * @return the number of ballots holding at least one selection in an election of the domain of influence
+     */
+    public Map<DomainOfInfluence, Long> getBallotCountsByDomainOfInfluence() {
+        return ballotCountsByDomainOfInfluence;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+        Tally tally = (Tally) o;
+        return ballotCount == tally.ballotCount &&
+                Objects.equals(candidateCountsByElection, tally.candidateCountsByElection) &&
+                Objects.equals(ballotCountsByElection, tally.ballotCountsByElection) &&
+                Objects.equals(ballotCountsByDomainOfInfluence, tally.ballotCountsByDomainOfInfluence);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(ballotCount, candidateCountsByElection, ballotCountsByElection,
+                ballotCountsByDomainOfInfluence);
+    }
+
+    @Override
+    public String toString() {
+        return String.format("Tally{ballotCount=%d, candidateCountsByElection=%s, ballotCountsByElection=%s, " +
+                        "ballotCountsByDomainOfInfluence=%s}", ballotCount, candidateCountsByElection,
+                ballotCountsByElection, ballotCountsByDomainOfInfluence);
+    }
+}
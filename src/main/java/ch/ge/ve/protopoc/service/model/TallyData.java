@@ -39,7 +39,7 @@ public final class TallyData {
 
     public TallyData(List<BigInteger> publicKeyShares, List<Encryption> finalShuffle, List<List<BigInteger>> partialDecryptions, List<DecryptionProof> decryptionProofs) {
         this.publicKeyShares = ImmutableList.copyOf(publicKeyShares);
-        this.finalShuffle = ImmutableList.copyOf(finalShuffle);
+        this.finalShuffle = EncryptionVector.immutableCopyOf(finalShuffle);
         this.partialDecryptions = partialDecryptions.parallelStream().map(ImmutableList::copyOf)
                 .collect(Collectors.toList());
         this.decryptionProofs = ImmutableList.copyOf(decryptionProofs);
@@ -50,7 +50,7 @@ public final class TallyData {
     }
 
     public List<Encryption> getFinalShuffle() {
-        return ImmutableList.copyOf(finalShuffle);
+        return finalShuffle;
     }
 
     public List<List<BigInteger>> getPartialDecryptions() {
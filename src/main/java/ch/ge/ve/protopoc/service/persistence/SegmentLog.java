@@ -0,0 +1,305 @@
+/*-------------------------------------------------------------------------------------------------
+ - #%L                                                                                            -
+ - chvote-protocol-poc                                                                            -
+ - %%                                                                                             -
+ - Copyright (C) 2016 - 2017 République et Canton de Genève                                       -
+ - %%                                                                                             -
+ - This program is free software: you can redistribute it and/or modify                           -
+ - it under the terms of the GNU Affero General Public License as published by                    -
+ - the Free Software Foundation, either version 3 of the License, or                              -
+ - (at your option) any later version.                                                            -
+ -                                                                                                -
+ - This program is distributed in the hope that it will be useful,                                -
+ - but WITHOUT ANY WARRANTY; without even the implied warranty of                                 -
+ - MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the                                   -
+ - GNU General Public License for more details.                                                   -
+ -                                                                                                -
+ - You should have received a copy of the GNU Affero General Public License                       -
+ - along with this program. If not, see <http://www.gnu.org/licenses/>.                           -
+ - #L%                                                                                            -
+ -------------------------------------------------------------------------------------------------*/
+
+package ch.ge.ve.protopoc.service.persistence;
+
+import com.google.common.base.Preconditions;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.zip.CRC32;
+
+/**
+ * Append-only log of binary entries, stored in memory-mapped segment files.
+ * <p>
+ * Each entry is framed by a header holding its length, a CRC32 of its type, key and payload, a type and a key. The
+ * payload may not be empty, so that a zero length marks the end of the log. The length is written last, so that an
+ * entry interrupted by a crash is detected, along with any torn payload, when the log is re-opened: the recovery
+ * stops at the first invalid entry of each segment.
+ * </p>
+ * <p>
+ * The segments are forced to disk in batches, by a background thread running every <tt>syncIntervalMillis</tt>:
+ * writers needing durability wait for the batch covering their entry with {@link #whenSynced(Entry)}, rather than
+ * forcing the segments themselves.
+ * </p>
+ * <p>
+ * Entries are read back as read-only slices of the mapped segments, without copying them to the heap.
+ * </p>
+ */
+public class SegmentLog implements Closeable {
+    private static final Logger log = LoggerFactory.getLogger(SegmentLog.class);
+    private static final int HEADER_SIZE = 4 + 4 + 1 + 4;
+    private static final String SEGMENT_PREFIX = "segment-";
+    private static final String SEGMENT_SUFFIX = ".log";
+    private final Path directory;
+    private final int segmentSize;
+    private final List<MappedByteBuffer> segments = new ArrayList<>();
+    private final Set<MappedByteBuffer> dirtySegments = new HashSet<>();
+    private final List<Entry> recoveredEntries = new ArrayList<>();
+    private final Thread syncThread;
+    private int position;
+    private CompletableFuture<Void> currentBatch = new CompletableFuture<>();
+    private volatile boolean closed = false;
+
+    /**
+     * Opens the log stored in the given directory, creating it if needed, and recovers the entries it contains.
+     *
+     * @param directory          the directory holding the segment files
+     * @param segmentSize        the size of the segment files, in bytes; entries larger than that get a segment of
+     *                           their own
+     * @param syncIntervalMillis the interval between two batches of forcing the segments to disk
+     * @throws IOException if the log could not be opened
+     */
+    public SegmentLog(Path directory, int segmentSize, long syncIntervalMillis) throws IOException {
+        Preconditions.checkArgument(segmentSize > HEADER_SIZE, "The segments must be larger than an entry header");
+        Preconditions.checkArgument(syncIntervalMillis > 0, "The sync interval must be positive");
+        this.directory = Files.createDirectories(directory);
+        this.segmentSize = segmentSize;
+        recover();
+        syncThread = new Thread(() -> {
+            while (!closed) {
+                try {
+                    Thread.sleep(syncIntervalMillis);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+                sync();
+            }
+        }, "segment-log-sync");
+        syncThread.setDaemon(true);
+        syncThread.start();
+    }
+
+    /**
+     * @return the entries found in the log when it was opened, in log order
+     */
+    public List<Entry> getRecoveredEntries() {
+        return Collections.unmodifiableList(recoveredEntries);
+    }
+
+    /**
+     * Appends an entry to the log. The entry is visible to readers as soon as this method returns, but only durable
+     * once the future returned by {@link #whenSynced(Entry)} completes.
+     *
+     * @param type   the type of the entry
+     * @param key    the key of the entry, within its type
+     * @param length the length of the payload, which must be positive
+     * @param writer the function writing the payload to the given buffer, of exactly <tt>length</tt> remaining bytes
+     * @return the appended entry
+     */
+    public synchronized Entry append(byte type, int key, int length, Consumer<ByteBuffer> writer) {
+        Preconditions.checkState(!closed, "The log has been closed");
+        Preconditions.checkArgument(length > 0, "The payload of an entry may not be empty");
+        Preconditions.checkArgument(length <= Integer.MAX_VALUE - HEADER_SIZE, "The entry does not fit in a segment");
+        MappedByteBuffer segment = segments.isEmpty() ? null : segments.get(segments.size() - 1);
+        if (segment == null || position + HEADER_SIZE + length > segment.capacity()) {
+            segment = createSegment(Math.max(segmentSize, HEADER_SIZE + length));
+            position = 0;
+        }
+        ByteBuffer payload = slice(segment, position + HEADER_SIZE, length);
+        writer.accept(payload);
+        Preconditions.checkState(!payload.hasRemaining(), "The payload was not completely written");
+        payload.flip();
+
+        segment.putInt(position + 4, checksum(type, key, payload));
+        segment.put(position + 8, type);
+        segment.putInt(position + 9, key);
+        segment.putInt(position, length); // the length is written last, as the commit marker of the entry
+
+        Entry entry = new Entry(type, key, segments.size() - 1, position + HEADER_SIZE, length, currentBatch);
+        position += HEADER_SIZE + length;
+        dirtySegments.add(segment);
+        return entry;
+    }
+
+    /**
+     * @param entry an entry of this log
+     * @return a read-only view of the payload of the entry
+     */
+    public ByteBuffer read(Entry entry) {
+        MappedByteBuffer segment;
+        synchronized (this) {
+            segment = segments.get(entry.segment);
+        }
+        return slice(segment, entry.offset, entry.length).asReadOnlyBuffer();
+    }
+
+    /**
+     * @param entry an entry of this log
+     * @return a future completing once the entry has been forced to disk by the background sync
+     */
+    public CompletableFuture<Void> whenSynced(Entry entry) {
+        return entry.synced;
+    }
+
+    /**
+     * Waits until the given entry has been forced to disk by the background sync.
+     *
+     * @param entry the entry
+     */
+    public void awaitSync(Entry entry) {
+        entry.synced.join();
+    }
+
+    /**
+     * Forces all the entries appended so far to disk.
+     */
+    public void sync() {
+        CompletableFuture<Void> batch;
+        List<MappedByteBuffer> toForce;
+        synchronized (this) {
+            batch = currentBatch;
+            currentBatch = new CompletableFuture<>();
+            toForce = new ArrayList<>(dirtySegments);
+            dirtySegments.clear();
+        }
+        try {
+            toForce.forEach(MappedByteBuffer::force);
+            batch.complete(null);
+        } catch (RuntimeException e) {
+            log.error("Could not force the log segments to disk", e);
+            batch.completeExceptionally(e);
+        }
+    }
+
+    @Override
+    public void close() {
+        closed = true;
+        syncThread.interrupt();
+        sync();
+    }
+
+    private void recover() throws IOException {
+        List<Path> segmentFiles;
+        try (Stream<Path> files = Files.list(directory)) {
+            segmentFiles = files.filter(path -> {
+                String name = path.getFileName().toString();
+                return name.startsWith(SEGMENT_PREFIX) && name.endsWith(SEGMENT_SUFFIX);
+            }).sorted().collect(Collectors.toList());
+        }
+        for (Path segmentFile : segmentFiles) {
+            MappedByteBuffer segment = map(segmentFile, Files.size(segmentFile));
+            segments.add(segment);
+            position = 0;
+            while (position + HEADER_SIZE <= segment.capacity()) {
+                int length = segment.getInt(position);
+                if (length <= 0 || position + HEADER_SIZE + length > segment.capacity()) {
+                    break;
+                }
+                byte type = segment.get(position + 8);
+                int key = segment.getInt(position + 9);
+                ByteBuffer payload = slice(segment, position + HEADER_SIZE, length);
+                if (segment.getInt(position + 4) != checksum(type, key, payload)) {
+                    log.warn(String.format("Invalid entry found in %s at offset %d, ignoring the rest of the segment",
+                            segmentFile, position));
+                    break;
+                }
+                recoveredEntries.add(new Entry(type, key, segments.size() - 1, position + HEADER_SIZE, length,
+                        CompletableFuture.completedFuture(null)));
+                position += HEADER_SIZE + length;
+            }
+        }
+        log.info(String.format("Recovered %d entries from %d segments in %s", recoveredEntries.size(),
+                segments.size(), directory));
+    }
+
+    private MappedByteBuffer createSegment(int capacity) {
+        Path segmentFile = directory.resolve(
+                String.format("%s%08d%s", SEGMENT_PREFIX, segments.size(), SEGMENT_SUFFIX));
+        try {
+            MappedByteBuffer segment = map(segmentFile, capacity);
+            segments.add(segment);
+            return segment;
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not create segment " + segmentFile, e);
+        }
+    }
+
+    private static MappedByteBuffer map(Path segmentFile, long capacity) throws IOException {
+        try (FileChannel channel = FileChannel.open(segmentFile, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                StandardOpenOption.WRITE)) {
+            return channel.map(FileChannel.MapMode.READ_WRITE, 0, capacity);
+        }
+    }
+
+    private static int checksum(byte type, int key, ByteBuffer payload) {
+        CRC32 crc = new CRC32();
+        crc.update(type);
+        crc.update(ByteBuffer.allocate(4).putInt(0, key));
+        crc.update(payload);
+        return (int) crc.getValue();
+    }
+
+    private static ByteBuffer slice(ByteBuffer buffer, int offset, int length) {
+        ByteBuffer duplicate = buffer.duplicate();
+        duplicate.position(offset);
+        duplicate.limit(offset + length);
+        return duplicate.slice();
+    }
+
+    /**
+     * Location and identification of an entry of the log
+     */
+    public static final class Entry {
+        private final byte type;
+        private final int key;
+        private final int segment;
+        private final int offset;
+        private final int length;
+        private final CompletableFuture<Void> synced;
+
+        private Entry(byte type, int key, int segment, int offset, int length, CompletableFuture<Void> synced) {
+            this.type = type;
+            this.key = key;
+            this.segment = segment;
+            this.offset = offset;
+            this.length = length;
+            this.synced = synced;
+        }
+
+        public byte getType() {
+            return type;
+        }
+
+        public int getKey() {
+            return key;
+        }
+
+        public int getLength() {
+            return length;
+        }
+    }
+}
@@ -0,0 +1,130 @@
+/*-------------------------------------------------------------------------------------------------
+ - #%L                                                                                            -
+ - chvote-protocol-poc                                                                            -
+ - %%                                                                                             -
+ - Copyright (C) 2016 - 2017 République et Canton de Genève                                       -
+ - %%                                                                                             -
+ - This program is free software: you can redistribute it and/or modify                           -
+ - it under the terms of the GNU Affero General Public License as published by                    -
+ - the Free Software Foundation, either version 3 of the License, or                              -
+ - (at your option) any later version.                                                            -
+ -                                                                                                -
+ - This program is distributed in the hope that it will be useful,                                -
+ - but WITHOUT ANY WARRANTY; without even the implied warranty of                                 -
+ - MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the                                   -
+ - GNU General Public License for more details.                                                   -
+ -                                                                                                -
+ - You should have received a copy of the GNU Affero General Public License                       -
+ - along with this program. If not, see <http://www.gnu.org/licenses/>.                           -
+ - #L%                                                                                            -
+ -------------------------------------------------------------------------------------------------*/
+
+package ch.ge.ve.protopoc.service.protocol;
+
+import com.google.common.base.Preconditions;
+import com.google.common.base.Stopwatch;
+
+import java.util.LongSummaryStatistics;
+import java.util.Queue;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Executor dedicated to the requests addressed to one authority.
+ * <p>
+ * The requests are run in a {@link ForkJoinPool} of their own, so that the parallel streams used by the authority
+ * while handling a request also run in that pool, rather than in the JVM-wide common pool shared with the other
+ * authorities and the clients. At most <tt>queueCapacity</tt> requests may be waiting for a thread: once that bound is
+ * reached, the submitting threads are blocked until a request completes.
+ * </p>
+ */
+public class AuthorityExecutor implements Executor {
+    private final ForkJoinPool pool;
+    private final Semaphore slots;
+    private final AtomicInteger pendingRequests = new AtomicInteger();
+    private final AtomicInteger maxQueueDepth = new AtomicInteger();
+    private final Queue<Long> queueWaitTimes = new ConcurrentLinkedQueue<>();
+    private final Queue<Long> processingTimes = new ConcurrentLinkedQueue<>();
+    private final int threads;
+
+    /**
+     * @param j             the index of the authority
+     * @param threads       the number of threads handling the authority's requests
+     * @param queueCapacity the maximum number of requests waiting for a thread
+     */
+    public AuthorityExecutor(int j, int threads, int queueCapacity) {
+        Preconditions.checkArgument(threads > 0, "At least one thread is needed");
+        Preconditions.checkArgument(queueCapacity >= 0, "The queue capacity may not be negative");
+        this.threads = threads;
+        this.slots = new Semaphore(threads + queueCapacity);
+        AtomicInteger threadCount = new AtomicInteger();
+        this.pool = new ForkJoinPool(threads, p -> {
+            ForkJoinWorkerThread thread = ForkJoinPool.defaultForkJoinWorkerThreadFactory.newThread(p);
+            thread.setName(String.format("authority-%d-worker-%d", j, threadCount.getAndIncrement()));
+            thread.setDaemon(true);
+            return thread;
+        }, null, false);
+    }
+
+    @Override
+    public void execute(Runnable command) {
+        try {
+            slots.acquire();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RejectedExecutionException("Interrupted while waiting for a free slot", e);
+        }
+        int queueDepth = Math.max(0, pendingRequests.incrementAndGet() - threads);
+        maxQueueDepth.accumulateAndGet(queueDepth, Math::max);
+        Stopwatch queueWatch = Stopwatch.createStarted();
+        try {
+            pool.execute(() -> {
+                queueWaitTimes.add(queueWatch.elapsed(TimeUnit.MILLISECONDS));
+                Stopwatch processingWatch = Stopwatch.createStarted();
+                try {
+                    command.run();
+                } finally {
+                    processingTimes.add(processingWatch.elapsed(TimeUnit.MILLISECONDS));
+                    pendingRequests.decrementAndGet();
+                    slots.release();
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            pendingRequests.decrementAndGet();
+            slots.release();
+            throw e;
+        }
+    }
+
+    /**
+     * @return the number of requests currently waiting for a thread
+     */
+    public int getQueueDepth() {
+        return Math.max(0, pendingRequests.get() - threads);
+    }
+
+    /**
+     * @return the highest number of requests observed waiting for a thread
+     */
+    public int getMaxQueueDepth() {
+        return maxQueueDepth.get();
+    }
+
+    /**
+     * @return the statistics of the time spent by the requests waiting for a thread, in milliseconds
+     */
+    public LongSummaryStatistics getQueueWaitStats() {
+        return queueWaitTimes.stream().mapToLong(Long::valueOf).summaryStatistics();
+    }
+
+    /**
+     * @return the statistics of the time spent handling the requests, in milliseconds
+     */
+    public LongSummaryStatistics getProcessingStats() {
+        return processingTimes.stream().mapToLong(Long::valueOf).summaryStatistics();
+    }
+
+    public void shutdown() {
+        pool.shutdown();
+    }
+}
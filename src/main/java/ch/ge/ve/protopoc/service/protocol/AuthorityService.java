@@ -24,6 +24,8 @@ package ch.ge.ve.protopoc.service.protocol;
 import ch.ge.ve.protopoc.service.model.*;
 
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
 
 /**
  * This interface defines the contract for an authority
@@ -37,12 +39,56 @@ public interface AuthorityService {
 
     List<SecretVoterData> getPrivateCredentials();
 
+    /**
+     * @param from the index of the first voter
+     * @param to   the index following the last voter
+     * @return the secret voter data of the voters <tt>from</tt> (inclusive) to <tt>to</tt> (exclusive), so that the
+     * printing authority may retrieve it chunk by chunk
+     */
+    List<SecretVoterData> getPrivateCredentials(int from, int to);
+
+    /**
+     * Discards the secret voter data once the code sheets have been printed: it may no longer be retrieved
+     * afterwards.
+     */
+    void discardPrivateCredentials();
+
     void buildPublicCredentials();
 
     ObliviousTransferResponse handleBallot(Integer voterIndex, BallotAndQuery ballotAndQuery);
 
     FinalizationCodePart handleConfirmation(Integer voterIndex, Confirmation confirmation);
 
+    /**
+     * Asynchronous variant of {@link #handleBallot(Integer, BallotAndQuery)}. By default, the ballot is handled on the
+     * given executor; implementations driven by an event loop may complete the future from their own threads instead.
+     *
+     * @param voterIndex     the voter index
+     * @param ballotAndQuery the ballot and oblivious transfer query
+     * @param executor       the executor to use for the request
+     * @return a future of this authority's oblivious transfer response
+     */
+    default CompletableFuture<ObliviousTransferResponse> handleBallotAsync(Integer voterIndex,
+                                                                          BallotAndQuery ballotAndQuery,
+                                                                          Executor executor) {
+        return CompletableFuture.supplyAsync(() -> handleBallot(voterIndex, ballotAndQuery), executor);
+    }
+
+    /**
+     * Asynchronous variant of {@link #handleConfirmation(Integer, Confirmation)}, see
+     * {@link #handleBallotAsync(Integer, BallotAndQuery, Executor)}.
+     *
+     * @param voterIndex   the voter index
+     * @param confirmation the confirmation
+     * @param executor     the executor to use for the request
+     * @return a future of this authority's part of the finalization code
+     */
+    default CompletableFuture<FinalizationCodePart> handleConfirmationAsync(Integer voterIndex,
+                                                                           Confirmation confirmation,
+                                                                           Executor executor) {
+        return CompletableFuture.supplyAsync(() -> handleConfirmation(voterIndex, confirmation), executor);
+    }
+
     void startMixing();
 
     void mixAgain();
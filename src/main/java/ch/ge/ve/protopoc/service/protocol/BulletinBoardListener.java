@@ -0,0 +1,42 @@
+/*-------------------------------------------------------------------------------------------------
+ - #%L                                                                                            -
+ - chvote-protocol-poc                                                                            -
+ - %%                                                                                             -
+ - Copyright (C) 2016 - 2017 République et Canton de Genève                                       -
+ - %%                                                                                             -
+ - This program is free software: you can redistribute it and/or modify                           -
+ - it under the terms of the GNU Affero General Public License as published by                    -
+ - the Free Software Foundation, either version 3 of the License, or                              -
+ - (at your option) any later version.                                                            -
+ -                                                                                                -
+ - This program is distributed in the hope that it will be useful,                                -
+ - but WITHOUT ANY WARRANTY; without even the implied warranty of                                 -
+ - MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the                                   -
+ - GNU General Public License for more details.                                                   -
+ -                                                                                                -
+ - You should have received a copy of the GNU Affero General Public License                       -
+ - along with this program. If not, see <http://www.gnu.org/licenses/>.                           -
+ - #L%                                                                                            -
+ -------------------------------------------------------------------------------------------------*/
+
+package ch.ge.ve.protopoc.service.protocol;
+
+import java.math.BigInteger;
+import java.util.List;
+
+/**
+ * Listener notified of the publications on the bulletin board.
+ * <p>
+ * The listeners are called synchronously by the publishing thread, once the published data can be read from the
+ * board: any lengthy processing should be handed over to another thread.
+ * </p>
+ */
+public interface BulletinBoardListener {
+    /**
+     * @param j                  the index of the authority having published the partial decryptions
+     * @param offset             the index in the final shuffle of the first partial decryption of the chunk
+     * @param partialDecryptions the published chunk of partial decryptions, not yet covered by a decryption proof
+     */
+    default void onPartialDecryptionsPublished(int j, int offset, List<BigInteger> partialDecryptions) {
+    }
+}
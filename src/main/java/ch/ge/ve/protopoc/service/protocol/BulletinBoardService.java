@@ -27,11 +27,19 @@ import ch.ge.ve.protopoc.service.model.polynomial.Point;
 
 import java.math.BigInteger;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
 
 /**
  * This interface defines the contract for the ballot board
  */
 public interface BulletinBoardService {
+    /**
+     * Registers a listener, notified of the publications made from then on.
+     *
+     * @param listener the listener
+     */
+    void addListener(BulletinBoardListener listener);
+
     void publishPublicParameters(PublicParameters publicParameters);
 
     PublicParameters getPublicParameters();
@@ -52,14 +60,90 @@ public interface BulletinBoardService {
 
     List<FinalizationCodePart> publishConfirmation(Integer voterIndex, Confirmation confirmation) throws IncorrectConfirmationRuntimeException;
 
-    void publishShuffleAndProof(int j, List<Encryption> shuffle, ShuffleProof proof);
+    /**
+     * Asynchronous variant of {@link #publishBallot(Integer, BallotAndQuery)}.
+     *
+     * @param voterIndex     the voter index
+     * @param ballotAndQuery the ballot and oblivious transfer query
+     * @return one future per authority, in authority order, each completing as soon as the corresponding authority
+     * has handled the ballot
+     */
+    List<CompletableFuture<ObliviousTransferResponse>> publishBallotAsync(Integer voterIndex,
+                                                                        BallotAndQuery ballotAndQuery);
+
+    /**
+     * Asynchronous variant of {@link #publishConfirmation(Integer, Confirmation)}.
+     *
+     * @param voterIndex   the voter index
+     * @param confirmation the confirmation
+     * @return one future per authority, in authority order, each completing as soon as the corresponding authority
+     * has handled the confirmation
+     */
+    List<CompletableFuture<FinalizationCodePart>> publishConfirmationAsync(Integer voterIndex,
+                                                                         Confirmation confirmation);
+
+    /**
+     * Publishes the j-th shuffle, before its proof, so that authority j + 1 can start its own shuffle while authority
+     * j is still generating the proof.
+     *
+     * @param j       the index of the authority
+     * @param shuffle the shuffled encryptions
+     */
+    void publishShuffle(int j, List<Encryption> shuffle);
+
+    /**
+     * Publishes the proof of the j-th shuffle, once the shuffle itself has been published.
+     *
+     * @param j     the index of the authority
+     * @param proof the proof of the j-th shuffle
+     */
+    void publishShuffleProof(int j, ShuffleProof proof);
 
     List<Encryption> getPreviousShuffle(int j);
 
+    /**
+     * @param j the index of the authority
+     * @return a future completing with the j-th shuffle once it has been published
+     */
+    CompletableFuture<List<Encryption>> getShuffleAsync(int j);
+
+    /**
+     * @param j the index of the authority
+     * @return a future completing with the proof of the j-th shuffle once it has been published
+     */
+    CompletableFuture<ShuffleProof> getShuffleProofAsync(int j);
+
     ShufflesAndProofs getShufflesAndProofs();
 
+    /**
+     * Records the outcome of the verification of the j-th shuffle proof by a {@link ShuffleProofVerificationService}.
+     * Once a proof has been found invalid, it remains recorded as such.
+     *
+     * @param j     the index of the authority having generated the proof
+     * @param valid whether the proof was found valid
+     */
+    void publishShuffleProofVerification(int j, boolean valid);
+
+    /**
+     * @param j the index of the authority having generated the proof
+     * @return the recorded outcome of the verification of the j-th shuffle proof, or null if none was recorded
+     */
+    Boolean getShuffleProofVerification(int j);
+
     void publishPartialDecryptionAndProof(int j, List<BigInteger> partialDecryption, DecryptionProof proof);
 
+    /**
+     * Hands a chunk of the partial decryptions of the j-th authority over to the listeners, once all the shuffles and
+     * their proofs have been published. The chunks must be published in order, without gaps, and may not go beyond the
+     * end of the final shuffle. The chunks are not recorded: the complete partial decryptions are published along with their proof,
+     * see {@link #publishPartialDecryptionAndProof(int, List, DecryptionProof)}.
+     *
+     * @param j                  the index of the authority
+     * @param offset             the index in the final shuffle of the first partial decryption of the chunk
+     * @param partialDecryptions the chunk of partial decryptions
+     */
+    void publishPartialDecryptions(int j, int offset, List<BigInteger> partialDecryptions);
+
     TallyData getTallyData();
 
     void publishTally(List<Long> tally);
@@ -22,30 +22,52 @@
 package ch.ge.ve.protopoc.service.protocol;
 
 import ch.ge.ve.protopoc.service.algorithm.*;
+import ch.ge.ve.protopoc.service.codec.ByteArrayCodec;
+import ch.ge.ve.protopoc.service.codec.ElementCodec;
+import ch.ge.ve.protopoc.service.codec.RecordFile;
+import ch.ge.ve.protopoc.service.codec.SecretVoterDataCodec;
 import ch.ge.ve.protopoc.service.exception.IncorrectBallotRuntimeException;
 import ch.ge.ve.protopoc.service.exception.IncorrectConfirmationRuntimeException;
 import ch.ge.ve.protopoc.service.exception.InvalidShuffleProofRuntimeException;
 import ch.ge.ve.protopoc.service.model.*;
 import ch.ge.ve.protopoc.service.model.polynomial.Point;
+import ch.ge.ve.protopoc.service.support.SecretFiles;
 import com.google.common.base.Preconditions;
 import com.google.common.base.Stopwatch;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.math.BigInteger;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
 import java.security.KeyPair;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.LongSummaryStatistics;
 import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
 import java.util.concurrent.TimeUnit;
 import java.util.stream.Collectors;
+import java.util.stream.IntStream;
 
 /**
  * Default implementation of the {@link AuthorityService} interface
  */
 public class DefaultAuthority implements AuthorityService {
     private static final Logger log = LoggerFactory.getLogger(DefaultAuthority.class);
+    private static final int DEFAULT_PRECOMPUTATION_CAPACITY = 10_000;
+    private static final int DECRYPTION_CHUNK_SIZE = 1_024;
+    private static final int ELECTORATE_CHUNK_SIZE = 1_024;
     private final Logger perfLog = LoggerFactory.getLogger("PerformanceStats");
     private final int j;
     private final BulletinBoardService bulletinBoardService;
@@ -59,12 +81,26 @@ public class DefaultAuthority implements AuthorityService {
     private final Queue<Long> queryResponseTimes = new ConcurrentLinkedQueue<>();
     private final Queue<Long> confirmationVerificationTimes = new ConcurrentLinkedQueue<>();
     private final Queue<Long> finalizationComputationTimes = new ConcurrentLinkedQueue<>();
+    private final ConcurrentMap<Integer, CompletableFuture<Boolean>> shuffleProofChecks = new ConcurrentHashMap<>();
+    private int precomputationCapacity = DEFAULT_PRECOMPUTATION_CAPACITY;
+    private int precomputationThreads = 1;
+    private Path precomputationSpillDirectory;
+    private Path electorateDataDirectory;
+    private ExternalMixingAuthorityAlgorithms externalMixingAuthorityAlgorithms;
+    private ShuffleProofVerificationService shuffleProofVerificationService;
+    private boolean independentShuffleProofCheck;
+    private Executor executor = ForkJoinPool.commonPool();
+    private ResponsePrecomputationService responsePrecomputationService;
     private EncryptionPublicKey myPublicKey;
     private EncryptionPrivateKey myPrivateKey;
     private EncryptionPublicKey systemPublicKey;
     private PublicParameters publicParameters;
     private ElectionSet electionSet;
-    private ElectorateData electorateData;
+    private List<SecretVoterData> secretVoterData;
+    private Path secretVoterDataFile;
+    private List<byte[]> finalizationCodes;
+    private EncodedPointTable randomPoints;
+    private List<List<Integer>> allowedSelections;
     private List<Point> publicCredentials;
     private Queue<BallotEntry> ballotEntries = new ConcurrentLinkedQueue<>();
     private Queue<ConfirmationEntry> confirmationEntries = new ConcurrentLinkedQueue<>();
@@ -115,22 +151,181 @@ public class DefaultAuthority implements AuthorityService {
     public void generateElectorateData() {
         log.info(String.format("Authority %d generating electorate data", j));
         electionSet = bulletinBoardService.getElectionSet();
-        electorateData = electionPreparationAlgorithms.genElectorateData(electionSet);
+        if (electorateDataDirectory != null) {
+            try {
+                generateElectorateDataToDisk();
+            } catch (IOException e) {
+                throw new UncheckedIOException("Could not store the electorate data", e);
+            }
+            return;
+        }
+        ElectorateData electorateData = electionPreparationAlgorithms.genElectorateData(electionSet);
+        secretVoterData = electorateData.getD();
+        finalizationCodes = secretVoterData.stream().map(SecretVoterData::getF).collect(Collectors.toList());
+        randomPoints = encodePoints(electorateData.getP());
+        allowedSelections = electorateData.getK();
 
         bulletinBoardService.publishPublicCredentials(j, electorateData.getD_hat());
     }
 
+    /**
+     * Stores the points of the voters already encoded as the messages of the oblivious transfer, so that the
+     * responses to the voters' queries read them without any conversion.
+     */
+    private EncodedPointTable encodePoints(List<List<Point>> upper_bold_p) {
+        EncodedPointTable table = EncodedPointTable.allocateDirect(upper_bold_p.size(),
+                electionSet.getCandidates().size(), publicParameters.getUpper_l_m());
+        IntStream.range(0, upper_bold_p.size()).parallel().forEach(i -> table.put(i, upper_bold_p.get(i)));
+        return table;
+    }
+
+    /**
+     * Generates the electorate data chunk by chunk, writing the secret voter data, the finalization codes and the
+     * points to disk as they are generated. Only the public voter data, published on the board, and the allowed
+     * selections are kept in memory: the rest is read back from the memory-mapped files when needed.
+     * <p>
+     * The files are temporary files that only the owner of the process may access. The secret voter data is deleted
+     * once the code sheets have been printed, the other files when the virtual machine exits.
+     * </p>
+     */
+    private void generateElectorateDataToDisk() throws IOException {
+        int upper_n_upper_e = electionSet.getVoters().size();
+        int n = electionSet.getCandidates().size();
+        List<Point> publicVoterData = new ArrayList<>(upper_n_upper_e);
+        allowedSelections = new ArrayList<>(upper_n_upper_e);
+        secretVoterDataFile = SecretFiles.createTempFile(electorateDataDirectory,
+                String.format("authority-%d-secret-voter-data-", j), ".rec");
+        Path finalizationCodesFile = SecretFiles.createTempFile(electorateDataDirectory,
+                String.format("authority-%d-finalization-codes-", j), ".rec");
+        Path pointsFile = SecretFiles.createTempFile(electorateDataDirectory,
+                String.format("authority-%d-points-", j), ".rec");
+        try (RecordFile<SecretVoterData> secretVoterDataRecords = RecordFile.create(secretVoterDataFile,
+                SecretVoterDataCodec.forPublicParameters(publicParameters, n));
+             RecordFile<byte[]> finalizationCodeRecords = RecordFile.create(finalizationCodesFile,
+                     new ByteArrayCodec(publicParameters.getUpper_l_f()));
+             FileChannel pointsChannel = FileChannel.open(pointsFile, StandardOpenOption.READ,
+                     StandardOpenOption.WRITE)) {
+            EncodedPointTable points = EncodedPointTable.map(pointsChannel, upper_n_upper_e, n,
+                    publicParameters.getUpper_l_m());
+            for (int from = 0; from < upper_n_upper_e; from += ELECTORATE_CHUNK_SIZE) {
+                ElectorateData chunk = electionPreparationAlgorithms.genElectorateData(electionSet, from,
+                        Math.min(upper_n_upper_e, from + ELECTORATE_CHUNK_SIZE));
+                secretVoterDataRecords.write(from, chunk.getD());
+                finalizationCodeRecords.write(from,
+                        chunk.getD().stream().map(SecretVoterData::getF).collect(Collectors.toList()));
+                for (int i = 0; i < chunk.getP().size(); i++) {
+                    points.put(from + i, chunk.getP().get(i));
+                }
+                publicVoterData.addAll(chunk.getD_hat());
+                allowedSelections.addAll(chunk.getK());
+            }
+            secretVoterData = secretVoterDataRecords.map(upper_n_upper_e);
+            finalizationCodes = finalizationCodeRecords.map(upper_n_upper_e);
+            randomPoints = points;
+        }
+
+        bulletinBoardService.publishPublicCredentials(j, publicVoterData);
+    }
+
     @Override
     public List<SecretVoterData> getPrivateCredentials() {
-        Preconditions.checkState(electorateData != null,
-                "The electorate data should have been generated first");
-        return electorateData.getD();
+        Preconditions.checkState(secretVoterData != null,
+                "The electorate data should have been generated first, and not discarded yet");
+        return secretVoterData;
+    }
+
+    @Override
+    public List<SecretVoterData> getPrivateCredentials(int from, int to) {
+        Preconditions.checkState(secretVoterData != null,
+                "The electorate data should have been generated first, and not discarded yet");
+        return secretVoterData.subList(from, to);
+    }
+
+    @Override
+    public void discardPrivateCredentials() {
+        secretVoterData = null;
+        if (secretVoterDataFile != null) {
+            try {
+                Files.deleteIfExists(secretVoterDataFile);
+            } catch (IOException e) {
+                log.warn("Could not delete the secret voter data file " + secretVoterDataFile, e);
+            }
+            secretVoterDataFile = null;
+        }
     }
 
     @Override
     public void buildPublicCredentials() {
         List<List<Point>> publicCredentialsParts = bulletinBoardService.getPublicCredentialsParts();
         publicCredentials = electionPreparationAlgorithms.getPublicCredentials(publicCredentialsParts);
+
+        Preconditions.checkState(systemPublicKey != null,
+                "The public key needs to have been built beforehand");
+        responsePrecomputationService = new ResponsePrecomputationService(voteCastingAuthorityAlgorithms,
+                precomputationCapacity, precomputationThreads, precomputationSpillDirectory);
+        responsePrecomputationService.start(systemPublicKey, electionSet.getBold_n(), randomPoints);
+    }
+
+    /**
+     * Configures the precomputation of the oblivious transfer responses, which starts once the public credentials
+     * have been built.
+     *
+     * @param capacity       the maximum number of precomputed responses held in memory
+     * @param threads        the number of background threads used for the precomputation
+     * @param spillDirectory the directory where to spill the responses exceeding the capacity, or null to pause the
+     *                       precomputation until some of the stored responses have been used
+     */
+    public void setPrecomputation(int capacity, int threads, Path spillDirectory) {
+        Preconditions.checkState(responsePrecomputationService == null,
+                "The precomputation has already started");
+        this.precomputationCapacity = capacity;
+        this.precomputationThreads = threads;
+        this.precomputationSpillDirectory = spillDirectory;
+    }
+
+    /**
+     * Stores the electorate data on disk as it gets generated, for electorates too large to be held in memory. The
+     * copy of the ballot box made before the mixing is stored there as well.
+     *
+     * @param directory the directory where to write the temporary files holding the secret voter data, the
+     *                  finalization codes, the points of the authority and the copy of the ballot box
+     */
+    public void setElectorateDataDirectory(Path directory) {
+        Preconditions.checkState(finalizationCodes == null,
+                "The electorate data has already been generated");
+        this.electorateDataDirectory = directory;
+    }
+
+    /**
+     * Switches the mixing to external memory, for ballot boxes that do not fit in the heap.
+     *
+     * @param externalMixingAuthorityAlgorithms the external-memory mixing algorithms
+     */
+    public void setExternalMixing(ExternalMixingAuthorityAlgorithms externalMixingAuthorityAlgorithms) {
+        this.externalMixingAuthorityAlgorithms = externalMixingAuthorityAlgorithms;
+    }
+
+    /**
+     * Shares the verification of the shuffle proofs with the other authorities using the same service, rather than
+     * checking all of them again in each authority.
+     *
+     * @param shuffleProofVerificationService the service verifying the shuffle proofs
+     * @param independentCheck                true to check the shuffle proofs in this authority anyway
+     */
+    public void setShuffleProofVerification(ShuffleProofVerificationService shuffleProofVerificationService,
+                                            boolean independentCheck) {
+        this.shuffleProofVerificationService = shuffleProofVerificationService;
+        this.independentShuffleProofCheck = independentCheck;
+    }
+
+    /**
+     * Runs the authority's own background work, such as the checks of the other authorities' shuffle proofs, on the
+     * given executor rather than on the common pool.
+     *
+     * @param executor the executor dedicated to this authority
+     */
+    public void setExecutor(Executor executor) {
+        this.executor = executor;
     }
 
     @Override
@@ -151,9 +346,14 @@ public class DefaultAuthority implements AuthorityService {
         ballotVerificationTimes.add(stopwatch.elapsed(TimeUnit.MILLISECONDS));
 
         stopwatch.reset().start();
+        PrecomputedObliviousTransferResponse precomputedResponse = responsePrecomputationService.take(voterIndex);
+        if (precomputedResponse == null) {
+            precomputedResponse = voteCastingAuthorityAlgorithms.precomputeResponse(systemPublicKey,
+                    electionSet.getBold_n(), randomPoints, voterIndex);
+        }
         ObliviousTransferResponseAndRand responseAndRand =
-                voteCastingAuthorityAlgorithms.genResponse(voterIndex, ballotAndQuery.getBold_a(), systemPublicKey,
-                        electionSet.getBold_n(), electorateData.getK(), electorateData.getP());
+                voteCastingAuthorityAlgorithms.genResponse(voterIndex, ballotAndQuery.getBold_a(),
+                        allowedSelections, precomputedResponse);
         ballotEntries.add(new BallotEntry(voterIndex, ballotAndQuery, responseAndRand.getBold_r()));
         ObliviousTransferResponse beta = responseAndRand.getBeta();
         stopwatch.stop();
@@ -181,7 +381,9 @@ public class DefaultAuthority implements AuthorityService {
         confirmationEntries.add(new ConfirmationEntry(voterIndex, confirmation));
 
         stopwatch.reset().start();
-        FinalizationCodePart finalization = voteConfirmationAuthorityAlgorithms.getFinalization(voterIndex, electorateData.getP(), ballotEntries);
+        byte[] upper_f_i = finalizationCodes.get(voterIndex);
+        FinalizationCodePart finalization =
+                voteConfirmationAuthorityAlgorithms.getFinalization(voterIndex, upper_f_i, ballotEntries);
         stopwatch.stop();
         finalizationComputationTimes.add(stopwatch.elapsed(TimeUnit.MILLISECONDS));
 
@@ -191,22 +393,61 @@ public class DefaultAuthority implements AuthorityService {
     @Override
     public void startMixing() {
         log.info("Authority " + j + " started mixing");
+        if (responsePrecomputationService != null) {
+            perfLog.info(String.format("Authority %d : %d precomputed responses used, %d computed on-line", j,
+                    responsePrecomputationService.getHits(), responsePrecomputationService.getMisses()));
+            responsePrecomputationService.stop();
+        }
         List<Encryption> encryptions = mixingAuthorityAlgorithms.getEncryptions(ballotEntries, confirmationEntries);
+        startShuffleProofChecks(encryptions);
         mixAndPublish(encryptions);
     }
 
     @Override
     public void mixAgain() {
+        startShuffleProofChecks(mixingAuthorityAlgorithms.getEncryptions(ballotEntries, confirmationEntries));
+        // the previous shuffle is published before its proof, so that the shuffles can overlap with the proofs
+        List<Encryption> previousShuffle = bulletinBoardService.getShuffleAsync(j - 1).join();
         log.info("Authority " + j + " performing additional shuffle");
-        List<Encryption> previousShuffle = bulletinBoardService.getPreviousShuffle(j - 1);
         mixAndPublish(previousShuffle);
     }
 
-    private void mixAndPublish(List<Encryption> encryptions) {
+    private void mixAndPublish(List<Encryption> bold_e) {
+        if (externalMixingAuthorityAlgorithms != null) {
+            mixAndPublishExternally(bold_e);
+            return;
+        }
+        int width = ElementCodec.forGroup(publicParameters.getEncryptionGroup()).length();
+        if (electorateDataDirectory == null ||
+                bold_e instanceof EncryptionVector && ((EncryptionVector) bold_e).getWidth() == width) {
+            shuffleAndPublish(EncryptionVector.copyOf(bold_e, width));
+            return;
+        }
+        // the copy is mapped to a file rather than allocated in direct memory, which is capped by MaxDirectMemorySize
+        Path encryptionsFile = null;
+        try {
+            encryptionsFile = SecretFiles.createTempFile(electorateDataDirectory,
+                    String.format("authority-%d-encryptions-", j), ".bin");
+            shuffleAndPublish(EncryptionVector.generate(encryptionsFile, bold_e.size(), width, bold_e::get));
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not copy the encryptions to a file", e);
+        } finally {
+            if (encryptionsFile != null) {
+                try {
+                    Files.deleteIfExists(encryptionsFile);
+                } catch (IOException e) {
+                    log.warn("Could not delete the copy of the encryptions " + encryptionsFile, e);
+                }
+            }
+        }
+    }
+
+    private void shuffleAndPublish(EncryptionVector encryptions) {
         Stopwatch shuffleWatch = Stopwatch.createStarted();
         Shuffle shuffle = mixingAuthorityAlgorithms.genShuffle(encryptions, systemPublicKey);
         shuffleWatch.stop();
         perfLog.info(String.format("Authority %d : shuffled in %dms", j, shuffleWatch.elapsed(TimeUnit.MILLISECONDS)));
+        bulletinBoardService.publishShuffle(j, shuffle.getBold_e_prime());
         Stopwatch shuffleProofWatch = Stopwatch.createStarted();
         ShuffleProof shuffleProof = mixingAuthorityAlgorithms.genShuffleProof(encryptions,
                 shuffle.getBold_e_prime(), shuffle.getBold_r_prime(), shuffle.getPsy(), systemPublicKey);
@@ -214,7 +455,24 @@ public class DefaultAuthority implements AuthorityService {
         perfLog.info(String.format("Authority %d : generated shuffle proof in %dms", j,
                 shuffleProofWatch.elapsed(TimeUnit.MILLISECONDS)));
 
-        bulletinBoardService.publishShuffleAndProof(j, shuffle.getBold_e_prime(), shuffleProof);
+        bulletinBoardService.publishShuffleProof(j, shuffleProof);
+    }
+
+    private void mixAndPublishExternally(List<Encryption> encryptions) {
+        Stopwatch shuffleWatch = Stopwatch.createStarted();
+        Shuffle shuffle = externalMixingAuthorityAlgorithms.genShuffle(encryptions, systemPublicKey);
+        shuffleWatch.stop();
+        perfLog.info(String.format("Authority %d : shuffled in external memory in %dms", j,
+                shuffleWatch.elapsed(TimeUnit.MILLISECONDS)));
+        bulletinBoardService.publishShuffle(j, shuffle.getBold_e_prime());
+        Stopwatch shuffleProofWatch = Stopwatch.createStarted();
+        ShuffleProof shuffleProof = externalMixingAuthorityAlgorithms.genShuffleProof(encryptions,
+                shuffle.getBold_e_prime(), shuffle.getBold_r_prime(), shuffle.getPsy(), systemPublicKey);
+        shuffleProofWatch.stop();
+        perfLog.info(String.format("Authority %d : generated shuffle proof in external memory in %dms", j,
+                shuffleProofWatch.elapsed(TimeUnit.MILLISECONDS)));
+
+        bulletinBoardService.publishShuffleProof(j, shuffleProof);
     }
 
     @Override
@@ -223,10 +481,9 @@ public class DefaultAuthority implements AuthorityService {
         ShufflesAndProofs shufflesAndProofs = bulletinBoardService.getShufflesAndProofs();
         List<Encryption> encryptions = mixingAuthorityAlgorithms.getEncryptions(ballotEntries, confirmationEntries);
 
-        List<ShuffleProof> shuffleProofs = shufflesAndProofs.getShuffleProofs();
         List<List<Encryption>> shuffles = shufflesAndProofs.getShuffles();
         Stopwatch checkShuffleWatch = Stopwatch.createStarted();
-        if (!decryptionAuthorityAlgorithms.checkShuffleProofs(shuffleProofs, encryptions, shuffles, systemPublicKey, j)) {
+        if (!checkShuffleProofs(encryptions)) {
             throw new InvalidShuffleProofRuntimeException("At least one shuffle proof was invalid");
         }
         checkShuffleWatch.stop();
@@ -234,23 +491,58 @@ public class DefaultAuthority implements AuthorityService {
                 checkShuffleWatch.elapsed(TimeUnit.MILLISECONDS)));
 
         BigInteger secretKey = myPrivateKey.getPrivateKey();
+        BigInteger publicKey = myPublicKey.getPublicKey();
         List<Encryption> finalShuffle = shuffles.get(publicParameters.getS() - 1);
         Stopwatch decryptionWatch = Stopwatch.createStarted();
-        List<BigInteger> partialDecryptions = decryptionAuthorityAlgorithms
-                .getPartialDecryptions(finalShuffle, secretKey);
+        // the chunks are published as they get decrypted, so that the tallying may start before the proof is ready
+        PartialDecryptionsAndProof partialDecryptionsAndProof = decryptionAuthorityAlgorithms
+                .genPartialDecryptionsAndProof(secretKey, publicKey, finalShuffle, DECRYPTION_CHUNK_SIZE,
+                        (chunk, offset) -> bulletinBoardService.publishPartialDecryptions(j, offset, chunk));
         decryptionWatch.stop();
-        perfLog.info(String.format("Authority %d : decrypted in %dms", j,
+        perfLog.info(String.format("Authority %d : decrypted with decryption proof in %dms", j,
                 decryptionWatch.elapsed(TimeUnit.MILLISECONDS)));
 
-        BigInteger publicKey = myPublicKey.getPublicKey();
-        Stopwatch decryptionProofWatch = Stopwatch.createStarted();
-        DecryptionProof decryptionProof = decryptionAuthorityAlgorithms
-                .genDecryptionProof(secretKey, publicKey, finalShuffle, partialDecryptions);
-        decryptionProofWatch.stop();
-        perfLog.info(String.format("Authority %d : decryption proof in %dms", j,
-                decryptionProofWatch.elapsed(TimeUnit.MILLISECONDS)));
-
-        bulletinBoardService.publishPartialDecryptionAndProof(j, partialDecryptions, decryptionProof);
+        bulletinBoardService.publishPartialDecryptionAndProof(j, partialDecryptionsAndProof.getBold_b_prime(),
+                partialDecryptionsAndProof.getPi());
+    }
+
+    /**
+     * Starts checking the shuffle proofs of the other authorities: each check runs as soon as the shuffles and the
+     * proof it relates to have been published, or right away if they already are, so that the verifications overlap
+     * with the rest of the mixing.
+     *
+     * @return a future completing with true if all the proofs of the other authorities are valid, false otherwise
+     */
+    private CompletableFuture<Boolean> startShuffleProofChecks(List<Encryption> encryptions) {
+        if (shuffleProofVerificationService != null && !independentShuffleProofCheck) {
+            return shuffleProofVerificationService.verifyOthers(encryptions, systemPublicKey, j);
+        }
+        List<CompletableFuture<Boolean>> checks = IntStream.range(0, publicParameters.getS()).filter(i -> i != j)
+                .mapToObj(i -> shuffleProofChecks.computeIfAbsent(i, k -> checkShuffleProof(i, encryptions)))
+                .collect(Collectors.toList());
+        return CompletableFuture.allOf(checks.toArray(new CompletableFuture<?>[0]))
+                .thenApply(ignored -> checks.stream().allMatch(CompletableFuture::join));
+    }
+
+    private boolean checkShuffleProofs(List<Encryption> encryptions) {
+        try {
+            return startShuffleProofChecks(encryptions).join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw e;
+        }
+    }
+
+    private CompletableFuture<Boolean> checkShuffleProof(int i, List<Encryption> encryptions) {
+        CompletableFuture<List<Encryption>> bold_e = i == 0 ?
+                CompletableFuture.completedFuture(encryptions) : bulletinBoardService.getShuffleAsync(i - 1);
+        CompletableFuture<List<Encryption>> bold_e_prime = bulletinBoardService.getShuffleAsync(i);
+        CompletableFuture<ShuffleProof> pi = bulletinBoardService.getShuffleProofAsync(i);
+        return CompletableFuture.allOf(bold_e, bold_e_prime, pi).thenApplyAsync(ignored ->
+                decryptionAuthorityAlgorithms.checkShuffleProof(pi.join(), bold_e.join(), bold_e_prime.join(),
+                        systemPublicKey), executor);
     }
 
     public LongSummaryStatistics getBallotVerificationStats() {
@@ -27,12 +27,12 @@ import ch.ge.ve.protopoc.service.model.polynomial.Point;
 import com.google.common.base.Preconditions;
 
 import java.math.BigInteger;
-import java.util.ArrayList;
-import java.util.Comparator;
-import java.util.List;
-import java.util.Map;
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.stream.Collectors;
 import java.util.stream.IntStream;
 
@@ -40,21 +40,58 @@ import java.util.stream.IntStream;
  * Default implementation of the {@link BulletinBoardService}
  */
 public class DefaultBulletinBoard implements BulletinBoardService {
+    private static final int DEFAULT_QUEUE_CAPACITY = 1_000;
     private final List<AuthorityService> authorities = new ArrayList<>();
+    private final List<AuthorityExecutor> authorityExecutors = new ArrayList<>();
+    private final List<BulletinBoardListener> listeners = new CopyOnWriteArrayList<>();
     private final ConcurrentMap<Integer, EncryptionPublicKey> publicKeyParts = new ConcurrentHashMap<>();
     private final ConcurrentMap<Integer, List<Point>> publicCredentialsParts = new ConcurrentHashMap<>();
     private final ConcurrentMap<Integer, List<Encryption>> shuffles = new ConcurrentHashMap<>();
     private final ConcurrentMap<Integer, ShuffleProof> shuffleProofs = new ConcurrentHashMap<>();
+    private final ConcurrentMap<Integer, CompletableFuture<List<Encryption>>> publishedShuffles =
+            new ConcurrentHashMap<>();
+    private final ConcurrentMap<Integer, CompletableFuture<ShuffleProof>> publishedShuffleProofs =
+            new ConcurrentHashMap<>();
+    private final ConcurrentMap<Integer, Boolean> shuffleProofVerifications = new ConcurrentHashMap<>();
     private final ConcurrentMap<Integer, List<BigInteger>> partialDecryptions = new ConcurrentHashMap<>();
     private final ConcurrentMap<Integer, DecryptionProof> decryptionProofs = new ConcurrentHashMap<>();
+    private final ConcurrentMap<Integer, Integer> streamedPartialDecryptionCounts = new ConcurrentHashMap<>();
     private PublicParameters publicParameters;
     private ElectionSet electionSet;
     private List<Long> tally;
 
     public void setAuthorities(List<AuthorityService> authorities) {
+        setAuthorities(authorities, Runtime.getRuntime().availableProcessors(), DEFAULT_QUEUE_CAPACITY);
+    }
+
+    /**
+     * Sets the authorities, each of which gets a dedicated {@link AuthorityExecutor} for the requests dispatched to it
+     * by the bulletin board.
+     *
+     * @param authorities         the authorities
+     * @param threadsPerAuthority the number of threads handling the requests of each authority
+     * @param queueCapacity       the maximum number of requests waiting for a thread, per authority
+     */
+    public void setAuthorities(List<AuthorityService> authorities, int threadsPerAuthority, int queueCapacity) {
         Preconditions.checkState(this.authorities.isEmpty(),
                 "The authorities may not change once they have been set");
         this.authorities.addAll(authorities);
+        for (int j = 0; j < authorities.size(); j++) {
+            authorityExecutors.add(new AuthorityExecutor(j, threadsPerAuthority, queueCapacity));
+        }
+    }
+
+    public List<AuthorityExecutor> getAuthorityExecutors() {
+        return Collections.unmodifiableList(authorityExecutors);
+    }
+
+    public void shutdown() {
+        authorityExecutors.forEach(AuthorityExecutor::shutdown);
+    }
+
+    @Override
+    public void addListener(BulletinBoardListener listener) {
+        listeners.add(listener);
     }
 
     @Override
@@ -131,11 +168,7 @@ public class DefaultBulletinBoard implements BulletinBoardService {
         Preconditions.checkState(authorities.size() == publicParameters.getS(),
                 "The number of authorities should match the public parameters");
 
-        List<ObliviousTransferResponse> responses = new ArrayList<>();
-
-        return authorities.parallelStream()
-                .map(authority -> authority.handleBallot(voterIndex, ballotAndQuery))
-                .collect(Collectors.toList());
+        return joinAll(publishBallotAsync(voterIndex, ballotAndQuery));
     }
 
     @Override
@@ -146,23 +179,119 @@ public class DefaultBulletinBoard implements BulletinBoardService {
         Preconditions.checkState(authorities.size() == publicParameters.getS(),
                 "The number of authorities should match the public parameters");
 
-        List<FinalizationCodePart> finalizationCodeParts = authorities.parallelStream()
-                .map(authority -> authority.handleConfirmation(voterIndex, confirmation))
+        return joinAll(publishConfirmationAsync(voterIndex, confirmation));
+    }
+
+    @Override
+    public List<CompletableFuture<ObliviousTransferResponse>> publishBallotAsync(Integer voterIndex,
+                                                                               BallotAndQuery ballotAndQuery) {
+        Preconditions.checkState(publicParameters != null,
+                "The public parameters need to have been defined first");
+        Preconditions.checkState(authorities.size() == publicParameters.getS(),
+                "The number of authorities should match the public parameters");
+
+        return IntStream.range(0, authorities.size())
+                .mapToObj(j -> authorities.get(j).handleBallotAsync(voterIndex, ballotAndQuery,
+                        authorityExecutors.get(j)))
                 .collect(Collectors.toList());
+    }
+
+    @Override
+    public List<CompletableFuture<FinalizationCodePart>> publishConfirmationAsync(Integer voterIndex,
+                                                                                Confirmation confirmation) {
+        Preconditions.checkState(publicParameters != null,
+                "The public parameters need to have been defined first");
+        Preconditions.checkState(authorities.size() == publicParameters.getS(),
+                "The number of authorities should match the public parameters");
+
+        return IntStream.range(0, authorities.size())
+                .mapToObj(j -> authorities.get(j).handleConfirmationAsync(voterIndex, confirmation,
+                        authorityExecutors.get(j)))
+                .collect(Collectors.toList());
+    }
 
-        return finalizationCodeParts;
+    /**
+     * Waits for all the authorities' responses.
+     *
+     * @param futures the futures of the responses, in authority order
+     * @param <T>     the type of the authorities' responses
+     * @return the responses, in authority order
+     */
+    private <T> List<T> joinAll(List<CompletableFuture<T>> futures) {
+        List<T> responses = new ArrayList<>();
+        for (CompletableFuture<T> future : futures) {
+            try {
+                responses.add(future.join());
+            } catch (CompletionException e) {
+                if (e.getCause() instanceof RuntimeException) {
+                    throw (RuntimeException) e.getCause();
+                }
+                throw e;
+            }
+        }
+        return responses;
     }
 
     @Override
-    public void publishShuffleAndProof(int j, List<Encryption> shuffle, ShuffleProof proof) {
+    public void publishShuffle(int j, List<Encryption> shuffle) {
         Preconditions.checkElementIndex(j, publicParameters.getS(),
                 "j needs to be within bounds");
         Preconditions.checkArgument(shuffles.size() == j,
                 "Shuffle j can only be inserted after the previous shuffles");
-        Preconditions.checkArgument(shuffleProofs.size() == j,
-                "Shuffle proof j can only be inserted after the previous shuffle proof");
         shuffles.put(j, shuffle);
+        shufflePublished(j, shuffle);
+    }
+
+    @Override
+    public void publishShuffleProof(int j, ShuffleProof proof) {
+        Preconditions.checkElementIndex(j, publicParameters.getS(),
+                "j needs to be within bounds");
+        Preconditions.checkArgument(shuffles.containsKey(j),
+                "Shuffle proof j can only be inserted after shuffle j");
+        Preconditions.checkArgument(!shuffleProofs.containsKey(j),
+                "Shuffle proofs may not be updated");
         shuffleProofs.put(j, proof);
+        shuffleProofPublished(j, proof);
+    }
+
+    /**
+     * Completes the futures returned by {@link #getShuffleAsync(int)}. Subclasses storing the shuffles themselves call
+     * it once the shuffle can be read back.
+     *
+     * @param j       the index of the authority
+     * @param shuffle the j-th shuffle, as it can be read from the board
+     */
+    protected void shufflePublished(int j, List<Encryption> shuffle) {
+        publishedFuture(publishedShuffles, j).complete(shuffle);
+    }
+
+    /**
+     * Completes the futures returned by {@link #getShuffleProofAsync(int)}, see {@link #shufflePublished(int, List)}.
+     *
+     * @param j     the index of the authority
+     * @param proof the proof of the j-th shuffle, as it can be read from the board
+     */
+    protected void shuffleProofPublished(int j, ShuffleProof proof) {
+        publishedFuture(publishedShuffleProofs, j).complete(proof);
+    }
+
+    @Override
+    public CompletableFuture<List<Encryption>> getShuffleAsync(int j) {
+        Preconditions.checkElementIndex(j, publicParameters.getS(),
+                "j needs to be within bounds");
+        return publishedFuture(publishedShuffles, j);
+    }
+
+    @Override
+    public CompletableFuture<ShuffleProof> getShuffleProofAsync(int j) {
+        Preconditions.checkElementIndex(j, publicParameters.getS(),
+                "j needs to be within bounds");
+        return publishedFuture(publishedShuffleProofs, j);
+    }
+
+    private static <T> CompletableFuture<T> publishedFuture(ConcurrentMap<Integer, CompletableFuture<T>> futures,
+                                                            int j) {
+        return futures.computeIfAbsent(j, k -> new CompletableFuture<>());
     }
 
     @Override
@@ -191,14 +320,27 @@ public class DefaultBulletinBoard implements BulletinBoardService {
         return new ShufflesAndProofs(shuffleList, shuffleProofList);
     }
 
+    @Override
+    public void publishShuffleProofVerification(int j, boolean valid) {
+        Preconditions.checkElementIndex(j, publicParameters.getS(),
+                "j needs to be within bounds");
+        Preconditions.checkArgument(shuffleProofs.containsKey(j),
+                "Only a published shuffle proof can be verified");
+        shuffleProofVerifications.merge(j, valid, Boolean::logicalAnd);
+    }
+
+    @Override
+    public Boolean getShuffleProofVerification(int j) {
+        Preconditions.checkElementIndex(j, publicParameters.getS(),
+                "j needs to be within bounds");
+        return shuffleProofVerifications.get(j);
+    }
+
     @Override
     public void publishPartialDecryptionAndProof(int j, List<BigInteger> partialDecryption, DecryptionProof proof) {
         Preconditions.checkElementIndex(j, publicParameters.getS(),
                 "j needs to be within bounds");
-        Preconditions.checkState(shuffles.size() == publicParameters.getS(),
-                "The decryptions may only start when all the shuffles have been published");
-        Preconditions.checkState(shuffleProofs.size() == publicParameters.getS(),
-                "The decryptions may only start when all the shuffles proofs have been published");
+        checkDecryptionsMayStart();
         Preconditions.checkArgument(!partialDecryptions.containsKey(j),
                 "Partial decryptions may not be updated");
         Preconditions.checkArgument(!decryptionProofs.containsKey(j),
@@ -207,6 +349,38 @@ public class DefaultBulletinBoard implements BulletinBoardService {
         decryptionProofs.put(j, proof);
     }
 
+    @Override
+    public void publishPartialDecryptions(int j, int offset, List<BigInteger> partialDecryptions) {
+        Preconditions.checkElementIndex(j, publicParameters.getS(),
+                "j needs to be within bounds");
+        int finalShuffleSize = checkDecryptionsMayStart();
+        Preconditions.checkArgument(offset >= 0, "The offset may not be negative");
+        Preconditions.checkArgument((long) offset + partialDecryptions.size() <= finalShuffleSize,
+                "The chunk of partial decryptions may not go beyond the end of the final shuffle");
+        // only the number of partial decryptions streamed so far is kept, the chunks are handed over to the listeners
+        streamedPartialDecryptionCounts.compute(j, (k, count) -> {
+            int streamed = count == null ? 0 : count;
+            Preconditions.checkArgument(offset == streamed,
+                    "The chunks of partial decryptions must be published in order");
+            return streamed + partialDecryptions.size();
+        });
+        listeners.forEach(listener -> listener.onPartialDecryptionsPublished(j, offset, partialDecryptions));
+    }
+
+    /**
+     * Checks that all the shuffles and their proofs have been published, so that the decryptions may start.
+     * Subclasses storing the shuffles themselves check their own storage.
+     *
+     * @return the number of encryptions in the final shuffle
+     */
+    protected int checkDecryptionsMayStart() {
+        Preconditions.checkState(shuffles.size() == publicParameters.getS(),
+                "The decryptions may only start when all the shuffles have been published");
+        Preconditions.checkState(shuffleProofs.size() == publicParameters.getS(),
+                "The decryptions may only start when all the shuffles proofs have been published");
+        return shuffles.get(publicParameters.getS() - 1).size();
+    }
+
     @Override
     public TallyData getTallyData() {
         Preconditions.checkState(partialDecryptions.size() == publicParameters.getS(),
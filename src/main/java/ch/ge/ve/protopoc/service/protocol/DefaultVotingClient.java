@@ -32,7 +32,9 @@ import com.google.common.base.Stopwatch;
 
 import java.math.BigInteger;
 import java.util.List;
-import java.util.concurrent.TimeUnit;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
 import java.util.stream.Collectors;
 
 /**
@@ -43,6 +45,7 @@ public class DefaultVotingClient implements VotingClientService {
     private final KeyEstablishmentAlgorithms keyEstablishmentAlgorithms;
     private final VoteCastingClientAlgorithms voteCastingClientAlgorithms;
     private final VoteConfirmationClientAlgorithms voteConfirmationClientAlgorithms;
+    private final Executor clientExecutor;
     Stats stats = new Stats();
     private PublicParameters publicParameters;
     private ElectionSet electionSet;
@@ -50,11 +53,26 @@ public class DefaultVotingClient implements VotingClientService {
     private List<BigInteger> randomizations;
     private List<Integer> voterSelectionCounts;
     private List<List<Point>> pointMatrix;
+    private CompletableFuture<EncryptionPublicKey> systemPublicKey;
+    private CompletableFuture<PrecomputedBallot> precomputedBallot;
 
     public DefaultVotingClient(BulletinBoardService bulletinBoardService,
                                KeyEstablishmentAlgorithms keyEstablishmentAlgorithms,
                                VoteCastingClientAlgorithms voteCastingClientAlgorithms,
                                VoteConfirmationClientAlgorithms voteConfirmationClientAlgorithms) {
+        this(bulletinBoardService, keyEstablishmentAlgorithms, voteCastingClientAlgorithms,
+                voteConfirmationClientAlgorithms, ForkJoinPool.commonPool());
+    }
+
+    /**
+     * @param clientExecutor the executor running the client side computations of the asynchronous methods
+     */
+    public DefaultVotingClient(BulletinBoardService bulletinBoardService,
+                               KeyEstablishmentAlgorithms keyEstablishmentAlgorithms,
+                               VoteCastingClientAlgorithms voteCastingClientAlgorithms,
+                               VoteConfirmationClientAlgorithms voteConfirmationClientAlgorithms,
+                               Executor clientExecutor) {
+        this.clientExecutor = clientExecutor;
         this.bulletinBoardService = bulletinBoardService;
         this.keyEstablishmentAlgorithms = keyEstablishmentAlgorithms;
         this.voteCastingClientAlgorithms = voteCastingClientAlgorithms;
@@ -72,69 +90,120 @@ public class DefaultVotingClient implements VotingClientService {
                 .map(e -> electionSet.isEligible(voter, e) ? e.getNumberOfSelections() : 0)
                 .collect(Collectors.toList());
 
+        // the system key and the selection-independent part of the ballot are computed while the voter is choosing
+        systemPublicKey = CompletableFuture.supplyAsync(
+                () -> keyEstablishmentAlgorithms.getPublicKey(bulletinBoardService.getPublicKeyParts()),
+                clientExecutor);
+        int k = voterSelectionCounts.stream().mapToInt(Integer::intValue).sum();
+        precomputedBallot = k > 0 ? systemPublicKey.thenApplyAsync(
+                pk -> voteCastingClientAlgorithms.precomputeBallot(k, pk), clientExecutor) : null;
+
         return new VotingPageData(voterSelectionCounts, electionSet.getBold_n());
     }
 
     @Override
     public List<String> sumbitVote(String identificationCredentials, List<Integer> selections) throws VoteCastingException {
+        try {
+            return submitVoteAsync(identificationCredentials, selections).join();
+        } catch (CompletionException e) {
+            throw unwrap(e, VoteCastingException.class, VoteCastingException::new);
+        }
+    }
+
+    @Override
+    public CompletableFuture<List<String>> submitVoteAsync(String identificationCredentials, List<Integer> selections) {
         Preconditions.checkState(publicParameters != null,
                 "The public parameters need to have been retrieved first");
         Preconditions.checkState(electionSet != null,
                 "The electionSet needs to have been retrieved first");
+        Preconditions.checkState(systemPublicKey != null,
+                "The vote session needs to have been started first");
 
-        Stopwatch stopwatch = Stopwatch.createStarted();
-        List<EncryptionPublicKey> publicKeyParts = bulletinBoardService.getPublicKeyParts();
-        EncryptionPublicKey systemPublicKey = keyEstablishmentAlgorithms.getPublicKey(publicKeyParts);
-
-        BallotQueryAndRand ballotQueryAndRand = computeBallot(identificationCredentials, selections, systemPublicKey);
-        randomizations = ballotQueryAndRand.getBold_r();
-        stopwatch.stop();
-        stats.voteEncodingTime = stopwatch.elapsed(TimeUnit.MILLISECONDS);
-
-        List<ObliviousTransferResponse> obliviousTransferResponses = sentBallotAndQuery(ballotQueryAndRand.getAlpha());
-
-        stopwatch.reset().start();
-        pointMatrix = computePointMatrix(selections, obliviousTransferResponses);
-        List<String> returnCodes = voteCastingClientAlgorithms.getReturnCodes(selections, pointMatrix);
-        stopwatch.stop();
-        stats.verificationCodesComputationTime = stopwatch.elapsed(TimeUnit.MILLISECONDS);
+        Stopwatch encodingStopwatch = Stopwatch.createStarted();
+        // the randomness of a precomputed ballot may only be used once; if its precomputation failed, the ballot is
+        // computed from scratch
+        CompletableFuture<PrecomputedBallot> precomputation = precomputedBallot != null ?
+                precomputedBallot.exceptionally(e -> null) : CompletableFuture.completedFuture(null);
+        precomputedBallot = null;
 
-        return returnCodes;
+        return systemPublicKey.thenCombineAsync(precomputation, (pk, precomputed) -> {
+            BallotQueryAndRand ballotQueryAndRand = precomputed != null &&
+                    precomputed.getBold_r().size() == selections.size() ?
+                    computeBallot(identificationCredentials, selections, pk, precomputed) :
+                    computeBallot(identificationCredentials, selections, pk);
+            randomizations = ballotQueryAndRand.getBold_r();
+            encodingStopwatch.stop();
+            stats.voteEncodingTime = encodingStopwatch.elapsed(TimeUnit.MILLISECONDS);
+            return ballotQueryAndRand.getAlpha();
+        }, clientExecutor).thenCompose(ballotAndQuery -> {
+            AtomicLong decodingTime = new AtomicLong();
+            // each authority's response is decoded as soon as it arrives
+            List<CompletableFuture<List<Point>>> pointsFutures =
+                    bulletinBoardService.publishBallotAsync(voterIndex, ballotAndQuery).stream()
+                            .map(responseFuture -> responseFuture.thenApplyAsync(beta -> {
+                                Stopwatch stopwatch = Stopwatch.createStarted();
+                                List<Point> points = computePoints(selections, beta);
+                                decodingTime.addAndGet(stopwatch.elapsed(TimeUnit.MILLISECONDS));
+                                return points;
+                            }, clientExecutor))
+                            .collect(Collectors.toList());
+            return CompletableFuture.allOf(pointsFutures.toArray(new CompletableFuture<?>[0]))
+                    .thenApplyAsync(ignored -> {
+                        Stopwatch stopwatch = Stopwatch.createStarted();
+                        pointMatrix = pointsFutures.stream().map(CompletableFuture::join).collect(Collectors.toList());
+                        List<String> returnCodes = voteCastingClientAlgorithms.getReturnCodes(selections, pointMatrix);
+                        stopwatch.stop();
+                        stats.verificationCodesComputationTime =
+                                decodingTime.get() + stopwatch.elapsed(TimeUnit.MILLISECONDS);
+                        return returnCodes;
+                    }, clientExecutor);
+        });
     }
 
-    private BallotQueryAndRand computeBallot(String identificationCredentials, List<Integer> selections, EncryptionPublicKey systemPublicKey) throws VoteCastingException {
+    private BallotQueryAndRand computeBallot(String identificationCredentials, List<Integer> selections, EncryptionPublicKey systemPublicKey) {
         BallotQueryAndRand ballotQueryAndRand;
         try {
             ballotQueryAndRand =
                     voteCastingClientAlgorithms.genBallot(identificationCredentials, selections, systemPublicKey);
         } catch (IncompatibleParametersRuntimeException e) {
-            throw new VoteCastingException(e);
+            throw new CompletionException(new VoteCastingException(e));
         }
         return ballotQueryAndRand;
     }
 
-    private List<ObliviousTransferResponse> sentBallotAndQuery(BallotAndQuery ballotAndQuery) throws VoteCastingException {
-        List<ObliviousTransferResponse> obliviousTransferResponses;
+    private BallotQueryAndRand computeBallot(String identificationCredentials, List<Integer> selections,
+                                             EncryptionPublicKey systemPublicKey, PrecomputedBallot precomputedBallot) {
+        BallotQueryAndRand ballotQueryAndRand;
         try {
-            obliviousTransferResponses = bulletinBoardService.publishBallot(voterIndex, ballotAndQuery);
-        } catch (IncorrectBallotOrQueryException e) {
-            throw new VoteCastingException(e);
+            ballotQueryAndRand = voteCastingClientAlgorithms.genBallot(identificationCredentials, selections,
+                    systemPublicKey, precomputedBallot);
+        } catch (IncompatibleParametersRuntimeException e) {
+            throw new CompletionException(new VoteCastingException(e));
         }
-        return obliviousTransferResponses;
+        return ballotQueryAndRand;
     }
 
-    private List<List<Point>> computePointMatrix(List<Integer> selections, List<ObliviousTransferResponse> obliviousTransferResponses) throws VoteCastingException {
-        List<List<Point>> pointMatrix;
+    private List<Point> computePoints(List<Integer> selections, ObliviousTransferResponse obliviousTransferResponse) {
+        List<Point> points;
         try {
-            pointMatrix = voteCastingClientAlgorithms.getPointMatrix(obliviousTransferResponses, voterSelectionCounts, selections, randomizations);
+            points = voteCastingClientAlgorithms.getPoints(obliviousTransferResponse, voterSelectionCounts, selections, randomizations);
         } catch (InvalidObliviousTransferResponseException e) {
-            throw new VoteCastingException(e);
+            throw new CompletionException(new VoteCastingException(e));
         }
-        return pointMatrix;
+        return points;
     }
 
     @Override
     public String confirmVote(String confirmationCredentials) throws VoteConfirmationException {
+        try {
+            return confirmVoteAsync(confirmationCredentials).join();
+        } catch (CompletionException e) {
+            throw unwrap(e, VoteConfirmationException.class, VoteConfirmationException::new);
+        }
+    }
+
+    @Override
+    public CompletableFuture<String> confirmVoteAsync(String confirmationCredentials) {
         Preconditions.checkState(publicParameters != null,
                 "The public parameters need to have been retrieved first");
         Preconditions.checkState(electionSet != null,
@@ -142,25 +211,55 @@ public class DefaultVotingClient implements VotingClientService {
         Preconditions.checkState(pointMatrix != null,
                 "The point matrix needs to have been computed first");
 
-        Stopwatch stopwatch = Stopwatch.createStarted();
-        Confirmation confirmation = voteConfirmationClientAlgorithms.genConfirmation(
-                confirmationCredentials, pointMatrix, voterSelectionCounts);
-        stopwatch.stop();
-        stats.confirmationEncodingTime = stopwatch.elapsed(TimeUnit.MILLISECONDS);
+        return CompletableFuture.supplyAsync(() -> {
+            Stopwatch stopwatch = Stopwatch.createStarted();
+            Confirmation confirmation = voteConfirmationClientAlgorithms.genConfirmation(
+                    confirmationCredentials, pointMatrix, voterSelectionCounts);
+            stopwatch.stop();
+            stats.confirmationEncodingTime = stopwatch.elapsed(TimeUnit.MILLISECONDS);
+            return confirmation;
+        }, clientExecutor).thenCompose(confirmation -> {
+            List<CompletableFuture<FinalizationCodePart>> partFutures =
+                    bulletinBoardService.publishConfirmationAsync(voterIndex, confirmation);
+            return CompletableFuture.allOf(partFutures.toArray(new CompletableFuture<?>[0]))
+                    .handleAsync((ignored, throwable) -> {
+                        if (throwable != null) {
+                            Throwable cause = throwable instanceof CompletionException ? throwable.getCause() : throwable;
+                            if (cause instanceof IncorrectConfirmationRuntimeException) {
+                                throw new CompletionException(
+                                        new VoteConfirmationException((IncorrectConfirmationRuntimeException) cause));
+                            }
+                            throw new CompletionException(cause);
+                        }
+                        List<FinalizationCodePart> finalizationCodeParts =
+                                partFutures.stream().map(CompletableFuture::join).collect(Collectors.toList());
+                        Stopwatch stopwatch = Stopwatch.createStarted();
+                        String finalizationCode =
+                                voteConfirmationClientAlgorithms.getFinalizationCode(finalizationCodeParts);
+                        stopwatch.stop();
+                        stats.finalizationCodeComputationTime = stopwatch.elapsed(TimeUnit.MILLISECONDS);
+                        return finalizationCode;
+                    }, clientExecutor);
+        });
+    }
 
-        List<FinalizationCodePart> finalizationCodeParts;
-        try {
-            finalizationCodeParts = bulletinBoardService.publishConfirmation(voterIndex, confirmation);
-        } catch (IncorrectConfirmationRuntimeException e) {
-            throw new VoteConfirmationException(e);
+    /**
+     * Extracts the checked exception of the expected type from a failed future, so that the blocking methods throw
+     * the same exceptions as before.
+     */
+    private static <E extends Exception> E unwrap(CompletionException e, Class<E> exceptionClass,
+                                                  Function<Exception, E> wrapper) {
+        Throwable cause = e.getCause();
+        if (exceptionClass.isInstance(cause)) {
+            return exceptionClass.cast(cause);
         }
-
-        stopwatch.reset().start();
-        String finalizationCode = voteConfirmationClientAlgorithms.getFinalizationCode(finalizationCodeParts);
-        stopwatch.stop();
-        stats.finalizationCodeComputationTime = stopwatch.elapsed(TimeUnit.MILLISECONDS);
-
-        return finalizationCode;
+        if (cause instanceof RuntimeException) {
+            throw (RuntimeException) cause;
+        }
+        if (cause instanceof Error) {
+            throw (Error) cause;
+        }
+        return wrapper.apply((Exception) cause);
     }
 
     public Stats getStats() {
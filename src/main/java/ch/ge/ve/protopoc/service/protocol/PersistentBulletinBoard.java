@@ -0,0 +1,443 @@
+/*-------------------------------------------------------------------------------------------------
+ - #%L                                                                                            -
+ - chvote-protocol-poc                                                                            -
+ - %%                                                                                             -
+ - Copyright (C) 2016 - 2017 République et Canton de Genève                                       -
+ - %%                                                                                             -
+ - This program is free software: you can redistribute it and/or modify                           -
+ - it under the terms of the GNU Affero General Public License as published by                    -
+ - the Free Software Foundation, either version 3 of the License, or                              -
+ - (at your option) any later version.                                                            -
+ -                                                                                                -
+ - This program is distributed in the hope that it will be useful,                                -
+ - but WITHOUT ANY WARRANTY; without even the implied warranty of                                 -
+ - MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the                                   -
+ - GNU General Public License for more details.                                                   -
+ -                                                                                                -
+ - You should have received a copy of the GNU Affero General Public License                       -
+ - along with this program. If not, see <http://www.gnu.org/licenses/>.                           -
+ - #L%                                                                                            -
+ -------------------------------------------------------------------------------------------------*/
+
+package ch.ge.ve.protopoc.service.protocol;
+
+import ch.ge.ve.protopoc.service.codec.*;
+import ch.ge.ve.protopoc.service.model.*;
+import ch.ge.ve.protopoc.service.model.polynomial.Point;
+import ch.ge.ve.protopoc.service.persistence.SegmentLog;
+import com.google.common.base.Preconditions;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.math.BigInteger;
+import java.nio.ByteBuffer;
+import java.nio.file.Path;
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+/**
+ * Implementation of the {@link BulletinBoardService} persisting the published data in an append-only
+ * {@link SegmentLog}.
+ * <p>
+ * The entries are encoded with the codecs of the {@link ch.ge.ve.protopoc.service.codec} package. The board keeps an in-memory index of the
+ * log entries by phase and authority, which is rebuilt from the log when the board is re-opened. Large lists
+ * (shuffles, public credentials, partial decryptions) are read back as views decoding their elements from the mapped
+ * log on access, rather than being deserialized into the heap.
+ * </p>
+ * <p>
+ * Ballots and confirmations are journaled before being dispatched to the authorities, and the authorities' responses
+ * are only released once the journal entry has been forced to disk. The log is forced to disk in batches, so that
+ * many ballots share the cost of each sync. The shuffles, decryptions and tally are forced to disk before their
+ * publication returns.
+ * </p>
+ * <p>
+ * The public parameters and the election set are not persisted: they need to be published again, identically,
+ * after a restart. The ballots and confirmations recovered from the log are replayed to the authorities, in log order,
+ * by {@link #replayBallotsAndConfirmations()}, once the authorities have been set again.
+ * </p>
+ */
+public class PersistentBulletinBoard extends DefaultBulletinBoard {
+    private static final Logger log = LoggerFactory.getLogger(PersistentBulletinBoard.class);
+    private final SegmentLog segmentLog;
+    private final Map<Phase, ConcurrentMap<Integer, SegmentLog.Entry>> index = new EnumMap<>(Phase.class);
+    private ElementCodec elementCodec;
+    private ListCodec<BigInteger> elementsCodec;
+    private ListCodec<Point> pointsCodec;
+    private ListCodec<Encryption> encryptionsCodec;
+    private ShuffleProofCodec shuffleProofCodec;
+    private DecryptionProofCodec decryptionProofCodec;
+
+    /**
+     * Opens the board stored in the given directory, creating it if needed.
+     *
+     * @param directory          the directory holding the log
+     * @param segmentSize        the size of the log segments, in bytes
+     * @param syncIntervalMillis the interval between two batches of forcing the log to disk
+     * @throws IOException if the log could not be opened
+     */
+    public PersistentBulletinBoard(Path directory, int segmentSize, long syncIntervalMillis) throws IOException {
+        for (Phase phase : Phase.values()) {
+            index.put(phase, new ConcurrentHashMap<>());
+        }
+        segmentLog = new SegmentLog(directory, segmentSize, syncIntervalMillis);
+        for (SegmentLog.Entry entry : segmentLog.getRecoveredEntries()) {
+            index.get(Phase.fromCode(entry.getType())).put(entry.getKey(), entry);
+        }
+    }
+
+    @Override
+    public void publishPublicParameters(PublicParameters publicParameters) {
+        super.publishPublicParameters(publicParameters);
+        BigInteger p = publicParameters.getEncryptionGroup().getP();
+        BigInteger p_hat = publicParameters.getIdentificationGroup().getP_hat();
+        elementCodec = ElementCodec.forModulus(p.max(p_hat));
+        elementsCodec = new ListCodec<>(elementCodec);
+        pointsCodec = new ListCodec<>(new PointCodec(elementCodec));
+        encryptionsCodec = new ListCodec<>(new EncryptionCodec(elementCodec));
+        shuffleProofCodec = new ShuffleProofCodec(elementCodec);
+        decryptionProofCodec = new DecryptionProofCodec(elementCodec);
+        int width = elementCodec.length();
+        byte[] fingerprint = p.toByteArray();
+
+        SegmentLog.Entry recovered = index.get(Phase.PUBLIC_PARAMETERS).get(0);
+        if (recovered != null) {
+            ByteBuffer buffer = segmentLog.read(recovered);
+            Preconditions.checkArgument(buffer.getInt() == width && buffer.equals(ByteBuffer.wrap(fingerprint)),
+                    "The public parameters do not match the ones of the persisted bulletin board");
+        } else {
+            append(Phase.PUBLIC_PARAMETERS, 0, 4 + fingerprint.length, buffer -> {
+                buffer.putInt(width);
+                buffer.put(fingerprint);
+            });
+        }
+    }
+
+    @Override
+    public void publishKeyPart(int j, EncryptionPublicKey publicKey) {
+        checkAuthorityIndex(j);
+        append(Phase.KEY_PART, j, publicKey.getPublicKey(), elementCodec);
+    }
+
+    @Override
+    public List<EncryptionPublicKey> getPublicKeyParts() {
+        EncryptionGroup encryptionGroup = checkedPublicParameters().getEncryptionGroup();
+        return getAll(Phase.KEY_PART, "There should be as many key parts as authorities...",
+                buffer -> new EncryptionPublicKey(elementCodec.decode(buffer), encryptionGroup));
+    }
+
+    @Override
+    public void publishPublicCredentials(int j, List<Point> publicCredentials) {
+        checkAuthorityIndex(j);
+        append(Phase.PUBLIC_CREDENTIALS, j, publicCredentials, pointsCodec);
+    }
+
+    @Override
+    public List<List<Point>> getPublicCredentialsParts() {
+        return getAll(Phase.PUBLIC_CREDENTIALS, "There should be as many key parts as authorities...",
+                pointsCodec::decode);
+    }
+
+    /**
+     * Dispatches the ballots and confirmations recovered from the log to the authorities, in log order, each one
+     * once the previous one has been handled. The ballots and confirmations that were rejected before the restart
+     * are rejected again, and only logged.
+     *
+     * @return the number of ballots and confirmations replayed
+     */
+    public int replayBallotsAndConfirmations() {
+        checkedPublicParameters();
+        int replayed = 0;
+        for (SegmentLog.Entry entry : segmentLog.getRecoveredEntries()) {
+            Phase phase = Phase.fromCode(entry.getType());
+            List<? extends CompletableFuture<?>> responses;
+            if (phase == Phase.BALLOT) {
+                responses = super.publishBallotAsync(entry.getKey(), readBallotAndQuery(entry));
+            } else if (phase == Phase.CONFIRMATION) {
+                responses = super.publishConfirmationAsync(entry.getKey(), readConfirmation(entry));
+            } else {
+                continue;
+            }
+            for (CompletableFuture<?> response : responses) {
+                try {
+                    response.join();
+                } catch (CompletionException e) {
+                    log.warn(String.format("Replayed %s of voter %d was rejected", phase, entry.getKey()),
+                            e.getCause());
+                }
+            }
+            replayed++;
+        }
+        return replayed;
+    }
+
+    @Override
+    public List<CompletableFuture<ObliviousTransferResponse>> publishBallotAsync(Integer voterIndex,
+                                                                               BallotAndQuery ballotAndQuery) {
+        checkedPublicParameters();
+        NonInteractiveZKP pi = ballotAndQuery.getPi();
+        int length = 2 * elementCodec.length() + elementsCodec.length(ballotAndQuery.getBold_a())
+                + elementsCodec.length(pi.getT()) + elementsCodec.length(pi.getS());
+        SegmentLog.Entry entry = append(Phase.BALLOT, voterIndex, length, buffer -> {
+            elementCodec.encode(ballotAndQuery.getX_hat(), buffer);
+            elementsCodec.encode(ballotAndQuery.getBold_a(), buffer);
+            elementCodec.encode(ballotAndQuery.getB(), buffer);
+            elementsCodec.encode(pi.getT(), buffer);
+            elementsCodec.encode(pi.getS(), buffer);
+        });
+        return whenSynced(entry, super.publishBallotAsync(voterIndex, ballotAndQuery));
+    }
+
+    @Override
+    public List<CompletableFuture<FinalizationCodePart>> publishConfirmationAsync(Integer voterIndex,
+                                                                                Confirmation confirmation) {
+        checkedPublicParameters();
+        NonInteractiveZKP pi = confirmation.getPi();
+        int length = elementCodec.length() + elementsCodec.length(pi.getT()) + elementsCodec.length(pi.getS());
+        SegmentLog.Entry entry = append(Phase.CONFIRMATION, voterIndex, length, buffer -> {
+            elementCodec.encode(confirmation.getY_hat(), buffer);
+            elementsCodec.encode(pi.getT(), buffer);
+            elementsCodec.encode(pi.getS(), buffer);
+        });
+        return whenSynced(entry, super.publishConfirmationAsync(voterIndex, confirmation));
+    }
+
+    @Override
+    public void publishShuffle(int j, List<Encryption> shuffle) {
+        checkAuthorityIndex(j);
+        Preconditions.checkArgument(index.get(Phase.SHUFFLE).size() == j,
+                "Shuffle j can only be inserted after the previous shuffles");
+        append(Phase.SHUFFLE, j, shuffle, encryptionsCodec);
+        segmentLog.sync();
+        shufflePublished(j, readEncryptions(index.get(Phase.SHUFFLE).get(j)));
+    }
+
+    @Override
+    public void publishShuffleProof(int j, ShuffleProof proof) {
+        checkAuthorityIndex(j);
+        Preconditions.checkArgument(index.get(Phase.SHUFFLE).containsKey(j),
+                "Shuffle proof j can only be inserted after shuffle j");
+        Preconditions.checkArgument(!index.get(Phase.SHUFFLE_PROOF).containsKey(j),
+                "Shuffle proofs may not be updated");
+        append(Phase.SHUFFLE_PROOF, j, proof, shuffleProofCodec);
+        segmentLog.sync();
+        shuffleProofPublished(j, proof);
+    }
+
+    @Override
+    public CompletableFuture<List<Encryption>> getShuffleAsync(int j) {
+        checkAuthorityIndex(j);
+        SegmentLog.Entry entry = index.get(Phase.SHUFFLE).get(j);
+        // the shuffles recovered from the log were not published through this instance
+        return entry != null ? CompletableFuture.completedFuture(readEncryptions(entry)) : super.getShuffleAsync(j);
+    }
+
+    @Override
+    public CompletableFuture<ShuffleProof> getShuffleProofAsync(int j) {
+        checkAuthorityIndex(j);
+        SegmentLog.Entry entry = index.get(Phase.SHUFFLE_PROOF).get(j);
+        return entry != null ? CompletableFuture.completedFuture(readShuffleProof(entry)) :
+                super.getShuffleProofAsync(j);
+    }
+
+    @Override
+    public List<Encryption> getPreviousShuffle(int j) {
+        checkAuthorityIndex(j);
+        SegmentLog.Entry entry = index.get(Phase.SHUFFLE).get(j);
+        Preconditions.checkArgument(entry != null, "Can't retrieve a shuffle that hasn't been inserted");
+        return readEncryptions(entry);
+    }
+
+    @Override
+    public ShufflesAndProofs getShufflesAndProofs() {
+        int s = checkedPublicParameters().getS();
+        Preconditions.checkState(index.get(Phase.SHUFFLE).size() == s,
+                "This may only happen during decryption time, once all the shuffles have been entered");
+        Preconditions.checkState(index.get(Phase.SHUFFLE_PROOF).size() == s,
+                "This may only happen during decryption time, once all the shuffles have been entered");
+
+        List<List<Encryption>> shuffleList = IntStream.range(0, s)
+                .mapToObj(j -> readEncryptions(index.get(Phase.SHUFFLE).get(j))).collect(Collectors.toList());
+        List<ShuffleProof> shuffleProofList = IntStream.range(0, s)
+                .mapToObj(j -> readShuffleProof(index.get(Phase.SHUFFLE_PROOF).get(j))).collect(Collectors.toList());
+        return new ShufflesAndProofs(shuffleList, shuffleProofList);
+    }
+
+    @Override
+    public synchronized void publishShuffleProofVerification(int j, boolean valid) {
+        checkAuthorityIndex(j);
+        Preconditions.checkArgument(index.get(Phase.SHUFFLE_PROOF).containsKey(j),
+                "Only a published shuffle proof can be verified");
+        boolean recorded = valid && !Boolean.FALSE.equals(getShuffleProofVerification(j));
+        append(Phase.SHUFFLE_PROOF_VERIFICATION, j, 1, buffer -> buffer.put((byte) (recorded ? 1 : 0)));
+        segmentLog.sync();
+    }
+
+    @Override
+    public Boolean getShuffleProofVerification(int j) {
+        checkAuthorityIndex(j);
+        SegmentLog.Entry entry = index.get(Phase.SHUFFLE_PROOF_VERIFICATION).get(j);
+        return entry == null ? null : segmentLog.read(entry).get() != 0;
+    }
+
+    @Override
+    public void publishPartialDecryptionAndProof(int j, List<BigInteger> partialDecryption, DecryptionProof proof) {
+        checkAuthorityIndex(j);
+        checkDecryptionsMayStart();
+        Preconditions.checkArgument(!index.get(Phase.PARTIAL_DECRYPTION).containsKey(j),
+                "Partial decryptions may not be updated");
+        Preconditions.checkArgument(!index.get(Phase.DECRYPTION_PROOF).containsKey(j),
+                "Partial decryptions proofs may not be updated");
+        append(Phase.PARTIAL_DECRYPTION, j, partialDecryption, elementsCodec);
+        append(Phase.DECRYPTION_PROOF, j, proof, decryptionProofCodec);
+        segmentLog.sync();
+    }
+
+    @Override
+    protected int checkDecryptionsMayStart() {
+        int s = checkedPublicParameters().getS();
+        Preconditions.checkState(index.get(Phase.SHUFFLE).size() == s,
+                "The decryptions may only start when all the shuffles have been published");
+        Preconditions.checkState(index.get(Phase.SHUFFLE_PROOF).size() == s,
+                "The decryptions may only start when all the shuffles proofs have been published");
+        return readEncryptions(index.get(Phase.SHUFFLE).get(s - 1)).size();
+    }
+
+    @Override
+    public TallyData getTallyData() {
+        int s = checkedPublicParameters().getS();
+        Preconditions.checkState(index.get(Phase.PARTIAL_DECRYPTION).size() == s,
+                "The tallying may only start when all the decryptions have been published");
+        Preconditions.checkState(index.get(Phase.DECRYPTION_PROOF).size() == s,
+                "The tallying may only start when all the decryption proofs have been published");
+
+        List<BigInteger> publicKeyShares = getPublicKeyParts().stream()
+                .map(EncryptionPublicKey::getPublicKey).collect(Collectors.toList());
+        List<Encryption> finalShuffle = readEncryptions(index.get(Phase.SHUFFLE).get(s - 1));
+        List<List<BigInteger>> partialDecryptionsList = IntStream.range(0, s)
+                .mapToObj(j -> read(index.get(Phase.PARTIAL_DECRYPTION).get(j), elementsCodec))
+                .collect(Collectors.toList());
+        List<DecryptionProof> decryptionProofList = IntStream.range(0, s)
+                .mapToObj(j -> read(index.get(Phase.DECRYPTION_PROOF).get(j), decryptionProofCodec))
+                .collect(Collectors.toList());
+
+        return new TallyData(publicKeyShares, finalShuffle, partialDecryptionsList, decryptionProofList);
+    }
+
+    @Override
+    public void publishTally(List<Long> tally) {
+        int s = checkedPublicParameters().getS();
+        Preconditions.checkState(index.get(Phase.PARTIAL_DECRYPTION).size() == s,
+                "The tallying may only start when all the decryptions have been published");
+        Preconditions.checkState(index.get(Phase.DECRYPTION_PROOF).size() == s,
+                "The tallying may only start when all the decryption proofs have been published");
+        append(Phase.TALLY, 0, 4 + tally.size() * 8, buffer -> {
+            buffer.putInt(tally.size());
+            tally.forEach(buffer::putLong);
+        });
+        segmentLog.sync();
+    }
+
+    @Override
+    public void shutdown() {
+        super.shutdown();
+        segmentLog.close();
+    }
+
+    private SegmentLog.Entry append(Phase phase, int key, int length, Consumer<ByteBuffer> writer) {
+        SegmentLog.Entry entry = segmentLog.append(phase.code, key, length, writer);
+        index.get(phase).put(key, entry);
+        return entry;
+    }
+
+    private <T> void append(Phase phase, int key, T value, Codec<T> codec) {
+        append(phase, key, codec.length(value), buffer -> codec.encode(value, buffer));
+    }
+
+    private <T> T read(SegmentLog.Entry entry, Codec<T> codec) {
+        return codec.decode(segmentLog.read(entry));
+    }
+
+    private <T> List<CompletableFuture<T>> whenSynced(SegmentLog.Entry entry, List<CompletableFuture<T>> futures) {
+        CompletableFuture<Void> synced = segmentLog.whenSynced(entry);
+        return futures.stream().map(future -> future.thenCombine(synced, (response, ignored) -> response))
+                .collect(Collectors.toList());
+    }
+
+    private <T> List<T> getAll(Phase phase, String message, Function<ByteBuffer, T> decoder) {
+        int s = checkedPublicParameters().getS();
+        Preconditions.checkState(index.get(phase).size() == s, message);
+        return IntStream.range(0, s).mapToObj(j -> decoder.apply(segmentLog.read(index.get(phase).get(j))))
+                .collect(Collectors.toList());
+    }
+
+    private List<Encryption> readEncryptions(SegmentLog.Entry entry) {
+        return read(entry, encryptionsCodec);
+    }
+
+    private ShuffleProof readShuffleProof(SegmentLog.Entry entry) {
+        return read(entry, shuffleProofCodec);
+    }
+
+    private BallotAndQuery readBallotAndQuery(SegmentLog.Entry entry) {
+        ByteBuffer buffer = segmentLog.read(entry);
+        BigInteger x_hat = elementCodec.decode(buffer);
+        List<BigInteger> bold_a = elementsCodec.decode(buffer);
+        BigInteger b = elementCodec.decode(buffer);
+        return new BallotAndQuery(x_hat, bold_a, b, readProof(buffer));
+    }
+
+    private Confirmation readConfirmation(SegmentLog.Entry entry) {
+        ByteBuffer buffer = segmentLog.read(entry);
+        BigInteger y_hat = elementCodec.decode(buffer);
+        return new Confirmation(y_hat, readProof(buffer));
+    }
+
+    private NonInteractiveZKP readProof(ByteBuffer buffer) {
+        List<BigInteger> t = elementsCodec.decode(buffer);
+        List<BigInteger> s = elementsCodec.decode(buffer);
+        return new NonInteractiveZKP(t, s);
+    }
+
+    private PublicParameters checkedPublicParameters() {
+        PublicParameters publicParameters = getPublicParameters();
+        Preconditions.checkState(publicParameters != null,
+                "The public parameters need to have been defined first");
+        return publicParameters;
+    }
+
+    private void checkAuthorityIndex(int j) {
+        Preconditions.checkElementIndex(j, checkedPublicParameters().getS(),
+                "The index j should be lower than the number of authorities");
+    }
+
+    /**
+     * The kinds of entries of the log
+     */
+    private enum Phase {
+        PUBLIC_PARAMETERS(1), KEY_PART(2), PUBLIC_CREDENTIALS(3), BALLOT(4), CONFIRMATION(5), SHUFFLE(6),
+        SHUFFLE_PROOF(7), PARTIAL_DECRYPTION(8), DECRYPTION_PROOF(9), TALLY(10), SHUFFLE_PROOF_VERIFICATION(11);
+
+        private final byte code;
+
+        Phase(int code) {
+            this.code = (byte) code;
+        }
+
+        static Phase fromCode(byte code) {
+            for (Phase phase : values()) {
+                if (phase.code == code) {
+                    return phase;
+                }
+            }
+            throw new IllegalArgumentException("Unknown entry type " + code);
+        }
+    }
+}
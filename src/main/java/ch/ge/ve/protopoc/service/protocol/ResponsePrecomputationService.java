@@ -0,0 +1,349 @@
+/*-------------------------------------------------------------------------------------------------
+ - #%L                                                                                            -
+ - chvote-protocol-poc                                                                            -
+ - %%                                                                                             -
+ - Copyright (C) 2016 - 2017 République et Canton de Genève                                       -
+ - %%                                                                                             -
+ - This program is free software: you can redistribute it and/or modify                           -
+ - it under the terms of the GNU Affero General Public License as published by                    -
+ - the Free Software Foundation, either version 3 of the License, or                              -
+ - (at your option) any later version.                                                            -
+ -                                                                                                -
+ - This program is distributed in the hope that it will be useful,                                -
+ - but WITHOUT ANY WARRANTY; without even the implied warranty of                                 -
+ - MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the                                   -
+ - GNU General Public License for more details.                                                   -
+ -                                                                                                -
+ - You should have received a copy of the GNU Affero General Public License                       -
+ - along with this program. If not, see <http://www.gnu.org/licenses/>.                           -
+ - #L%                                                                                            -
+ -------------------------------------------------------------------------------------------------*/
+
+package ch.ge.ve.protopoc.service.protocol;
+
+import ch.ge.ve.protopoc.service.algorithm.VoteCastingAuthorityAlgorithms;
+import ch.ge.ve.protopoc.service.model.EncodedPointTable;
+import ch.ge.ve.protopoc.service.model.EncryptionPublicKey;
+import ch.ge.ve.protopoc.service.model.PrecomputedObliviousTransferResponse;
+import ch.ge.ve.protopoc.service.support.SecretFiles;
+import com.google.common.base.Preconditions;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.*;
+import java.math.BigInteger;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Background service computing the ballot-independent part of the oblivious transfer responses of the voters, ahead
+ * of their ballots.
+ * <p>
+ * The precomputed responses are kept in memory up to a given capacity. Once the capacity is reached, they are spilled
+ * to a temporary file if a spill directory was given, otherwise the precomputation pauses until some of the stored
+ * responses have been used. Voters whose response is not available when they cast their ballot are served by
+ * computing the response on-line. The spill file holds the secret randomizations of the responses: only its owner may
+ * access it, each spilled response is wiped once handed out or discarded, its space being reused by the next ones,
+ * and the file is deleted when the service is stopped, or at the latest when the virtual machine exits.
+ * </p>
+ * <p>
+ * The precomputation runs in its own pool of low priority threads, so as not to compete with the voter-facing
+ * requests.
+ * </p>
+ */
+public class ResponsePrecomputationService {
+    private static final Logger log = LoggerFactory.getLogger(ResponsePrecomputationService.class);
+    private final VoteCastingAuthorityAlgorithms voteCastingAuthorityAlgorithms;
+    private final int capacity;
+    private final Path spillDirectory;
+    private final ForkJoinPool pool;
+    private final Map<Integer, PrecomputedObliviousTransferResponse> responses = new ConcurrentHashMap<>();
+    private final Map<Integer, SpilledResponse> spilledResponses = new ConcurrentHashMap<>();
+    // the offsets of the wiped records of the spill file, by length
+    private final NavigableMap<Integer, Deque<Long>> freeSpillRecords = new TreeMap<>();
+    private final Set<Integer> servedVoters = ConcurrentHashMap.newKeySet();
+    private final Semaphore freeSlots;
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private RandomAccessFile spillFile;
+    private Path spillPath;
+    private volatile boolean stopped = false;
+
+    /**
+     * @param voteCastingAuthorityAlgorithms the algorithms used to precompute the responses
+     * @param capacity                       the maximum number of precomputed responses held in memory
+     * @param threads                        the number of threads used for the precomputation
+     * @param spillDirectory                 the directory where to spill the responses exceeding the capacity, or
+     *                                       null if they should not be spilled
+     */
+    public ResponsePrecomputationService(VoteCastingAuthorityAlgorithms voteCastingAuthorityAlgorithms,
+                                         int capacity, int threads, Path spillDirectory) {
+        Preconditions.checkArgument(capacity > 0, "The capacity must be positive");
+        Preconditions.checkArgument(threads > 0, "At least one thread is needed");
+        this.voteCastingAuthorityAlgorithms = voteCastingAuthorityAlgorithms;
+        this.capacity = capacity;
+        this.spillDirectory = spillDirectory;
+        this.freeSlots = new Semaphore(capacity);
+        this.pool = new ForkJoinPool(threads, p -> {
+            ForkJoinWorkerThread thread = ForkJoinPool.defaultForkJoinWorkerThreadFactory.newThread(p);
+            thread.setDaemon(true);
+            thread.setPriority(Thread.MIN_PRIORITY);
+            return thread;
+        }, null, false);
+    }
+
+    /**
+     * Starts the precomputation of the responses for all voters, in voter index order.
+     *
+     * @param pk           the system public key
+     * @param bold_n       the vector of number of candidates per election
+     * @param upper_bold_p the table of encoded points per voter per candidate
+     */
+    public void start(EncryptionPublicKey pk, List<Integer> bold_n, EncodedPointTable upper_bold_p) {
+        if (spillDirectory != null) {
+            try {
+                spillPath = SecretFiles.createTempFile(spillDirectory, "ot-responses", ".spill");
+                spillFile = new RandomAccessFile(spillPath.toFile(), "rw");
+            } catch (IOException e) {
+                deleteSpillFile();
+                throw new UncheckedIOException("Could not create the spill file", e);
+            }
+        }
+        pool.execute(() -> {
+            for (int i = 0; i < upper_bold_p.getVoterCount() && !stopped; i++) {
+                if (servedVoters.contains(i)) {
+                    continue;
+                }
+                boolean inMemory = freeSlots.tryAcquire();
+                if (!inMemory && spillFile == null) {
+                    try {
+                        freeSlots.acquire();
+                        inMemory = true;
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                        return;
+                    }
+                }
+                PrecomputedObliviousTransferResponse response =
+                        voteCastingAuthorityAlgorithms.precomputeResponse(pk, bold_n, upper_bold_p, i);
+                if (inMemory) {
+                    responses.put(i, response);
+                } else {
+                    spill(i, response);
+                }
+                // The voter may have been served on-line while the response was being computed
+                if (servedVoters.contains(i)) {
+                    discard(i);
+                }
+            }
+            log.info(String.format("Precomputation completed: %d responses in memory, %d spilled",
+                    responses.size(), spilledResponses.size()));
+        });
+    }
+
+    /**
+     * Retrieves and removes the precomputed response of the given voter. A response is handed out at most once.
+     *
+     * @param i the voter index
+     * @return the precomputed response, or null if it is not available and needs to be computed on-line
+     */
+    public PrecomputedObliviousTransferResponse take(int i) {
+        servedVoters.add(i);
+        PrecomputedObliviousTransferResponse response = responses.remove(i);
+        if (response != null) {
+            freeSlots.release();
+        } else if (spilledResponses.containsKey(i)) {
+            response = takeSpilled(i);
+        }
+        (response != null ? hits : misses).incrementAndGet();
+        return response;
+    }
+
+    /**
+     * Stops the precomputation and releases the stored responses.
+     */
+    public void stop() {
+        pool.shutdownNow();
+        responses.clear();
+        spilledResponses.clear();
+        synchronized (this) {
+            stopped = true;
+        }
+        if (spillFile != null) {
+            try {
+                synchronized (this) {
+                    spillFile.close();
+                }
+            } catch (IOException e) {
+                log.warn("Could not close the spill file " + spillPath, e);
+            } finally {
+                deleteSpillFile();
+            }
+        }
+    }
+
+    public int getCapacity() {
+        return capacity;
+    }
+
+    public long getHits() {
+        return hits.get();
+    }
+
+    public long getMisses() {
+        return misses.get();
+    }
+
+    private void deleteSpillFile() {
+        if (spillPath != null) {
+            try {
+                Files.deleteIfExists(spillPath);
+            } catch (IOException e) {
+                log.warn("Could not delete the spill file " + spillPath, e);
+            }
+        }
+    }
+
+    private void discard(int i) {
+        if (responses.remove(i) != null) {
+            freeSlots.release();
+        }
+        synchronized (this) {
+            // removed under the lock, so that the file is not truncated while another spilled response is being read
+            SpilledResponse spilled = spilledResponses.remove(i);
+            if (spilled != null && !stopped) {
+                try {
+                    wipe(spilled);
+                } catch (IOException e) {
+                    throw new UncheckedIOException("Could not wipe spilled precomputed response", e);
+                }
+            }
+        }
+    }
+
+    private synchronized void spill(int i, PrecomputedObliviousTransferResponse response) {
+        if (stopped) {
+            return;
+        }
+        try {
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            try (DataOutputStream out = new DataOutputStream(bytes)) {
+                writeBigIntegers(out, response.getBold_r());
+                byte[][] bold_c = response.getBold_c();
+                out.writeInt(bold_c.length);
+                for (byte[] c : bold_c) {
+                    out.writeInt(c.length);
+                    out.write(c);
+                }
+                writeBigIntegers(out, response.getBold_d());
+            }
+            byte[] record = bytes.toByteArray();
+            long offset = allocate(record.length);
+            spillFile.seek(offset);
+            spillFile.write(record);
+            spilledResponses.put(i, new SpilledResponse(offset, record.length));
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not spill precomputed response", e);
+        }
+    }
+
+    private synchronized PrecomputedObliviousTransferResponse takeSpilled(int i) {
+        SpilledResponse spilled = spilledResponses.remove(i);
+        if (spilled == null || stopped) {
+            return null;
+        }
+        try {
+            spillFile.seek(spilled.offset);
+            List<BigInteger> bold_r = readBigIntegers(spillFile);
+            byte[][] bold_c = new byte[spillFile.readInt()][];
+            for (int v = 0; v < bold_c.length; v++) {
+                bold_c[v] = new byte[spillFile.readInt()];
+                spillFile.readFully(bold_c[v]);
+            }
+            List<BigInteger> bold_d = readBigIntegers(spillFile);
+            wipe(spilled);
+            return new PrecomputedObliviousTransferResponse(bold_r, bold_c, bold_d);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not read spilled precomputed response", e);
+        }
+    }
+
+    /**
+     * Finds the offset where to write a record of the given length: the smallest wiped record large enough, whose
+     * remainder stays available, or else the end of the file.
+     */
+    private long allocate(int length) throws IOException {
+        Map.Entry<Integer, Deque<Long>> free = freeSpillRecords.ceilingEntry(length);
+        if (free == null) {
+            return spillFile.length();
+        }
+        long offset = free.getValue().pop();
+        if (free.getValue().isEmpty()) {
+            freeSpillRecords.remove(free.getKey());
+        }
+        if (free.getKey() > length) {
+            release(offset + length, free.getKey() - length);
+        }
+        return offset;
+    }
+
+    /**
+     * Overwrites the spilled response, so that its secret randomizations do not linger on disk, and makes its space
+     * available to the next spilled responses.
+     */
+    private void wipe(SpilledResponse spilled) throws IOException {
+        spillFile.seek(spilled.offset);
+        spillFile.write(new byte[spilled.length]);
+        if (spilledResponses.isEmpty()) {
+            // nothing left in the file
+            freeSpillRecords.clear();
+            spillFile.setLength(0L);
+        } else {
+            release(spilled.offset, spilled.length);
+        }
+    }
+
+    private void release(long offset, int length) {
+        freeSpillRecords.computeIfAbsent(length, k -> new ArrayDeque<>()).push(offset);
+    }
+
+    private static void writeBigIntegers(DataOutput out, List<BigInteger> values) throws IOException {
+        out.writeInt(values.size());
+        for (BigInteger value : values) {
+            byte[] bytes = value.toByteArray();
+            out.writeInt(bytes.length);
+            out.write(bytes);
+        }
+    }
+
+    private static List<BigInteger> readBigIntegers(DataInput in) throws IOException {
+        int size = in.readInt();
+        List<BigInteger> values = new ArrayList<>(size);
+        for (int k = 0; k < size; k++) {
+            byte[] bytes = new byte[in.readInt()];
+            in.readFully(bytes);
+            values.add(new BigInteger(bytes));
+        }
+        return values;
+    }
+
+    private static final class SpilledResponse {
+        private final long offset;
+        private final int length;
+
+        private SpilledResponse(long offset, int length) {
+            this.offset = offset;
+            this.length = length;
+        }
+    }
+}
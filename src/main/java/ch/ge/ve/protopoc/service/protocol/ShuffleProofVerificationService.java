@@ -0,0 +1,145 @@
+/*-------------------------------------------------------------------------------------------------
+ - #%L                                                                                            -
+ - chvote-protocol-poc                                                                            -
+ - %%                                                                                             -
+ - Copyright (C) 2016 - 2017 République et Canton de Genève                                       -
+ - %%                                                                                             -
+ - This program is free software: you can redistribute it and/or modify                           -
+ - it under the terms of the GNU Affero General Public License as published by                    -
+ - the Free Software Foundation, either version 3 of the License, or                              -
+ - (at your option) any later version.                                                            -
+ -                                                                                                -
+ - This program is distributed in the hope that it will be useful,                                -
+ - but WITHOUT ANY WARRANTY; without even the implied warranty of                                 -
+ - MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the                                   -
+ - GNU General Public License for more details.                                                   -
+ -                                                                                                -
+ - You should have received a copy of the GNU Affero General Public License                       -
+ - along with this program. If not, see <http://www.gnu.org/licenses/>.                           -
+ - #L%                                                                                            -
+ -------------------------------------------------------------------------------------------------*/
+
+package ch.ge.ve.protopoc.service.protocol;
+
+import ch.ge.ve.protopoc.service.algorithm.DecryptionAuthorityAlgorithms;
+import ch.ge.ve.protopoc.service.model.Encryption;
+import ch.ge.ve.protopoc.service.model.EncryptionPublicKey;
+import ch.ge.ve.protopoc.service.model.ShuffleProof;
+import com.google.common.base.Preconditions;
+import com.google.common.base.Stopwatch;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.*;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+/**
+ * Service verifying the shuffle proofs published on the bulletin board once for all the authorities hosted together.
+ * <p>
+ * Each proof is checked at most once for a given input, as soon as the shuffles and the proof it relates to have
+ * been published, the different proofs being checked in parallel. The outcome of each check is recorded on the
+ * bulletin board. The first input, e_0, is derived by every authority from its own view of the ballot box, so that
+ * the first proof is checked again for an authority deriving a different e_0.
+ * </p>
+ */
+public class ShuffleProofVerificationService {
+    private static final Logger log = LoggerFactory.getLogger(ShuffleProofVerificationService.class);
+    private final Logger perfLog = LoggerFactory.getLogger("PerformanceStats");
+    private final BulletinBoardService bulletinBoardService;
+    private final DecryptionAuthorityAlgorithms decryptionAuthorityAlgorithms;
+    private final ForkJoinPool pool;
+    private final ConcurrentMap<Integer, Verification> verifications = new ConcurrentHashMap<>();
+
+    /**
+     * @param bulletinBoardService          the bulletin board holding the shuffles and their proofs
+     * @param decryptionAuthorityAlgorithms the algorithms used to check the proofs
+     * @param threads                       the number of threads used for the verifications
+     */
+    public ShuffleProofVerificationService(BulletinBoardService bulletinBoardService,
+                                           DecryptionAuthorityAlgorithms decryptionAuthorityAlgorithms,
+                                           int threads) {
+        Preconditions.checkArgument(threads > 0, "At least one thread is needed");
+        this.bulletinBoardService = bulletinBoardService;
+        this.decryptionAuthorityAlgorithms = decryptionAuthorityAlgorithms;
+        this.pool = new ForkJoinPool(threads, p -> {
+            ForkJoinWorkerThread thread = ForkJoinPool.defaultForkJoinWorkerThreadFactory.newThread(p);
+            thread.setDaemon(true);
+            return thread;
+        }, null, false);
+    }
+
+    /**
+     * @param i         the index of the shuffle proof
+     * @param e_0       the encryptions submitted to the first shuffle
+     * @param publicKey the system public key
+     * @return a future completing with the outcome of the verification of the i-th proof, once it has been published
+     */
+    public CompletableFuture<Boolean> verify(int i, List<Encryption> e_0, EncryptionPublicKey publicKey) {
+        return verifications.compute(i, (k, verification) ->
+                verification != null && verification.matches(i, e_0, publicKey) ?
+                        verification : new Verification(e_0, publicKey, check(i, e_0, publicKey))).result;
+    }
+
+    /**
+     * Checks the shuffle proofs as {@link DecryptionAuthorityAlgorithms#checkShuffleProofs(List, List, List,
+     * EncryptionPublicKey, int)} would, reusing the verifications already performed by this service.
+     *
+     * @param e_0       the encryptions submitted to the first shuffle
+     * @param publicKey the system public key
+     * @param j         the index of the requesting authority, whose proof is not checked
+     * @return a future completing with true if all the proofs of the other authorities are valid, false otherwise
+     */
+    public CompletableFuture<Boolean> verifyOthers(List<Encryption> e_0, EncryptionPublicKey publicKey, int j) {
+        int s = bulletinBoardService.getPublicParameters().getS();
+        Preconditions.checkElementIndex(j, s,
+                "The index of the authority should be valid with respect to the number of authorities");
+        List<CompletableFuture<Boolean>> results = IntStream.range(0, s).filter(i -> i != j)
+                .mapToObj(i -> verify(i, e_0, publicKey)).collect(Collectors.toList());
+        return CompletableFuture.allOf(results.toArray(new CompletableFuture<?>[0]))
+                .thenApply(ignored -> results.stream().allMatch(CompletableFuture::join));
+    }
+
+    public void shutdown() {
+        pool.shutdown();
+    }
+
+    private CompletableFuture<Boolean> check(int i, List<Encryption> e_0, EncryptionPublicKey publicKey) {
+        CompletableFuture<List<Encryption>> bold_e = i == 0 ?
+                CompletableFuture.completedFuture(e_0) : bulletinBoardService.getShuffleAsync(i - 1);
+        CompletableFuture<List<Encryption>> bold_e_prime = bulletinBoardService.getShuffleAsync(i);
+        CompletableFuture<ShuffleProof> pi = bulletinBoardService.getShuffleProofAsync(i);
+        return CompletableFuture.allOf(bold_e, bold_e_prime, pi).thenApplyAsync(ignored -> {
+            Stopwatch stopwatch = Stopwatch.createStarted();
+            boolean valid = decryptionAuthorityAlgorithms.checkShuffleProof(pi.join(), bold_e.join(),
+                    bold_e_prime.join(), publicKey);
+            stopwatch.stop();
+            perfLog.info(String.format("Verification service : checked shuffle proof %d in %dms", i,
+                    stopwatch.elapsed(TimeUnit.MILLISECONDS)));
+            if (!valid) {
+                log.error(String.format("Shuffle proof %d is invalid", i));
+            }
+            bulletinBoardService.publishShuffleProofVerification(i, valid);
+            return valid;
+        }, pool);
+    }
+
+    private static final class Verification {
+        private final List<Encryption> e_0;
+        private final EncryptionPublicKey publicKey;
+        private final CompletableFuture<Boolean> result;
+
+        private Verification(List<Encryption> e_0, EncryptionPublicKey publicKey, CompletableFuture<Boolean> result) {
+            this.e_0 = e_0;
+            this.publicKey = publicKey;
+            this.result = result;
+        }
+
+        private boolean matches(int i, List<Encryption> e_0, EncryptionPublicKey publicKey) {
+            // only the first proof depends on e_0, the other ones on the published shuffles
+            return Objects.equals(this.publicKey, publicKey) && (i > 0 || this.e_0 == e_0 || this.e_0.equals(e_0));
+        }
+    }
+}
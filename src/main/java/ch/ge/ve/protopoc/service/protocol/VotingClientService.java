@@ -26,6 +26,7 @@ import ch.ge.ve.protopoc.service.exception.VoteConfirmationException;
 import ch.ge.ve.protopoc.service.model.VotingPageData;
 
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
 
 /**
  * This interface defines the contract for the voting client
@@ -36,4 +37,24 @@ public interface VotingClientService {
     List<String> sumbitVote(String identificationCredentials, List<Integer> selections) throws VoteCastingException;
 
     String confirmVote(String confirmationCredentials) throws VoteConfirmationException;
+
+    /**
+     * Asynchronous variant of {@link #sumbitVote(String, List)}. The responses of the authorities are decoded as soon
+     * as they arrive.
+     *
+     * @param identificationCredentials the voter's identification credentials
+     * @param selections                the voter's selections
+     * @return a future of the verification codes, failing with a {@link VoteCastingException} if the vote could not
+     * be cast
+     */
+    CompletableFuture<List<String>> submitVoteAsync(String identificationCredentials, List<Integer> selections);
+
+    /**
+     * Asynchronous variant of {@link #confirmVote(String)}.
+     *
+     * @param confirmationCredentials the voter's confirmation credentials
+     * @return a future of the finalization code, failing with a {@link VoteConfirmationException} if the vote could
+     * not be confirmed
+     */
+    CompletableFuture<String> confirmVoteAsync(String confirmationCredentials);
 }
@@ -21,10 +21,13 @@
 
 package ch.ge.ve.protopoc.service.simulation;
 
+import ch.ge.ve.protopoc.service.algorithm.TallyAggregator;
 import ch.ge.ve.protopoc.service.algorithm.TallyingAuthoritiesAlgorithm;
 import ch.ge.ve.protopoc.service.exception.InvalidDecryptionProofException;
 import ch.ge.ve.protopoc.service.model.DecryptionProof;
+import ch.ge.ve.protopoc.service.model.ElectionSet;
 import ch.ge.ve.protopoc.service.model.Encryption;
+import ch.ge.ve.protopoc.service.model.Tally;
 import ch.ge.ve.protopoc.service.model.TallyData;
 import ch.ge.ve.protopoc.service.protocol.BulletinBoardService;
 import com.google.common.base.Stopwatch;
@@ -32,28 +35,46 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.math.BigInteger;
+import java.util.BitSet;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executor;
 import java.util.concurrent.TimeUnit;
-import java.util.stream.Collectors;
-import java.util.stream.IntStream;
 
 /**
  * This class simulates the actions of the election administration
  */
 public class ElectionAdministrationSimulator {
+    private static final Logger log = LoggerFactory.getLogger(ElectionAdministrationSimulator.class);
     private final Logger perfLog = LoggerFactory.getLogger("PerformanceStats");
-    private final int totalCandidateCount;
+    private final ElectionSet electionSet;
     private final BulletinBoardService bulletinBoardService;
     private final TallyingAuthoritiesAlgorithm tallyingAuthoritiesAlgorithm;
+    private StreamingTally streamingTally;
 
-    public ElectionAdministrationSimulator(int totalCandidateCount, BulletinBoardService bulletinBoardService,
+    public ElectionAdministrationSimulator(ElectionSet electionSet, BulletinBoardService bulletinBoardService,
                                            TallyingAuthoritiesAlgorithm tallyingAuthoritiesAlgorithm) {
-        this.totalCandidateCount = totalCandidateCount;
+        this.electionSet = electionSet;
         this.bulletinBoardService = bulletinBoardService;
         this.tallyingAuthoritiesAlgorithm = tallyingAuthoritiesAlgorithm;
     }
 
-    public List<Long> getTally() throws InvalidDecryptionProofException {
+    /**
+     * Starts counting the partial decryptions as the authorities publish them, see {@link StreamingTally}. This may
+     * only happen once all the shuffles have been published, and before the decryption starts.
+     *
+     * @param executor                     the executor counting the chunks of partial decryptions
+     * @param maxPendingPartialDecryptions the maximum number of partial decryptions held for an authority, beyond
+     *                                     which it is blocked until the other authorities catch up
+     */
+    public void startStreamingTally(Executor executor, int maxPendingPartialDecryptions) {
+        List<List<Encryption>> shuffles = bulletinBoardService.getShufflesAndProofs().getShuffles();
+        streamingTally = new StreamingTally(tallyingAuthoritiesAlgorithm, shuffles.get(shuffles.size() - 1),
+                electionSet.getElections(), shuffles.size(), executor, maxPendingPartialDecryptions);
+        bulletinBoardService.addListener(streamingTally);
+    }
+
+    public Tally getTally() throws InvalidDecryptionProofException {
         TallyData tallyData = bulletinBoardService.getTallyData();
 
         List<DecryptionProof> decryptionProofs = tallyData.getDecryptionProofs();
@@ -69,11 +90,19 @@ public class ElectionAdministrationSimulator {
         perfLog.info(String.format("Administration : checked decryption proofs in %dms",
                 decryptionProofCheckWatch.elapsed(TimeUnit.MILLISECONDS)));
 
+        if (streamingTally != null) {
+            // the partial decryptions counted as they were published must be the ones covered by the proofs
+            if (streamingTally.matches(partialDecryptions)) {
+                return streamingTally.getTally();
+            }
+            log.warn("The streamed partial decryptions do not match the published ones, counting them again");
+        }
         List<BigInteger> decryptions = tallyingAuthoritiesAlgorithm.getDecryptions(finalShuffle, partialDecryptions);
-        List<List<Boolean>> votes = tallyingAuthoritiesAlgorithm.getVotes(decryptions, totalCandidateCount);
+        Map<BitSet, Long> voteCounts = tallyingAuthoritiesAlgorithm.getVoteCounts(decryptions,
+                electionSet.getCandidates().size());
         // Additional verifications on the votes validity may be performed here.
-        return IntStream.range(0, totalCandidateCount)
-                .mapToLong(i -> votes.stream().filter(vote -> vote.get(i)).count())
-                .boxed().collect(Collectors.toList());
+        TallyAggregator tallyAggregator = new TallyAggregator(electionSet.getElections());
+        tallyAggregator.add(voteCounts);
+        return tallyAggregator.getTally();
     }
 }
@@ -25,7 +25,6 @@ import ch.ge.ve.protopoc.service.algorithm.VotingCardPreparationAlgorithms;
 import ch.ge.ve.protopoc.service.model.ElectionSet;
 import ch.ge.ve.protopoc.service.model.PublicParameters;
 import ch.ge.ve.protopoc.service.model.SecretVoterData;
-import ch.ge.ve.protopoc.service.model.VotingCard;
 import ch.ge.ve.protopoc.service.protocol.AuthorityService;
 import ch.ge.ve.protopoc.service.protocol.BulletinBoardService;
 import com.google.common.base.Preconditions;
@@ -37,6 +36,7 @@ import java.util.List;
  * Simulation class for the Printing Authority
  */
 public class PrintingAuthoritySimulator {
+    private static final int PRINTING_CHUNK_SIZE = 1_024;
     private final BulletinBoardService bulletinBoardService;
     private final List<AuthorityService> authorities = new ArrayList<>();
     private final List<VoterSimulator> voterSimulators = new ArrayList<>();
@@ -68,15 +68,17 @@ public class PrintingAuthoritySimulator {
                 "The number of voter simulators should be equal to " +
                         "the number of voters in the election set");
 
-        List<List<SecretVoterData>> voterDataMatrix = new ArrayList<>();
-        for (AuthorityService authority : authorities) {
-            voterDataMatrix.add(authority.getPrivateCredentials());
-        }
-
-        List<VotingCard> sheets = votingCardPreparationAlgorithms.getVotingCard(electionSet, voterDataMatrix);
+        int voterCount = electionSet.getVoters().size();
+        for (int from = 0; from < voterCount; from += PRINTING_CHUNK_SIZE) {
+            int to = Math.min(voterCount, from + PRINTING_CHUNK_SIZE);
+            List<List<SecretVoterData>> voterDataMatrix = new ArrayList<>();
+            for (AuthorityService authority : authorities) {
+                voterDataMatrix.add(authority.getPrivateCredentials(from, to));
+            }
 
-        for (int i = 0; i < sheets.size(); i++) {
-            voterSimulators.get(i).sendCodeSheet(sheets.get(i));
+            votingCardPreparationAlgorithms.generateVotingCards(electionSet, from, voterDataMatrix,
+                    sheet -> voterSimulators.get(sheet.getI()).sendCodeSheet(sheet));
         }
+        authorities.forEach(AuthorityService::discardPrivateCredentials);
     }
 }
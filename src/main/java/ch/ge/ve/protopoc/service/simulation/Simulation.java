@@ -26,10 +26,13 @@ import ch.ge.ve.protopoc.service.algorithm.*;
 import ch.ge.ve.protopoc.service.exception.InvalidDecryptionProofException;
 import ch.ge.ve.protopoc.service.exception.NotEnoughPrimesInGroupException;
 import ch.ge.ve.protopoc.service.model.*;
+import ch.ge.ve.protopoc.service.protocol.AuthorityExecutor;
 import ch.ge.ve.protopoc.service.protocol.AuthorityService;
 import ch.ge.ve.protopoc.service.protocol.DefaultAuthority;
 import ch.ge.ve.protopoc.service.protocol.DefaultBulletinBoard;
 import ch.ge.ve.protopoc.service.protocol.DefaultVotingClient;
+import ch.ge.ve.protopoc.service.protocol.PersistentBulletinBoard;
+import ch.ge.ve.protopoc.service.protocol.ShuffleProofVerificationService;
 import ch.ge.ve.protopoc.service.support.Conversion;
 import ch.ge.ve.protopoc.service.support.Hash;
 import ch.ge.ve.protopoc.service.support.RandomGenerator;
@@ -39,11 +42,18 @@ import com.google.common.base.Strings;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.math.BigInteger;
+import java.nio.file.Path;
+import java.nio.file.Paths;
 import java.security.NoSuchAlgorithmException;
 import java.security.NoSuchProviderException;
 import java.security.SecureRandom;
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ForkJoinPool;
 import java.util.concurrent.TimeUnit;
 import java.util.function.BinaryOperator;
 import java.util.function.Function;
@@ -61,14 +71,25 @@ import static java.math.BigInteger.ZERO;
  */
 public class Simulation {
     private static final Logger log = LoggerFactory.getLogger(Simulation.class);
+    private static final int BOARD_SEGMENT_SIZE = 64 * 1024 * 1024;
+    private static final long BOARD_SYNC_INTERVAL_MILLIS = 10L;
+    private static final int MIXING_CHUNK_SIZE = 1 << 16;
+    private static final int MAX_PENDING_PARTIAL_DECRYPTIONS = 1 << 16;
+    private static final int PRECOMPUTATION_CAPACITY = 10_000;
+    private static final int PRECOMPUTATION_THREADS = 1;
     private static ElectionSetEnum electionSetConfig;
     private static int votersCount;
+    private static Path boardDirectory;
+    private static Path mixingDirectory;
+    private static Path electorateDirectory;
     private final SecureRandom secureRandom;
     private final RandomGenerator randomGenerator;
     private final PerformanceStats performanceStats = new PerformanceStats();
+    private final ForkJoinPool clientPool = new ForkJoinPool();
     private PublicParameters publicParameters;
     private ElectionSet electionSet;
     private DefaultBulletinBoard bulletinBoardService;
+    private ShuffleProofVerificationService shuffleProofVerificationService;
     private KeyEstablishmentAlgorithms keyEstablishmentAlgorithms;
     private Conversion conversion;
     private Hash hash;
@@ -111,6 +132,15 @@ public class Simulation {
         if (args.length >= 3) {
             votersCount = Integer.parseInt(args[2]);
         }
+        if (args.length >= 4 && !args[3].isEmpty()) {
+            boardDirectory = Paths.get(args[3]);
+        }
+        if (args.length >= 5 && !args[4].isEmpty()) {
+            mixingDirectory = Paths.get(args[4]);
+        }
+        if (args.length >= 6 && !args[5].isEmpty()) {
+            electorateDirectory = Paths.get(args[5]);
+        }
 
         simulation.initializeSettings(level);
         simulation.createComponents();
@@ -129,9 +159,9 @@ public class Simulation {
 
         runDecryption();
 
-        List<Long> tally = runTally();
+        Tally tally = runTally();
 
-        if (tally.equals(expectedTally)) {
+        if (tally.getCandidateCounts().equals(expectedTally)) {
             log.info("Vote simulation successful");
         } else {
             log.error("Vote simulation failed");
@@ -140,35 +170,63 @@ public class Simulation {
         performanceStats.stop(performanceStats.totalSimulation);
 
         performanceStats.logStatSummary();
+
+        bulletinBoardService.shutdown();
+        shuffleProofVerificationService.shutdown();
+        clientPool.shutdown();
     }
 
-    private List<Long> runTally() throws InvalidDecryptionProofException {
+    private Tally runTally() throws InvalidDecryptionProofException {
         log.info("tallying votes");
         performanceStats.start(performanceStats.tallying);
-        List<Long> tally = electionAdministrationSimulator.getTally();
+        Tally tally = electionAdministrationSimulator.getTally();
         performanceStats.stop(performanceStats.tallying);
 
-        log.info("Tally is: " + tally);
+        log.info("Tally is: " + tally.getCandidateCounts());
+        log.info("Ballots by election: " + tally.getBallotCountsByElection());
+        log.info("Ballots by domain of influence: " + tally.getBallotCountsByDomainOfInfluence());
         return tally;
     }
 
     private void runDecryption() {
         log.info("starting decryption");
+        electionAdministrationSimulator.startStreamingTally(clientPool, MAX_PENDING_PARTIAL_DECRYPTIONS);
         performanceStats.start(performanceStats.decryption);
-        boolean decryptionSuccess = authorities.parallelStream().allMatch(aS -> {
-            aS.startPartialDecryption();
-            return true;
-        });
+        // Each authority decrypts on its own executor: one getting ahead of the others is blocked by the tally until
+        // they catch up, so that they may not share a thread
+        List<AuthorityExecutor> authorityExecutors = bulletinBoardService.getAuthorityExecutors();
+        List<CompletableFuture<Void>> decryptionFutures = IntStream.range(0, publicParameters.getS())
+                .mapToObj(j -> CompletableFuture.runAsync(authorities.get(j)::startPartialDecryption,
+                        authorityExecutors.get(j)))
+                .collect(Collectors.toList());
+        try {
+            decryptionFutures.forEach(CompletableFuture::join);
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw e;
+        }
         performanceStats.stop(performanceStats.decryption);
-        log.info("decryptionSuccess: " + decryptionSuccess);
     }
 
     private void runMixing() {
         log.info("starting the mixing");
         performanceStats.start(performanceStats.mixing);
-        authorities.get(0).startMixing();
-        for (int i = 1; i < publicParameters.getS(); i++) {
-            authorities.get(i).mixAgain();
+        // The authorities mix concurrently: each one waits for the previous shuffle, but not for its proof
+        List<AuthorityExecutor> authorityExecutors = bulletinBoardService.getAuthorityExecutors();
+        List<CompletableFuture<Void>> mixingFutures = IntStream.range(0, publicParameters.getS())
+                .mapToObj(j -> CompletableFuture.runAsync(
+                        j == 0 ? authorities.get(j)::startMixing : authorities.get(j)::mixAgain,
+                        authorityExecutors.get(j)))
+                .collect(Collectors.toList());
+        try {
+            mixingFutures.forEach(CompletableFuture::join);
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw e;
         }
         performanceStats.stop(performanceStats.mixing);
     }
@@ -176,8 +234,18 @@ public class Simulation {
     private List<Long> runVoting() {
         log.info("stating the voting phase");
         performanceStats.start(performanceStats.votingPhase);
-        List<List<Integer>> votes = voterSimulators.parallelStream()
-                .map(VoterSimulator::vote).collect(Collectors.toList());
+        // All the voters are in flight at the same time, the client side computations being run on clientPool
+        List<CompletableFuture<List<Integer>>> voteFutures = voterSimulators.stream()
+                .map(VoterSimulator::voteAsync).collect(Collectors.toList());
+        List<List<Integer>> votes;
+        try {
+            votes = voteFutures.stream().map(CompletableFuture::join).collect(Collectors.toList());
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw e;
+        }
         performanceStats.stop(performanceStats.votingPhase);
         Map<Integer, Long> expectedVoteCounts = new HashMap<>();
         votes.forEach(l -> l.forEach(i -> expectedVoteCounts.compute(i - 1, (k, v) -> (v == null) ? 1 : v + 1)));
@@ -275,25 +343,55 @@ public class Simulation {
                         new DefaultVotingClient(bulletinBoardService,
                                 keyEstablishmentAlgorithms,
                                 voteCastingClientAlgorithms,
-                                voteConfirmationClientAlgorithms),
+                                voteConfirmationClientAlgorithms,
+                                clientPool),
                         voteConfirmationVoterAlgorithms))
                 .collect(Collectors.toList());
 
         printingAuthoritySimulator.setVoterSimulators(voterSimulators);
 
-        electionAdministrationSimulator = new ElectionAdministrationSimulator(electionSet.getCandidates().size(),
+        electionAdministrationSimulator = new ElectionAdministrationSimulator(electionSet,
                 bulletinBoardService, tallyingAuthoritiesAlgorithm);
         log.info("all simulators created");
     }
 
     private void createServices() {
         log.info("creating services");
-        bulletinBoardService = new DefaultBulletinBoard();
+        if (boardDirectory != null) {
+            try {
+                bulletinBoardService = new PersistentBulletinBoard(boardDirectory, BOARD_SEGMENT_SIZE,
+                        BOARD_SYNC_INTERVAL_MILLIS);
+            } catch (IOException e) {
+                throw new UncheckedIOException("Could not open the bulletin board in " + boardDirectory, e);
+            }
+        } else {
+            bulletinBoardService = new DefaultBulletinBoard();
+        }
         authorities = IntStream.range(0, publicParameters.getS()).mapToObj(i ->
                 new DefaultAuthority(i, bulletinBoardService, keyEstablishmentAlgorithms, electionPreparationAlgorithms,
                         voteCastingAuthorityAlgorithms, voteConfirmationAuthorityAlgorithms, mixingAuthorityAlgorithms,
                         decryptionAuthorityAlgorithms)).collect(Collectors.toList());
+        if (mixingDirectory != null) {
+            ExternalMixingAuthorityAlgorithms externalMixingAuthorityAlgorithms = new ExternalMixingAuthorityAlgorithms(
+                    publicParameters, generalAlgorithms, randomGenerator, mixingDirectory, MIXING_CHUNK_SIZE);
+            authorities.forEach(a -> ((DefaultAuthority) a).setExternalMixing(externalMixingAuthorityAlgorithms));
+        }
+        if (electorateDirectory != null) {
+            authorities.forEach(a -> ((DefaultAuthority) a).setElectorateDataDirectory(electorateDirectory));
+        }
+        // The responses exceeding the capacity are spilled along with the electorate data when it is stored on disk,
+        // the precomputation pausing otherwise
+        authorities.forEach(a -> ((DefaultAuthority) a).setPrecomputation(PRECOMPUTATION_CAPACITY,
+                PRECOMPUTATION_THREADS, electorateDirectory));
+        // The authorities are co-located, so that each shuffle proof only needs to be checked once
+        shuffleProofVerificationService = new ShuffleProofVerificationService(bulletinBoardService,
+                decryptionAuthorityAlgorithms, Runtime.getRuntime().availableProcessors());
+        authorities.forEach(a -> ((DefaultAuthority) a)
+                .setShuffleProofVerification(shuffleProofVerificationService, false));
         bulletinBoardService.setAuthorities(authorities);
+        List<AuthorityExecutor> authorityExecutors = bulletinBoardService.getAuthorityExecutors();
+        IntStream.range(0, authorities.size())
+                .forEach(j -> ((DefaultAuthority) authorities.get(j)).setExecutor(authorityExecutors.get(j)));
         log.info("created all services");
     }
 
@@ -311,7 +409,7 @@ public class Simulation {
         voteConfirmationVoterAlgorithms = new VoteConfirmationVoterAlgorithms();
         mixingAuthorityAlgorithms = new MixingAuthorityAlgorithms(publicParameters, generalAlgorithms, voteConfirmationAuthorityAlgorithms, randomGenerator);
         decryptionAuthorityAlgorithms = new DecryptionAuthorityAlgorithms(publicParameters, generalAlgorithms, randomGenerator);
-        tallyingAuthoritiesAlgorithm = new TallyingAuthoritiesAlgorithm(publicParameters, generalAlgorithms);
+        tallyingAuthoritiesAlgorithm = new TallyingAuthoritiesAlgorithm(publicParameters, generalAlgorithms, randomGenerator);
         log.info("instantiated all algorithm classes");
     }
 
@@ -671,6 +769,20 @@ public class Simulation {
             logStats("confirmation verification", "server", confirmationVerificationStats);
             logStats("finalization code parts", "server", finalizationComputationStats);
             logStats("finalization code computation", "client", finalizationCodeComputationStats);
+
+            log.info("");
+            log.info("###### Authority request queues");
+            log.info(String.format("| %-30s | %15s | %15s | %15s | %15s |", "Authority", "Max queue depth",
+                    "Avg wait", "Max wait", "Avg processing"));
+            log.info(String.format("| %1$.30s | %1$.14s: | %1$.14s: | %1$.14s: | %1$.14s: |", Strings.repeat("-", 30)));
+            List<AuthorityExecutor> authorityExecutors = bulletinBoardService.getAuthorityExecutors();
+            for (int j = 0; j < authorityExecutors.size(); j++) {
+                AuthorityExecutor executor = authorityExecutors.get(j);
+                LongSummaryStatistics queueWaitStats = executor.getQueueWaitStats();
+                log.info(String.format("| %-30s | %,15d | %,15.2f | %,15d | %,15.2f |", "authority " + j,
+                        executor.getMaxQueueDepth(), queueWaitStats.getAverage(), queueWaitStats.getMax(),
+                        executor.getProcessingStats().getAverage()));
+            }
         }
 
         private void logStats(String stepName, String performedBy, LongSummaryStatistics stats) {
@@ -0,0 +1,194 @@
+/*-------------------------------------------------------------------------------------------------
+ - #%L                                                                                            -
+ - chvote-protocol-poc                                                                            -
+ - %%                                                                                             -
+ - Copyright (C) 2016 - 2017 République et Canton de Genève                                       -
+ - %%                                                                                             -
+ - This program is free software: you can redistribute it and/or modify                           -
+ - it under the terms of the GNU Affero General Public License as published by                    -
+ - the Free Software Foundation, either version 3 of the License, or                              -
+ - (at your option) any later version.                                                            -
+ -                                                                                                -
+ - This program is distributed in the hope that it will be useful,                                -
+ - but WITHOUT ANY WARRANTY; without even the implied warranty of                                 -
+ - MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the                                   -
+ - GNU General Public License for more details.                                                   -
+ -                                                                                                -
+ - You should have received a copy of the GNU Affero General Public License                       -
+ - along with this program. If not, see <http://www.gnu.org/licenses/>.                           -
+ - #L%                                                                                            -
+ -------------------------------------------------------------------------------------------------*/
+
+package ch.ge.ve.protopoc.service.simulation;
+
+import ch.ge.ve.protopoc.service.algorithm.TallyAggregator;
+import ch.ge.ve.protopoc.service.algorithm.TallyingAuthoritiesAlgorithm;
+import ch.ge.ve.protopoc.service.exception.DigestInitialisationRuntimeException;
+import ch.ge.ve.protopoc.service.model.Election;
+import ch.ge.ve.protopoc.service.model.Encryption;
+import ch.ge.ve.protopoc.service.model.Tally;
+import ch.ge.ve.protopoc.service.protocol.BulletinBoardListener;
+import com.google.common.base.Preconditions;
+
+import java.math.BigInteger;
+import java.nio.ByteBuffer;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+/**
+ * Combines, decodes and counts the partial decryptions chunk by chunk, as the authorities publish them on the
+ * bulletin board, so that the tally is ready by the time the last authority has finished decrypting.
+ * <p>
+ * Only the partial decryptions not yet published by all the authorities are held, and each chunk is released once
+ * counted. An authority getting more than <tt>maxPendingPartialDecryptions</tt> ahead of the others is blocked until
+ * they catch up.
+ * </p>
+ * <p>
+ * The partial decryptions are not covered by any proof when they are counted: a running digest of the partial
+ * decryptions streamed by each authority is kept, so that the tally may only be trusted once
+ * {@link #matches(List)} has confirmed that they are the vectors covered by the decryption proofs.
+ * </p>
+ */
+public class StreamingTally implements BulletinBoardListener {
+    private static final String DIGEST_ALGORITHM = "SHA-256";
+    private final TallyingAuthoritiesAlgorithm tallyingAuthoritiesAlgorithm;
+    private final List<Encryption> finalShuffle;
+    private final int candidateCount;
+    private final TallyAggregator tallyAggregator;
+    private final Executor executor;
+    private final int maxPendingPartialDecryptions;
+    private final List<Deque<BigInteger>> pendingPartialDecryptions;
+    private final List<MessageDigest> streamedDigests;
+    private final int[] streamedCounts;
+    private final List<CompletableFuture<Void>> countedChunks = new ArrayList<>();
+    private int combinedCount;
+
+    /**
+     * @param tallyingAuthoritiesAlgorithm the algorithms used to combine and count the partial decryptions
+     * @param finalShuffle                 the final shuffle, being decrypted
+     * @param elections                    the elections being counted
+     * @param authorityCount               the number of authorities
+     * @param executor                     the executor counting the chunks
+     * @param maxPendingPartialDecryptions the maximum number of partial decryptions held for an authority, beyond
+     *                                     which it is blocked until the other authorities catch up
+     */
+    public StreamingTally(TallyingAuthoritiesAlgorithm tallyingAuthoritiesAlgorithm, List<Encryption> finalShuffle,
+                          List<Election> elections, int authorityCount, Executor executor,
+                          int maxPendingPartialDecryptions) {
+        Preconditions.checkArgument(maxPendingPartialDecryptions > 0,
+                "At least one partial decryption must be allowed to be pending");
+        this.tallyingAuthoritiesAlgorithm = tallyingAuthoritiesAlgorithm;
+        this.finalShuffle = finalShuffle;
+        this.candidateCount = elections.stream().mapToInt(Election::getNumberOfCandidates).sum();
+        this.tallyAggregator = new TallyAggregator(elections);
+        this.executor = executor;
+        this.maxPendingPartialDecryptions = maxPendingPartialDecryptions;
+        this.pendingPartialDecryptions = IntStream.range(0, authorityCount)
+                .mapToObj(j -> new ArrayDeque<BigInteger>()).collect(Collectors.toList());
+        this.streamedDigests = IntStream.range(0, authorityCount)
+                .mapToObj(j -> newMessageDigest()).collect(Collectors.toList());
+        this.streamedCounts = new int[authorityCount];
+    }
+
+    @Override
+    public synchronized void onPartialDecryptionsPublished(int j, int offset, List<BigInteger> partialDecryptions) {
+        Deque<BigInteger> pending = pendingPartialDecryptions.get(j);
+        // an authority with nothing pending is never blocked, so that at least one of them can always progress
+        while (!pending.isEmpty() && pending.size() + partialDecryptions.size() > maxPendingPartialDecryptions) {
+            try {
+                wait();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException("Interrupted while waiting for the other authorities", e);
+            }
+        }
+        partialDecryptions.forEach(b -> update(streamedDigests.get(j), b));
+        streamedCounts[j] += partialDecryptions.size();
+        pending.addAll(partialDecryptions);
+        int available = pendingPartialDecryptions.stream().mapToInt(Deque::size).min().orElse(0);
+        if (available > 0) {
+            List<List<BigInteger>> upper_bold_b_prime = pendingPartialDecryptions.stream()
+                    .map(authorityPending -> IntStream.range(0, available).mapToObj(i -> authorityPending.poll())
+                            .collect(Collectors.toList()))
+                    .collect(Collectors.toList());
+            List<Encryption> bold_e = finalShuffle.subList(combinedCount, combinedCount + available);
+            combinedCount += available;
+            // the publishing authority should not wait for the counting
+            countedChunks.add(CompletableFuture.runAsync(() -> {
+                List<BigInteger> bold_m = tallyingAuthoritiesAlgorithm.getDecryptions(bold_e, upper_bold_b_prime);
+                tallyAggregator.add(tallyingAuthoritiesAlgorithm.getVoteCounts(bold_m, candidateCount));
+            }, executor));
+            notifyAll();
+        }
+    }
+
+    /**
+     * Checks that the partial decryptions counted are the ones given, by comparing their digests.
+     *
+     * @param upper_bold_b_prime the partial decryptions of each authority, as covered by the decryption proofs
+     * @return true if each authority streamed exactly the given partial decryptions, false otherwise
+     */
+    public synchronized boolean matches(List<List<BigInteger>> upper_bold_b_prime) {
+        if (upper_bold_b_prime.size() != streamedDigests.size()) {
+            return false;
+        }
+        for (int j = 0; j < streamedDigests.size(); j++) {
+            List<BigInteger> bold_b_prime = upper_bold_b_prime.get(j);
+            if (bold_b_prime.size() != streamedCounts[j]) {
+                return false;
+            }
+            MessageDigest expectedDigest = newMessageDigest();
+            bold_b_prime.forEach(b -> update(expectedDigest, b));
+            MessageDigest streamedDigest;
+            try {
+                // the running digest is cloned, so that it may still be compared again
+                streamedDigest = (MessageDigest) streamedDigests.get(j).clone();
+            } catch (CloneNotSupportedException e) {
+                throw new DigestInitialisationRuntimeException(e);
+            }
+            if (!MessageDigest.isEqual(streamedDigest.digest(), expectedDigest.digest())) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Waits for the counting of the last chunks.
+     *
+     * @return the tally of all the partial decryptions published
+     */
+    public Tally getTally() {
+        CompletableFuture<?>[] chunks;
+        synchronized (this) {
+            Preconditions.checkState(combinedCount == finalShuffle.size(),
+                    "All the partial decryptions should have been published by all the authorities");
+            chunks = countedChunks.toArray(new CompletableFuture<?>[0]);
+        }
+        CompletableFuture.allOf(chunks).join();
+        return tallyAggregator.getTally();
+    }
+
+    private static void update(MessageDigest digest, BigInteger value) {
+        byte[] bytes = value.toByteArray();
+        // the length prefix keeps the encoding of the vector unambiguous
+        digest.update(ByteBuffer.allocate(Integer.BYTES).putInt(bytes.length).array());
+        digest.update(bytes);
+    }
+
+    private static MessageDigest newMessageDigest() {
+        try {
+            return MessageDigest.getInstance(DIGEST_ALGORITHM);
+        } catch (NoSuchAlgorithmException e) {
+            throw new DigestInitialisationRuntimeException(e);
+        }
+    }
+}
@@ -22,8 +22,6 @@
 package ch.ge.ve.protopoc.service.simulation;
 
 import ch.ge.ve.protopoc.service.algorithm.VoteConfirmationVoterAlgorithms;
-import ch.ge.ve.protopoc.service.exception.VoteCastingException;
-import ch.ge.ve.protopoc.service.exception.VoteConfirmationException;
 import ch.ge.ve.protopoc.service.model.VotingCard;
 import ch.ge.ve.protopoc.service.model.VotingPageData;
 import ch.ge.ve.protopoc.service.protocol.VotingClientService;
@@ -32,6 +30,8 @@ import java.util.*;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 import java.util.stream.Collectors;
 
 /**
@@ -61,6 +61,23 @@ public class VoterSimulator {
     }
 
     public List<Integer> vote() {
+        try {
+            return voteAsync().join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw new VoteProcessException(e.getCause());
+        }
+    }
+
+    /**
+     * Asynchronous variant of {@link #vote()}, which does not hold a thread while the voting client waits for the
+     * authorities.
+     *
+     * @return a future of the voter's selections, completing once the vote has been cast and confirmed
+     */
+    public CompletableFuture<List<Integer>> voteAsync() {
         Preconditions.checkState(votingCard != null,
                 "The voter needs their code sheet to vote");
 
@@ -72,37 +89,38 @@ public class VoterSimulator {
                 votingPageData.getCandidateCounts());
         log.info(String.format("Voter %d selections: %s", voterIndex, selections));
 
-        List<String> verificationCodes;
-        try {
-            log.info(String.format("Voter %d submitting vote", voterIndex));
-            verificationCodes = votingClient.sumbitVote(votingCard.getUpper_x(), selections);
-        } catch (VoteCastingException e) {
-            log.error(String.format("Voter %d: error during vote casting", voterIndex), e);
-            throw new VoteProcessException(e);
-        }
-
-        log.info(String.format("Voter %d checking verification codes", voterIndex));
-        if (!voteConfirmationVoterAlgorithms.checkReturnCodes(votingCard.getBold_rc(), verificationCodes, selections)) {
-            throw new VoteProcessException(new VerificationCodesNotMatchingException("Verification codes do not match"));
-        }
-
-        String finalizationCode;
-        try {
-            log.info(String.format("Voter %d confirming vote", voterIndex));
-            finalizationCode = votingClient.confirmVote(votingCard.getUpper_y());
-        } catch (VoteConfirmationException e) {
-            log.error(String.format("Voter %d: error during vote confirmation", voterIndex), e);
-            throw new VoteProcessException(e);
-        }
-
-        log.info(String.format("Voter %d checking finalization code", voterIndex));
-        if (!voteConfirmationVoterAlgorithms.checkFinalizationCode(votingCard.getUpper_fc(), finalizationCode)) {
-            throw new VoteProcessException(new FinalizationCodeNotMatchingException("Finalization code does not match"));
-        }
-
-        log.info(String.format("Voter %d done voting", voterIndex));
+        log.info(String.format("Voter %d submitting vote", voterIndex));
+        return votingClient.submitVoteAsync(votingCard.getUpper_x(), selections)
+                .exceptionally(throwable -> {
+                    log.error(String.format("Voter %d: error during vote casting", voterIndex), throwable);
+                    throw new VoteProcessException(unwrap(throwable));
+                })
+                .thenCompose(verificationCodes -> {
+                    log.info(String.format("Voter %d checking verification codes", voterIndex));
+                    if (!voteConfirmationVoterAlgorithms.checkReturnCodes(votingCard.getBold_rc(), verificationCodes, selections)) {
+                        throw new VoteProcessException(new VerificationCodesNotMatchingException("Verification codes do not match"));
+                    }
+
+                    log.info(String.format("Voter %d confirming vote", voterIndex));
+                    return votingClient.confirmVoteAsync(votingCard.getUpper_y())
+                            .exceptionally(throwable -> {
+                                log.error(String.format("Voter %d: error during vote confirmation", voterIndex), throwable);
+                                throw new VoteProcessException(unwrap(throwable));
+                            });
+                })
+                .thenApply(finalizationCode -> {
+                    log.info(String.format("Voter %d checking finalization code", voterIndex));
+                    if (!voteConfirmationVoterAlgorithms.checkFinalizationCode(votingCard.getUpper_fc(), finalizationCode)) {
+                        throw new VoteProcessException(new FinalizationCodeNotMatchingException("Finalization code does not match"));
+                    }
+
+                    log.info(String.format("Voter %d done voting", voterIndex));
+                    return selections;
+                });
+    }
 
-        return selections;
+    private static Throwable unwrap(Throwable throwable) {
+        return throwable instanceof CompletionException ? throwable.getCause() : throwable;
     }
 
     private List<Integer> pickAtRandom(List<Integer> selectionCounts, List<Integer> candidateCounts) {
@@ -0,0 +1,181 @@
+/*-------------------------------------------------------------------------------------------------
+ - #%L                                                                                            -
+ - chvote-protocol-poc                                                                            -
+ - %%                                                                                             -
+ - Copyright (C) 2016 - 2017 République et Canton de Genève                                       -
+ - %%                                                                                             -
+ - This program is free software: you can redistribute it and/or modify                           -
+ - it under the terms of the GNU Affero General Public License as published by                    -
+ - the Free Software Foundation, either version 3 of the License, or                              -
+ - (at your option) any later version.                                                            -
+ -                                                                                                -
+ - This program is distributed in the hope that it will be useful,                                -
+ - but WITHOUT ANY WARRANTY; without even the implied warranty of                                 -
+ - MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the                                   -
+ - GNU General Public License for more details.                                                   -
+ -                                                                                                -
+ - You should have received a copy of the GNU Affero General Public License                       -
+ - along with this program. If not, see <http://www.gnu.org/licenses/>.                           -
+ - #L%                                                                                            -
+ -------------------------------------------------------------------------------------------------*/
+
+package ch.ge.ve.protopoc.service.support;
+
+import ch.ge.ve.protopoc.service.codec.FixedLengthCodec;
+import com.google.common.base.Preconditions;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.List;
+
+import static java.nio.file.StandardOpenOption.*;
+
+/**
+ * External-memory scatter: values are put in any order along with their target index, and gathered back in
+ * ascending order of the targets, one chunk of consecutive targets at a time.
+ * <p>
+ * The values are appended to one temporary file per chunk of targets, so that putting them only needs one small
+ * write buffer per chunk, and gathering a chunk only holds that chunk in memory. All the disk accesses are sequential.
+ * This applies a permutation to a vector that does not fit in memory: scanning the vector in order and putting the
+ * i-th value at index psy^-1(i) gathers the permuted vector.
+ * </p>
+ *
+ * @param <T> the type of the scattered values
+ */
+public final class ExternalScatter<T> implements Closeable {
+    private static final int BUCKET_BUFFER_SIZE = 1 << 16;
+
+    private final int size;
+    private final int chunkSize;
+    private final FixedLengthCodec<T> codec;
+    private final int recordLength;
+    private final Path[] files;
+    private final FileChannel[] channels;
+    private final ByteBuffer[] buffers;
+
+    /**
+     * @param directory the directory for the temporary files
+     * @param size      the number of values
+     * @param chunkSize the number of consecutive targets gathered at once
+     * @param codec     the codec for the values
+     * @throws IOException if the temporary files could not be created
+     */
+    public ExternalScatter(Path directory, int size, int chunkSize, FixedLengthCodec<T> codec) throws IOException {
+        Preconditions.checkArgument(size >= 0, "The size may not be negative");
+        Preconditions.checkArgument(chunkSize > 0, "The chunk size must be positive");
+        this.size = size;
+        this.chunkSize = chunkSize;
+        this.codec = codec;
+        this.recordLength = Integer.BYTES + codec.length();
+        int bucketCount = (size + chunkSize - 1) / chunkSize;
+        this.files = new Path[bucketCount];
+        this.channels = new FileChannel[bucketCount];
+        this.buffers = new ByteBuffer[bucketCount];
+        int bufferSize = Math.max(recordLength, BUCKET_BUFFER_SIZE - BUCKET_BUFFER_SIZE % recordLength);
+        try {
+            for (int k = 0; k < bucketCount; k++) {
+                files[k] = Files.createTempFile(directory, "scatter-", ".tmp");
+                channels[k] = FileChannel.open(files[k], READ, WRITE);
+                buffers[k] = ByteBuffer.allocateDirect(bufferSize);
+            }
+        } catch (IOException e) {
+            close();
+            throw e;
+        }
+    }
+
+    /**
+     * Puts a value. This method is not thread-safe.
+     *
+     * @param target the target index of the value
+     * @param value  the value
+     * @throws IOException if the value could not be written
+     */
+    public void put(int target, T value) throws IOException {
+        Preconditions.checkElementIndex(target, size);
+        int k = target / chunkSize;
+        ByteBuffer buffer = buffers[k];
+        if (buffer.remaining() < recordLength) {
+            flush(k);
+        }
+        buffer.putInt(target);
+        codec.encode(value, buffer);
+    }
+
+    /**
+     * Gathers the values, one chunk of consecutive targets at a time, in ascending order
+     *
+     * @param consumer the consumer of the chunks
+     * @throws IOException           if the values could not be read back
+     * @throws IllegalStateException if a target has not been put
+     */
+    public void gather(ChunkConsumer<T> consumer) throws IOException {
+        for (int k = 0; k < channels.length; k++) {
+            flush(k);
+            int from = k * chunkSize;
+            @SuppressWarnings("unchecked")
+            T[] chunk = (T[]) new Object[Math.min(chunkSize, size - from)];
+            MappedByteBuffer records = channels[k].map(FileChannel.MapMode.READ_ONLY, 0L, channels[k].size());
+            while (records.hasRemaining()) {
+                int target = records.getInt();
+                chunk[target - from] = codec.decode(records);
+            }
+            for (int i = 0; i < chunk.length; i++) {
+                Preconditions.checkState(chunk[i] != null, "No value was put for target %s", from + i);
+            }
+            consumer.accept(from, Arrays.asList(chunk));
+        }
+    }
+
+    /**
+     * Closes and deletes the temporary files
+     */
+    @Override
+    public void close() throws IOException {
+        IOException failure = null;
+        for (int k = 0; k < files.length; k++) {
+            try {
+                if (channels[k] != null) {
+                    channels[k].close();
+                }
+                if (files[k] != null) {
+                    Files.deleteIfExists(files[k]);
+                }
+            } catch (IOException e) {
+                failure = e;
+            }
+        }
+        if (failure != null) {
+            throw failure;
+        }
+    }
+
+    private void flush(int k) throws IOException {
+        ByteBuffer buffer = buffers[k];
+        buffer.flip();
+        while (buffer.hasRemaining()) {
+            channels[k].write(buffer);
+        }
+        buffer.clear();
+    }
+
+    /**
+     * Consumer of the gathered chunks
+     *
+     * @param <T> the type of the values
+     */
+    @FunctionalInterface
+    public interface ChunkConsumer<T> {
+        /**
+         * @param from  the target index of the first value of the chunk
+         * @param chunk the values of the consecutive targets, starting at <tt>from</tt>
+         */
+        void accept(int from, List<T> chunk) throws IOException;
+    }
+}
@@ -29,11 +29,13 @@ import java.security.MessageDigest;
 import java.security.NoSuchAlgorithmException;
 import java.security.NoSuchProviderException;
 import java.util.List;
+import java.util.stream.IntStream;
 
 /**
  * This class manages all the hashing operations and combinations
  */
 public class Hash {
+    private static final int HASH_CHUNK_SIZE = 4096;
     private final String digestAlgorithm, digestProvider;
     private final Conversion conversion;
     private final SecurityParameters securityParameters;
@@ -115,7 +117,7 @@ public class Hash {
         } else if (object instanceof Hashable) {
             return recHash_L(((Hashable) object).elementsToHash());
         } else if (object instanceof List) {
-            return recHash_L(((List) object).toArray());
+            return recHashList((List<?>) object);
         } else if (object instanceof Object[]) {
             return recHash_L((Object[]) object);
         } else {
@@ -123,6 +125,28 @@ public class Hash {
         }
     }
 
+    /**
+     * RecHash_L of a list, equivalent to the varargs version on the elements of the list.
+     * <p>
+     * The elements are hashed chunk by chunk, in parallel for long lists, and fed to the digest in order, so that
+     * lists stored outside of the heap never need to be copied into an array.
+     * </p>
+     */
+    private byte[] recHashList(List<?> list) {
+        if (list.size() == 1) {
+            return recHash_L(list.get(0));
+        }
+        MessageDigest messageDigest = newMessageDigest();
+        for (int from = 0; from < list.size(); from += HASH_CHUNK_SIZE) {
+            IntStream indices = IntStream.range(from, Math.min(list.size(), from + HASH_CHUNK_SIZE));
+            if (list.size() > HASH_CHUNK_SIZE) {
+                indices = indices.parallel();
+            }
+            indices.mapToObj(i -> recHash_L(list.get(i))).forEachOrdered(messageDigest::update);
+        }
+        return ByteArrayUtils.truncate(messageDigest.digest(), securityParameters.getUpper_l());
+    }
+
     /**
      * Use the underlying digest algorithm to obtain a hash of the byte array, truncated to length L
      *
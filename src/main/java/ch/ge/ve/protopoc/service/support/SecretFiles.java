@@ -0,0 +1,65 @@
+/*-------------------------------------------------------------------------------------------------
+ - #%L                                                                                            -
+ - chvote-protocol-poc                                                                            -
+ - %%                                                                                             -
+ - Copyright (C) 2016 - 2017 République et Canton de Genève                                       -
+ - %%                                                                                             -
+ - This program is free software: you can redistribute it and/or modify                           -
+ - it under the terms of the GNU Affero General Public License as published by                    -
+ - the Free Software Foundation, either version 3 of the License, or                              -
+ - (at your option) any later version.                                                            -
+ -                                                                                                -
+ - This program is distributed in the hope that it will be useful,                                -
+ - but WITHOUT ANY WARRANTY; without even the implied warranty of                                 -
+ - MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the                                   -
+ - GNU General Public License for more details.                                                   -
+ -                                                                                                -
+ - You should have received a copy of the GNU Affero General Public License                       -
+ - along with this program. If not, see <http://www.gnu.org/licenses/>.                           -
+ - #L%                                                                                            -
+ -------------------------------------------------------------------------------------------------*/
+
+package ch.ge.ve.protopoc.service.support;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.PosixFilePermissions;
+
+/**
+ * This utility class creates the temporary files holding secret values, such as the randomizations and credentials
+ * generated by the authorities.
+ */
+public final class SecretFiles {
+    private SecretFiles() {
+    }
+
+    /**
+     * Creates a temporary file which only its owner may read and write. The file is deleted when the virtual machine
+     * exits, unless it was deleted before.
+     *
+     * @param directory the directory where to create the file
+     * @param prefix    the prefix of the file name
+     * @param suffix    the suffix of the file name
+     * @return the path of the created file
+     * @throws IOException if the file could not be created
+     */
+    public static Path createTempFile(Path directory, String prefix, String suffix) throws IOException {
+        Path file;
+        if (directory.getFileSystem().supportedFileAttributeViews().contains("posix")) {
+            file = Files.createTempFile(directory, prefix, suffix,
+                    PosixFilePermissions.asFileAttribute(PosixFilePermissions.fromString("rw-------")));
+        } else {
+            file = Files.createTempFile(directory, prefix, suffix);
+            File asFile = file.toFile();
+            if (!(asFile.setReadable(false, false) && asFile.setReadable(true, true)
+                    && asFile.setWritable(false, false) && asFile.setWritable(true, true))) {
+                Files.delete(file);
+                throw new IOException("Could not restrict the permissions of " + file);
+            }
+        }
+        file.toFile().deleteOnExit();
+        return file;
+    }
+}
@@ -0,0 +1,77 @@
+/*-------------------------------------------------------------------------------------------------
+ - #%L                                                                                            -
+ - chvote-protocol-poc                                                                            -
+ - %%                                                                                             -
+ - Copyright (C) 2016 - 2017 République et Canton de Genève                                       -
+ - %%                                                                                             -
+ - This program is free software: you can redistribute it and/or modify                           -
+ - it under the terms of the GNU Affero General Public License as published by                    -
+ - the Free Software Foundation, either version 3 of the License, or                              -
+ - (at your option) any later version.                                                            -
+ -                                                                                                -
+ - This program is distributed in the hope that it will be useful,                                -
+ - but WITHOUT ANY WARRANTY; without even the implied warranty of                                 -
+ - MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the                                   -
+ - GNU General Public License for more details.                                                   -
+ -                                                                                                -
+ - You should have received a copy of the GNU Affero General Public License                       -
+ - along with this program. If not, see <http://www.gnu.org/licenses/>.                           -
+ - #L%                                                                                            -
+ -------------------------------------------------------------------------------------------------*/
+
+package ch.ge.ve.protopoc.arithmetic
+
+import spock.lang.Specification
+
+import static ch.ge.ve.protopoc.service.support.BigIntegers.*
+import static java.math.BigInteger.ONE
+
+/**
+ * This test class holds the tests for the helper methods defined in {@link BigIntegerArithmetic}
+ */
+class BigIntegerArithmeticTest extends Specification {
+
+    def "modExpBatch should raise all the bases to the shared exponent"() {
+        expect:
+        BigIntegerArithmetic.modExpBatch(bases, exponent, ELEVEN) == result
+
+        where:
+        bases                     | exponent                  | result
+        []                        | THREE                     | []
+        [TWO, THREE, FIVE]        | THREE                     | [EIGHT, FIVE, FOUR]
+        [TWO, THREE, FIVE]        | TWO                       | [FOUR, NINE, THREE]
+        [TWO, THREE, FIVE, SEVEN] | BigInteger.ZERO           | [ONE, ONE, ONE, ONE]
+        [TWO, THREE]              | BigInteger.valueOf(-1L)   | [SIX, FOUR]
+    }
+
+    def "modMultiExp should compute the product of the bases raised to their exponents"() {
+        expect:
+        BigIntegerArithmetic.modMultiExp(bases, exponents, ELEVEN) == result
+
+        where:
+        bases              | exponents                                              | result
+        []                 | []                                                     | ONE
+        [TWO, THREE, FIVE] | [THREE, TWO, ONE]                                      | EIGHT
+        [TWO, THREE, FIVE] | [BigInteger.ZERO, BigInteger.ZERO, BigInteger.ZERO]    | ONE
+        [THREE, TWO]       | [BigInteger.valueOf(1001L), BigInteger.valueOf(1000L)] | THREE
+    }
+
+    def "modInverseBatch should invert all the values"() {
+        expect:
+        BigIntegerArithmetic.modInverseBatch(values, ELEVEN) == result
+
+        where:
+        values                             | result
+        []                                 | []
+        [TWO]                              | [SIX]
+        [TWO, THREE, FIVE, BigInteger.TEN] | [SIX, FOUR, NINE, BigInteger.TEN]
+    }
+
+    def "modInverseBatch should fail if a value is not invertible"() {
+        when:
+        BigIntegerArithmetic.modInverseBatch([TWO, BigInteger.ZERO, THREE], ELEVEN)
+
+        then:
+        thrown(ArithmeticException)
+    }
+}
@@ -246,4 +246,66 @@ class DecryptionAuthorityAlgorithmsTest extends Specification {
         decryptionAuthorityAlgorithms.genDecryptionProof(sk_j, pk_j, bold_e, bold_b_prime) ==
                 new DecryptionProof([NINE, THREE, NINE, FIVE, FOUR], ZERO)
     }
+
+    def "genPartialDecryptionsAndProof should decrypt and prove the decryption in a single pass"() {
+        given:
+        def sk_j = THREE
+        def pk_j = FIVE
+        def bold_e = [
+                new Encryption(ONE, FIVE),
+                new Encryption(NINE, THREE),
+                new Encryption(FOUR, FOUR),
+                new Encryption(FIVE, NINE)
+        ]
+        randomGenerator.randomInZq(FIVE) >> TWO
+        generalAlgorithms.getNIZKPChallenge(*_) >> ONE
+
+        and: "the expected preconditions"
+        generalAlgorithms.isMember(ONE) >> true
+        generalAlgorithms.isMember(THREE) >> true
+        generalAlgorithms.isMember(FOUR) >> true
+        generalAlgorithms.isMember(FIVE) >> true
+        generalAlgorithms.isMember(NINE) >> true
+        generalAlgorithms.isInZ_q(_ as BigInteger) >> { BigInteger x -> 0 <= x && x < encryptionGroup.q }
+
+        expect:
+        decryptionAuthorityAlgorithms.genPartialDecryptionsAndProof(sk_j, pk_j, bold_e) ==
+                new PartialDecryptionsAndProof([FOUR, FIVE, NINE, THREE],
+                        new DecryptionProof([NINE, THREE, NINE, FIVE, FOUR], ZERO))
+    }
+
+    def "genPartialDecryptionsAndProof should hand the partial decryptions over chunk by chunk"() {
+        given:
+        def sk_j = THREE
+        def pk_j = FIVE
+        def bold_e = [
+                new Encryption(ONE, FIVE),
+                new Encryption(NINE, THREE),
+                new Encryption(FOUR, FOUR),
+                new Encryption(FIVE, NINE),
+                new Encryption(ONE, THREE)
+        ]
+        randomGenerator.randomInZq(FIVE) >> TWO
+        generalAlgorithms.getNIZKPChallenge(*_) >> ONE
+
+        and: "the expected preconditions"
+        generalAlgorithms.isMember(ONE) >> true
+        generalAlgorithms.isMember(THREE) >> true
+        generalAlgorithms.isMember(FOUR) >> true
+        generalAlgorithms.isMember(FIVE) >> true
+        generalAlgorithms.isMember(NINE) >> true
+        generalAlgorithms.isInZ_q(_ as BigInteger) >> { BigInteger x -> 0 <= x && x < encryptionGroup.q }
+
+        and: "a consumer collecting the chunks"
+        def chunks = [:]
+
+        when:
+        def result = decryptionAuthorityAlgorithms.genPartialDecryptionsAndProof(sk_j, pk_j, bold_e, 2,
+                { List<BigInteger> chunk, int offset -> chunks[offset] = chunk })
+
+        then:
+        chunks == [0: [FOUR, FIVE], 2: [NINE, THREE], 4: [FIVE]]
+        result == new PartialDecryptionsAndProof([FOUR, FIVE, NINE, THREE, FIVE],
+                new DecryptionProof([NINE, THREE, NINE, FIVE, FOUR, NINE], ZERO))
+    }
 }
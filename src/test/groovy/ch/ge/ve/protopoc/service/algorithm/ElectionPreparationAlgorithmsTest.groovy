@@ -183,6 +183,32 @@ class ElectionPreparationAlgorithmsTest extends Specification {
         electorateData.k == [[1, 2], [1, 0]]
     }
 
+    def "genElectorateData should generate the same data for each voter whatever the range of voters"() {
+        given: "a 1-out-of-3 election and three eligible voters"
+        DomainOfInfluence doi = new DomainOfInfluence("test")
+        def voters = [new Voter(), new Voter(), new Voter()]
+        voters.forEach { it.addDomainsOfInfluence(doi) }
+        ElectionSet electionSet = new ElectionSet(voters,
+                [new Candidate("c1"), new Candidate("c2"), new Candidate("c3")], [new Election(3, 1, doi)])
+
+        and: "the same sequence of 'random' values for each generation"
+        int draws = 0
+        randomGenerator.randomInZq(_) >> { BigInteger.valueOf(draws++ % 7) }
+        hash.recHash_L(_) >> ([0x0C] as byte[])
+
+        when: "the electorate data is generated at once, then over two ranges"
+        def electorateData = electionPreparation.genElectorateData(electionSet)
+        draws = 0
+        def ranges = [electionPreparation.genElectorateData(electionSet, 0, 1),
+                      electionPreparation.genElectorateData(electionSet, 1, 3)]
+
+        then: "each voter gets the same data"
+        electorateData.d == ranges.collectMany { it.d }
+        electorateData.d_hat == ranges.collectMany { it.d_hat }
+        electorateData.p == ranges.collectMany { it.p }
+        electorateData.k == ranges.collectMany { it.k }
+    }
+
     def "genSecretVoterData should generate the expected private voter data"() {
         given:
         Point point1 = new Point(ONE, ZERO)
@@ -0,0 +1,167 @@
+/*-------------------------------------------------------------------------------------------------
+ - #%L                                                                                            -
+ - chvote-protocol-poc                                                                            -
+ - %%                                                                                             -
+ - Copyright (C) 2016 - 2017 République et Canton de Genève                                       -
+ - %%                                                                                             -
+ - This program is free software: you can redistribute it and/or modify                           -
+ - it under the terms of the GNU Affero General Public License as published by                    -
+ - the Free Software Foundation, either version 3 of the License, or                              -
+ - (at your option) any later version.                                                            -
+ -                                                                                                -
+ - This program is distributed in the hope that it will be useful,                                -
+ - but WITHOUT ANY WARRANTY; without even the implied warranty of                                 -
+ - MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the                                   -
+ - GNU General Public License for more details.                                                   -
+ -                                                                                                -
+ - You should have received a copy of the GNU Affero General Public License                       -
+ - along with this program. If not, see <http://www.gnu.org/licenses/>.                           -
+ - #L%                                                                                            -
+ -------------------------------------------------------------------------------------------------*/
+
+package ch.ge.ve.protopoc.service.algorithm
+
+import ch.ge.ve.protopoc.service.model.*
+import ch.ge.ve.protopoc.service.support.RandomGenerator
+import spock.lang.Specification
+
+import java.nio.file.Files
+import java.nio.file.Path
+
+import static ch.ge.ve.protopoc.service.support.BigIntegers.*
+import static java.math.BigInteger.ONE
+import static java.math.BigInteger.ZERO
+
+/**
+ * Tests on the external memory mixing algorithms
+ */
+class ExternalMixingAuthorityAlgorithmsTest extends Specification {
+    def defaultAlphabet = "abcdefghijklmnopqrstuvwxyzABCDEFGHIJKLMNOPQRSTUVWXYZ0123456789-_".toCharArray() as List<Character>
+    EncryptionGroup encryptionGroup = new EncryptionGroup(ELEVEN, FIVE, THREE, FOUR)
+    IdentificationGroup identificationGroup = new IdentificationGroup(ELEVEN, FIVE, THREE)
+    SecurityParameters securityParameters = new SecurityParameters(1, 1, 2, 0.99)
+    PrimeField primeField = new PrimeField(ELEVEN)
+    PublicParameters publicParameters = new PublicParameters(
+            securityParameters, encryptionGroup, identificationGroup, primeField,
+            FIVE, defaultAlphabet, FIVE, defaultAlphabet,
+            defaultAlphabet, 2, defaultAlphabet, 2, 2, 3
+    )
+
+    GeneralAlgorithms generalAlgorithms = Mock()
+    RandomGenerator randomGenerator = Mock()
+
+    Path workDirectory
+    ExternalMixingAuthorityAlgorithms externalMixingAuthorityAlgorithms
+    DecryptionAuthorityAlgorithms decryptionAuthorityAlgorithms
+
+    void setup() {
+        workDirectory = Files.createTempDirectory("mixing")
+        // chunks of two elements, so that the three elements are scattered across several buckets
+        externalMixingAuthorityAlgorithms = new ExternalMixingAuthorityAlgorithms(publicParameters, generalAlgorithms,
+                randomGenerator, workDirectory, 2)
+        decryptionAuthorityAlgorithms = new DecryptionAuthorityAlgorithms(publicParameters, generalAlgorithms, randomGenerator)
+    }
+
+    void cleanup() {
+        workDirectory.toFile().deleteDir()
+    }
+
+    def "genShuffle should generate a valid shuffle in external memory"() {
+        given:
+        randomGenerator.randomIntInRange(_, _) >>> [1, 1, 2] // psy = [1, 0, 2]
+        randomGenerator.randomInZq(FIVE) >>> [ONE, TWO, FOUR]
+        def bold_e = [
+                new Encryption(FIVE, ONE),
+                new Encryption(THREE, FOUR),
+                new Encryption(FIVE, NINE)
+        ]
+        def publicKey = new EncryptionPublicKey(THREE, encryptionGroup)
+
+        and: "the expected preconditions checks"
+        generalAlgorithms.isMember(ONE) >> true
+        generalAlgorithms.isMember(THREE) >> true
+        generalAlgorithms.isMember(FOUR) >> true
+        generalAlgorithms.isMember(FIVE) >> true
+        generalAlgorithms.isMember(NINE) >> true
+
+        when:
+        def shuffle = externalMixingAuthorityAlgorithms.genShuffle(bold_e, publicKey)
+
+        then:
+        shuffle.bold_e_prime instanceof EncryptionVector
+        shuffle.bold_r_prime == [ONE, TWO, FOUR]
+        shuffle.psy == [1, 0, 2]
+        shuffle.bold_e_prime == [
+                new Encryption(FIVE, THREE),  // e_1 re-encrypted with r_1 = 2
+                new Encryption(FOUR, THREE),  // e_0 re-encrypted with r_0 = 1
+                new Encryption(NINE, THREE)   // e_2 re-encrypted with r_2 = 4
+        ]
+    }
+
+    def "genShuffleProof should generate a valid shuffle proof in external memory"() {
+        given:
+        def bold_e = [
+                new Encryption(FIVE, ONE),
+                new Encryption(THREE, FOUR),
+                new Encryption(FIVE, NINE)
+        ]
+        def bold_e_prime = [
+                new Encryption(ONE, FIVE),
+                new Encryption(FOUR, THREE),
+                new Encryption(ONE, FOUR)
+        ]
+        def bold_r_prime = [ONE, FOUR, TWO]
+        def psy = [1, 0, 2]
+        def pk = new EncryptionPublicKey(THREE, encryptionGroup)
+        def bold_h = [FOUR, THREE, FIVE]
+        def bold_u = [TWO, ZERO, THREE]
+        generalAlgorithms.getGenerator(_ as Integer) >> { int i -> bold_h[i] }
+        generalAlgorithms.getGenerators(3) >> bold_h
+        generalAlgorithms.getNIZKPChallengesHash(_ as Object[]) >> ([0x00] as byte[])
+        generalAlgorithms.getNIZKPChallenge(_ as byte[], _ as Integer, 1) >> { byte[] upper_h, int i, int kappa -> bold_u[i - 1] }
+        generalAlgorithms.getNIZKPChallenges(3, _ as Object[], 1) >> bold_u
+        // a non-zero challenge, so that the verification equations depend on the responses
+        generalAlgorithms.getNIZKPChallenge(_ as Object[], _ as Object[], 1) >> ONE
+        randomGenerator.randomInZq(FIVE) >>> [ONE, TWO, THREE, FOUR, ZERO, ONE, ONE, TWO, THREE, FOUR, TWO, THREE]
+
+        and: "the expected preconditions checks"
+        generalAlgorithms.isMember(ONE) >> true
+        generalAlgorithms.isMember(THREE) >> true
+        generalAlgorithms.isMember(FOUR) >> true
+        generalAlgorithms.isMember(FIVE) >> true
+        generalAlgorithms.isMember(NINE) >> true
+        generalAlgorithms.isInZ_q(_ as BigInteger) >> { BigInteger x -> 0 <= x && x < encryptionGroup.q }
+
+        when:
+        def proof = externalMixingAuthorityAlgorithms.genShuffleProof(bold_e, bold_e_prime, bold_r_prime, psy, pk)
+
+        then: "the proof should be valid"
+        proof.bold_c instanceof BigIntegerVector
+        //noinspection GroovyPointlessBoolean
+        decryptionAuthorityAlgorithms.checkShuffleProof(proof, bold_e, bold_e_prime, pk) == true
+
+        and: "the proof should be rejected once any of its responses is modified"
+        tamperedResponses(proof).every {
+            !decryptionAuthorityAlgorithms.checkShuffleProof(it, bold_e, bold_e_prime, pk)
+        }
+    }
+
+    private ShuffleProof withResponses(ShuffleProof proof, Closure<List> modify) {
+        def s = proof.s
+        def values = modify([s.s_1, s.s_2, s.s_3, s.s_4, s.s_hat.toList(), s.s_prime.toList()])
+        new ShuffleProof(proof.t, new ShuffleProof.S(*values), proof.bold_c, proof.bold_c_hat)
+    }
+
+    private List<ShuffleProof> tamperedResponses(ShuffleProof proof) {
+        def q = encryptionGroup.q
+        def increment = { BigInteger x -> x.add(ONE).mod(q) }
+        [
+                withResponses(proof) { it[0] = increment(it[0]); it },
+                withResponses(proof) { it[1] = increment(it[1]); it },
+                withResponses(proof) { it[2] = increment(it[2]); it },
+                withResponses(proof) { it[3] = increment(it[3]); it },
+                withResponses(proof) { it[4][0] = increment(it[4][0]); it },
+                withResponses(proof) { it[5][0] = increment(it[5][0]); it }
+        ]
+    }
+}
@@ -103,6 +103,18 @@ class GeneralAlgorithmsTest extends Specification {
         generators.containsAll(FOUR, NINE)
     }
 
+    def "getGenerator"() {
+        when:
+        def generator = generalAlgorithms.getGenerator(1)
+
+        then:
+        2 * hash.recHash_L(_ as Object[]) >>> [
+                [0x05] as byte[], // 5 * 5 = 25 =_11 3 --> KO, is g
+                [0x03] as byte[] // 3 * 3 = 9 =_11 9 --> OK
+        ]
+        generator == NINE
+    }
+
     def "getNIZKPChallenge"() {
         Object[] v, t
         v = new Object[0]
@@ -131,4 +143,14 @@ class GeneralAlgorithmsTest extends Specification {
 
         challenges.containsAll(TWO, THREE, THREE)
     }
+
+    def "getNIZKPChallenge for a single index"() {
+        when:
+        def challenge = generalAlgorithms.getNIZKPChallenge([0x00] as byte[], 2, 2)
+
+        then:
+        1 * hash.recHash_L(TWO) >> ([0x02] as byte[])
+        1 * hash.hash_L([0x00, 0x02] as byte[]) >> ([0x03] as byte[])
+        challenge == THREE
+    }
 }
@@ -132,12 +132,48 @@ class MixingAuthorityAlgorithmsTest extends Specification {
         e_prime_2.b == (NINE * pk.modPow(r_2, p)) % p
     }
 
+    def "genShuffle should shuffle an encryption vector into a vector"() {
+        given:
+        randomGenerator.randomIntInRange(_, _) >>> [1, 1, 2] // psy = [1, 0, 2]
+        randomGenerator.randomInZq(FIVE) >>> [ONE, TWO, FOUR]
+        def bold_e = EncryptionVector.copyOf([
+                new Encryption(FIVE, ONE),
+                new Encryption(THREE, FOUR),
+                new Encryption(FIVE, NINE)
+        ], 1)
+        def publicKey = new EncryptionPublicKey(THREE, encryptionGroup)
+
+        and: "the expected preconditions checks"
+        generalAlgorithms.isMember(ONE) >> true
+        generalAlgorithms.isMember(THREE) >> true
+        generalAlgorithms.isMember(FOUR) >> true
+        generalAlgorithms.isMember(FIVE) >> true
+        generalAlgorithms.isMember(NINE) >> true
+
+        when:
+        def shuffle = mixingAuthorityAlgorithms.genShuffle(bold_e, publicKey)
+
+        then:
+        shuffle.bold_e_prime instanceof EncryptionVector
+        shuffle.bold_r_prime == [ONE, TWO, FOUR]
+        shuffle.psy == [1, 0, 2]
+        shuffle.bold_e_prime == [
+                new Encryption(FIVE, THREE),  // e_1 re-encrypted with r_1 = 2
+                new Encryption(FOUR, THREE),  // e_0 re-encrypted with r_0 = 1
+                new Encryption(NINE, THREE)   // e_2 re-encrypted with r_2 = 4
+        ]
+    }
+
     def "genPermutation should generate a valid permutation"() {
         given:
         randomGenerator.randomIntInRange(_, _) >>> randomInts
 
-        expect:
-        mixingAuthorityAlgorithms.genPermutation(n) == psy
+        when:
+        def permutation = mixingAuthorityAlgorithms.genPermutation(n)
+
+        then:
+        permutation == psy
+        permutation.inverse().apply(permutation) == (0..<n).toList()
 
         where:
         n | randomInts   || psy
@@ -247,6 +283,21 @@ class MixingAuthorityAlgorithmsTest extends Specification {
         [1, 0, 2] | [FOUR, THREE, FIVE] | [ONE, TWO, THREE] || [NINE, THREE, THREE]
     }
 
+    def "genPermutationCommitment should reject an invalid permutation"() {
+        when:
+        mixingAuthorityAlgorithms.genPermutationCommitment(psy, [FOUR, THREE, FIVE])
+
+        then:
+        thrown(IllegalArgumentException)
+
+        where:
+        psy << [
+                [0, 0, 2], // duplicate index
+                [1, 2, 3], // out of range index
+                [-1, 0, 1] // negative index
+        ]
+    }
+
     def "genCommitmentChain should generate a valid commitment chain"() {
         given:
         randomGenerator.randomInZq(FIVE) >>> bold_r
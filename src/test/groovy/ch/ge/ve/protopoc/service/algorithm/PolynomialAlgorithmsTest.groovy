@@ -71,6 +71,35 @@ class PolynomialAlgorithmsTest extends Specification {
         pointsAndZeroes == new PointsAndZeroImages([pointCand1, pointCand2, pointCand3], [BigIntegers.THREE])
     }
 
+    def "genPointsBatch should generate the points of each voter as genPoints does"() {
+        when: "generating points for two voters, for an election with a 1-out-of-3 choice"
+        def pointsAndZeroes = polynomial.genPointsBatch([3], [[1], [0]])
+
+        then: "the random elements are drawn voter after voter"
+        randomGenerator.randomInZq(_) >>>
+                [BigIntegers.TWO, // called by genPolynomial (first voter)
+                 BigIntegers.TWO, // first candidate
+                 BigInteger.ZERO, // second candidate --> discarded, is 0
+                 BigIntegers.FOUR, // second candidate
+                 BigIntegers.FOUR, // third candidate --> discarded, already in existing set
+                 BigIntegers.FIVE, // third candidate
+                 // no call by genPolynomial for the second voter, whose polynomial is 0
+                 BigIntegers.FOUR, // first candidate
+                 BigIntegers.ONE, // second candidate
+                 BigIntegers.TWO // third candidate
+                ]
+
+        and: "the points match the ones of genPoints"
+        pointsAndZeroes == [
+                new PointsAndZeroImages([new Point(BigIntegers.TWO, BigIntegers.THREE),
+                                         new Point(BigIntegers.FOUR, BigIntegers.THREE),
+                                         new Point(BigIntegers.FIVE, BigIntegers.THREE)], [BigIntegers.THREE]),
+                new PointsAndZeroImages([new Point(BigIntegers.FOUR, BigInteger.ZERO),
+                                         new Point(BigInteger.ONE, BigInteger.ZERO),
+                                         new Point(BigIntegers.TWO, BigInteger.ZERO)], [BigInteger.ZERO])
+        ]
+    }
+
     def "genPolynomial should generate a polynomial of the requested size"() {
         given:
         randomGenerator.randomInZq(_) >>> randomValues
@@ -0,0 +1,90 @@
+/*-------------------------------------------------------------------------------------------------
+ - #%L                                                                                            -
+ - chvote-protocol-poc                                                                            -
+ - %%                                                                                             -
+ - Copyright (C) 2016 - 2017 République et Canton de Genève                                       -
+ - %%                                                                                             -
+ - This program is free software: you can redistribute it and/or modify                           -
+ - it under the terms of the GNU Affero General Public License as published by                    -
+ - the Free Software Foundation, either version 3 of the License, or                              -
+ - (at your option) any later version.                                                            -
+ -                                                                                                -
+ - This program is distributed in the hope that it will be useful,                                -
+ - but WITHOUT ANY WARRANTY; without even the implied warranty of                                 -
+ - MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the                                   -
+ - GNU General Public License for more details.                                                   -
+ -                                                                                                -
+ - You should have received a copy of the GNU Affero General Public License                       -
+ - along with this program. If not, see <http://www.gnu.org/licenses/>.                           -
+ - #L%                                                                                            -
+ -------------------------------------------------------------------------------------------------*/
+
+package ch.ge.ve.protopoc.service.algorithm
+
+import ch.ge.ve.protopoc.service.model.DomainOfInfluence
+import ch.ge.ve.protopoc.service.model.Election
+import ch.ge.ve.protopoc.service.model.Tally
+import spock.lang.Specification
+
+/**
+ * Tests for the aggregation of the decoded votes into a tally
+ */
+class TallyAggregatorTest extends Specification {
+    DomainOfInfluence canton = new DomainOfInfluence("canton")
+    DomainOfInfluence municipality = new DomainOfInfluence("municipality")
+    List<Election> elections = [
+            new Election(3, 1, canton),
+            new Election(2, 1, canton),
+            new Election(2, 1, municipality)
+    ]
+
+    // Class under test
+    TallyAggregator tallyAggregator
+
+    void setup() {
+        tallyAggregator = new TallyAggregator(elections)
+    }
+
+    def vote(int... selections) {
+        def bits = new BitSet()
+        selections.each { bits.set(it) }
+        bits
+    }
+
+    def "getTally should break the counts down by election and by domain of influence"() {
+        when:
+        tallyAggregator.add([
+                (vote(0, 3))   : 3L,
+                (vote(1, 4, 5)): 2L,
+                (vote(2))      : 1L
+        ])
+
+        then:
+        tallyAggregator.getTally() == new Tally(6L,
+                [[3L, 2L, 1L], [3L, 2L], [2L, 0L]],
+                [6L, 5L, 2L],
+                [(canton): 6L, (municipality): 2L])
+        tallyAggregator.getTally().candidateCounts == [3L, 2L, 1L, 3L, 2L, 2L, 0L]
+    }
+
+    def "add should accumulate the votes across calls"() {
+        when:
+        tallyAggregator.add(vote(0, 3), 1L)
+        tallyAggregator.add(vote(0, 3), 2L)
+        tallyAggregator.add(vote(5), 1L)
+
+        then:
+        tallyAggregator.getTally() == new Tally(4L,
+                [[3L, 0L, 0L], [3L, 0L], [1L, 0L]],
+                [3L, 3L, 1L],
+                [(canton): 3L, (municipality): 1L])
+    }
+
+    def "add should reject a vote for an unknown candidate"() {
+        when:
+        tallyAggregator.add(vote(7), 1L)
+
+        then:
+        thrown(IllegalArgumentException)
+    }
+}
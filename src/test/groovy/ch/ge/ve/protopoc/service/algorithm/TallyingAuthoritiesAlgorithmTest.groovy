@@ -25,6 +25,7 @@ import ch.ge.ve.protopoc.service.exception.NotEnoughPrimesInGroupException
 import ch.ge.ve.protopoc.service.exception.TallyingRuntimeException
 import ch.ge.ve.protopoc.service.model.*
 import ch.ge.ve.protopoc.service.simulation.SimulationConstants
+import ch.ge.ve.protopoc.service.support.RandomGenerator
 import spock.lang.Specification
 
 import static ch.ge.ve.protopoc.service.support.BigIntegers.*
@@ -86,6 +87,78 @@ class TallyingAuthoritiesAlgorithmTest extends Specification {
         tallyingAuthoritiesAlgorithm.checkDecryptionProofs(bold_pi_prime, bold_pk, bold_e, bold_B_prime)
     }
 
+    def "checkDecryptionProofs should validate the proofs in batch when given a random generator"() {
+        given: "a tallying algorithm checking the proofs in batch"
+        RandomGenerator randomGenerator = Mock()
+        def batchTallyingAlgorithm = new TallyingAuthoritiesAlgorithm(publicParameters, generalAlgorithms, randomGenerator)
+        and: "Some input data"
+        def bold_pi_prime = [
+                new DecryptionProof([NINE, THREE, NINE, FIVE, FOUR], ZERO),
+                new DecryptionProof([FOUR, NINE, FOUR, THREE, FIVE], ONE)
+        ]
+        def bold_pk = [FIVE, THREE]
+        def bold_e = [
+                new Encryption(ONE, FIVE),
+                new Encryption(NINE, THREE),
+                new Encryption(FOUR, FOUR),
+                new Encryption(FOUR, NINE)
+        ]
+        def bold_B_prime = [
+                [FOUR, FIVE, NINE, THREE],
+                [FIVE, THREE, FOUR, NINE]
+        ]
+        generalAlgorithms.getNIZKPChallenge(*_) >>> [ONE, TWO]
+        and: "the expected preconditions checks"
+        generalAlgorithms.isMember(ONE) >> true
+        generalAlgorithms.isMember(THREE) >> true
+        generalAlgorithms.isMember(FOUR) >> true
+        generalAlgorithms.isMember(FIVE) >> true
+        generalAlgorithms.isMember(NINE) >> true
+        generalAlgorithms.isInZ_q(_ as BigInteger) >> { BigInteger x -> 0 <= x && x < encryptionGroup.q }
+
+        when:
+        def valid = batchTallyingAlgorithm.checkDecryptionProofs(bold_pi_prime, bold_pk, bold_e, bold_B_prime)
+
+        then: "one random exponent to be drawn per ballot and per authority"
+        8 * randomGenerator.randomBigInteger(TWO) >> ONE
+        and: "the decryption proofs check to succeed"
+        valid
+    }
+
+    def "checkDecryptionProofs should reject an invalid proof when checking in batch"() {
+        given: "a tallying algorithm checking the proofs in batch"
+        RandomGenerator randomGenerator = Mock()
+        randomGenerator.randomBigInteger(TWO) >> ONE
+        def batchTallyingAlgorithm = new TallyingAuthoritiesAlgorithm(publicParameters, generalAlgorithms, randomGenerator)
+        and: "Some input data, with a tampered commitment in the first proof"
+        def bold_pi_prime = [
+                new DecryptionProof([NINE, FOUR, NINE, FIVE, FOUR], ZERO),
+                new DecryptionProof([FOUR, NINE, FOUR, THREE, FIVE], ONE)
+        ]
+        def bold_pk = [FIVE, THREE]
+        def bold_e = [
+                new Encryption(ONE, FIVE),
+                new Encryption(NINE, THREE),
+                new Encryption(FOUR, FOUR),
+                new Encryption(FOUR, NINE)
+        ]
+        def bold_B_prime = [
+                [FOUR, FIVE, NINE, THREE],
+                [FIVE, THREE, FOUR, NINE]
+        ]
+        generalAlgorithms.getNIZKPChallenge(*_) >>> [ONE, TWO]
+        and: "the expected preconditions checks"
+        generalAlgorithms.isMember(ONE) >> true
+        generalAlgorithms.isMember(THREE) >> true
+        generalAlgorithms.isMember(FOUR) >> true
+        generalAlgorithms.isMember(FIVE) >> true
+        generalAlgorithms.isMember(NINE) >> true
+        generalAlgorithms.isInZ_q(_ as BigInteger) >> { BigInteger x -> 0 <= x && x < encryptionGroup.q }
+
+        expect: "the decryption proofs check to fail"
+        !batchTallyingAlgorithm.checkDecryptionProofs(bold_pi_prime, bold_pk, bold_e, bold_B_prime)
+    }
+
     def "checkDecryptionProof should correctly validate an authority's partial decryption proof"() {
         given: "Some input data"
         def pi_prime = new DecryptionProof([NINE, THREE, NINE, FIVE, FOUR], ZERO)
@@ -171,6 +244,44 @@ class TallyingAuthoritiesAlgorithmTest extends Specification {
         ] as List<List<Boolean>>
     }
 
+    def "getVoteCounts should count the ballots per distinct vote"() {
+        given: "A slightly larger encryption group"
+        def otherEncryptionGroup = new EncryptionGroup(SimulationConstants.p_RC0e, SimulationConstants.q_RC0e,
+                SimulationConstants.g_RC0e, SimulationConstants.h_RC0e)
+        def otherPublicParameters = new PublicParameters(
+                securityParameters, otherEncryptionGroup, identificationGroup, primeField,
+                FIVE, defaultAlphabet, FIVE, defaultAlphabet,
+                defaultAlphabet, 2, defaultAlphabet, 2, 4, 5
+        )
+        def otherTallyingAuthoritiesAlgorithm = new TallyingAuthoritiesAlgorithm(otherPublicParameters,
+                generalAlgorithms)
+
+        and: "Some primes"
+        generalAlgorithms.getPrimes(6) >> [2, 3, 7, 11, 19, 29].collect { BigInteger.valueOf(it) }
+
+        and: "some sample m values, with repeated votes"
+        def m = [2 * 11, 2 * 19, 2 * 11, 3 * 19, 2 * 11, 2 * 19].collect { BigInteger.valueOf(it) }
+
+        and: "the expected preconditions checks"
+        generalAlgorithms.isMember(BigInteger.valueOf(2 * 11)) >> true
+        generalAlgorithms.isMember(BigInteger.valueOf(2 * 19)) >> true
+        generalAlgorithms.isMember(BigInteger.valueOf(3 * 19)) >> true
+
+        and: "a helper building the votes"
+        def vote = { int... selections ->
+            def bits = new BitSet()
+            selections.each { bits.set(it) }
+            bits
+        }
+
+        expect:
+        otherTallyingAuthoritiesAlgorithm.getVoteCounts(m, 6) == [
+                (vote(0, 3)): 3L,
+                (vote(0, 4)): 2L,
+                (vote(1, 4)): 1L
+        ]
+    }
+
     def "getTally should fail if the group is too small for the requested number of primes"() {
         given: "some mock parameters"
         List<BigInteger> m = [ONE]
@@ -180,12 +180,10 @@ class VoteCastingAuthorityAlgorithmsTest extends Specification {
         randomGenerator.randomInZq(_) >> r
         and: "known primes"
         generalAlgorithms.getPrimes(3) >> [TWO, THREE, FIVE]
-        and: "some hash values"
-        hash.recHash_L(_) >>> [
-                [0x00, 0x10], // l = 1
-                [0x20, 0x30], // l = 2
-                [0x40, 0x50] // l = 3
-        ]
+        and: "some hash values, depending on the key of each candidate"
+        hash.recHash_L(k_1, ONE) >> ([0x00, 0x10] as byte[]) // l = 1
+        hash.recHash_L(k_2, ONE) >> ([0x20, 0x30] as byte[]) // l = 2
+        hash.recHash_L(k_3, ONE) >> ([0x40, 0x50] as byte[]) // l = 3
 
         and: "the expected preconditions checks"
         generalAlgorithms.isMember(THREE) >> true
@@ -200,9 +198,44 @@ class VoteCastingAuthorityAlgorithmsTest extends Specification {
                 ), bold_r)
 
         where: "the input / output values are"
-        i | bold_a | r     | bold_b  | bold_c                                     | bold_d | bold_r
-        0 | [FOUR] | THREE | [NINE]  | [[0x01, 0x16], [0x24, 0x36], [0x43, 0x56]] | [FIVE] | [THREE]
-        1 | [FIVE] | TWO   | [THREE] | [[0x02, 0x13], [0x25, 0x33], [0x41, 0x53]] | [NINE] | [TWO]
+        i | bold_a | r     | k_1   | k_2  | k_3   | bold_b  | bold_c                                     | bold_d | bold_r
+        0 | [FOUR] | THREE | EIGHT | FIVE | FOUR  | [NINE]  | [[0x01, 0x16], [0x24, 0x36], [0x43, 0x56]] | [FIVE] | [THREE]
+        1 | [FIVE] | TWO   | FOUR  | NINE | THREE | [THREE] | [[0x02, 0x13], [0x25, 0x33], [0x41, 0x53]] | [NINE] | [TWO]
+    }
+
+    def "genResponse should read the points pre-encoded in the point table"() {
+        given: "a fixed encryption key and challenge"
+        def encryptionKey = new EncryptionPublicKey(THREE, encryptionGroup)
+        List<Integer> candidatesNumberVector = [3]
+        List<List<Integer>> selectionsMatrix = [[1], [1]]
+        def pointTable = EncodedPointTable.allocateDirect(2, 3, 2)
+        pointTable.put(0, [new Point(ONE, SIX), new Point(FOUR, SIX), new Point(THREE, SIX)])
+        pointTable.put(1, [new Point(TWO, THREE), new Point(FIVE, THREE), new Point(ONE, THREE)])
+        and: "some known randomess"
+        randomGenerator.randomInZq(_) >> r
+        and: "known primes"
+        generalAlgorithms.getPrimes(3) >> [TWO, THREE, FIVE]
+        and: "some hash values, depending on the key of each candidate"
+        hash.recHash_L(k_1, ONE) >> ([0x00, 0x10] as byte[]) // l = 1
+        hash.recHash_L(k_2, ONE) >> ([0x20, 0x30] as byte[]) // l = 2
+        hash.recHash_L(k_3, ONE) >> ([0x40, 0x50] as byte[]) // l = 3
+
+        and: "the expected preconditions checks"
+        generalAlgorithms.isMember(THREE) >> true
+        generalAlgorithms.isMember(FOUR) >> true
+        generalAlgorithms.isMember(FIVE) >> true
+
+        expect: "the generated response should match the one computed from the points"
+        voteCastingAuthority.genResponse(i, bold_a, encryptionKey, candidatesNumberVector, selectionsMatrix,
+                pointTable) ==
+                new ObliviousTransferResponseAndRand(new ObliviousTransferResponse(
+                        bold_b, bold_c as byte[][], bold_d
+                ), bold_r)
+
+        where: "the input / output values are"
+        i | bold_a | r     | k_1   | k_2  | k_3   | bold_b  | bold_c                                     | bold_d | bold_r
+        0 | [FOUR] | THREE | EIGHT | FIVE | FOUR  | [NINE]  | [[0x01, 0x16], [0x24, 0x36], [0x43, 0x56]] | [FIVE] | [THREE]
+        1 | [FIVE] | TWO   | FOUR  | NINE | THREE | [THREE] | [[0x02, 0x13], [0x25, 0x33], [0x41, 0x53]] | [NINE] | [TWO]
     }
 
     def "genResponse should fail if the group is too small"() {
@@ -113,6 +113,66 @@ class VoteCastingClientAlgorithmsTest extends Specification {
         ballotQueryAndRand.bold_r == [ONE]
     }
 
+    def "genBallot should complete a precomputed ballot into the same ballot as genBallot"() {
+        given: "the same known randomness, drawn during the precomputation"
+        randomGenerator.randomInZq(_) >>> [
+                ONE, // r_1
+                THREE, // omega_1
+                ONE // omega_3
+        ]
+        randomGenerator.randomInGq(encryptionGroup) >> FIVE // omega_2
+        and: "some valid selected primes"
+        generalAlgorithms.getPrimes(1) >> [THREE]
+        and: "the same values for the proof challenge"
+        generalAlgorithms.getNIZKPChallenge(
+                [ONE, NINE, THREE] as BigInteger[], // x_hat, a, b
+                [FIVE, FOUR, THREE] as BigInteger[],  // t_1, t_2, t_3
+                1 // tau
+        ) >> ONE // c
+
+        and: "the expected preconditions check"
+        generalAlgorithms.isMember_G_q_hat(ONE) >> true
+        generalAlgorithms.isMember(THREE) >> true
+        generalAlgorithms.isMember(NINE) >> true
+        generalAlgorithms.isInZ_q(_ as BigInteger) >> { BigInteger x -> 0 <= x && x < encryptionGroup.q }
+        generalAlgorithms.isInZ_q_hat(_ as BigInteger) >> { BigInteger x -> 0 <= x && x < identificationGroup.q_hat }
+
+        when: "precomputing, then completing a ballot"
+        def pk = new EncryptionPublicKey(THREE, encryptionGroup)
+        def precomputed = voteCastingClient.precomputeBallot(1, pk)
+        def ballotQueryAndRand = voteCastingClient.genBallot("a", [1], pk, precomputed)
+
+        then: "the precomputed values are the selection-independent ones"
+        // pk ^ r_1 mod p = 3 ^ 1 mod 11 = 3
+        precomputed.bold_pk_r == [THREE]
+        precomputed.b == THREE
+        precomputed.bold_t == [FIVE, FOUR, THREE]
+
+        and: "the ballot is the one of genBallot"
+        ballotQueryAndRand.alpha.x_hat == ONE
+        ballotQueryAndRand.alpha.bold_a == [NINE]
+        ballotQueryAndRand.alpha.b == THREE
+        ballotQueryAndRand.alpha.pi == new NonInteractiveZKP([FIVE, FOUR, THREE], [THREE, FOUR, TWO])
+        ballotQueryAndRand.bold_r == [ONE]
+    }
+
+    def "genBallot should reject a ballot precomputed for another number of selections or another key"() {
+        given:
+        def precomputed = new PrecomputedBallot(new EncryptionPublicKey(THREE, encryptionGroup), [ONE], [THREE], ONE,
+                THREE, [THREE, FIVE, ONE], [FIVE, FOUR, THREE])
+
+        when:
+        voteCastingClient.genBallot("a", bold_s, new EncryptionPublicKey(pk, encryptionGroup), precomputed)
+
+        then:
+        thrown(IllegalArgumentException)
+
+        where:
+        bold_s | pk
+        [1, 2] | THREE
+        [1]    | FIVE
+    }
+
     def "getSelectedPrimes"() {
         given: "some valid selected primes"
         generalAlgorithms.getPrimes(1) >> [THREE]
@@ -170,6 +170,25 @@ class VoteConfirmationAuthorityAlgorithmsTest extends Specification {
         1 | new Point(TWO, ONE)   | [ZERO, ONE]  || [0x10, 0x32] as byte[]
     }
 
+    def "getFinalization should reuse the given finalization code part"() {
+        given: "a ballot list"
+        def ballotList = [
+                new BallotEntry(0, null, [THREE, TWO]),
+                new BallotEntry(1, null, [ZERO, ONE])
+        ]
+
+        expect:
+        voteConfirmationAuthority.getFinalization(i, code, ballotList) == new FinalizationCodePart(code, bold_r)
+
+        and: "the points are not hashed again"
+        0 * hash.recHash_L(_)
+
+        where:
+        i | code                   || bold_r
+        0 | [0xAB, 0xCD] as byte[] || [THREE, TWO]
+        1 | [0x10, 0x32] as byte[] || [ZERO, ONE]
+    }
+
     def "getFinalization should fail when the ballot is missing from the ballot list"() {
         given: "a set of parameters"
         def pointMatrix = [
@@ -113,6 +113,30 @@ class VoteConfirmationClientAlgorithmsTest extends Specification {
         [new Point(THREE, TWO), new Point(FIVE, ONE)] || ZERO // performed algorithm by hand, on paper.
     }
 
+    def "getValue should interpolate A(0) over a prime field wider than a machine word"() {
+        given: "p' = 2^127 - 1"
+        def p_prime = ONE.shiftLeft(127).subtract(ONE)
+        def client = new VoteConfirmationClientAlgorithms(new PublicParameters(
+                securityParameters, encryptionGroup, identificationGroup, new PrimeField(p_prime),
+                FIVE, defaultAlphabet, FIVE, defaultAlphabet,
+                defaultAlphabet, 2, defaultAlphabet, 2, 4, 5
+        ), generalAlgorithms, randomGenerator, hash)
+
+        and: "the points of the polynomial A(X) = a_0 + a_1 * X + ... + a_d * X^d"
+        def points = bold_x.collect { BigInteger x ->
+            new Point(x, (0..<bold_a.size()).sum { int i -> bold_a[i] * x.pow(i) }.mod(p_prime))
+        }
+
+        expect:
+        client.getValue(points) == bold_a[0]
+
+        where:
+        bold_a                                                                  | bold_x
+        [123456789012345678901234567890G]                                       | [98765432109876543210987654321G]
+        [123456789012345678901234567890G, 170141183460469231731687303715884G]   | [3G, 170141183460469231731687303715884105726G]
+        [42G, 98765432109876543210987654321G, 11111111111111111111111111111111G] | [2G, 1234567890123456789G, 987654321987654321987654321G]
+    }
+
     def "genConfirmationProof should generate a valid proof of knowledge for y"() {
         given: "a known random omega"
         randomGenerator.randomInZq(FIVE) >> FOUR // omega
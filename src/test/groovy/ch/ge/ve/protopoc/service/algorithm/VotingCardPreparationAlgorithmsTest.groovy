@@ -125,4 +125,34 @@ class VotingCardPreparationAlgorithmsTest extends Specification {
         ]
         sheet_2.bold_k == [1, 0]
     }
+
+    def "generateVotingCards should stream the cards of a range of voters to the sink"() {
+        given:
+        def domainOfInfluence = new DomainOfInfluence("test 1")
+        def voters = (0..2).collect { new Voter() }
+        voters.each { it.addDomainsOfInfluence(domainOfInfluence) }
+        def electionSet = new ElectionSet(voters, [new Candidate("1"), new Candidate("2")],
+                [new Election(2, 1, domainOfInfluence)])
+        and: "the secret voter data of the last two voters"
+        SecretVoterData voter2Authority1 = new SecretVoterData(FOUR, ONE, [0x0F, 0x0F] as byte[],
+                [[0x01, 0x02], [0x03, 0x04]] as byte[][])
+        SecretVoterData voter2Authority2 = new SecretVoterData(ZERO, ONE, [0x31, 0x41] as byte[],
+                [[0xC0, 0xD0], [0xE0, 0xF0]] as byte[][])
+        SecretVoterData voter3Authority1 = new SecretVoterData(ZERO, TWO, [0x01, 0x01] as byte[],
+                [[0x01, 0x02], [0x03, 0x04]] as byte[][])
+        SecretVoterData voter3Authority2 = new SecretVoterData(TWO, ONE, [0x11, 0x11] as byte[],
+                [[0xC1, 0xD2], [0xE3, 0xF4]] as byte[][])
+        def sink = []
+
+        when:
+        codeSheetPreparation.generateVotingCards(electionSet, 1,
+                [[voter2Authority1, voter3Authority1], [voter2Authority2, voter3Authority2]], { sink << it })
+
+        then:
+        sink*.i == [1, 2]
+        sink*.voter == voters.subList(1, 3)
+        sink*.upper_x == ["e", "c"]
+        sink*.upper_fc == ["d5o", "baq"]
+        sink*.bold_rc == [["mds", "op0"], ["mdq", "ohW"]]
+    }
 }
@@ -0,0 +1,86 @@
+/*-------------------------------------------------------------------------------------------------
+ - #%L                                                                                            -
+ - chvote-protocol-poc                                                                            -
+ - %%                                                                                             -
+ - Copyright (C) 2016 - 2017 République et Canton de Genève                                       -
+ - %%                                                                                             -
+ - This program is free software: you can redistribute it and/or modify                           -
+ - it under the terms of the GNU Affero General Public License as published by                    -
+ - the Free Software Foundation, either version 3 of the License, or                              -
+ - (at your option) any later version.                                                            -
+ -                                                                                                -
+ - This program is distributed in the hope that it will be useful,                                -
+ - but WITHOUT ANY WARRANTY; without even the implied warranty of                                 -
+ - MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the                                   -
+ - GNU General Public License for more details.                                                   -
+ -                                                                                                -
+ - You should have received a copy of the GNU Affero General Public License                       -
+ - along with this program. If not, see <http://www.gnu.org/licenses/>.                           -
+ - #L%                                                                                            -
+ -------------------------------------------------------------------------------------------------*/
+
+package ch.ge.ve.protopoc.service.codec
+
+import ch.ge.ve.protopoc.service.model.DecryptionProof
+import ch.ge.ve.protopoc.service.model.Encryption
+import spock.lang.Specification
+
+import java.nio.channels.Channels
+
+import static ch.ge.ve.protopoc.service.support.BigIntegers.*
+import static java.math.BigInteger.ONE
+
+/**
+ * This test class holds the tests for the streaming {@link ChannelWriter} and {@link ChannelReader} classes
+ */
+class ChannelWriterTest extends Specification {
+    def elementCodec = new ElementCodec(1)
+    def encryptionCodec = new EncryptionCodec(elementCodec)
+    def proofCodec = new DecryptionProofCodec(elementCodec)
+
+    def "values and lists should round-trip through buffers smaller than the data"() {
+        given:
+        def encryptions = (1..50).collect { new Encryption(BigInteger.valueOf(it), BigInteger.valueOf(it + 100)) }
+        def proof = new DecryptionProof([TWO, THREE, FIVE, SEVEN, ELEVEN], ONE)
+        def output = new ByteArrayOutputStream()
+
+        when:
+        def writer = new ChannelWriter(Channels.newChannel(output), 8)
+        writer.writeList(encryptions, encryptionCodec)
+        writer.write(proof, proofCodec)
+        writer.writeList(2, [ONE, TWO].iterator(), elementCodec)
+        writer.close()
+
+        and:
+        def reader = new ChannelReader(Channels.newChannel(new ByteArrayInputStream(output.toByteArray())), 8)
+
+        then:
+        output.size() == (4 + 50 * 2) + (4 + 4 + 5 + 1) + (4 + 2)
+        reader.readList(encryptionCodec) == encryptions
+        reader.read(proofCodec) == proof
+        reader.readList(elementCodec) == [ONE, TWO]
+    }
+
+    def "the reader should fail on a truncated channel"() {
+        given:
+        def output = new ByteArrayOutputStream()
+        def writer = new ChannelWriter(Channels.newChannel(output))
+        writer.writeList([ONE, TWO, THREE], elementCodec)
+        writer.close()
+        def truncated = Arrays.copyOf(output.toByteArray(), output.size() - 1)
+
+        when:
+        new ChannelReader(Channels.newChannel(new ByteArrayInputStream(truncated))).readList(elementCodec)
+
+        then:
+        thrown(EOFException)
+    }
+
+    def "the writer should refuse a list with fewer elements than announced"() {
+        when:
+        new ChannelWriter(Channels.newChannel(new ByteArrayOutputStream())).writeList(3, [ONE].iterator(), elementCodec)
+
+        then:
+        thrown(IllegalArgumentException)
+    }
+}
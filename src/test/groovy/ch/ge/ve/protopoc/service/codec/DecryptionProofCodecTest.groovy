@@ -0,0 +1,56 @@
+/*-------------------------------------------------------------------------------------------------
+ - #%L                                                                                            -
+ - chvote-protocol-poc                                                                            -
+ - %%                                                                                             -
+ - Copyright (C) 2016 - 2017 République et Canton de Genève                                       -
+ - %%                                                                                             -
+ - This program is free software: you can redistribute it and/or modify                           -
+ - it under the terms of the GNU Affero General Public License as published by                    -
+ - the Free Software Foundation, either version 3 of the License, or                              -
+ - (at your option) any later version.                                                            -
+ -                                                                                                -
+ - This program is distributed in the hope that it will be useful,                                -
+ - but WITHOUT ANY WARRANTY; without even the implied warranty of                                 -
+ - MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the                                   -
+ - GNU General Public License for more details.                                                   -
+ -                                                                                                -
+ - You should have received a copy of the GNU Affero General Public License                       -
+ - along with this program. If not, see <http://www.gnu.org/licenses/>.                           -
+ - #L%                                                                                            -
+ -------------------------------------------------------------------------------------------------*/
+
+package ch.ge.ve.protopoc.service.codec
+
+import ch.ge.ve.protopoc.service.model.DecryptionProof
+import spock.lang.Specification
+
+import java.nio.ByteBuffer
+
+import static ch.ge.ve.protopoc.service.support.BigIntegers.*
+import static java.math.BigInteger.ONE
+
+/**
+ * This test class holds the tests for the {@link DecryptionProofCodec} class
+ */
+class DecryptionProofCodecTest extends Specification {
+    def codec = new DecryptionProofCodec(new ElementCodec(2))
+
+    def "decryption proofs should round-trip"() {
+        given:
+        def buffer = ByteBuffer.allocate(codec.length(proof))
+
+        when:
+        codec.encode(proof, buffer)
+        buffer.flip()
+
+        then:
+        codec.decode(buffer) == proof
+        !buffer.hasRemaining()
+
+        where:
+        proof << [
+                new DecryptionProof([], ONE),
+                new DecryptionProof([TWO, THREE, FIVE], SEVEN)
+        ]
+    }
+}
@@ -0,0 +1,99 @@
+/*-------------------------------------------------------------------------------------------------
+ - #%L                                                                                            -
+ - chvote-protocol-poc                                                                            -
+ - %%                                                                                             -
+ - Copyright (C) 2016 - 2017 République et Canton de Genève                                       -
+ - %%                                                                                             -
+ - This program is free software: you can redistribute it and/or modify                           -
+ - it under the terms of the GNU Affero General Public License as published by                    -
+ - the Free Software Foundation, either version 3 of the License, or                              -
+ - (at your option) any later version.                                                            -
+ -                                                                                                -
+ - This program is distributed in the hope that it will be useful,                                -
+ - but WITHOUT ANY WARRANTY; without even the implied warranty of                                 -
+ - MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the                                   -
+ - GNU General Public License for more details.                                                   -
+ -                                                                                                -
+ - You should have received a copy of the GNU Affero General Public License                       -
+ - along with this program. If not, see <http://www.gnu.org/licenses/>.                           -
+ - #L%                                                                                            -
+ -------------------------------------------------------------------------------------------------*/
+
+package ch.ge.ve.protopoc.service.codec
+
+import spock.lang.Specification
+
+import java.nio.ByteBuffer
+
+import static ch.ge.ve.protopoc.service.support.BigIntegers.ELEVEN
+import static java.math.BigInteger.ONE
+import static java.math.BigInteger.ZERO
+
+/**
+ * This test class holds the tests for the {@link ElementCodec} class
+ */
+class ElementCodecTest extends Specification {
+
+    def "forModulus should use the byte length of the modulus"() {
+        expect:
+        ElementCodec.forModulus(modulus).length() == length
+
+        where:
+        modulus                  | length
+        ELEVEN                   | 1
+        BigInteger.valueOf(255L) | 1
+        BigInteger.valueOf(256L) | 2
+        ONE.shiftLeft(2047)      | 256
+    }
+
+    def "encode should write fixed-width big-endian values"() {
+        given:
+        def codec = new ElementCodec(3)
+        def buffer = ByteBuffer.allocate(3)
+
+        when:
+        codec.encode(value, buffer)
+
+        then:
+        buffer.array() == (bytes as byte[])
+
+        where:
+        value                         | bytes
+        ZERO                          | [0x00, 0x00, 0x00]
+        ELEVEN                        | [0x00, 0x00, 0x0B]
+        BigInteger.valueOf(0xFF80L)   | [0x00, 0xFF, 0x80]
+        BigInteger.valueOf(0xFFFFFFL) | [0xFF, 0xFF, 0xFF]
+    }
+
+    def "decode should read back the encoded values"() {
+        given:
+        def codec = new ElementCodec(3)
+        def buffer = ByteBuffer.allocate(3 * values.size())
+
+        when:
+        values.each { codec.encode(it, buffer) }
+        buffer.flip()
+
+        then:
+        values.collect { codec.decode(buffer) } == values
+
+        where:
+        values << [[ZERO, ONE, ELEVEN], [BigInteger.valueOf(0xFF80L), BigInteger.valueOf(0xFFFFFFL)]]
+    }
+
+    def "encode should refuse values wider than the codec"() {
+        when:
+        new ElementCodec(1).encode(BigInteger.valueOf(256L), ByteBuffer.allocate(2))
+
+        then:
+        thrown(IllegalArgumentException)
+    }
+
+    def "encode should refuse negative values"() {
+        when:
+        new ElementCodec(1).encode(BigInteger.valueOf(-1L), ByteBuffer.allocate(1))
+
+        then:
+        thrown(IllegalArgumentException)
+    }
+}
@@ -0,0 +1,134 @@
+/*-------------------------------------------------------------------------------------------------
+ - #%L                                                                                            -
+ - chvote-protocol-poc                                                                            -
+ - %%                                                                                             -
+ - Copyright (C) 2016 - 2017 République et Canton de Genève                                       -
+ - %%                                                                                             -
+ - This program is free software: you can redistribute it and/or modify                           -
+ - it under the terms of the GNU Affero General Public License as published by                    -
+ - the Free Software Foundation, either version 3 of the License, or                              -
+ - (at your option) any later version.                                                            -
+ -                                                                                                -
+ - This program is distributed in the hope that it will be useful,                                -
+ - but WITHOUT ANY WARRANTY; without even the implied warranty of                                 -
+ - MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the                                   -
+ - GNU General Public License for more details.                                                   -
+ -                                                                                                -
+ - You should have received a copy of the GNU Affero General Public License                       -
+ - along with this program. If not, see <http://www.gnu.org/licenses/>.                           -
+ - #L%                                                                                            -
+ -------------------------------------------------------------------------------------------------*/
+
+package ch.ge.ve.protopoc.service.codec
+
+import ch.ge.ve.protopoc.service.model.Encryption
+import ch.ge.ve.protopoc.service.model.polynomial.Point
+import spock.lang.Specification
+
+import java.nio.ByteBuffer
+
+import static ch.ge.ve.protopoc.service.support.BigIntegers.*
+import static java.math.BigInteger.ONE
+
+/**
+ * This test class holds the tests for the {@link ListCodec} class and the {@link EncodedList} view
+ */
+class ListCodecTest extends Specification {
+    def elementCodec = new ElementCodec(2)
+
+    def "encrypted lists should round-trip"() {
+        given:
+        def codec = new ListCodec<Encryption>(new EncryptionCodec(elementCodec))
+        def buffer = ByteBuffer.allocate(codec.length(encryptions))
+
+        when:
+        codec.encode(encryptions, buffer)
+        buffer.flip()
+
+        then:
+        codec.length(encryptions) == 4 + 4 * encryptions.size()
+        codec.decode(buffer) == encryptions
+        !buffer.hasRemaining()
+
+        where:
+        encryptions << [
+                [],
+                [new Encryption(ONE, TWO)],
+                [new Encryption(THREE, FIVE), new Encryption(SEVEN, ELEVEN), new Encryption(ONE, NINE)]
+        ]
+    }
+
+    def "point lists should round-trip"() {
+        given:
+        def codec = new ListCodec<Point>(new PointCodec(elementCodec))
+        def points = [new Point(ONE, FIVE), new Point(TWO, SEVEN)]
+        def buffer = ByteBuffer.allocate(codec.length(points))
+
+        when:
+        codec.encode(points, buffer)
+        buffer.flip()
+
+        then:
+        codec.decode(buffer) == points
+    }
+
+    def "decode should consume exactly the encoded list"() {
+        given:
+        def codec = new ListCodec<BigInteger>(elementCodec)
+        def buffer = ByteBuffer.allocate(codec.length(2) + codec.length(1))
+
+        when:
+        codec.encode([ONE, TWO], buffer)
+        codec.encode([THREE], buffer)
+        buffer.flip()
+
+        then:
+        codec.decode(buffer) == [ONE, TWO]
+        codec.decode(buffer) == [THREE]
+    }
+
+    def "the encoded list should give random access to its elements"() {
+        given:
+        def codec = new ListCodec<BigInteger>(elementCodec)
+        def buffer = ByteBuffer.allocate(codec.length(3))
+        codec.encode([FIVE, SEVEN, ELEVEN], buffer)
+        def list = new EncodedList<BigInteger>(buffer, elementCodec)
+
+        expect:
+        list.size() == 3
+        list.get(2) == ELEVEN
+        list.get(0) == FIVE
+
+        when:
+        list.get(3)
+
+        then:
+        thrown(IndexOutOfBoundsException)
+    }
+
+    def "length should refuse a list too large to be encoded in a single buffer"() {
+        given: "2048-bit group elements"
+        def codec = new ListCodec<Encryption>(new EncryptionCodec(new ElementCodec(256)))
+
+        expect:
+        codec.length(4_194_303) == 4 + 4_194_303 * 512
+
+        when:
+        codec.length(4_194_304)
+
+        then:
+        thrown(IllegalArgumentException)
+    }
+
+    def "the encoded list should refuse a truncated buffer"() {
+        given:
+        def buffer = ByteBuffer.allocate(6)
+        buffer.putInt(0, 2)
+
+        when:
+        new EncodedList<BigInteger>(buffer, elementCodec)
+
+        then:
+        thrown(IllegalArgumentException)
+    }
+}
@@ -0,0 +1,53 @@
+/*-------------------------------------------------------------------------------------------------
+ - #%L                                                                                            -
+ - chvote-protocol-poc                                                                            -
+ - %%                                                                                             -
+ - Copyright (C) 2016 - 2017 République et Canton de Genève                                       -
+ - %%                                                                                             -
+ - This program is free software: you can redistribute it and/or modify                           -
+ - it under the terms of the GNU Affero General Public License as published by                    -
+ - the Free Software Foundation, either version 3 of the License, or                              -
+ - (at your option) any later version.                                                            -
+ -                                                                                                -
+ - This program is distributed in the hope that it will be useful,                                -
+ - but WITHOUT ANY WARRANTY; without even the implied warranty of                                 -
+ - MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the                                   -
+ - GNU General Public License for more details.                                                   -
+ -                                                                                                -
+ - You should have received a copy of the GNU Affero General Public License                       -
+ - along with this program. If not, see <http://www.gnu.org/licenses/>.                           -
+ - #L%                                                                                            -
+ -------------------------------------------------------------------------------------------------*/
+
+package ch.ge.ve.protopoc.service.codec
+
+import ch.ge.ve.protopoc.service.model.ObliviousTransferResponse
+import spock.lang.Specification
+
+import java.nio.ByteBuffer
+
+import static ch.ge.ve.protopoc.service.support.BigIntegers.*
+import static java.math.BigInteger.ONE
+
+/**
+ * This test class holds the tests for the {@link ObliviousTransferResponseCodec} class
+ */
+class ObliviousTransferResponseCodecTest extends Specification {
+    def codec = new ObliviousTransferResponseCodec(new ElementCodec(1))
+
+    def "oblivious transfer responses should round-trip"() {
+        given:
+        def c = [[0x01, 0x02] as byte[], [0x03] as byte[], [] as byte[]] as byte[][]
+        def response = new ObliviousTransferResponse([ONE, THREE], c, [FIVE, SEVEN])
+        def buffer = ByteBuffer.allocate(codec.length(response))
+
+        when:
+        codec.encode(response, buffer)
+        buffer.flip()
+
+        then:
+        codec.length(response) == (4 + 2) + 4 + (4 + 2) + (4 + 1) + 4 + (4 + 2)
+        codec.decode(buffer) == response
+        !buffer.hasRemaining()
+    }
+}
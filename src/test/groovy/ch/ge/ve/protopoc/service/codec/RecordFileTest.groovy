@@ -0,0 +1,125 @@
+/*-------------------------------------------------------------------------------------------------
+ - #%L                                                                                            -
+ - chvote-protocol-poc                                                                            -
+ - %%                                                                                             -
+ - Copyright (C) 2016 - 2017 République et Canton de Genève                                       -
+ - %%                                                                                             -
+ - This program is free software: you can redistribute it and/or modify                           -
+ - it under the terms of the GNU Affero General Public License as published by                    -
+ - the Free Software Foundation, either version 3 of the License, or                              -
+ - (at your option) any later version.                                                            -
+ -                                                                                                -
+ - This program is distributed in the hope that it will be useful,                                -
+ - but WITHOUT ANY WARRANTY; without even the implied warranty of                                 -
+ - MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the                                   -
+ - GNU General Public License for more details.                                                   -
+ -                                                                                                -
+ - You should have received a copy of the GNU Affero General Public License                       -
+ - along with this program. If not, see <http://www.gnu.org/licenses/>.                           -
+ - #L%                                                                                            -
+ -------------------------------------------------------------------------------------------------*/
+
+package ch.ge.ve.protopoc.service.codec
+
+import spock.lang.Specification
+
+import java.nio.file.Files
+import java.nio.file.Path
+
+import static ch.ge.ve.protopoc.service.support.BigIntegers.*
+import static java.math.BigInteger.ONE
+
+/**
+ * This test class holds the tests for the {@link RecordFile} class
+ */
+class RecordFileTest extends Specification {
+    def elementCodec = new ElementCodec(2)
+
+    Path path
+
+    void setup() {
+        path = Files.createTempFile("records", ".rec")
+    }
+
+    void cleanup() {
+        Files.deleteIfExists(path)
+    }
+
+    def "records written by index in any order should be mapped back in index order"() {
+        given:
+        def records = RecordFile.create(path, elementCodec)
+
+        when:
+        records.write(2, [FIVE, SEVEN])
+        records.write(0, [ONE, THREE])
+        def mapped = records.map(4)
+
+        then:
+        records.size() == 4
+        Files.size(path) == 4 * 2
+        mapped == [ONE, THREE, FIVE, SEVEN]
+
+        cleanup:
+        records.close()
+    }
+
+    def "the mapped records should remain readable once the file is closed"() {
+        given:
+        def records = RecordFile.create(path, elementCodec)
+        records.write(0, [ELEVEN, NINE, EIGHT])
+
+        when:
+        def mapped = records.map(2)
+        records.close()
+
+        then:
+        mapped == [ELEVEN, NINE]
+    }
+
+    def "an existing record file should be readable once re-opened"() {
+        given:
+        RecordFile.create(path, new ByteArrayCodec(3)).withCloseable {
+            it.write(0, [[1, 2, 3] as byte[], [4, 5, 6] as byte[]])
+        }
+
+        when:
+        def records = RecordFile.open(path, new ByteArrayCodec(3))
+        def mapped = records.map(2)
+
+        then:
+        records.size() == 2
+        mapped*.toList() == [[1, 2, 3], [4, 5, 6]]
+
+        cleanup:
+        records.close()
+    }
+
+    def "creating a record file should replace the existing one"() {
+        given:
+        RecordFile.create(path, elementCodec).withCloseable { it.write(0, [ONE, TWO, THREE]) }
+
+        when:
+        def records = RecordFile.create(path, elementCodec)
+
+        then:
+        records.size() == 0
+
+        cleanup:
+        records.close()
+    }
+
+    def "mapping more records than the file holds should fail"() {
+        given:
+        def records = RecordFile.create(path, elementCodec)
+        records.write(0, [ONE])
+
+        when:
+        records.map(2)
+
+        then:
+        thrown(IllegalArgumentException)
+
+        cleanup:
+        records.close()
+    }
+}
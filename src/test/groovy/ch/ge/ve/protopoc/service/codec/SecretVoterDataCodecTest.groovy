@@ -0,0 +1,64 @@
+/*-------------------------------------------------------------------------------------------------
+ - #%L                                                                                            -
+ - chvote-protocol-poc                                                                            -
+ - %%                                                                                             -
+ - Copyright (C) 2016 - 2017 République et Canton de Genève                                       -
+ - %%                                                                                             -
+ - This program is free software: you can redistribute it and/or modify                           -
+ - it under the terms of the GNU Affero General Public License as published by                    -
+ - the Free Software Foundation, either version 3 of the License, or                              -
+ - (at your option) any later version.                                                            -
+ -                                                                                                -
+ - This program is distributed in the hope that it will be useful,                                -
+ - but WITHOUT ANY WARRANTY; without even the implied warranty of                                 -
+ - MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the                                   -
+ - GNU General Public License for more details.                                                   -
+ -                                                                                                -
+ - You should have received a copy of the GNU Affero General Public License                       -
+ - along with this program. If not, see <http://www.gnu.org/licenses/>.                           -
+ - #L%                                                                                            -
+ -------------------------------------------------------------------------------------------------*/
+
+package ch.ge.ve.protopoc.service.codec
+
+import ch.ge.ve.protopoc.service.model.SecretVoterData
+import spock.lang.Specification
+
+import java.nio.ByteBuffer
+
+import static ch.ge.ve.protopoc.service.support.BigIntegers.*
+
+/**
+ * This test class holds the tests for the {@link SecretVoterDataCodec} class
+ */
+class SecretVoterDataCodecTest extends Specification {
+    def codec = new SecretVoterDataCodec(new ElementCodec(2), new ElementCodec(1), 2, 1, 3)
+
+    def "secret voter data should round-trip"() {
+        given:
+        def data = new SecretVoterData(ELEVEN, THREE, [0x0A, 0x0B] as byte[],
+                [[0x01] as byte[], [0x02] as byte[], [0x03] as byte[]] as byte[][])
+        def buffer = ByteBuffer.allocate(codec.length())
+
+        when:
+        codec.encode(data, buffer)
+        buffer.flip()
+
+        then:
+        codec.length() == 2 + 1 + 2 + 3
+        codec.decode(buffer) == data
+        !buffer.hasRemaining()
+    }
+
+    def "encode should reject a finalization code of the wrong length"() {
+        given:
+        def data = new SecretVoterData(ELEVEN, THREE, [0x0A] as byte[],
+                [[0x01] as byte[], [0x02] as byte[], [0x03] as byte[]] as byte[][])
+
+        when:
+        codec.encode(data, ByteBuffer.allocate(codec.length()))
+
+        then:
+        thrown(IllegalArgumentException)
+    }
+}
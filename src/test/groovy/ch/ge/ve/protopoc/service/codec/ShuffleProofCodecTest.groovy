@@ -0,0 +1,55 @@
+/*-------------------------------------------------------------------------------------------------
+ - #%L                                                                                            -
+ - chvote-protocol-poc                                                                            -
+ - %%                                                                                             -
+ - Copyright (C) 2016 - 2017 République et Canton de Genève                                       -
+ - %%                                                                                             -
+ - This program is free software: you can redistribute it and/or modify                           -
+ - it under the terms of the GNU Affero General Public License as published by                    -
+ - the Free Software Foundation, either version 3 of the License, or                              -
+ - (at your option) any later version.                                                            -
+ -                                                                                                -
+ - This program is distributed in the hope that it will be useful,                                -
+ - but WITHOUT ANY WARRANTY; without even the implied warranty of                                 -
+ - MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the                                   -
+ - GNU General Public License for more details.                                                   -
+ -                                                                                                -
+ - You should have received a copy of the GNU Affero General Public License                       -
+ - along with this program. If not, see <http://www.gnu.org/licenses/>.                           -
+ - #L%                                                                                            -
+ -------------------------------------------------------------------------------------------------*/
+
+package ch.ge.ve.protopoc.service.codec
+
+import ch.ge.ve.protopoc.service.model.ShuffleProof
+import spock.lang.Specification
+
+import java.nio.ByteBuffer
+
+import static ch.ge.ve.protopoc.service.support.BigIntegers.*
+import static java.math.BigInteger.ONE
+import static java.math.BigInteger.TEN
+
+/**
+ * This test class holds the tests for the {@link ShuffleProofCodec} class
+ */
+class ShuffleProofCodecTest extends Specification {
+    def codec = new ShuffleProofCodec(new ElementCodec(1))
+
+    def "shuffle proofs should round-trip"() {
+        given:
+        def t = new ShuffleProof.T(ONE, TWO, THREE, [FOUR, FIVE], [SIX, SEVEN, EIGHT])
+        def s = new ShuffleProof.S(NINE, TEN, ELEVEN, ONE, [TWO, THREE, FOUR], [FIVE, SIX, SEVEN])
+        def proof = new ShuffleProof(t, s, [EIGHT, NINE, TEN], [ELEVEN, ONE, TWO])
+        def buffer = ByteBuffer.allocate(codec.length(proof))
+
+        when:
+        codec.encode(proof, buffer)
+        buffer.flip()
+
+        then:
+        codec.length(proof) == 7 + 6 * 4 + 2 + 3 + 3 + 3 + 3 + 3
+        codec.decode(buffer) == proof
+        !buffer.hasRemaining()
+    }
+}
@@ -0,0 +1,181 @@
+/*-------------------------------------------------------------------------------------------------
+ - #%L                                                                                            -
+ - chvote-protocol-poc                                                                            -
+ - %%                                                                                             -
+ - Copyright (C) 2016 - 2017 République et Canton de Genève                                       -
+ - %%                                                                                             -
+ - This program is free software: you can redistribute it and/or modify                           -
+ - it under the terms of the GNU Affero General Public License as published by                    -
+ - the Free Software Foundation, either version 3 of the License, or                              -
+ - (at your option) any later version.                                                            -
+ -                                                                                                -
+ - This program is distributed in the hope that it will be useful,                                -
+ - but WITHOUT ANY WARRANTY; without even the implied warranty of                                 -
+ - MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the                                   -
+ - GNU General Public License for more details.                                                   -
+ -                                                                                                -
+ - You should have received a copy of the GNU Affero General Public License                       -
+ - along with this program. If not, see <http://www.gnu.org/licenses/>.                           -
+ - #L%                                                                                            -
+ -------------------------------------------------------------------------------------------------*/
+
+package ch.ge.ve.protopoc.service.persistence
+
+import spock.lang.Specification
+
+import java.nio.ByteBuffer
+import java.nio.file.Files
+import java.nio.file.Path
+
+/**
+ * This test class holds the tests for the {@link SegmentLog} class
+ */
+class SegmentLogTest extends Specification {
+    static final int HEADER_SIZE = 13
+
+    Path directory
+    SegmentLog segmentLog
+
+    void setup() {
+        directory = Files.createTempDirectory("segment-log")
+        segmentLog = open(1024)
+    }
+
+    void cleanup() {
+        segmentLog.close()
+        directory.toFile().deleteDir()
+    }
+
+    def "appended entries should be readable"() {
+        when:
+        def first = append(1 as byte, 7, [1, 2, 3])
+        def second = append(2 as byte, 8, [4, 5])
+
+        then:
+        first.type == 1 as byte
+        first.key == 7
+        first.length == 3
+        payload(segmentLog.read(first)) == [1, 2, 3]
+        second.type == 2 as byte
+        second.key == 8
+        payload(segmentLog.read(second)) == [4, 5]
+    }
+
+    def "an empty payload should be refused"() {
+        when:
+        segmentLog.append(1 as byte, 0, 0, {})
+
+        then:
+        thrown(IllegalArgumentException)
+    }
+
+    def "the entries should be synced by the background thread"() {
+        when:
+        def entry = append(1 as byte, 0, [1])
+        segmentLog.awaitSync(entry)
+
+        then:
+        segmentLog.whenSynced(entry).isDone()
+    }
+
+    def "the entries should be recovered when the log is re-opened, and appended to"() {
+        given:
+        append(1 as byte, 7, [1, 2, 3])
+        append(2 as byte, 8, [4, 5])
+        segmentLog.close()
+
+        when:
+        segmentLog = open(1024)
+        append(3 as byte, 9, [6])
+        segmentLog.close()
+        segmentLog = open(1024)
+        def recovered = segmentLog.recoveredEntries
+
+        then:
+        recovered*.type == [1, 2, 3]
+        recovered*.key == [7, 8, 9]
+        recovered.collect { payload(segmentLog.read(it)) } == [[1, 2, 3], [4, 5], [6]]
+    }
+
+    def "an entry whose length was not written should end the recovery"() {
+        given:
+        append(1 as byte, 7, [1, 2, 3])
+        append(2 as byte, 8, [4, 5])
+        segmentLog.close()
+        // the length is the commit marker of an entry, written after its payload
+        overwrite(HEADER_SIZE + 3, [0, 0, 0, 0])
+
+        when:
+        segmentLog = open(1024)
+
+        then:
+        segmentLog.recoveredEntries*.key == [7]
+    }
+
+    def "an entry not matching its checksum should end the recovery"() {
+        given:
+        append(1 as byte, 7, [1, 2, 3])
+        append(2 as byte, 8, [4, 5])
+        append(3 as byte, 9, [6])
+        segmentLog.close()
+        overwrite(offset, bytes)
+
+        when:
+        segmentLog = open(1024)
+
+        then:
+        segmentLog.recoveredEntries*.key == [7]
+
+        where:
+        offset                   | bytes
+        2 * HEADER_SIZE + 3 + 1  | [0]          // torn payload
+        HEADER_SIZE + 3 + 8      | [3]          // type
+        HEADER_SIZE + 3 + 12     | [9]          // key
+        HEADER_SIZE + 3 + 4      | [0, 0, 0, 0] // checksum
+    }
+
+    def "the log should roll over to new segments"() {
+        given:
+        segmentLog.close()
+        segmentLog = open(32)
+
+        when:
+        append(1 as byte, 0, (1..10).toList())
+        append(1 as byte, 1, (1..10).toList())
+        append(1 as byte, 2, (1..40).toList())
+        append(1 as byte, 3, [1])
+        segmentLog.close()
+        segmentLog = open(32)
+
+        then:
+        Files.list(directory).count() == 4
+        segmentLog.recoveredEntries*.key == [0, 1, 2, 3]
+        payload(segmentLog.read(segmentLog.recoveredEntries[2])) == (1..40).toList()
+    }
+
+    private SegmentLog open(int segmentSize) {
+        new SegmentLog(directory, segmentSize, 10)
+    }
+
+    private SegmentLog.Entry append(byte type, int key, List<Integer> bytes) {
+        segmentLog.append(type, key, bytes.size(), { ByteBuffer buffer -> bytes.each { buffer.put(it as byte) } })
+    }
+
+    private void overwrite(int offset, List<Integer> bytes) {
+        def file = new RandomAccessFile(directory.resolve("segment-00000000.log").toFile(), "rw")
+        try {
+            file.seek(offset)
+            file.write(bytes as byte[])
+        } finally {
+            file.close()
+        }
+    }
+
+    private static List<Integer> payload(ByteBuffer buffer) {
+        def bytes = []
+        while (buffer.hasRemaining()) {
+            bytes << (buffer.get() as int)
+        }
+        bytes
+    }
+}
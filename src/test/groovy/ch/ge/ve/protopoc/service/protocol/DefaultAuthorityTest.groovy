@@ -0,0 +1,142 @@
+/*-------------------------------------------------------------------------------------------------
+ - #%L                                                                                            -
+ - chvote-protocol-poc                                                                            -
+ - %%                                                                                             -
+ - Copyright (C) 2016 - 2017 République et Canton de Genève                                       -
+ - %%                                                                                             -
+ - This program is free software: you can redistribute it and/or modify                           -
+ - it under the terms of the GNU Affero General Public License as published by                    -
+ - the Free Software Foundation, either version 3 of the License, or                              -
+ - (at your option) any later version.                                                            -
+ -                                                                                                -
+ - This program is distributed in the hope that it will be useful,                                -
+ - but WITHOUT ANY WARRANTY; without even the implied warranty of                                 -
+ - MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the                                   -
+ - GNU General Public License for more details.                                                   -
+ -                                                                                                -
+ - You should have received a copy of the GNU Affero General Public License                       -
+ - along with this program. If not, see <http://www.gnu.org/licenses/>.                           -
+ - #L%                                                                                            -
+ -------------------------------------------------------------------------------------------------*/
+
+package ch.ge.ve.protopoc.service.protocol
+
+import ch.ge.ve.protopoc.service.algorithm.DecryptionAuthorityAlgorithms
+import ch.ge.ve.protopoc.service.algorithm.KeyEstablishmentAlgorithms
+import ch.ge.ve.protopoc.service.algorithm.MixingAuthorityAlgorithms
+import ch.ge.ve.protopoc.service.model.*
+import spock.lang.Specification
+import spock.util.concurrent.BlockingVariable
+
+import java.security.KeyPair
+
+import static ch.ge.ve.protopoc.service.support.BigIntegers.*
+import static java.math.BigInteger.ONE
+
+/**
+ * This test class holds the tests for the {@link DefaultAuthority} class
+ */
+class DefaultAuthorityTest extends Specification {
+    def defaultAlphabet = "abcdefghijklmnopqrstuvwxyzABCDEFGHIJKLMNOPQRSTUVWXYZ0123456789-_".toCharArray() as List<Character>
+    EncryptionGroup encryptionGroup = new EncryptionGroup(ELEVEN, FIVE, THREE, FOUR)
+    IdentificationGroup identificationGroup = new IdentificationGroup(ELEVEN, FIVE, THREE)
+    SecurityParameters securityParameters = new SecurityParameters(1, 1, 2, 0.99)
+    PrimeField primeField = new PrimeField(ELEVEN)
+    PublicParameters publicParameters = new PublicParameters(
+            securityParameters, encryptionGroup, identificationGroup, primeField,
+            FIVE, defaultAlphabet, FIVE, defaultAlphabet,
+            defaultAlphabet, 2, defaultAlphabet, 2, 2, 3
+    )
+
+    KeyEstablishmentAlgorithms keyEstablishmentAlgorithms = Mock()
+    MixingAuthorityAlgorithms mixingAuthorityAlgorithms = Mock()
+    DecryptionAuthorityAlgorithms decryptionAuthorityAlgorithms = Mock()
+
+    def systemPublicKey = new EncryptionPublicKey(ONE, encryptionGroup)
+    def bold_e = [new Encryption(FIVE, ONE), new Encryption(THREE, FOUR)]
+    def bold_e_prime = [new Encryption(FOUR, THREE), new Encryption(ONE, FIVE)]
+    def proof0 = proof(ONE)
+    def proof1 = proof(TWO)
+    def checked = new BlockingVariable<List>(5)
+
+    DefaultBulletinBoard bulletinBoard
+    ShuffleProofVerificationService shuffleProofVerificationService
+    DefaultAuthority authority
+
+    void setup() {
+        bulletinBoard = new DefaultBulletinBoard()
+        bulletinBoard.publishPublicParameters(publicParameters)
+        bulletinBoard.publishKeyPart(0, new EncryptionPublicKey(THREE, encryptionGroup))
+        keyEstablishmentAlgorithms.generateKeyPair(encryptionGroup) >> new KeyPair(
+                new EncryptionPublicKey(FOUR, encryptionGroup), new EncryptionPrivateKey(TWO, encryptionGroup))
+        keyEstablishmentAlgorithms.getPublicKey(_) >> systemPublicKey
+        mixingAuthorityAlgorithms.getEncryptions(_, _) >> bold_e
+        mixingAuthorityAlgorithms.genShuffle(_, systemPublicKey) >> new Shuffle(bold_e, [ONE, TWO], [1, 0])
+        mixingAuthorityAlgorithms.genShuffleProof(*_) >> proof1
+        // the checks run asynchronously, the arguments of the first one are handed over to the feature
+        decryptionAuthorityAlgorithms.checkShuffleProof(*_) >> {
+            checked.set(it)
+            true
+        }
+
+        authority = new DefaultAuthority(1, bulletinBoard, keyEstablishmentAlgorithms, null, null, null,
+                mixingAuthorityAlgorithms, decryptionAuthorityAlgorithms)
+        authority.generateKeys()
+        authority.buildPublicKey()
+    }
+
+    void cleanup() {
+        shuffleProofVerificationService?.shutdown()
+        bulletinBoard.shutdown()
+    }
+
+    def "the shuffle proofs of the other authorities should be checked as soon as they are published"() {
+        given:
+        share(shared)
+        bulletinBoard.publishShuffle(0, bold_e_prime)
+
+        when:
+        authority.mixAgain()
+
+        then:
+        0 * decryptionAuthorityAlgorithms.checkShuffleProof(*_)
+
+        when:
+        bulletinBoard.publishShuffleProof(0, proof0)
+
+        then:
+        checked.get() == [proof0, bold_e, bold_e_prime, systemPublicKey]
+
+        where:
+        shared << [false, true]
+    }
+
+    def "a shuffle proof published before the mixing should be checked right away"() {
+        given:
+        share(shared)
+        bulletinBoard.publishShuffle(0, bold_e_prime)
+        bulletinBoard.publishShuffleProof(0, proof0)
+
+        when:
+        authority.mixAgain()
+
+        then:
+        checked.get() == [proof0, bold_e, bold_e_prime, systemPublicKey]
+        bulletinBoard.getShuffleProofAsync(1).get() == proof1
+
+        where:
+        shared << [false, true]
+    }
+
+    private void share(boolean shared) {
+        if (shared) {
+            shuffleProofVerificationService = new ShuffleProofVerificationService(bulletinBoard,
+                    decryptionAuthorityAlgorithms, 1)
+            authority.setShuffleProofVerification(shuffleProofVerificationService, false)
+        }
+    }
+
+    private static ShuffleProof proof(BigInteger x) {
+        new ShuffleProof(new ShuffleProof.T(x, x, x, [x, x], [x]), new ShuffleProof.S(x, x, x, x, [x], [x]), [x], [x])
+    }
+}
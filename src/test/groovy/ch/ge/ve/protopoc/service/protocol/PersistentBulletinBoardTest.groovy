@@ -0,0 +1,166 @@
+/*-------------------------------------------------------------------------------------------------
+ - #%L                                                                                            -
+ - chvote-protocol-poc                                                                            -
+ - %%                                                                                             -
+ - Copyright (C) 2016 - 2017 République et Canton de Genève                                       -
+ - %%                                                                                             -
+ - This program is free software: you can redistribute it and/or modify                           -
+ - it under the terms of the GNU Affero General Public License as published by                    -
+ - the Free Software Foundation, either version 3 of the License, or                              -
+ - (at your option) any later version.                                                            -
+ -                                                                                                -
+ - This program is distributed in the hope that it will be useful,                                -
+ - but WITHOUT ANY WARRANTY; without even the implied warranty of                                 -
+ - MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the                                   -
+ - GNU General Public License for more details.                                                   -
+ -                                                                                                -
+ - You should have received a copy of the GNU Affero General Public License                       -
+ - along with this program. If not, see <http://www.gnu.org/licenses/>.                           -
+ - #L%                                                                                            -
+ -------------------------------------------------------------------------------------------------*/
+
+package ch.ge.ve.protopoc.service.protocol
+
+import ch.ge.ve.protopoc.service.model.*
+import spock.lang.Specification
+
+import java.nio.file.Files
+import java.nio.file.Path
+import java.util.concurrent.CompletableFuture
+
+import static ch.ge.ve.protopoc.service.support.BigIntegers.*
+import static java.math.BigInteger.ONE
+
+/**
+ * This test class holds the tests for the {@link PersistentBulletinBoard} class
+ */
+class PersistentBulletinBoardTest extends Specification {
+    def defaultAlphabet = "abcdefghijklmnopqrstuvwxyzABCDEFGHIJKLMNOPQRSTUVWXYZ0123456789-_".toCharArray() as List<Character>
+    EncryptionGroup encryptionGroup = new EncryptionGroup(ELEVEN, FIVE, THREE, FOUR)
+    IdentificationGroup identificationGroup = new IdentificationGroup(ELEVEN, FIVE, THREE)
+    SecurityParameters securityParameters = new SecurityParameters(1, 1, 2, 0.99)
+    PrimeField primeField = new PrimeField(ELEVEN)
+    PublicParameters publicParameters = new PublicParameters(
+            securityParameters, encryptionGroup, identificationGroup, primeField,
+            FIVE, defaultAlphabet, FIVE, defaultAlphabet,
+            defaultAlphabet, 2, defaultAlphabet, 2, 2, 3
+    )
+
+    AuthorityService authority0 = Mock()
+    AuthorityService authority1 = Mock()
+
+    Path directory
+    PersistentBulletinBoard bulletinBoard
+
+    void setup() {
+        directory = Files.createTempDirectory("bulletin-board")
+        bulletinBoard = open()
+    }
+
+    void cleanup() {
+        bulletinBoard.shutdown()
+        directory.toFile().deleteDir()
+    }
+
+    def "the published data should be recovered when the board is re-opened"() {
+        given:
+        def shuffle = [new Encryption(FIVE, ONE), new Encryption(THREE, FOUR)]
+        bulletinBoard.publishKeyPart(0, new EncryptionPublicKey(THREE, encryptionGroup))
+        bulletinBoard.publishKeyPart(1, new EncryptionPublicKey(FOUR, encryptionGroup))
+        bulletinBoard.publishShuffle(0, shuffle)
+
+        when:
+        reopen()
+
+        then:
+        bulletinBoard.publicKeyParts == [new EncryptionPublicKey(THREE, encryptionGroup),
+                                         new EncryptionPublicKey(FOUR, encryptionGroup)]
+        bulletinBoard.getPreviousShuffle(0) == shuffle
+        bulletinBoard.getShuffleAsync(0).get() == shuffle
+    }
+
+    def "the board should refuse other public parameters than the persisted ones"() {
+        given:
+        bulletinBoard.shutdown()
+        bulletinBoard = new PersistentBulletinBoard(directory, 1024, 10)
+
+        when:
+        bulletinBoard.publishPublicParameters(new PublicParameters(
+                securityParameters, new EncryptionGroup(SEVEN, THREE, TWO, FOUR), identificationGroup, primeField,
+                FIVE, defaultAlphabet, FIVE, defaultAlphabet,
+                defaultAlphabet, 2, defaultAlphabet, 2, 2, 3
+        ))
+
+        then:
+        thrown(IllegalArgumentException)
+    }
+
+    def "the recovered ballots and confirmations should be replayed to the authorities, in log order"() {
+        given:
+        def ballot = new BallotAndQuery(FIVE, [THREE, FOUR], NINE, new NonInteractiveZKP([ONE, TWO], [THREE]))
+        def confirmation = new Confirmation(SEVEN, new NonInteractiveZKP([TWO], [FOUR]))
+        def response = new ObliviousTransferResponse([ONE], [[1] as byte[]] as byte[][], [TWO])
+        def finalizationCodePart = new FinalizationCodePart([1] as byte[], [THREE])
+        authority0.handleBallotAsync(3, ballot, _) >> CompletableFuture.completedFuture(response)
+        authority1.handleBallotAsync(3, ballot, _) >> CompletableFuture.completedFuture(response)
+        authority0.handleConfirmationAsync(3, confirmation, _) >> CompletableFuture.completedFuture(finalizationCodePart)
+        authority1.handleConfirmationAsync(3, confirmation, _) >> CompletableFuture.completedFuture(finalizationCodePart)
+        bulletinBoard.publishBallotAsync(3, ballot)*.join()
+        bulletinBoard.publishConfirmationAsync(3, confirmation)*.join()
+
+        when:
+        reopen()
+        def replayed = bulletinBoard.replayBallotsAndConfirmations()
+
+        then:
+        replayed == 2
+
+        then:
+        1 * authority0.handleBallotAsync(3, { it.x_hat == FIVE && it.bold_a == [THREE, FOUR] && it.b == NINE &&
+                it.pi == ballot.pi }, _) >> CompletableFuture.completedFuture(response)
+        1 * authority1.handleBallotAsync(3, _, _) >> CompletableFuture.completedFuture(response)
+
+        then:
+        1 * authority0.handleConfirmationAsync(3, confirmation, _) >>
+                CompletableFuture.completedFuture(finalizationCodePart)
+        1 * authority1.handleConfirmationAsync(3, confirmation, _) >>
+                CompletableFuture.completedFuture(finalizationCodePart)
+    }
+
+    def "a rejected ballot should not stop the replay"() {
+        given:
+        def ballot = new BallotAndQuery(FIVE, [THREE], NINE, new NonInteractiveZKP([ONE], [TWO]))
+        def otherBallot = new BallotAndQuery(THREE, [FOUR], FIVE, new NonInteractiveZKP([TWO], [ONE]))
+        def response = new ObliviousTransferResponse([ONE], [[1] as byte[]] as byte[][], [TWO])
+        _ * _.handleBallotAsync(*_) >> CompletableFuture.completedFuture(response)
+        bulletinBoard.publishBallotAsync(1, ballot)*.join()
+        bulletinBoard.publishBallotAsync(2, otherBallot)*.join()
+        reopen()
+
+        when:
+        def replayed = bulletinBoard.replayBallotsAndConfirmations()
+
+        then:
+        replayed == 2
+        2 * _.handleBallotAsync(1, _, _) >> failedFuture(new IllegalArgumentException("invalid ballot"))
+        2 * _.handleBallotAsync(2, _, _) >> CompletableFuture.completedFuture(response)
+    }
+
+    private PersistentBulletinBoard open() {
+        def board = new PersistentBulletinBoard(directory, 1024, 10)
+        board.publishPublicParameters(publicParameters)
+        board.setAuthorities([authority0, authority1], 1, 10)
+        board
+    }
+
+    private void reopen() {
+        bulletinBoard.shutdown()
+        bulletinBoard = open()
+    }
+
+    private static <T> CompletableFuture<T> failedFuture(Throwable throwable) {
+        def future = new CompletableFuture<T>()
+        future.completeExceptionally(throwable)
+        future
+    }
+}
@@ -0,0 +1,168 @@
+/*-------------------------------------------------------------------------------------------------
+ - #%L                                                                                            -
+ - chvote-protocol-poc                                                                            -
+ - %%                                                                                             -
+ - Copyright (C) 2016 - 2017 République et Canton de Genève                                       -
+ - %%                                                                                             -
+ - This program is free software: you can redistribute it and/or modify                           -
+ - it under the terms of the GNU Affero General Public License as published by                    -
+ - the Free Software Foundation, either version 3 of the License, or                              -
+ - (at your option) any later version.                                                            -
+ -                                                                                                -
+ - This program is distributed in the hope that it will be useful,                                -
+ - but WITHOUT ANY WARRANTY; without even the implied warranty of                                 -
+ - MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the                                   -
+ - GNU General Public License for more details.                                                   -
+ -                                                                                                -
+ - You should have received a copy of the GNU Affero General Public License                       -
+ - along with this program. If not, see <http://www.gnu.org/licenses/>.                           -
+ - #L%                                                                                            -
+ -------------------------------------------------------------------------------------------------*/
+
+package ch.ge.ve.protopoc.service.protocol
+
+import ch.ge.ve.protopoc.service.algorithm.DecryptionAuthorityAlgorithms
+import ch.ge.ve.protopoc.service.algorithm.GeneralAlgorithms
+import ch.ge.ve.protopoc.service.algorithm.MixingAuthorityAlgorithms
+import ch.ge.ve.protopoc.service.algorithm.VoteConfirmationAuthorityAlgorithms
+import ch.ge.ve.protopoc.service.model.*
+import ch.ge.ve.protopoc.service.support.RandomGenerator
+import spock.lang.Specification
+
+import static ch.ge.ve.protopoc.service.support.BigIntegers.*
+import static java.math.BigInteger.ONE
+import static java.math.BigInteger.ZERO
+
+/**
+ * This test class holds the tests for the {@link ShuffleProofVerificationService} class
+ */
+class ShuffleProofVerificationServiceTest extends Specification {
+    def defaultAlphabet = "abcdefghijklmnopqrstuvwxyzABCDEFGHIJKLMNOPQRSTUVWXYZ0123456789-_".toCharArray() as List<Character>
+    EncryptionGroup encryptionGroup = new EncryptionGroup(ELEVEN, FIVE, THREE, FOUR)
+    IdentificationGroup identificationGroup = new IdentificationGroup(ELEVEN, FIVE, THREE)
+    SecurityParameters securityParameters = new SecurityParameters(1, 1, 2, 0.99)
+    PrimeField primeField = new PrimeField(ELEVEN)
+    EncryptionPublicKey pk = new EncryptionPublicKey(THREE, encryptionGroup)
+
+    GeneralAlgorithms generalAlgorithms = Mock()
+    RandomGenerator randomGenerator = Mock()
+
+    def bold_e = [
+            new Encryption(FIVE, ONE),
+            new Encryption(THREE, FOUR),
+            new Encryption(FIVE, NINE)
+    ]
+    def bold_e_prime = [
+            new Encryption(ONE, FIVE),
+            new Encryption(FOUR, THREE),
+            new Encryption(ONE, FOUR)
+    ]
+    ShuffleProof proof
+    ShuffleProof tamperedProof
+    DefaultBulletinBoard bulletinBoard
+    ShuffleProofVerificationService verificationService
+
+    void setup() {
+        generalAlgorithms.getGenerators(3) >> [FOUR, THREE, FIVE]
+        generalAlgorithms.getNIZKPChallenges(3, _ as Object[], 1) >> [TWO, ZERO, THREE]
+        generalAlgorithms.getNIZKPChallenge(_, _, 1) >> ONE
+        generalAlgorithms.isMember(_ as BigInteger) >> true
+        generalAlgorithms.isInZ_q(_ as BigInteger) >> { BigInteger x -> 0 <= x && x < encryptionGroup.q }
+        randomGenerator.randomInZq(FIVE) >>> [ONE, TWO, THREE, FOUR, ZERO, ONE, ONE, TWO, THREE, FOUR, TWO, THREE]
+
+        // a valid proof that bold_e_prime is a shuffle of bold_e, with psy = [1, 0, 2] and bold_r_prime = [1, 4, 2]
+        def mixingAuthorityAlgorithms = new MixingAuthorityAlgorithms(publicParameters(2), generalAlgorithms,
+                Mock(VoteConfirmationAuthorityAlgorithms), randomGenerator)
+        proof = mixingAuthorityAlgorithms.genShuffleProof(bold_e, bold_e_prime, [ONE, FOUR, TWO], [1, 0, 2], pk)
+        def s = proof.s
+        tamperedProof = new ShuffleProof(proof.t,
+                new ShuffleProof.S(s.s_1.add(ONE).mod(FIVE), s.s_2, s.s_3, s.s_4, s.s_hat, s.s_prime),
+                proof.bold_c, proof.bold_c_hat)
+    }
+
+    void cleanup() {
+        verificationService?.shutdown()
+        bulletinBoard?.shutdown()
+    }
+
+    def "a valid proof should be accepted once it has been published"() {
+        given:
+        start(2, new DecryptionAuthorityAlgorithms(publicParameters(2), generalAlgorithms, randomGenerator))
+
+        when:
+        def result = verificationService.verify(1, null, pk)
+
+        then:
+        !result.done
+
+        when:
+        bulletinBoard.publishShuffle(0, bold_e)
+        bulletinBoard.publishShuffle(1, bold_e_prime)
+        bulletinBoard.publishShuffleProof(1, proof)
+
+        then:
+        result.get()
+        bulletinBoard.getShuffleProofVerification(1)
+    }
+
+    def "a tampered proof should be rejected"() {
+        given:
+        start(2, new DecryptionAuthorityAlgorithms(publicParameters(2), generalAlgorithms, randomGenerator))
+
+        when:
+        bulletinBoard.publishShuffle(0, bold_e_prime)
+        bulletinBoard.publishShuffleProof(0, tamperedProof)
+        def result = verificationService.verify(0, bold_e, pk)
+
+        then:
+        !result.get()
+        !bulletinBoard.getShuffleProofVerification(0)
+    }
+
+    def "the first proof should be checked again for a different e_0"() {
+        given:
+        start(2, new DecryptionAuthorityAlgorithms(publicParameters(2), generalAlgorithms, randomGenerator))
+        bulletinBoard.publishShuffle(0, bold_e_prime)
+        bulletinBoard.publishShuffleProof(0, proof)
+
+        expect:
+        verificationService.verify(0, bold_e, pk).get()
+        verificationService.verify(0, bold_e.reverse(), pk).get() == false
+    }
+
+    def "verifyOthers should combine the verifications of the other authorities' proofs with a logical and"() {
+        given:
+        DecryptionAuthorityAlgorithms decryptionAuthorityAlgorithms = Mock()
+        decryptionAuthorityAlgorithms.checkShuffleProof(proof, bold_e, bold_e_prime, pk) >> valid_0
+        decryptionAuthorityAlgorithms.checkShuffleProof(tamperedProof, bold_e_prime, bold_e, pk) >> valid_1
+        start(3, decryptionAuthorityAlgorithms)
+        bulletinBoard.publishShuffle(0, bold_e_prime)
+        bulletinBoard.publishShuffleProof(0, proof)
+        bulletinBoard.publishShuffle(1, bold_e)
+        bulletinBoard.publishShuffleProof(1, tamperedProof)
+
+        expect: "the own proof of authority 2, not yet published, is not waited for"
+        verificationService.verifyOthers(bold_e, pk, 2).get() == result
+
+        where:
+        valid_0 | valid_1 || result
+        true    | true    || true
+        true    | false   || false
+        false   | true    || false
+        false   | false   || false
+    }
+
+    private PublicParameters publicParameters(int s) {
+        new PublicParameters(
+                securityParameters, encryptionGroup, identificationGroup, primeField,
+                FIVE, defaultAlphabet, FIVE, defaultAlphabet,
+                defaultAlphabet, 2, defaultAlphabet, 2, s, 3
+        )
+    }
+
+    private void start(int s, DecryptionAuthorityAlgorithms decryptionAuthorityAlgorithms) {
+        bulletinBoard = new DefaultBulletinBoard()
+        bulletinBoard.publishPublicParameters(publicParameters(s))
+        verificationService = new ShuffleProofVerificationService(bulletinBoard, decryptionAuthorityAlgorithms, 1)
+    }
+}
@@ -0,0 +1,218 @@
+/*-------------------------------------------------------------------------------------------------
+ - #%L                                                                                            -
+ - chvote-protocol-poc                                                                            -
+ - %%                                                                                             -
+ - Copyright (C) 2016 - 2017 République et Canton de Genève                                       -
+ - %%                                                                                             -
+ - This program is free software: you can redistribute it and/or modify                           -
+ - it under the terms of the GNU Affero General Public License as published by                    -
+ - the Free Software Foundation, either version 3 of the License, or                              -
+ - (at your option) any later version.                                                            -
+ -                                                                                                -
+ - This program is distributed in the hope that it will be useful,                                -
+ - but WITHOUT ANY WARRANTY; without even the implied warranty of                                 -
+ - MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the                                   -
+ - GNU General Public License for more details.                                                   -
+ -                                                                                                -
+ - You should have received a copy of the GNU Affero General Public License                       -
+ - along with this program. If not, see <http://www.gnu.org/licenses/>.                           -
+ - #L%                                                                                            -
+ -------------------------------------------------------------------------------------------------*/
+
+package ch.ge.ve.protopoc.service.simulation
+
+import ch.ge.ve.protopoc.service.algorithm.TallyingAuthoritiesAlgorithm
+import ch.ge.ve.protopoc.service.model.*
+import ch.ge.ve.protopoc.service.protocol.DefaultBulletinBoard
+import spock.lang.Specification
+import spock.util.concurrent.BlockingVariable
+
+import java.util.concurrent.CompletableFuture
+import java.util.concurrent.Executor
+
+import static ch.ge.ve.protopoc.service.support.BigIntegers.*
+import static java.math.BigInteger.ONE
+
+/**
+ * This test class holds the tests for the {@link StreamingTally} class
+ */
+class StreamingTallyTest extends Specification {
+    def defaultAlphabet = "abcdefghijklmnopqrstuvwxyzABCDEFGHIJKLMNOPQRSTUVWXYZ0123456789-_".toCharArray() as List<Character>
+    EncryptionGroup encryptionGroup = new EncryptionGroup(ELEVEN, FIVE, THREE, FOUR)
+    IdentificationGroup identificationGroup = new IdentificationGroup(ELEVEN, FIVE, THREE)
+    SecurityParameters securityParameters = new SecurityParameters(1, 1, 2, 0.99)
+    PrimeField primeField = new PrimeField(ELEVEN)
+    PublicParameters publicParameters = new PublicParameters(
+            securityParameters, encryptionGroup, identificationGroup, primeField,
+            FIVE, defaultAlphabet, FIVE, defaultAlphabet,
+            defaultAlphabet, 2, defaultAlphabet, 2, 2, 3
+    )
+    DomainOfInfluence canton = new DomainOfInfluence("canton")
+    def finalShuffle = [new Encryption(FIVE, ONE), new Encryption(THREE, FOUR)]
+
+    TallyingAuthoritiesAlgorithm tallyingAuthoritiesAlgorithm = Mock()
+    Executor executor = { Runnable command -> command.run() } as Executor
+
+    // Class under test
+    StreamingTally streamingTally
+
+    void setup() {
+        streamingTally = new StreamingTally(tallyingAuthoritiesAlgorithm, finalShuffle,
+                [new Election(2, 1, canton)], 2, executor, 2)
+        tallyingAuthoritiesAlgorithm.getDecryptions(finalShuffle.subList(0, 1), [[ONE], [THREE]]) >> [FOUR]
+        tallyingAuthoritiesAlgorithm.getDecryptions(finalShuffle.subList(1, 2), [[TWO], [FIVE]]) >> [NINE]
+        tallyingAuthoritiesAlgorithm.getVoteCounts([FOUR], 2) >> [(vote(0)): 1L]
+        tallyingAuthoritiesAlgorithm.getVoteCounts([NINE], 2) >> [(vote(1)): 1L]
+    }
+
+    def vote(int... selections) {
+        def bits = new BitSet()
+        selections.each { bits.set(it) }
+        bits
+    }
+
+    def "the partial decryptions should be counted as soon as all the authorities have published them"() {
+        when:
+        streamingTally.onPartialDecryptionsPublished(0, 0, [ONE, TWO])
+
+        then:
+        0 * tallyingAuthoritiesAlgorithm.getDecryptions(*_)
+
+        when:
+        streamingTally.onPartialDecryptionsPublished(1, 0, [THREE])
+        streamingTally.onPartialDecryptionsPublished(1, 1, [FIVE])
+
+        then:
+        streamingTally.getTally() == new Tally(2L, [[1L, 1L]], [2L], [(canton): 2L])
+    }
+
+    def "getTally should refuse to count before all the partial decryptions are published"() {
+        given:
+        streamingTally.onPartialDecryptionsPublished(0, 0, [ONE, TWO])
+        streamingTally.onPartialDecryptionsPublished(1, 0, [THREE])
+
+        when:
+        streamingTally.getTally()
+
+        then:
+        thrown(IllegalStateException)
+    }
+
+    def "matches should only accept the partial decryptions that were streamed"() {
+        given:
+        streamingTally.onPartialDecryptionsPublished(0, 0, [ONE])
+        streamingTally.onPartialDecryptionsPublished(1, 0, [THREE])
+        streamingTally.onPartialDecryptionsPublished(0, 1, [TWO])
+        streamingTally.onPartialDecryptionsPublished(1, 1, [FIVE])
+
+        expect:
+        streamingTally.matches([[ONE, TWO], [THREE, FIVE]])
+        !streamingTally.matches([[ONE, TWO], [THREE, FOUR]])
+        !streamingTally.matches([[ONE, TWO], [THREE]])
+        !streamingTally.matches([[ONE, TWO]])
+    }
+
+    def "an authority getting too far ahead of the others should wait for them"() {
+        given: "a tally holding at most one pending partial decryption per authority"
+        streamingTally = new StreamingTally(tallyingAuthoritiesAlgorithm, finalShuffle,
+                [new Election(2, 1, canton)], 2, executor, 1)
+        streamingTally.onPartialDecryptionsPublished(0, 0, [ONE])
+        def published = new BlockingVariable<Boolean>()
+
+        when: "the first authority publishes another partial decryption"
+        def publication = CompletableFuture.runAsync {
+            streamingTally.onPartialDecryptionsPublished(0, 1, [TWO])
+            published.set(true)
+        }
+        Thread.sleep(100)
+
+        then:
+        !publication.isDone()
+
+        when: "the second authority catches up"
+        streamingTally.onPartialDecryptionsPublished(1, 0, [THREE])
+
+        then:
+        published.get()
+    }
+
+    def "the bulletin board should hand the chunks of partial decryptions over to the tally"() {
+        given:
+        def bulletinBoard = new DefaultBulletinBoard()
+        bulletinBoard.publishPublicParameters(publicParameters)
+        bulletinBoard.addListener(streamingTally)
+
+        and: "all the shuffles and their proofs"
+        (0..1).each {
+            bulletinBoard.publishShuffle(it, finalShuffle)
+            bulletinBoard.publishShuffleProof(it, shuffleProof())
+        }
+
+        when:
+        bulletinBoard.publishPartialDecryptions(0, 0, [ONE])
+        bulletinBoard.publishPartialDecryptions(1, 0, [THREE, FIVE])
+        bulletinBoard.publishPartialDecryptions(0, 1, [TWO])
+
+        then:
+        streamingTally.getTally() == new Tally(2L, [[1L, 1L]], [2L], [(canton): 2L])
+
+        when:
+        bulletinBoard.publishPartialDecryptions(0, 1, [TWO])
+
+        then:
+        thrown(IllegalArgumentException)
+
+        cleanup:
+        bulletinBoard.shutdown()
+    }
+
+    def "the bulletin board should refuse the partial decryptions that do not fit the final shuffle"() {
+        given:
+        def bulletinBoard = new DefaultBulletinBoard()
+        bulletinBoard.publishPublicParameters(publicParameters)
+        (0..1).each {
+            bulletinBoard.publishShuffle(it, finalShuffle)
+            bulletinBoard.publishShuffleProof(it, shuffleProof())
+        }
+
+        when:
+        bulletinBoard.publishPartialDecryptions(j, offset, chunk)
+
+        then:
+        thrown(exception)
+
+        cleanup:
+        bulletinBoard.shutdown()
+
+        where:
+        j  | offset | chunk             || exception
+        2  | 0      | [ONE]             || IndexOutOfBoundsException
+        0  | -1     | [ONE]             || IllegalArgumentException
+        0  | 1      | [ONE, TWO]        || IllegalArgumentException
+        0  | 0      | [ONE, TWO, THREE] || IllegalArgumentException
+        0  | 1      | [ONE]             || IllegalArgumentException
+    }
+
+    def "the bulletin board should refuse the partial decryptions before all the shuffles are published"() {
+        given:
+        def bulletinBoard = new DefaultBulletinBoard()
+        bulletinBoard.publishPublicParameters(publicParameters)
+        bulletinBoard.publishShuffle(0, finalShuffle)
+        bulletinBoard.publishShuffleProof(0, shuffleProof())
+        bulletinBoard.publishShuffle(1, finalShuffle)
+
+        when:
+        bulletinBoard.publishPartialDecryptions(0, 0, [ONE])
+
+        then:
+        thrown(IllegalStateException)
+
+        cleanup:
+        bulletinBoard.shutdown()
+    }
+
+    def shuffleProof() {
+        def x = ONE
+        new ShuffleProof(new ShuffleProof.T(x, x, x, [x, x], [x]), new ShuffleProof.S(x, x, x, x, [x], [x]), [x], [x])
+    }
+}
@@ -0,0 +1,56 @@
+/*-------------------------------------------------------------------------------------------------
+ - #%L                                                                                            -
+ - chvote-protocol-poc                                                                            -
+ - %%                                                                                             -
+ - Copyright (C) 2016 - 2017 République et Canton de Genève                                       -
+ - %%                                                                                             -
+ - This program is free software: you can redistribute it and/or modify                           -
+ - it under the terms of the GNU Affero General Public License as published by                    -
+ - the Free Software Foundation, either version 3 of the License, or                              -
+ - (at your option) any later version.                                                            -
+ -                                                                                                -
+ - This program is distributed in the hope that it will be useful,                                -
+ - but WITHOUT ANY WARRANTY; without even the implied warranty of                                 -
+ - MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the                                   -
+ - GNU General Public License for more details.                                                   -
+ -                                                                                                -
+ - You should have received a copy of the GNU Affero General Public License                       -
+ - along with this program. If not, see <http://www.gnu.org/licenses/>.                           -
+ - #L%                                                                                            -
+ -------------------------------------------------------------------------------------------------*/
+
+package ch.ge.ve.protopoc.service.support
+
+import spock.lang.Requires
+import spock.lang.Specification
+
+import java.nio.file.FileSystems
+import java.nio.file.Files
+import java.nio.file.Path
+import java.nio.file.attribute.PosixFilePermissions
+
+/**
+ * This test class holds the tests for the {@link SecretFiles} class
+ */
+class SecretFilesTest extends Specification {
+    Path directory
+
+    void setup() {
+        directory = Files.createTempDirectory("secret-files")
+    }
+
+    void cleanup() {
+        directory.toFile().deleteDir()
+    }
+
+    @Requires({ FileSystems.default.supportedFileAttributeViews().contains("posix") })
+    def "createTempFile should create a file only its owner may access"() {
+        when:
+        def file = SecretFiles.createTempFile(directory, "secret-", ".tmp")
+
+        then:
+        file.parent == directory
+        file.fileName.toString().startsWith("secret-")
+        PosixFilePermissions.toString(Files.getPosixFilePermissions(file)) == "rw-------"
+    }
+}